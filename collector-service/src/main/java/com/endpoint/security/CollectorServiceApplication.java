@@ -1,5 +1,6 @@
 package com.endpoint.security;
 
+import com.endpoint.security.collector.PayloadProfile;
 import com.endpoint.security.collector.RawEventGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,7 +26,8 @@ public class CollectorServiceApplication {
 
     @Bean
     public RawEventGenerator rawEventGenerator(
-            @org.springframework.beans.factory.annotation.Value("${collector.alert-percentage:3}") int alertPercentage) {
-        return new RawEventGenerator(alertPercentage);
+            @org.springframework.beans.factory.annotation.Value("${collector.alert-percentage:3}") int alertPercentage,
+            @org.springframework.beans.factory.annotation.Value("${collector.payload-profile:minimal}") String payloadProfile) {
+        return new RawEventGenerator(alertPercentage, PayloadProfile.parse(payloadProfile));
     }
 }
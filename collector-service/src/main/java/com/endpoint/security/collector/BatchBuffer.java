@@ -0,0 +1,50 @@
+package com.endpoint.security.collector;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer reused across batches, so encoding a batch does not allocate once it has warmed up.
+ */
+class BatchBuffer extends OutputStream {
+
+    private byte[] buf;
+    private int count;
+
+    BatchBuffer(int initialCapacity) {
+        this.buf = new byte[initialCapacity];
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(count + 1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    int size() {
+        return count;
+    }
+
+    void reset() {
+        count = 0;
+    }
+
+    /** Wraps the current contents without copying; valid until the next write or reset. */
+    ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(buf, 0, count);
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(needed, buf.length * 2));
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.endpoint.security.collector;
+
+import com.endpoint.security.collector.model.BlockIndexEntry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Writes raw events as a sequence of independently deflated blocks of {@code blockLines} lines
+ * ({@code raw-events.ndjson.deflate}) plus a sidecar NDJSON index ({@code .deflate.idx}) recording each block's
+ * byte offset and line range. A block's index entry is appended only after the block itself, so readers that
+ * follow the index never see a partial block. A partial block is cut on close, or when the writer is idle and its
+ * first pending line has waited {@code maxBlockAgeMs}; cutting on every idle poll would leave a trickle of events
+ * in one-line blocks, whose index entries outweigh what compression saves.
+ * <p>
+ * An existing file is continued after its last indexed block (dropping any unindexed tail left by a crash), with
+ * block and line numbering carried on, like the normalizer's {@code BlockCompressedWriter} in append mode.
+ */
+class BlockCompressedSink implements RawEventSink {
+
+    static final String EXTENSION = ".deflate";
+    static final String INDEX_EXTENSION = ".idx";
+
+    private static final Logger log = LoggerFactory.getLogger(BlockCompressedSink.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FileChannel data;
+    private final FileChannel index;
+    private final Deflater deflater;
+    private final int blockLines;
+    private final long maxBlockAgeNanos;
+    private byte[] pending = new byte[256 * 1024];
+    private int pendingBytes;
+    private int pendingLines;
+    private long pendingSinceNanos;
+    private byte[] compressed = new byte[0];
+    private long blockNumber;
+    private long nextLine;
+    private long totalUncompressed;
+    private long totalCompressed;
+    private long totalEncodeNanos;
+
+    /** @param maxBlockAgeMs how long pending lines may wait for a full block while the writer is idle (0 = not at all) */
+    BlockCompressedSink(Path outputPath, int blockLines, int level, long maxBlockAgeMs) throws IOException {
+        if (blockLines < 1) throw new IllegalArgumentException("blockLines must be >= 1");
+        if (maxBlockAgeMs < 0) throw new IllegalArgumentException("maxBlockAgeMs must be >= 0");
+        Path dataPath = Path.of(outputPath + EXTENSION);
+        if (dataPath.getParent() != null) Files.createDirectories(dataPath.getParent());
+        this.data = FileChannel.open(dataPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.index = FileChannel.open(Path.of(dataPath + INDEX_EXTENSION), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.deflater = new Deflater(level);
+        this.blockLines = blockLines;
+        this.maxBlockAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxBlockAgeMs);
+        resume();
+    }
+
+    @Override
+    public void append(ByteBuffer lines, int events) throws IOException {
+        int size = lines.remaining();
+        if (pendingBytes == 0) pendingSinceNanos = System.nanoTime();
+        if (pendingBytes + size > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pendingBytes + size, pending.length * 2));
+        }
+        int scanFrom = pendingBytes;
+        lines.get(pending, pendingBytes, size);
+        pendingBytes += size;
+        for (int i = scanFrom; i < pendingBytes; i++) {
+            if (pending[i] == '\n' && ++pendingLines == blockLines) {
+                writeBlock(i + 1);
+                // writeBlock shifted the remainder to the front of the buffer
+                i = -1;
+                if (pendingBytes == 0) break;
+                pendingSinceNanos = System.nanoTime();
+            }
+        }
+    }
+
+    @Override
+    public void sync() throws IOException {
+        data.force(false);
+        index.force(false);
+    }
+
+    @Override
+    public void onIdle() throws IOException {
+        if (pendingLines > 0 && System.nanoTime() - pendingSinceNanos >= maxBlockAgeNanos) writeBlock();
+    }
+
+    /** Compresses all complete lines pending so far, e.g. a short block when the writer goes idle. */
+    private void writeBlock() throws IOException {
+        if (pendingLines == 0) return;
+        int blockBytes = pendingBytes;
+        while (pending[blockBytes - 1] != '\n') blockBytes--;
+        writeBlock(blockBytes);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeBlock();
+        deflater.end();
+        data.close();
+        index.close();
+        if (totalCompressed > 0) {
+            log.info("Block-compressed output closed: {} blocks, {} -> {} bytes (ratio {}), encode {} MB/s",
+                blockNumber, totalUncompressed, totalCompressed,
+                String.format("%.2f", (double) totalUncompressed / totalCompressed),
+                String.format("%.1f", totalUncompressed / (totalEncodeNanos / 1e9) / (1024 * 1024)));
+        }
+    }
+
+    /** Compresses the first {@code blockBytes} pending bytes (exactly {@code pendingLines} whole lines). */
+    private void writeBlock(int blockBytes) throws IOException {
+        long t0 = System.nanoTime();
+        int bound = blockBytes + (blockBytes >> 12) + (blockBytes >> 14) + (blockBytes >> 25) + 64;
+        if (compressed.length < bound) compressed = new byte[bound];
+        deflater.reset();
+        deflater.setInput(pending, 0, blockBytes);
+        deflater.finish();
+        int compressedBytes = 0;
+        while (!deflater.finished()) {
+            compressedBytes += deflater.deflate(compressed, compressedBytes, compressed.length - compressedBytes);
+            if (compressedBytes == compressed.length) compressed = Arrays.copyOf(compressed, compressed.length * 2);
+        }
+        long encodeNanos = System.nanoTime() - t0;
+
+        long offset = data.position();
+        ByteBuffer out = ByteBuffer.wrap(compressed, 0, compressedBytes);
+        while (out.hasRemaining()) data.write(out);
+        BlockIndexEntry entry = new BlockIndexEntry(blockNumber++, offset, compressedBytes, blockBytes,
+            nextLine, pendingLines, encodeNanos);
+        ByteBuffer line = ByteBuffer.wrap((objectMapper.writeValueAsString(entry) + "\n").getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        while (line.hasRemaining()) index.write(line);
+        if (log.isDebugEnabled()) {
+            log.debug("Block {}: {} lines, {} -> {} bytes (ratio {}), encode {} MB/s", entry.block(), entry.lineCount(),
+                blockBytes, compressedBytes, String.format("%.2f", entry.compressionRatio()),
+                String.format("%.1f", entry.encodeMbPerSecond()));
+        }
+
+        nextLine += pendingLines;
+        totalUncompressed += blockBytes;
+        totalCompressed += compressedBytes;
+        totalEncodeNanos += encodeNanos;
+        System.arraycopy(pending, blockBytes, pending, 0, pendingBytes - blockBytes);
+        pendingBytes -= blockBytes;
+        pendingLines = 0;
+    }
+
+    /** Positions both files after the last complete index entry and continues its block and line numbering. */
+    private void resume() throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) index.size());
+        while (buf.hasRemaining()) {
+            if (index.read(buf, buf.position()) < 0) break;
+        }
+        byte[] bytes = buf.array();
+        int complete = 0;
+        BlockIndexEntry last = null;
+        for (int i = 0; i < buf.position(); i++) {
+            if (bytes[i] == '\n') {
+                last = objectMapper.readValue(bytes, complete, i - complete, BlockIndexEntry.class);
+                complete = i + 1;
+            }
+        }
+        long dataEnd = last == null ? 0 : last.offset() + last.compressedBytes();
+        if (data.size() < dataEnd) throw new IOException("Compressed data is shorter than its index: " + data.size() + " < " + dataEnd);
+        index.truncate(complete);
+        data.truncate(dataEnd);
+        index.position(complete);
+        data.position(dataEnd);
+        if (last != null) {
+            blockNumber = last.block() + 1;
+            nextLine = last.firstLine() + last.lineCount();
+            log.info("Appending to block-compressed output after block {} (line {})", last.block(), nextLine);
+        }
+    }
+}
@@ -6,6 +6,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PreDestroy;
+
 @Component
 public class CollectorRunner implements CommandLineRunner {
 
@@ -13,21 +15,92 @@ public class CollectorRunner implements CommandLineRunner {
     private final RawEventGenerator generator;
     private final RawEventWriter writer;
     private final long intervalMs;
+    private final String mode;
+    private final int fleetEndpoints;
+    private final long fleetEventsPerSecond;
+    private final int fleetWorkers;
+    private final long fleetReportIntervalMs;
+    private final boolean fleetEncoded;
+    private final Long fleetSeed;
+    private final String replayPath;
+    private final double replaySpeed;
+    private final long replayReportIntervalMs;
+    private final String procRoot;
+    private final long procScanIntervalMs;
+    private final long procReportIntervalMs;
     private volatile boolean running = true;
     private String endpointId;
+    private FleetSimulator fleet;
+    private EventReplayer replayer;
+    private ProcScanner procScanner;
 
     public CollectorRunner(RawEventGenerator generator,
                            RawEventWriter writer,
-                           @org.springframework.beans.factory.annotation.Value("${collector.interval-ms:1000}") long intervalMs) {
+                           @org.springframework.beans.factory.annotation.Value("${collector.interval-ms:1000}") long intervalMs,
+                           @org.springframework.beans.factory.annotation.Value("${collector.mode:single}") String mode,
+                           @org.springframework.beans.factory.annotation.Value("${collector.fleet.endpoints:1000}") int fleetEndpoints,
+                           @org.springframework.beans.factory.annotation.Value("${collector.fleet.events-per-second:10000}") long fleetEventsPerSecond,
+                           @org.springframework.beans.factory.annotation.Value("${collector.fleet.workers:0}") int fleetWorkers,
+                           @org.springframework.beans.factory.annotation.Value("${collector.fleet.report-interval-ms:5000}") long fleetReportIntervalMs,
+                           @org.springframework.beans.factory.annotation.Value("${collector.fleet.generator:pojo}") String fleetGenerator,
+                           @org.springframework.beans.factory.annotation.Value("${collector.fleet.seed:}") String fleetSeed,
+                           @org.springframework.beans.factory.annotation.Value("${collector.replay.path:}") String replayPath,
+                           @org.springframework.beans.factory.annotation.Value("${collector.replay.speed:1}") double replaySpeed,
+                           @org.springframework.beans.factory.annotation.Value("${collector.replay.report-interval-ms:5000}") long replayReportIntervalMs,
+                           @org.springframework.beans.factory.annotation.Value("${collector.proc.root:/proc}") String procRoot,
+                           @org.springframework.beans.factory.annotation.Value("${collector.proc.scan-interval-ms:500}") long procScanIntervalMs,
+                           @org.springframework.beans.factory.annotation.Value("${collector.proc.report-interval-ms:10000}") long procReportIntervalMs) {
         this.generator = generator;
         this.writer = writer;
         this.intervalMs = intervalMs;
+        this.mode = mode.trim().toLowerCase();
+        this.fleetEndpoints = fleetEndpoints;
+        this.fleetEventsPerSecond = fleetEventsPerSecond;
+        this.fleetWorkers = fleetWorkers;
+        this.fleetReportIntervalMs = fleetReportIntervalMs;
+        this.fleetEncoded = "bytes".equalsIgnoreCase(fleetGenerator.trim());
+        this.fleetSeed = fleetSeed == null || fleetSeed.isBlank() ? null : Long.parseLong(fleetSeed.trim());
+        this.replayPath = replayPath;
+        this.replaySpeed = replaySpeed;
+        this.replayReportIntervalMs = replayReportIntervalMs;
+        this.procRoot = procRoot;
+        this.procScanIntervalMs = procScanIntervalMs;
+        this.procReportIntervalMs = procReportIntervalMs;
         this.endpointId = generator.generateEndpointId();
     }
 
     @Override
     public void run(String... args) throws Exception {
         writer.start();
+        switch (mode) {
+            case "fleet" -> startFleet();
+            case "replay" -> startReplay();
+            case "proc" -> startProc();
+            case "single" -> startSingle();
+            default -> throw new IllegalArgumentException("Unknown collector.mode: " + mode + " (expected single, fleet, replay or proc)");
+        }
+    }
+
+    private void startReplay() throws java.io.IOException {
+        if (replayPath == null || replayPath.isBlank()) {
+            throw new IllegalArgumentException("collector.mode=replay requires collector.replay.path");
+        }
+        replayer = new EventReplayer(writer, java.nio.file.Paths.get(replayPath.trim()), replaySpeed, replayReportIntervalMs);
+        replayer.start();
+    }
+
+    private void startFleet() {
+        fleet = new FleetSimulator(generator, writer, fleetEndpoints, fleetEventsPerSecond, fleetWorkers,
+            fleetReportIntervalMs, fleetEncoded, fleetSeed);
+        fleet.start();
+    }
+
+    private void startProc() throws java.io.IOException {
+        procScanner = new ProcScanner(writer, java.nio.file.Paths.get(procRoot), endpointId, procScanIntervalMs, procReportIntervalMs);
+        procScanner.start();
+    }
+
+    private void startSingle() {
         log.info("Collector started, endpointId={}", endpointId);
         Thread t = new Thread(() -> {
             long eventCount = 0;
@@ -50,4 +123,18 @@ public class CollectorRunner implements CommandLineRunner {
         t.setDaemon(false);
         t.start();
     }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (fleet != null) {
+            fleet.stop();
+        }
+        if (replayer != null) {
+            replayer.stop();
+        }
+        if (procScanner != null) {
+            procScanner.stop();
+        }
+    }
 }
@@ -0,0 +1,207 @@
+package com.endpoint.security.collector;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Re-emits a recorded raw-event NDJSON file through the {@link RawEventWriter}, keeping the original
+ * inter-arrival times scaled by {@code speed} (2.0 = twice as fast; 0 = as fast as the writer accepts).
+ * Lines are passed on byte-for-byte.
+ * <p>
+ * Event times come from each line's {@code timestamp} (ISO instant, epoch millis, or a local date-time
+ * taken as UTC). Lines without a usable timestamp, or older than one already replayed, are sent straight
+ * after their predecessor, so replay time never runs backwards.
+ */
+public class EventReplayer {
+
+    private static final Logger log = LoggerFactory.getLogger(EventReplayer.class);
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final long UNKNOWN = Long.MIN_VALUE;
+
+    private final RawEventWriter writer;
+    private final Path source;
+    private final double speed;
+    private final long reportIntervalMs;
+    private final LongAdder emitted = new LongAdder();
+    private volatile boolean running;
+    private volatile long maxLagNanos;
+    private Thread thread;
+
+    public EventReplayer(RawEventWriter writer, Path source, double speed, long reportIntervalMs) {
+        if (speed < 0) throw new IllegalArgumentException("speed must be >= 0 (0 = as fast as possible)");
+        this.writer = writer;
+        this.source = source;
+        this.speed = speed;
+        this.reportIntervalMs = reportIntervalMs;
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) return;
+        if (!Files.isReadable(source)) throw new IOException("Replay source not readable: " + source);
+        if (source.toAbsolutePath().normalize().equals(Path.of(writer.outputPath()).toAbsolutePath().normalize())) {
+            throw new IllegalArgumentException("Replay source must differ from the collector output: " + source);
+        }
+        running = true;
+        thread = new Thread(this::replay, "CollectorReplay");
+        thread.start();
+        log.info("Replay started: {} at {}", source, speed == 0 ? "maximum speed" : speed + "x");
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Waits for the replay to reach the end of the file; returns false on timeout. */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        Thread t = thread;
+        if (t == null) return true;
+        t.join(unit.toMillis(timeout));
+        return !t.isAlive();
+    }
+
+    public long emittedCount() {
+        return emitted.sum();
+    }
+
+    /** Largest delay so far between an event's scheduled and actual emission. */
+    public long maxLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLagNanos);
+    }
+
+    private void replay() {
+        long startNanos = System.nanoTime();
+        long firstEventMillis = UNKNOWN;
+        long lastEventMillis = UNKNOWN;
+        long nextReport = startNanos + TimeUnit.MILLISECONDS.toNanos(reportIntervalMs);
+        try (InputStream in = Files.newInputStream(source)) {
+            byte[] chunk = new byte[64 * 1024];
+            int start = 0;
+            int length = 0;
+            boolean eof = false;
+            while (running && !(eof && start == length)) {
+                int newline = indexOf(chunk, start, length, (byte) '\n');
+                if (newline < 0 && !eof) {
+                    // Move the partial line to the front and read more behind it.
+                    System.arraycopy(chunk, start, chunk, 0, length - start);
+                    length -= start;
+                    start = 0;
+                    if (length == chunk.length) chunk = Arrays.copyOf(chunk, chunk.length * 2);
+                    int n = in.read(chunk, length, chunk.length - length);
+                    if (n < 0) eof = true;
+                    else length += n;
+                    continue;
+                }
+                int end = newline < 0 ? length : newline;
+                byte[] bytes = trimmed(chunk, start, end);
+                start = newline < 0 ? length : newline + 1;
+                if (bytes == null) continue;
+
+                if (speed > 0) {
+                    long eventMillis = timestampMillis(bytes);
+                    if (eventMillis != UNKNOWN && (lastEventMillis == UNKNOWN || eventMillis > lastEventMillis)) {
+                        if (firstEventMillis == UNKNOWN) firstEventMillis = eventMillis;
+                        lastEventMillis = eventMillis;
+                    }
+                    if (firstEventMillis != UNKNOWN) {
+                        long due = startNanos + (long) ((lastEventMillis - firstEventMillis) * 1_000_000L / speed);
+                        long wait = due - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                            if (Thread.interrupted()) break;
+                        } else if (-wait > maxLagNanos) {
+                            maxLagNanos = -wait;
+                        }
+                    }
+                }
+                writer.writeEncoded(bytes);
+                emitted.increment();
+
+                if (reportIntervalMs > 0 && System.nanoTime() >= nextReport) {
+                    log.info("Replay progress: {} events, max lag {} ms", emitted.sum(), maxLagMillis());
+                    nextReport = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(reportIntervalMs);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Replay of {} failed", source, e);
+        } finally {
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            log.info("Replay {}: {} events in {} s ({} events/s), recorded span {} s, max lag {} ms",
+                running ? "finished" : "stopped", emitted.sum(), String.format("%.1f", seconds),
+                Math.round(emitted.sum() / Math.max(seconds, 1e-9)),
+                firstEventMillis == UNKNOWN ? 0 : String.format("%.1f", (lastEventMillis - firstEventMillis) / 1000.0),
+                maxLagMillis());
+            running = false;
+        }
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == b) return i;
+        }
+        return -1;
+    }
+
+    /** Copy of {@code bytes[from, to)} without surrounding whitespace (e.g. a CR), or null for a blank line. */
+    private static byte[] trimmed(byte[] bytes, int from, int to) {
+        while (from < to && bytes[from] <= ' ') from++;
+        while (to > from && bytes[to - 1] <= ' ') to--;
+        return from == to ? null : Arrays.copyOfRange(bytes, from, to);
+    }
+
+    /** Epoch millis of the line's top-level {@code timestamp}, or {@link #UNKNOWN}. */
+    static long timestampMillis(byte[] line) {
+        try (JsonParser parser = JSON.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return UNKNOWN;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (!"timestamp".equals(name)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (value == JsonToken.VALUE_NUMBER_INT) return parser.getLongValue();
+                if (value == JsonToken.VALUE_STRING) return parseText(parser.getText());
+                return UNKNOWN;
+            }
+        } catch (IOException e) {
+            // Not JSON; replayed as-is without timing information.
+        }
+        return UNKNOWN;
+    }
+
+    private static long parseText(String text) {
+        try {
+            return Instant.parse(text).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDateTime.parse(text).toInstant(ZoneOffset.UTC).toEpochMilli();
+            } catch (DateTimeParseException e2) {
+                return UNKNOWN;
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.endpoint.security.collector;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * High-rate variant of {@link RawEventGenerator} for load generation. Writes the same messy JSON shape
+ * (snake_case/camelCase keys, four timestamp forms, nulls) straight into a caller-supplied buffer from
+ * precomputed byte tables, with no {@code RawSecurityEvent}, no Jackson and no per-event allocation.
+ * <p>
+ * Not thread-safe: each producer thread owns an instance with its own {@link SplittableRandom}.
+ * Instances created with the same seed and worker index produce identical output for the same
+ * sequence of endpoint ids and timestamps.
+ */
+public class FastRawEventGenerator {
+
+    /** Upper bound on the size of one encoded event, for sizing caller buffers. */
+    public static final int MAX_EVENT_BYTES = 512;
+
+    private static final long WORKER_SEED_STRIDE = 0x9E3779B97F4A7C15L;
+
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] K_TIMESTAMP = ascii("{\"timestamp\":");
+    private static final byte[] K_ENDPOINT_ID = ascii(",\"endpointId\":");
+    private static final byte[] K_ENDPOINT_ID_SNAKE = ascii(",\"endpoint_id\":");
+    private static final byte[] K_EVENT_TYPE = ascii(",\"eventType\":");
+    private static final byte[] K_EVENT_TYPE_SNAKE = ascii(",\"event_type\":");
+    private static final byte[] K_USER_ID = ascii(",\"userId\":");
+    private static final byte[] K_USER = ascii(",\"user\":");
+    private static final byte[] K_PROCESS_NAME = ascii(",\"processName\":");
+    private static final byte[] K_PROCESS = ascii(",\"process\":");
+    private static final byte[] K_ALERT_SCORE = ascii(",\"alertScore\":");
+    private static final byte[] K_ALERT_REASON = ascii(",\"alertReason\":");
+
+    private static final byte[][] EVENT_TYPES = quotedTable("process_start", "file_access", "network_connection");
+    private static final byte[][] EVENT_TYPES_RAW = quotedTable("PROCESS_START", "FILE_ACCESS", "NETWORK_CONNECTION");
+    private static final byte[][] PROCESS_NAMES = quotedTable(
+        "cmd.exe", "powershell.exe", "chrome.exe", "firefox.exe", "notepad.exe", "explorer.exe",
+        "system_idle_process", "svchost.exe");
+    private static final byte[][] ALERT_REASONS = quotedTable(
+        "Suspicious process execution pattern detected",
+        "Unauthorized file access attempt",
+        "Unusual network connection to external IP");
+    private static final byte[][] USER_IDS = new byte[1000][];
+    private static final byte[][] SCORES = new byte[101][];
+
+    static {
+        for (int i = 0; i < USER_IDS.length; i++) {
+            USER_IDS[i] = ascii("\"user_" + i + "\"");
+        }
+        for (int i = 1; i < SCORES.length; i++) {
+            SCORES[i] = ascii(Integer.toString(i));
+        }
+    }
+
+    private final SplittableRandom random;
+    private final int alertPercentage;
+    private final byte[] digits = new byte[20];
+    private final byte[] secondPrefix = new byte[19];
+    private long cachedSecond = Long.MIN_VALUE;
+
+    public FastRawEventGenerator(int alertPercentage, SplittableRandom random) {
+        this.alertPercentage = Math.max(1, Math.min(5, alertPercentage));
+        this.random = random;
+    }
+
+    /** Unseeded generator; output differs from run to run. */
+    public FastRawEventGenerator(int alertPercentage) {
+        this(alertPercentage, new SplittableRandom());
+    }
+
+    /**
+     * Generator for one worker of a reproducible run: the same {@code seed} and {@code workerIndex}
+     * always yield the same random stream, independent of thread scheduling.
+     */
+    public static FastRawEventGenerator forWorker(int alertPercentage, long seed, int workerIndex) {
+        return new FastRawEventGenerator(alertPercentage, new SplittableRandom(seed + workerIndex * WORKER_SEED_STRIDE));
+    }
+
+    /** Precomputes the quoted JSON form of an endpoint id for use with {@link #encode}. */
+    public static byte[] endpointIdBytes(String endpointId) {
+        for (int i = 0; i < endpointId.length(); i++) {
+            char c = endpointId.charAt(i);
+            if (c < 0x20 || c > 0x7e || c == '"' || c == '\\') {
+                throw new IllegalArgumentException("endpointId must be printable ASCII without quotes: " + endpointId);
+            }
+        }
+        return ascii("\"" + endpointId + "\"");
+    }
+
+    /**
+     * Writes one JSON object (no trailing newline) for the given endpoint into {@code out}.
+     *
+     * @param endpointIdJson quoted endpoint id from {@link #endpointIdBytes}
+     * @param epochMillis    event time used for the timestamp variants
+     * @return number of bytes written
+     */
+    public int encode(byte[] endpointIdJson, long epochMillis, ByteBuffer out) {
+        int start = out.position();
+        SplittableRandom r = random;
+
+        out.put(K_TIMESTAMP);
+        int variant = r.nextInt(4);
+        if (variant == 0) {
+            putIsoTimestamp(out, epochMillis, true);
+        } else if (variant == 1) {
+            putIsoTimestamp(out, epochMillis, false);
+        } else if (variant == 2 && r.nextBoolean()) {
+            out.put(NULL);
+        } else {
+            putLong(out, epochMillis);
+        }
+
+        // Getters fall back to the snake_case field, so the camelCase key is always populated.
+        boolean camelEndpoint = r.nextBoolean();
+        out.put(K_ENDPOINT_ID).put(endpointIdJson);
+        out.put(K_ENDPOINT_ID_SNAKE).put(camelEndpoint ? NULL : endpointIdJson);
+
+        byte[] eventType = EVENT_TYPES[r.nextInt(EVENT_TYPES.length)];
+        if (r.nextBoolean()) {
+            out.put(K_EVENT_TYPE).put(eventType);
+            out.put(K_EVENT_TYPE_SNAKE).put(NULL);
+        } else {
+            byte[] raw = EVENT_TYPES_RAW[r.nextInt(EVENT_TYPES_RAW.length)];
+            out.put(K_EVENT_TYPE).put(raw);
+            out.put(K_EVENT_TYPE_SNAKE).put(raw);
+        }
+
+        byte[] userId = USER_IDS[r.nextInt(USER_IDS.length)];
+        out.put(K_USER_ID).put(userId);
+        out.put(K_USER).put(r.nextBoolean() ? NULL : userId);
+
+        byte[] processName = PROCESS_NAMES[r.nextInt(PROCESS_NAMES.length)];
+        out.put(K_PROCESS_NAME).put(processName);
+        out.put(K_PROCESS).put(r.nextBoolean() ? NULL : processName);
+
+        if (r.nextInt(100) < alertPercentage) {
+            out.put(K_ALERT_SCORE).put(SCORES[r.nextInt(100) + 1]);
+            out.put(K_ALERT_REASON).put(ALERT_REASONS[r.nextInt(ALERT_REASONS.length)]);
+        } else {
+            out.put(K_ALERT_SCORE).put(NULL);
+            out.put(K_ALERT_REASON).put(NULL);
+        }
+        out.put((byte) '}');
+        return out.position() - start;
+    }
+
+    /**
+     * Writes {@code Instant.toString()} (utc=true) or ISO_LOCAL_DATE_TIME in UTC (utc=false) of a
+     * millisecond timestamp, matching the JDK formatters' fraction rules.
+     */
+    private void putIsoTimestamp(ByteBuffer out, long epochMillis, boolean utc) {
+        long second = Math.floorDiv(epochMillis, 1000);
+        int millis = (int) Math.floorMod(epochMillis, 1000);
+        if (second != cachedSecond) {
+            fillSecondPrefix(second);
+            cachedSecond = second;
+        }
+        out.put((byte) '"').put(secondPrefix);
+        if (millis != 0) {
+            out.put((byte) '.');
+            int d1 = millis / 100, d2 = millis / 10 % 10, d3 = millis % 10;
+            out.put((byte) ('0' + d1));
+            if (utc || d2 != 0 || d3 != 0) out.put((byte) ('0' + d2));
+            if (utc || d3 != 0) out.put((byte) ('0' + d3));
+        }
+        if (utc) out.put((byte) 'Z');
+        out.put((byte) '"');
+    }
+
+    /** Civil-from-days (H. Hinnant) for the UTC calendar date, then time of day. */
+    private void fillSecondPrefix(long epochSecond) {
+        long days = Math.floorDiv(epochSecond, 86400);
+        int secOfDay = (int) Math.floorMod(epochSecond, 86400);
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+        byte[] p = secondPrefix;
+        put4(p, 0, year);
+        p[4] = '-';
+        put2(p, 5, month);
+        p[7] = '-';
+        put2(p, 8, day);
+        p[10] = 'T';
+        put2(p, 11, secOfDay / 3600);
+        p[13] = ':';
+        put2(p, 14, secOfDay / 60 % 60);
+        p[16] = ':';
+        put2(p, 17, secOfDay % 60);
+    }
+
+    private void putLong(ByteBuffer out, long value) {
+        if (value < 0) {
+            out.put((byte) '-');
+            value = -value;
+        }
+        int i = digits.length;
+        do {
+            digits[--i] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        out.put(digits, i, digits.length - i);
+    }
+
+    private static void put4(byte[] b, int at, int v) {
+        b[at] = (byte) ('0' + v / 1000 % 10);
+        b[at + 1] = (byte) ('0' + v / 100 % 10);
+        b[at + 2] = (byte) ('0' + v / 10 % 10);
+        b[at + 3] = (byte) ('0' + v % 10);
+    }
+
+    private static void put2(byte[] b, int at, int v) {
+        b[at] = (byte) ('0' + v / 10);
+        b[at + 1] = (byte) ('0' + v % 10);
+    }
+
+    private static byte[][] quotedTable(String... values) {
+        byte[][] table = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            table[i] = ascii("\"" + values[i] + "\"");
+        }
+        return table;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
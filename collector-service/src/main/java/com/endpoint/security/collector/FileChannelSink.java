@@ -0,0 +1,40 @@
+package com.endpoint.security.collector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends to a single NDJSON file that grows forever.
+ */
+class FileChannelSink implements RawEventSink {
+
+    private final FileChannel channel;
+
+    FileChannelSink(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void append(ByteBuffer lines, int events) throws IOException {
+        while (lines.hasRemaining()) {
+            channel.write(lines);
+        }
+    }
+
+    @Override
+    public void sync() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,195 @@
+package com.endpoint.security.collector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Simulates a fleet of endpoints at a fixed aggregate event rate, for load-testing the pipeline.
+ * Endpoints are split across virtual-thread workers; each worker paces itself against its own
+ * share of the target rate and catches up in short bursts when it falls behind.
+ * <p>
+ * With {@code encoded} set, workers use a {@link FastRawEventGenerator} each and hand pre-encoded lines to
+ * the writer. A non-null {@code seed} makes such a run reproducible: endpoint ids, event contents and
+ * timestamps (taken from each worker's schedule starting at {@link #SEEDED_EPOCH_MILLIS}) are identical
+ * from run to run, per worker.
+ */
+public class FleetSimulator {
+
+    private static final Logger log = LoggerFactory.getLogger(FleetSimulator.class);
+    private static final int MAX_BURST = 1024;
+    static final long SEEDED_EPOCH_MILLIS = 1_704_067_200_000L; // 2024-01-01T00:00:00Z
+
+    private final RawEventGenerator generator;
+    private final RawEventWriter writer;
+    private final String[] endpointIds;
+    private final long targetRate;
+    private final int workers;
+    private final long reportIntervalMs;
+    private final boolean encoded;
+    private final Long seed;
+    private final LongAdder emitted = new LongAdder();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+    private volatile long startNanos;
+
+    public FleetSimulator(RawEventGenerator generator, RawEventWriter writer,
+                          int endpointCount, long targetRate, int workers, long reportIntervalMs) {
+        this(generator, writer, endpointCount, targetRate, workers, reportIntervalMs, false, null);
+    }
+
+    public FleetSimulator(RawEventGenerator generator, RawEventWriter writer,
+                          int endpointCount, long targetRate, int workers, long reportIntervalMs,
+                          boolean encoded, Long seed) {
+        if (endpointCount < 1) throw new IllegalArgumentException("endpointCount must be >= 1");
+        if (targetRate < 1) throw new IllegalArgumentException("targetRate must be >= 1");
+        this.generator = generator;
+        this.writer = writer;
+        this.targetRate = targetRate;
+        this.workers = Math.max(1, Math.min(endpointCount,
+            workers > 0 ? workers : Runtime.getRuntime().availableProcessors()));
+        this.reportIntervalMs = reportIntervalMs;
+        this.encoded = encoded;
+        this.seed = seed;
+        this.endpointIds = new String[endpointCount];
+        SplittableRandom idRandom = seed != null ? new SplittableRandom(seed) : null;
+        for (int i = 0; i < endpointCount; i++) {
+            endpointIds[i] = idRandom != null ? seededUuid(idRandom) : generator.generateEndpointId();
+        }
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        startNanos = System.nanoTime();
+        for (int w = 0; w < workers; w++) {
+            final int index = w;
+            threads.add(Thread.ofVirtual().name("FleetWorker-" + w).start(() -> runWorker(index)));
+        }
+        // Virtual workers are always daemon threads; this one keeps the JVM up until stop() and reports the rate.
+        Thread supervisor = new Thread(this::supervise, "FleetSupervisor");
+        supervisor.setDaemon(false);
+        supervisor.start();
+        threads.add(supervisor);
+        if (encoded && generator.payloadProfile() != PayloadProfile.MINIMAL) {
+            log.warn("Payload profile {} applies to the pojo generator only; pre-encoded events stay minimal",
+                generator.payloadProfile());
+        }
+        log.info("Fleet simulation started: {} endpoints, target {} events/s across {} workers ({} events{})",
+            endpointIds.length, targetRate, workers, encoded ? "pre-encoded" : "POJO",
+            seed != null ? ", seed " + seed : "");
+    }
+
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        for (Thread t : threads) {
+            t.interrupt();
+        }
+        for (Thread t : threads) {
+            try {
+                t.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        threads.clear();
+        log.info("Fleet simulation stopped after {} events ({} events/s average, target {})",
+            emittedCount(), Math.round(achievedRate()), targetRate);
+    }
+
+    public long emittedCount() {
+        return emitted.sum();
+    }
+
+    /** Average events/s since {@link #start()}. */
+    public double achievedRate() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed > 0 ? emitted.sum() * 1e9 / elapsed : 0;
+    }
+
+    public int workerCount() {
+        return workers;
+    }
+
+    private void runWorker(int index) {
+        int from = (int) ((long) endpointIds.length * index / workers);
+        int to = (int) ((long) endpointIds.length * (index + 1) / workers);
+        double ratePerNano = (double) targetRate / workers / 1e9;
+        long begin = System.nanoTime();
+        long sent = 0;
+        int cursor = from;
+        FastRawEventGenerator fast = null;
+        byte[][] endpointJson = null;
+        ByteBuffer scratch = null;
+        if (encoded) {
+            fast = seed != null
+                ? FastRawEventGenerator.forWorker(generator.alertPercentage(), seed, index)
+                : new FastRawEventGenerator(generator.alertPercentage());
+            endpointJson = new byte[to - from][];
+            for (int i = from; i < to; i++) {
+                endpointJson[i - from] = FastRawEventGenerator.endpointIdBytes(endpointIds[i]);
+            }
+            scratch = ByteBuffer.allocate(FastRawEventGenerator.MAX_EVENT_BYTES);
+        }
+        double millisPerEvent = 1 / (ratePerNano * 1e6);
+        while (running) {
+            long due = (long) ((System.nanoTime() - begin) * ratePerNano);
+            long backlog = due - sent;
+            if (backlog <= 0) {
+                LockSupport.parkNanos((long) (1 / ratePerNano));
+                continue;
+            }
+            int burst = (int) Math.min(backlog, MAX_BURST);
+            for (int i = 0; i < burst; i++) {
+                if (fast != null) {
+                    long millis = seed != null
+                        ? SEEDED_EPOCH_MILLIS + (long) ((sent + i) * millisPerEvent)
+                        : System.currentTimeMillis();
+                    scratch.clear();
+                    fast.encode(endpointJson[cursor - from], millis, scratch);
+                    writer.writeEncoded(endpointIds[cursor], scratch.array(), 0, scratch.position());
+                } else {
+                    writer.write(generator.generate(endpointIds[cursor]));
+                }
+                if (++cursor == to) cursor = from;
+            }
+            sent += burst;
+            emitted.add(burst);
+        }
+    }
+
+    private static String seededUuid(SplittableRandom random) {
+        long msb = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long lsb = (random.nextLong() & ~(0x3L << 62)) | (0x2L << 62);
+        return new UUID(msb, lsb).toString();
+    }
+
+    private void supervise() {
+        long lastCount = 0;
+        long lastNanos = System.nanoTime();
+        while (running) {
+            try {
+                Thread.sleep(reportIntervalMs > 0 ? reportIntervalMs : Long.MAX_VALUE);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long now = System.nanoTime();
+            long count = emitted.sum();
+            double rate = (count - lastCount) * 1e9 / (now - lastNanos);
+            double shortfall = Math.max(0, 100.0 * (targetRate - rate) / targetRate);
+            log.info("Fleet rate: {} events/s achieved, target {} events/s (shortfall {}%), total {}",
+                Math.round(rate), targetRate, String.format("%.1f", shortfall), count);
+            lastCount = count;
+            lastNanos = now;
+        }
+    }
+}
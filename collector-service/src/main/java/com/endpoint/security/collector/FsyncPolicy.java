@@ -0,0 +1,17 @@
+package com.endpoint.security.collector;
+
+/**
+ * When the raw-event writer forces written batches to stable storage.
+ */
+public enum FsyncPolicy {
+    /** Leave it to the OS page cache; fastest, may lose recent events on power loss. */
+    NONE,
+    /** fsync after every batch write (group commit). */
+    BATCH,
+    /** fsync at most once per configured interval. */
+    INTERVAL;
+
+    public static FsyncPolicy parse(String value) {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,152 @@
+package com.endpoint.security.collector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Appends raw events to preallocated memory-mapped segment files ({@code raw-events-000123.mmap}).
+ * Each segment starts with a fixed header; after every batch the writer publishes the new committed data
+ * length with a release store, so a reader that watches the header (see {@code MappedSegmentReader} in the tests)
+ * never sees a partially copied batch. A batch never spans segments; when one does not fit, the current
+ * segment is marked sealed and the next one is created. The last segment is sealed on close, and any segment a
+ * previous run left unsealed (e.g. after a crash) is sealed on start, since nothing will ever append to it again.
+ * <p>
+ * Header layout (little-endian): magic (int), version (int), committed data bytes (long), sealed flag
+ * (int), padding up to {@link #HEADER_BYTES}.
+ */
+class MappedSegmentSink implements RawEventSink {
+
+    static final int MAGIC = 0x52415745; // "RAWE"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int COMMITTED_OFFSET = 8;
+    static final int SEALED_OFFSET = 16;
+    static final String EXTENSION = ".mmap";
+
+    static final VarHandle LONG_VIEW = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    static final VarHandle INT_VIEW = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final Logger log = LoggerFactory.getLogger(MappedSegmentSink.class);
+
+    private final Path directory;
+    private final String baseName;
+    private final long segmentBytes;
+    private long nextSequence;
+    private MappedByteBuffer mapped;
+    private String activeName;
+    private long committed;
+
+    /**
+     * @param outputPath   configured output file; its directory and base name determine segment names
+     * @param segmentBytes preallocated size of each segment file, header included
+     */
+    MappedSegmentSink(Path outputPath, long segmentBytes) throws IOException {
+        if (segmentBytes <= HEADER_BYTES || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("mmap segment size must be between " + (HEADER_BYTES + 1) + " and 2 GiB: " + segmentBytes);
+        }
+        Path absolute = outputPath.toAbsolutePath();
+        this.directory = absolute.getParent();
+        String fileName = absolute.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        this.baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        this.nextSequence = sealLeftoverSegments();
+        openNewSegment();
+    }
+
+    @Override
+    public void append(ByteBuffer lines, int events) throws IOException {
+        int size = lines.remaining();
+        if (size > segmentBytes - HEADER_BYTES) {
+            throw new IOException("Batch of " + size + " bytes exceeds mmap segment capacity " + (segmentBytes - HEADER_BYTES));
+        }
+        if (committed + size > segmentBytes - HEADER_BYTES) {
+            sealAndRoll();
+        }
+        mapped.put(HEADER_BYTES + (int) committed, lines, lines.position(), size);
+        lines.position(lines.limit());
+        committed += size;
+        LONG_VIEW.setRelease(mapped, COMMITTED_OFFSET, committed);
+    }
+
+    @Override
+    public void sync() {
+        mapped.force();
+    }
+
+    @Override
+    public void close() {
+        if (mapped != null) {
+            INT_VIEW.setRelease(mapped, SEALED_OFFSET, 1);
+            mapped.force();
+            mapped = null;
+        }
+    }
+
+    String activeSegmentName() {
+        return activeName;
+    }
+
+    private void sealAndRoll() throws IOException {
+        INT_VIEW.setRelease(mapped, SEALED_OFFSET, 1);
+        mapped.force();
+        log.info("Sealed mmap segment {} ({} bytes committed)", activeName, committed);
+        openNewSegment();
+    }
+
+    private void openNewSegment() throws IOException {
+        activeName = String.format("%s-%06d%s", baseName, nextSequence++, EXTENSION);
+        try (FileChannel channel = FileChannel.open(directory.resolve(activeName),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        mapped.putInt(0, MAGIC);
+        mapped.putInt(4, VERSION);
+        committed = 0;
+        LONG_VIEW.setRelease(mapped, COMMITTED_OFFSET, 0L);
+    }
+
+    /** Seals segments left unsealed by a previous run and returns the sequence number after the highest one. */
+    private long sealLeftoverSegments() throws IOException {
+        Pattern pattern = Pattern.compile(Pattern.quote(baseName) + "-(\\d{6,})" + Pattern.quote(EXTENSION));
+        long next = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                Matcher m = pattern.matcher(p.getFileName().toString());
+                if (!m.matches()) continue;
+                next = Math.max(next, Long.parseLong(m.group(1)) + 1);
+                sealIfOpen(p);
+            }
+        }
+        return next;
+    }
+
+    private static void sealIfOpen(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < HEADER_BYTES) return;
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || (int) INT_VIEW.getAcquire(header, SEALED_OFFSET) == 1) return;
+            INT_VIEW.setRelease(header, SEALED_OFFSET, 1);
+            header.force();
+            log.info("Sealed mmap segment {} left open by a previous run ({} bytes committed)",
+                segment.getFileName(), (long) LONG_VIEW.getAcquire(header, COMMITTED_OFFSET));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.endpoint.security.collector;
+
+/**
+ * What the raw-event writer does when its bounded queue is full.
+ */
+public enum OverflowPolicy {
+    /** Producer waits until the writer frees a slot (no data loss, collector slows down). */
+    BLOCK,
+    /** The event being written is discarded. */
+    DROP_NEWEST,
+    /** The oldest queued event is discarded to make room. */
+    DROP_OLDEST,
+    /** The event is appended to a local overflow file instead of the main output. */
+    SPILL;
+
+    public static OverflowPolicy parse(String value) {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,18 @@
+package com.endpoint.security.collector;
+
+/**
+ * How much EDR context {@link RawEventGenerator} attaches to each event. Sizes are approximate averages
+ * of one serialized raw event.
+ */
+public enum PayloadProfile {
+    /** Only the six core fields (~300 bytes); the original output. */
+    MINIMAL,
+    /** Command line and parent PID on every event, plus file path/hash or destination per event type (~1.4 KB). */
+    TYPICAL,
+    /** All payload fields on every event, with long command lines and deep paths (~4 KB). */
+    HEAVY;
+
+    public static PayloadProfile parse(String value) {
+        return valueOf(value.trim().toUpperCase());
+    }
+}
@@ -8,16 +8,21 @@ import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Generates raw (intentionally messy) security events for simulation.
  * Output varies: timestamp format, field names (snake_case vs camelCase), casing, nulls.
+ * A {@link PayloadProfile} above {@code MINIMAL} adds EDR context (command line, parent PID, file path,
+ * SHA-256, destination IP/port) with log-normal size distributions, for production-like byte volumes.
+ * Safe to share between threads; each thread draws from its own {@link ThreadLocalRandom}.
+ * See {@link FastRawEventGenerator} for the allocation-free, seedable variant used at high rates.
  */
 public class RawEventGenerator {
 
     private static final Logger log = LoggerFactory.getLogger(RawEventGenerator.class);
-    private final Random random = new Random();
     private final int alertPercentage;
+    private final PayloadProfile profile;
 
     private static final String[] EVENT_TYPES = { "process_start", "file_access", "network_connection" };
     private static final String[] EVENT_TYPES_RAW = { "PROCESS_START", "FILE_ACCESS", "NETWORK_CONNECTION" };
@@ -30,12 +35,39 @@ public class RawEventGenerator {
         "Unauthorized file access attempt",
         "Unusual network connection to external IP"
     };
+    private static final String[] IMAGE_DIRS = {
+        "C:\\Windows\\System32\\", "C:\\Windows\\System32\\WindowsPowerShell\\v1.0\\",
+        "C:\\Program Files\\Google\\Chrome\\Application\\", "C:\\Program Files\\Mozilla Firefox\\",
+        "C:\\Windows\\"
+    };
+    private static final String[] ARGS = {
+        "/c", "-NoProfile", "-ExecutionPolicy Bypass", "-WindowStyle Hidden", "--type=renderer",
+        "--field-trial-handle=1784,i,8312306619052467051,15482718023452234810,262144", "--lang=en-US",
+        "--enable-features=NetworkService,NetworkServiceInProcess", "/S", "/Q", "/F", "-Command",
+        "--no-sandbox", "--renderer-client-id=47", "--mojo-platform-channel-handle=3424", "/d", "/y"
+    };
+    private static final String[] PATH_SEGMENTS = {
+        "Users", "AppData", "Local", "Roaming", "Temp", "Microsoft", "Windows", "INetCache", "Content.Outlook",
+        "Google", "Chrome", "User Data", "Default", "Cache", "Cache_Data", "Documents", "Downloads", "Projects",
+        "ProgramData", "Packages", "node_modules", "src", "build", "Logs", "Prefetch", "WinSxS"
+    };
+    private static final String[] FILE_EXTENSIONS = { ".dll", ".exe", ".tmp", ".log", ".docx", ".xlsx", ".ps1", ".js", ".dat", ".pf" };
+    private static final int[] COMMON_PORTS = { 443, 443, 443, 443, 80, 80, 53, 445, 3389, 135, 8080, 22 };
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final int MAX_COMMAND_LINE = 16 * 1024;
 
     public RawEventGenerator(int alertPercentage) {
+        this(alertPercentage, PayloadProfile.MINIMAL);
+    }
+
+    public RawEventGenerator(int alertPercentage, PayloadProfile profile) {
         this.alertPercentage = Math.max(1, Math.min(5, alertPercentage));
+        this.profile = profile;
     }
 
     public RawSecurityEvent generate(String endpointId) {
+        Random random = ThreadLocalRandom.current();
         RawSecurityEvent e = new RawSecurityEvent();
         int variant = random.nextInt(4);
 
@@ -55,11 +87,11 @@ public class RawEventGenerator {
             e.setEndpoint_id(endpointId);
         }
 
-        String eventType = EVENT_TYPES[random.nextInt(EVENT_TYPES.length)];
+        int type = random.nextInt(EVENT_TYPES.length);
         if (random.nextBoolean()) {
-            e.setEventType(eventType);
+            e.setEventType(EVENT_TYPES[type]);
         } else {
-            e.setEvent_type(EVENT_TYPES_RAW[random.nextInt(EVENT_TYPES_RAW.length)]);
+            e.setEvent_type(EVENT_TYPES_RAW[type]);
         }
 
         String userId = "user_" + random.nextInt(1000);
@@ -82,9 +114,85 @@ public class RawEventGenerator {
             e.setAlertReason(ALERT_REASONS[random.nextInt(ALERT_REASONS.length)]);
         }
 
+        if (profile != PayloadProfile.MINIMAL) {
+            addPayload(e, EVENT_TYPES[type], processName, userId, random);
+        }
         return e;
     }
 
+    public PayloadProfile payloadProfile() {
+        return profile;
+    }
+
+    private void addPayload(RawSecurityEvent e, String eventType, String processName, String userId, Random random) {
+        boolean heavy = profile == PayloadProfile.HEAVY;
+        // Median command line ~700 chars (typical) or ~2500 (heavy), long-tailed.
+        e.setCommandLine(commandLine(processName, logNormal(random, heavy ? 2500 : 700, heavy ? 0.9 : 0.8), random));
+        e.setParentPid(4 * (1 + random.nextInt(16383)));
+        boolean fileEvent = eventType.equals("file_access");
+        boolean processEvent = eventType.equals("process_start");
+        if (heavy || fileEvent || processEvent) {
+            e.setFilePath(processEvent && !heavy
+                ? IMAGE_DIRS[random.nextInt(IMAGE_DIRS.length)] + processName
+                : filePath(userId, heavy ? 4 + random.nextInt(9) : 2 + random.nextInt(5), random));
+        }
+        if (heavy || processEvent || (fileEvent && random.nextBoolean())) {
+            e.setSha256(hex(random, 64));
+        }
+        if (heavy || eventType.equals("network_connection")) {
+            e.setDestIp(heavy && random.nextInt(5) == 0 ? ipv6(random) : ipv4(random));
+            e.setDestPort(random.nextInt(4) == 0 ? 49152 + random.nextInt(16384) : COMMON_PORTS[random.nextInt(COMMON_PORTS.length)]);
+        }
+    }
+
+    private static int logNormal(Random random, double median, double sigma) {
+        return (int) Math.min(MAX_COMMAND_LINE, Math.max(16, median * Math.exp(sigma * random.nextGaussian())));
+    }
+
+    private static String commandLine(String processName, int length, Random random) {
+        StringBuilder sb = new StringBuilder(length + 64);
+        sb.append('"').append(IMAGE_DIRS[random.nextInt(IMAGE_DIRS.length)]).append(processName).append('"');
+        if (processName.startsWith("powershell") && length > 200) {
+            // Encoded scripts are where the really long command lines come from.
+            sb.append(" -NoProfile -EncodedCommand ");
+            while (sb.length() < length) sb.append(BASE64[random.nextInt(BASE64.length)]);
+            return sb.toString();
+        }
+        while (sb.length() < length) {
+            sb.append(' ').append(ARGS[random.nextInt(ARGS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static String filePath(String userId, int depth, Random random) {
+        StringBuilder sb = new StringBuilder("C:\\Users\\").append(userId);
+        for (int i = 0; i < depth; i++) {
+            sb.append('\\').append(PATH_SEGMENTS[random.nextInt(PATH_SEGMENTS.length)]);
+        }
+        sb.append('\\').append(hex(random, 4 + random.nextInt(12))).append(FILE_EXTENSIONS[random.nextInt(FILE_EXTENSIONS.length)]);
+        return sb.toString();
+    }
+
+    private static String hex(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) chars[i] = HEX[random.nextInt(16)];
+        return new String(chars);
+    }
+
+    private static String ipv4(Random random) {
+        return (1 + random.nextInt(223)) + "." + random.nextInt(256) + "." + random.nextInt(256) + "." + (1 + random.nextInt(254));
+    }
+
+    private static String ipv6(Random random) {
+        StringBuilder sb = new StringBuilder("2001:db8");
+        for (int i = 0; i < 6; i++) sb.append(':').append(Integer.toHexString(random.nextInt(0x10000)));
+        return sb.toString();
+    }
+
+    public int alertPercentage() {
+        return alertPercentage;
+    }
+
     public String generateEndpointId() {
         return UUID.randomUUID().toString();
     }
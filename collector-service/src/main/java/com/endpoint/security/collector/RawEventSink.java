@@ -0,0 +1,21 @@
+package com.endpoint.security.collector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Output backend for {@link RawEventWriter}. Only ever called from the writer thread.
+ */
+interface RawEventSink extends Closeable {
+
+    /** Appends a batch of complete NDJSON lines. */
+    void append(ByteBuffer lines, int events) throws IOException;
+
+    /** Forces appended data to stable storage. */
+    void sync() throws IOException;
+
+    /** Called when the writer is idle, for time-based housekeeping. */
+    default void onIdle() throws IOException {
+    }
+}
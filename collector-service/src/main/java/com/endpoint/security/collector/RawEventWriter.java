@@ -1,81 +1,207 @@
 package com.endpoint.security.collector;
 
 import com.endpoint.security.collector.model.RawSecurityEvent;
+import com.endpoint.security.collector.model.ShardDescriptor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PreDestroy;
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Appends raw events to NDJSON output from background writer threads.
+ * Each writer thread blocks until events arrive, drains up to {@code batchSize} of them, encodes the batch
+ * into a reused byte buffer and appends it to its output with one channel write (group commit).
+ * <p>
+ * Producers hand events over through a bounded lock-free ring buffer; when it is full the configured
+ * {@link OverflowPolicy} decides whether the producer waits, an event is dropped, or it is spilled to
+ * an overflow file next to the output.
+ * <p>
+ * With {@code collector.writer.shards} above 1 there is one queue, thread and output file per shard
+ * ({@code raw-events-shard-N.ndjson}), and events are routed by a hash of {@code endpointId} so each
+ * endpoint's events stay in order. The shard files are listed in {@code raw-events.shards.json}, written
+ * at startup.
+ * <p>
+ * Output goes to a single ever-growing file by default, or to rotating segments with a manifest when
+ * {@code collector.output.segment-bytes} or {@code collector.output.segment-ms} is set. With
+ * {@code collector.output.format=mmap} batches are copied into preallocated memory-mapped segments instead, and
+ * with {@code deflate} they are compressed in blocks of {@code collector.output.block-lines} lines with a
+ * seekable block index (see {@link BlockCompressedSink}).
+ */
 @Component
 public class RawEventWriter {
 
     private static final Logger log = LoggerFactory.getLogger(RawEventWriter.class);
-    private final ObjectMapper objectMapper = new ObjectMapper()
-        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private static final long DEFAULT_MMAP_SEGMENT_BYTES = 64L * 1024 * 1024;
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final ObjectWriter eventWriter = new ObjectMapper()
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .writerFor(RawSecurityEvent.class);
     private final String outputPath;
-    private final BlockingQueue<RawSecurityEvent> queue = new LinkedBlockingQueue<>();
-    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final int batchSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final OverflowPolicy overflowPolicy;
+    private final long segmentBytes;
+    private final long segmentMs;
+    private final String format;
+    private final int blockLines;
+    private final int deflateLevel;
+    private final long blockMaxAgeMs;
+    private final WriterShard[] shards;
     private final AtomicBoolean stopped = new AtomicBoolean(false);
-    private BufferedWriter writer;
-    private Thread writerThread;
 
-    public RawEventWriter(@Value("${collector.output.path:./output/raw-events.ndjson}") String outputPath) {
+    public RawEventWriter(String outputPath) {
+        this(outputPath, 1024, "none", 1000, 10000, 65536, "block", "", 0, 0, "ndjson", 4096, 1, 10000, 1);
+    }
+
+    @Autowired
+    public RawEventWriter(@Value("${collector.output.path:./output/raw-events.ndjson}") String outputPath,
+                          @Value("${collector.writer.batch-size:1024}") int batchSize,
+                          @Value("${collector.writer.fsync:none}") String fsyncPolicy,
+                          @Value("${collector.writer.fsync-interval-ms:1000}") long fsyncIntervalMs,
+                          @Value("${collector.writer.stats-interval-ms:10000}") long statsIntervalMs,
+                          @Value("${collector.writer.queue-capacity:65536}") int queueCapacity,
+                          @Value("${collector.writer.overflow:block}") String overflowPolicy,
+                          @Value("${collector.writer.spill-path:}") String spillPath,
+                          @Value("${collector.output.segment-bytes:0}") long segmentBytes,
+                          @Value("${collector.output.segment-ms:0}") long segmentMs,
+                          @Value("${collector.output.format:ndjson}") String format,
+                          @Value("${collector.output.block-lines:4096}") int blockLines,
+                          @Value("${collector.output.deflate-level:1}") int deflateLevel,
+                          @Value("${collector.output.block-max-age-ms:10000}") long blockMaxAgeMs,
+                          @Value("${collector.writer.shards:1}") int shardCount) {
+        if (shardCount < 1) throw new IllegalArgumentException("collector.writer.shards must be >= 1: " + shardCount);
         this.outputPath = outputPath;
+        this.batchSize = Math.max(1, batchSize);
+        this.fsyncPolicy = FsyncPolicy.parse(fsyncPolicy);
+        this.overflowPolicy = OverflowPolicy.parse(overflowPolicy);
+        this.segmentBytes = segmentBytes;
+        this.segmentMs = segmentMs;
+        this.format = format.trim().toLowerCase();
+        this.blockLines = blockLines;
+        this.deflateLevel = deflateLevel;
+        this.blockMaxAgeMs = blockMaxAgeMs;
+        String spill = spillPath == null || spillPath.isBlank() ? defaultSpillPath(outputPath) : spillPath;
+        this.shards = new WriterShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new WriterShard(shardCount == 1 ? "RawEventWriter" : "RawEventWriter-shard-" + i,
+                eventWriter, this.batchSize, this.fsyncPolicy, fsyncIntervalMs, statsIntervalMs, queueCapacity,
+                this.overflowPolicy, shardCount == 1 ? spill : shardPath(spill, i));
+        }
     }
 
     public void start() throws IOException {
-        Path path = Paths.get(outputPath);
-        if (path.getParent() != null) {
-            Files.createDirectories(path.getParent());
+        List<ShardDescriptor.Shard> files = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            Path path = Paths.get(shardOutputPath(i));
+            shards[i].start(openSink(path));
+            files.add(new ShardDescriptor.Shard(i, path.getFileName().toString()));
+        }
+        boolean segmented = format.equals("ndjson") && (segmentBytes > 0 || segmentMs > 0);
+        writeDescriptor(new ShardDescriptor(shards.length, format, segmented, "endpointId-hash", files));
+        if ("mmap".equals(format)) {
+            log.warn("collector.output.format=mmap is for benchmarks only; no service reads mmap segments");
         }
-        writer = new BufferedWriter(new java.io.FileWriter(outputPath, true));
-        running.set(true);
-        writerThread = new Thread(this::drainQueue, "RawEventWriter");
-        writerThread.setDaemon(true);
-        writerThread.start();
-        log.info("RawEventWriter started, output: {}", outputPath);
+        log.info("RawEventWriter started, output: {}, shards: {}, batchSize: {}, fsync: {}, queue: {} per shard ({} on overflow)",
+            outputPath, shards.length, batchSize, fsyncPolicy, shards[0].queueCapacity(), overflowPolicy);
     }
 
     public void write(RawSecurityEvent event) {
-        if (event != null) {
-            queue.offer(event);
+        if (event == null) {
+            return;
         }
+        shardFor(event.getEndpointId()).enqueue(event);
     }
 
-    private void drainQueue() {
-        while (running.get() || !queue.isEmpty()) {
-            try {
-                RawSecurityEvent event = queue.poll();
-                if (event != null) {
-                    String line = objectMapper.writeValueAsString(event);
-                    writer.write(line);
-                    writer.newLine();
-                } else {
-                    writer.flush();
-                    Thread.sleep(100);
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            } catch (Exception e) {
-                log.error("Write error", e);
-            }
+    /**
+     * Queues an already encoded JSON object (without trailing newline), e.g. from {@link FastRawEventGenerator}.
+     * The array is written as-is and must not be modified afterwards. With several shards the endpoint id is
+     * read from the JSON for routing; use {@link #writeEncoded(String, byte[])} when the caller knows it.
+     */
+    public void writeEncoded(byte[] jsonLine) {
+        if (jsonLine == null) {
+            return;
         }
-        try {
-            if (writer != null) writer.flush();
-        } catch (IOException ignored) {}
+        (shards.length == 1 ? shards[0] : shardFor(endpointIdOf(jsonLine))).enqueue(jsonLine);
+    }
+
+    /** Like {@link #writeEncoded(byte[])}, routed by the given endpoint id. */
+    public void writeEncoded(String endpointId, byte[] jsonLine) {
+        if (jsonLine == null) {
+            return;
+        }
+        shardFor(endpointId).enqueue(jsonLine);
+    }
+
+    /**
+     * Like {@link #writeEncoded(String, byte[])}, but copies {@code length} bytes from {@code buffer} so the
+     * caller can reuse it for the next event. The copy lands in a holder the writer recycles once it is written.
+     */
+    public void writeEncoded(String endpointId, byte[] buffer, int offset, int length) {
+        shardFor(endpointId).enqueueCopy(buffer, offset, length);
+    }
+
+    public String outputPath() {
+        return outputPath;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /** Output file (or, for segmented/mmap/deflate output, base name) of the given shard. */
+    public String shardOutputPath(int shard) {
+        return shards.length == 1 ? outputPath : shardPath(outputPath, shard);
+    }
+
+    /** Shard an endpoint's events are written to; stable for a given shard count. */
+    public static int shardIndex(String endpointId, int shardCount) {
+        if (endpointId == null || shardCount == 1) return 0;
+        int h = endpointId.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), shardCount);
+    }
+
+    public long droppedCount() {
+        long sum = 0;
+        for (WriterShard shard : shards) sum += shard.droppedCount();
+        return sum;
+    }
+
+    public long spilledCount() {
+        long sum = 0;
+        for (WriterShard shard : shards) sum += shard.spilledCount();
+        return sum;
+    }
+
+    public long writtenCount() {
+        long sum = 0;
+        for (WriterShard shard : shards) sum += shard.stats().totalEvents();
+        return sum;
+    }
+
+    public long batchCount() {
+        long sum = 0;
+        for (WriterShard shard : shards) sum += shard.stats().totalBatches();
+        return sum;
     }
 
     @PreDestroy
@@ -83,17 +209,69 @@ public class RawEventWriter {
         if (!stopped.compareAndSet(false, true)) {
             return; // already stopped (idempotent)
         }
-        running.set(false);
-        if (writerThread != null) {
-            writerThread.interrupt();
+        long fsyncs = 0;
+        for (WriterShard shard : shards) {
+            shard.stop();
+            fsyncs += shard.stats().totalFsyncs();
         }
-        try {
-            if (writer != null) {
-                writer.flush();
-                writer.close();
+        log.info("RawEventWriter stopped: {} events in {} batches, {} fsyncs, {} dropped, {} spilled",
+            writtenCount(), batchCount(), fsyncs, droppedCount(), spilledCount());
+    }
+
+    private WriterShard shardFor(String endpointId) {
+        return shards[shardIndex(endpointId, shards.length)];
+    }
+
+    private RawEventSink openSink(Path path) throws IOException {
+        return switch (format) {
+            case "ndjson" -> segmentBytes > 0 || segmentMs > 0
+                ? new SegmentedFileSink(path, segmentBytes, segmentMs)
+                : new FileChannelSink(path);
+            case "mmap" -> new MappedSegmentSink(path, segmentBytes > 0 ? segmentBytes : DEFAULT_MMAP_SEGMENT_BYTES);
+            case "deflate" -> new BlockCompressedSink(path, blockLines, deflateLevel, blockMaxAgeMs);
+            default -> throw new IllegalArgumentException("Unknown collector.output.format: " + format + " (expected ndjson, mmap or deflate)");
+        };
+    }
+
+    private void writeDescriptor(ShardDescriptor descriptor) throws IOException {
+        Path descriptorPath = Paths.get(stripNdjson(outputPath) + ".shards.json");
+        if (descriptorPath.getParent() != null) Files.createDirectories(descriptorPath.getParent());
+        Path tmp = Paths.get(descriptorPath + ".tmp");
+        Files.write(tmp, new ObjectMapper().writeValueAsBytes(descriptor));
+        Files.move(tmp, descriptorPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** First non-null {@code endpointId} / {@code endpoint_id} string of an encoded event, or null. */
+    private static String endpointIdOf(byte[] jsonLine) {
+        try (JsonParser parser = JSON.createParser(jsonLine)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_STRING && ("endpointId".equals(name) || "endpoint_id".equals(name))) {
+                    return parser.getText();
+                }
+                parser.skipChildren();
             }
         } catch (IOException e) {
-            log.warn("Error closing writer", e);
+            // Not JSON; routed to shard 0.
         }
+        return null;
+    }
+
+    private static String shardPath(String path, int shard) {
+        return path.endsWith(".ndjson")
+            ? stripNdjson(path) + "-shard-" + shard + ".ndjson"
+            : path + "-shard-" + shard;
+    }
+
+    private static String stripNdjson(String path) {
+        return path.endsWith(".ndjson") ? path.substring(0, path.length() - ".ndjson".length()) : path;
+    }
+
+    private static String defaultSpillPath(String outputPath) {
+        return outputPath.endsWith(".ndjson")
+            ? stripNdjson(outputPath) + "-overflow.ndjson"
+            : outputPath + ".overflow";
     }
 }
@@ -0,0 +1,144 @@
+package com.endpoint.security.collector;
+
+import com.endpoint.security.collector.model.SegmentManifest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Writes raw events to size- and/or time-bounded segments ({@code raw-events-000123.ndjson}) next to the
+ * configured output path, and keeps {@code raw-events.manifest.json} listing sealed segments and their byte
+ * lengths. A batch is never split across segments.
+ */
+class SegmentedFileSink implements RawEventSink {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentedFileSink.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path directory;
+    private final String baseName;
+    private final String extension;
+    private final Pattern segmentPattern;
+    private final Path manifestPath;
+    private final long maxSegmentBytes;
+    private final long maxSegmentMillis;
+    private final List<SegmentManifest.Segment> sealed = new ArrayList<>();
+    private long nextSequence;
+    private String activeName;
+    private FileChannel active;
+    private long activeBytes;
+    private long activeOpenedAt;
+
+    /**
+     * @param outputPath       configured output file; its directory and base name determine segment names
+     * @param maxSegmentBytes  seal once a segment reaches this size (0 = no size limit)
+     * @param maxSegmentMillis seal once a segment is this old (0 = no age limit)
+     */
+    SegmentedFileSink(Path outputPath, long maxSegmentBytes, long maxSegmentMillis) throws IOException {
+        Path absolute = outputPath.toAbsolutePath();
+        this.directory = absolute.getParent();
+        String fileName = absolute.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        this.baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        this.extension = dot > 0 ? fileName.substring(dot) : "";
+        this.segmentPattern = Pattern.compile(Pattern.quote(baseName) + "-(\\d{6,})" + Pattern.quote(extension));
+        this.manifestPath = directory.resolve(baseName + ".manifest.json");
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegmentMillis = maxSegmentMillis;
+        Files.createDirectories(directory);
+        recoverExistingSegments();
+        openNewSegment();
+    }
+
+    @Override
+    public void append(ByteBuffer lines, int events) throws IOException {
+        int size = lines.remaining();
+        if (activeBytes > 0 && (segmentTooOld() || (maxSegmentBytes > 0 && activeBytes + size > maxSegmentBytes))) {
+            rotate();
+        }
+        while (lines.hasRemaining()) {
+            active.write(lines);
+        }
+        activeBytes += size;
+    }
+
+    @Override
+    public void sync() throws IOException {
+        active.force(false);
+    }
+
+    @Override
+    public void onIdle() throws IOException {
+        if (activeBytes > 0 && segmentTooOld()) {
+            rotate();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        active.close();
+    }
+
+    String activeSegmentName() {
+        return activeName;
+    }
+
+    private boolean segmentTooOld() {
+        return maxSegmentMillis > 0 && System.currentTimeMillis() - activeOpenedAt >= maxSegmentMillis;
+    }
+
+    private void rotate() throws IOException {
+        active.force(false);
+        active.close();
+        sealed.add(new SegmentManifest.Segment(activeName, activeBytes));
+        log.info("Sealed segment {} ({} bytes)", activeName, activeBytes);
+        openNewSegment();
+    }
+
+    private void openNewSegment() throws IOException {
+        activeName = String.format("%s-%06d%s", baseName, nextSequence++, extension);
+        active = FileChannel.open(directory.resolve(activeName),
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        activeBytes = 0;
+        activeOpenedAt = System.currentTimeMillis();
+        writeManifest();
+    }
+
+    /** Seals whatever segments a previous run left behind, including its unsealed active segment. */
+    private void recoverExistingSegments() throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(p -> {
+                Matcher m = segmentPattern.matcher(p.getFileName().toString());
+                if (m.matches()) sequences.add(Long.parseLong(m.group(1)));
+            });
+        }
+        sequences.sort(null);
+        for (long seq : sequences) {
+            String name = String.format("%s-%06d%s", baseName, seq, extension);
+            sealed.add(new SegmentManifest.Segment(name, Files.size(directory.resolve(name))));
+            nextSequence = seq + 1;
+        }
+    }
+
+    private void writeManifest() throws IOException {
+        sealed.removeIf(s -> !Files.exists(directory.resolve(s.name())));
+        SegmentManifest manifest = new SegmentManifest(activeName, nextSequence, List.copyOf(sealed));
+        Path tmp = directory.resolve(manifestPath.getFileName() + ".tmp");
+        Files.write(tmp, objectMapper.writeValueAsBytes(manifest));
+        Files.move(tmp, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,334 @@
+package com.endpoint.security.collector;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One writer lane of {@link RawEventWriter}: a bounded queue, the thread that drains it in batches, and the
+ * sink those batches are appended to. Producers hand events over through a lock-free ring buffer; when it is
+ * full the configured {@link OverflowPolicy} decides whether the producer waits, an event is dropped, or it is
+ * spilled to an overflow file.
+ */
+class WriterShard {
+
+    private static final Logger log = LoggerFactory.getLogger(RawEventWriter.class);
+    private static final long IDLE_POLL_MS = 200;
+    private static final long BLOCKED_PRODUCER_PARK_NANOS = 50_000;
+
+    private final String name;
+    private final ObjectWriter eventWriter;
+    private final int batchSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMs;
+    private final long statsIntervalMs;
+    private final OverflowPolicy overflowPolicy;
+    private final String spillPath;
+    /**
+     * Holds {@link com.endpoint.security.collector.model.RawSecurityEvent}s and pre-encoded JSON lines, either
+     * as caller-owned {@code byte[]} or as {@link EncodedLine}s copied from a caller's scratch buffer.
+     */
+    private final EventRingBuffer<Object> queue;
+    /** {@link EncodedLine}s the writer thread has finished with, reused by {@link #enqueueCopy}. */
+    private final EventRingBuffer<EncodedLine> freeLines;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private volatile boolean consumerParked;
+    private OutputStream spillStream;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+    private final WriterStats stats = new WriterStats();
+    private RawEventSink sink;
+    private Thread writerThread;
+
+    WriterShard(String name, ObjectWriter eventWriter, int batchSize, FsyncPolicy fsyncPolicy, long fsyncIntervalMs,
+                long statsIntervalMs, int queueCapacity, OverflowPolicy overflowPolicy, String spillPath) {
+        this.name = name;
+        this.eventWriter = eventWriter;
+        this.batchSize = batchSize;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMs = fsyncIntervalMs;
+        this.statsIntervalMs = statsIntervalMs;
+        this.queue = new EventRingBuffer<>(queueCapacity);
+        this.freeLines = new EventRingBuffer<>(queueCapacity);
+        this.overflowPolicy = overflowPolicy;
+        this.spillPath = spillPath;
+    }
+
+    void start(RawEventSink sink) {
+        this.sink = sink;
+        running.set(true);
+        writerThread = new Thread(this::drainQueue, name);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    void enqueue(Object event) {
+        if (!queue.offer(event)) {
+            handleOverflow(event);
+        }
+        if (consumerParked) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * Enqueues a copy of {@code length} bytes of an encoded JSON line, so the caller can reuse its buffer at
+     * once. The copy goes into a recycled holder, so a steady producer allocates nothing per event.
+     */
+    void enqueueCopy(byte[] src, int offset, int length) {
+        EncodedLine line = freeLines.poll();
+        if (line == null || line.bytes.length < length) {
+            line = new EncodedLine(Math.max(length, EncodedLine.MIN_BYTES));
+        }
+        System.arraycopy(src, offset, line.bytes, 0, length);
+        line.length = length;
+        enqueue(line);
+    }
+
+    private void handleOverflow(Object event) {
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                while (!queue.offer(event)) {
+                    if (stopped.get()) {
+                        dropped.increment();
+                        return;
+                    }
+                    if (consumerParked) LockSupport.unpark(writerThread);
+                    LockSupport.parkNanos(BLOCKED_PRODUCER_PARK_NANOS);
+                }
+            }
+            case DROP_NEWEST -> {
+                dropped.increment();
+                recycle(event);
+            }
+            case DROP_OLDEST -> {
+                while (!queue.offer(event)) {
+                    Object oldest = queue.poll();
+                    if (oldest != null) {
+                        dropped.increment();
+                        recycle(oldest);
+                    }
+                }
+            }
+            case SPILL -> spill(event);
+        }
+    }
+
+    private synchronized void spill(Object event) {
+        try {
+            if (spillStream == null) {
+                Path path = Paths.get(spillPath);
+                if (path.getParent() != null) Files.createDirectories(path.getParent());
+                spillStream = new BufferedOutputStream(Files.newOutputStream(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND), 64 * 1024);
+                log.warn("{} queue full, spilling events to {}", name, spillPath);
+            }
+            encode(event, spillStream);
+            spilled.increment();
+        } catch (IOException e) {
+            dropped.increment();
+            log.error("Spill write failed, event dropped", e);
+        } finally {
+            recycle(event);
+        }
+    }
+
+    private synchronized void flushSpill() {
+        try {
+            if (spillStream != null) spillStream.flush();
+        } catch (IOException e) {
+            log.warn("Spill flush failed", e);
+        }
+    }
+
+    long droppedCount() {
+        return dropped.sum();
+    }
+
+    long spilledCount() {
+        return spilled.sum();
+    }
+
+    WriterStats stats() {
+        return stats;
+    }
+
+    int queueCapacity() {
+        return queue.capacity();
+    }
+
+    private void drainQueue() {
+        List<Object> batch = new ArrayList<>(batchSize);
+        BatchBuffer buffer = new BatchBuffer(64 * 1024);
+        long lastSyncNanos = System.nanoTime();
+        boolean unsynced = false;
+        while (true) {
+            try {
+                long pollMs = fsyncPolicy == FsyncPolicy.INTERVAL ? Math.min(IDLE_POLL_MS, fsyncIntervalMs) : IDLE_POLL_MS;
+                Object first = awaitEvent(pollMs);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    writeBatch(batch, buffer);
+                    batch.clear();
+                    unsynced = true;
+                    if (fsyncPolicy == FsyncPolicy.BATCH) {
+                        sync();
+                        unsynced = false;
+                    }
+                } else if (!running.get()) {
+                    break;
+                } else {
+                    sink.onIdle();
+                    if (overflowPolicy == OverflowPolicy.SPILL) flushSpill();
+                }
+                long now = System.nanoTime();
+                if (unsynced && fsyncPolicy == FsyncPolicy.INTERVAL
+                        && now - lastSyncNanos >= TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMs)) {
+                    sync();
+                    unsynced = false;
+                    lastSyncNanos = now;
+                }
+                if (statsIntervalMs > 0 && now - stats.windowStartNanos() >= TimeUnit.MILLISECONDS.toNanos(statsIntervalMs)) {
+                    String summary = stats.summarizeAndReset();
+                    if (summary != null) {
+                        log.info("{}: {}, queue {}/{}, dropped {}, spilled {}",
+                            name, summary, queue.size(), queue.capacity(), dropped.sum(), spilled.sum());
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Write error", e);
+                batch.clear();
+            }
+        }
+        try {
+            if (unsynced && fsyncPolicy != FsyncPolicy.NONE) sync();
+        } catch (IOException e) {
+            log.warn("Final fsync failed", e);
+        }
+        // Closed here rather than in stop(), so a drain that outlasts stop()'s wait never appends to a closed sink.
+        try {
+            sink.close();
+        } catch (IOException e) {
+            log.warn("Error closing writer", e);
+        }
+    }
+
+    /** Polls the ring buffer, parking the writer thread for up to {@code timeoutMs} while it is empty. */
+    private Object awaitEvent(long timeoutMs) {
+        Object event = queue.poll();
+        if (event != null || !running.get()) {
+            return event;
+        }
+        consumerParked = true;
+        try {
+            event = queue.poll();
+            if (event == null) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+                event = queue.poll();
+            }
+        } finally {
+            consumerParked = false;
+        }
+        return event;
+    }
+
+    private void writeBatch(List<Object> batch, BatchBuffer buffer) throws IOException {
+        buffer.reset();
+        for (Object event : batch) {
+            encode(event, buffer);
+            recycle(event);
+        }
+        long t0 = System.nanoTime();
+        sink.append(buffer.asByteBuffer(), batch.size());
+        stats.recordBatch(batch.size(), buffer.size(), System.nanoTime() - t0);
+    }
+
+    private void encode(Object event, OutputStream out) throws IOException {
+        if (event instanceof byte[] line) {
+            out.write(line);
+        } else if (event instanceof EncodedLine line) {
+            out.write(line.bytes, 0, line.length);
+        } else {
+            eventWriter.writeValue(out, event);
+        }
+        out.write('\n');
+    }
+
+    private void sync() throws IOException {
+        sink.sync();
+        stats.recordFsync();
+    }
+
+    /**
+     * Stops accepting work and waits for the writer thread to drain what is queued and close the sink, then
+     * closes the spill file. The writer thread is a daemon and this runs from {@code @PreDestroy} during JVM
+     * shutdown, so the wait has no deadline: returning early would let the JVM kill the drain mid-batch.
+     */
+    void stop() {
+        if (!stopped.compareAndSet(false, true)) {
+            return;
+        }
+        running.set(false);
+        if (writerThread != null) {
+            LockSupport.unpark(writerThread);
+        }
+        // Not interrupted: an interrupt during FileChannel.write closes the channel. The thread sees
+        // running=false within one poll interval and exits once the queue is drained.
+        if (writerThread != null) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    writerThread.join(5000);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    continue;
+                }
+                if (!writerThread.isAlive()) break;
+                log.warn("{} still draining with {} events queued, waiting", name, queue.size());
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+        try {
+            synchronized (this) {
+                if (spillStream != null) spillStream.close();
+            }
+        } catch (IOException e) {
+            log.warn("Error closing writer", e);
+        }
+    }
+
+    /** Returns a holder to the pool once its bytes have been written; full pool means it is left to the GC. */
+    private void recycle(Object event) {
+        if (event instanceof EncodedLine line) {
+            freeLines.offer(line);
+        }
+    }
+
+    /** A reusable copy of one encoded JSON line, without the trailing newline. */
+    static final class EncodedLine {
+        static final int MIN_BYTES = FastRawEventGenerator.MAX_EVENT_BYTES;
+
+        final byte[] bytes;
+        int length;
+
+        EncodedLine(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.endpoint.security.collector;
+
+/**
+ * Batch size and write latency statistics for a single writer thread.
+ * Recording is confined to the writer thread; totals are volatile so other threads can read them.
+ */
+class WriterStats {
+
+    private volatile long totalBatches;
+    private volatile long totalEvents;
+    private volatile long totalBytes;
+    private volatile long totalFsyncs;
+
+    private long windowBatches;
+    private long windowEvents;
+    private long windowBytes;
+    private long windowMaxBatch;
+    private long windowWriteNanos;
+    private long windowMaxWriteNanos;
+    private long windowStartNanos = System.nanoTime();
+
+    void recordBatch(int events, int bytes, long writeNanos) {
+        totalBatches++;
+        totalEvents += events;
+        totalBytes += bytes;
+        windowBatches++;
+        windowEvents += events;
+        windowBytes += bytes;
+        windowMaxBatch = Math.max(windowMaxBatch, events);
+        windowWriteNanos += writeNanos;
+        windowMaxWriteNanos = Math.max(windowMaxWriteNanos, writeNanos);
+    }
+
+    void recordFsync() {
+        totalFsyncs++;
+    }
+
+    long windowStartNanos() {
+        return windowStartNanos;
+    }
+
+    /** Formats the current window for logging (null if nothing was written) and starts a new one. */
+    String summarizeAndReset() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1, now - windowStartNanos) / 1e9;
+        String summary = windowBatches == 0
+            ? null
+            : String.format("%d events/s, %.1f MB/s, %d batches (avg %.1f, max %d events), write avg %d us, max %d us",
+                Math.round(windowEvents / seconds), windowBytes / seconds / (1024 * 1024), windowBatches,
+                (double) windowEvents / windowBatches, windowMaxBatch,
+                windowWriteNanos / windowBatches / 1000, windowMaxWriteNanos / 1000);
+        windowBatches = 0;
+        windowEvents = 0;
+        windowBytes = 0;
+        windowMaxBatch = 0;
+        windowWriteNanos = 0;
+        windowMaxWriteNanos = 0;
+        windowStartNanos = now;
+        return summary;
+    }
+
+    long totalBatches() { return totalBatches; }
+    long totalEvents() { return totalEvents; }
+    long totalBytes() { return totalBytes; }
+    long totalFsyncs() { return totalFsyncs; }
+}
@@ -33,6 +33,19 @@ public class RawSecurityEvent {
     private Integer alertScore;
     @JsonProperty("alertReason")
     private String alertReason;
+    // Payload fields (see PayloadProfile); omitted when absent so minimal events are unchanged.
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String commandLine;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer parentPid;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String filePath;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String sha256;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String destIp;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer destPort;
 
     public Object getTimestamp() { return timestamp; }
     public void setTimestamp(Object timestamp) { this.timestamp = timestamp; }
@@ -52,4 +65,16 @@ public class RawSecurityEvent {
     public void setAlertScore(Integer alertScore) { this.alertScore = alertScore; }
     public String getAlertReason() { return alertReason; }
     public void setAlertReason(String alertReason) { this.alertReason = alertReason; }
+    public String getCommandLine() { return commandLine; }
+    public void setCommandLine(String commandLine) { this.commandLine = commandLine; }
+    public Integer getParentPid() { return parentPid; }
+    public void setParentPid(Integer parentPid) { this.parentPid = parentPid; }
+    public String getFilePath() { return filePath; }
+    public void setFilePath(String filePath) { this.filePath = filePath; }
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+    public String getDestIp() { return destIp; }
+    public void setDestIp(String destIp) { this.destIp = destIp; }
+    public Integer getDestPort() { return destPort; }
+    public void setDestPort(Integer destPort) { this.destPort = destPort; }
 }
@@ -0,0 +1,17 @@
+package com.endpoint.security.collector.model;
+
+import java.util.List;
+
+/**
+ * Manifest of a segmented raw-event log, rewritten atomically whenever a segment is sealed.
+ * Sealed segments are immutable and listed oldest first; {@code active} is still being appended to.
+ * Consumers can open only segments they have not processed yet, and sealed segments may be deleted
+ * or archived at any time (entries for missing files are pruned on the next rewrite).
+ */
+public record SegmentManifest(
+    String active,
+    long nextSequence,
+    List<Segment> sealed
+) {
+    public record Segment(String name, long bytes) {}
+}
@@ -0,0 +1,20 @@
+package com.endpoint.security.collector.model;
+
+import java.util.List;
+
+/**
+ * Written by the collector at startup ({@code raw-events.shards.json}) so downstream consumers can discover
+ * the per-shard output files. Events are routed by a hash of {@code endpointId}, so each endpoint's events
+ * are in exactly one shard and in order. File names are relative to the descriptor's directory; with
+ * segmented, mmap or deflate output they are the base names those formats derive their files from.
+ * {@code segmented} is true when ndjson shards are split into segments listed in {@code <base>.manifest.json}.
+ */
+public record ShardDescriptor(
+    int shards,
+    String format,
+    boolean segmented,
+    String routing,
+    List<Shard> files
+) {
+    public record Shard(int shard, String path) {}
+}
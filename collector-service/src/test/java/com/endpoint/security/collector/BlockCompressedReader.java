@@ -0,0 +1,138 @@
+package com.endpoint.security.collector;
+
+import com.endpoint.security.collector.model.BlockIndexEntry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Random access to a file written by {@link BlockCompressedSink}: loads the sidecar index and inflates
+ * individual blocks without touching the ones before them. {@link #refresh()} picks up blocks appended since
+ * the index was last read. Test-only; the normalizer's {@code BlockCompressedReader} reads the same format.
+ */
+class BlockCompressedReader implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockCompressedReader.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path indexPath;
+    private final FileChannel data;
+    private final Inflater inflater = new Inflater();
+    private final List<BlockIndexEntry> entries = new ArrayList<>();
+    private long indexBytesRead;
+    private double lastDecodeMbPerSecond;
+
+    /** @param dataPath the compressed file ({@code raw-events.ndjson.deflate}) */
+    public BlockCompressedReader(Path dataPath) throws IOException {
+        this.indexPath = Path.of(dataPath + BlockCompressedSink.INDEX_EXTENSION);
+        this.data = FileChannel.open(dataPath, StandardOpenOption.READ);
+        refresh();
+    }
+
+    /** Reads index entries appended since the last call; returns the number of new blocks. */
+    public int refresh() throws IOException {
+        if (!Files.exists(indexPath)) return 0;
+        int before = entries.size();
+        try (FileChannel index = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            long size = index.size();
+            if (size <= indexBytesRead) return 0;
+            ByteBuffer buf = ByteBuffer.allocate((int) (size - indexBytesRead));
+            while (buf.hasRemaining()) {
+                if (index.read(buf, indexBytesRead + buf.position()) < 0) break;
+            }
+            byte[] bytes = buf.array();
+            int lineStart = 0;
+            // Only newline-terminated entries are complete; a trailing partial entry is picked up next time.
+            for (int i = 0; i < buf.position(); i++) {
+                if (bytes[i] == '\n') {
+                    entries.add(objectMapper.readValue(bytes, lineStart, i - lineStart, BlockIndexEntry.class));
+                    lineStart = i + 1;
+                }
+            }
+            indexBytesRead += lineStart;
+        }
+        return entries.size() - before;
+    }
+
+    public List<BlockIndexEntry> entries() {
+        return List.copyOf(entries);
+    }
+
+    public int blockCount() {
+        return entries.size();
+    }
+
+    /** Total lines covered by the indexed blocks. */
+    public long lineCount() {
+        if (entries.isEmpty()) return 0;
+        BlockIndexEntry last = entries.get(entries.size() - 1);
+        return last.firstLine() + last.lineCount();
+    }
+
+    /** Index of the block holding zero-based line {@code line}, or -1 if it is past the indexed range. */
+    public int blockForLine(long line) {
+        int lo = 0;
+        int hi = entries.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            BlockIndexEntry e = entries.get(mid);
+            if (line < e.firstLine()) hi = mid - 1;
+            else if (line >= e.firstLine() + e.lineCount()) lo = mid + 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /** Inflates one block and returns its NDJSON lines (each terminated by a newline). */
+    public byte[] readBlock(int block) throws IOException {
+        BlockIndexEntry entry = entries.get(block);
+        ByteBuffer compressed = ByteBuffer.allocate(entry.compressedBytes());
+        long position = entry.offset();
+        while (compressed.hasRemaining()) {
+            int n = data.read(compressed, position);
+            if (n < 0) throw new IOException("Truncated block " + block + " in " + indexPath);
+            position += n;
+        }
+        long t0 = System.nanoTime();
+        byte[] lines = new byte[entry.uncompressedBytes()];
+        inflater.reset();
+        inflater.setInput(compressed.array());
+        try {
+            int n = inflater.inflate(lines);
+            if (n != lines.length || !inflater.finished()) {
+                throw new IOException("Block " + block + " inflated to " + n + " bytes, index says " + lines.length);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block " + block + " in " + indexPath, e);
+        }
+        long nanos = Math.max(1, System.nanoTime() - t0);
+        lastDecodeMbPerSecond = lines.length / (nanos / 1e9) / (1024 * 1024);
+        if (log.isDebugEnabled()) {
+            log.debug("Block {}: {} lines, decode {} MB/s", block, entry.lineCount(), String.format("%.1f", lastDecodeMbPerSecond));
+        }
+        return lines;
+    }
+
+    /** Decode throughput of the most recent {@link #readBlock} call. */
+    public double lastDecodeMbPerSecond() {
+        return lastDecodeMbPerSecond;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        data.close();
+    }
+}
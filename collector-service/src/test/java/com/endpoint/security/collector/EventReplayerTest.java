@@ -0,0 +1,97 @@
+package com.endpoint.security.collector;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventReplayerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private RawEventWriter writer;
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void replay_atFullSpeedCopiesLinesByteForByte() throws Exception {
+        List<String> recorded = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            recorded.add("{\"timestamp\":\"2024-01-01T00:00:" + String.format("%02d", i % 60) + "Z\",\"endpointId\":\"ep\",\"n\":" + i + "}");
+        }
+        Path source = tempDir.resolve("captured.ndjson");
+        Files.writeString(source, String.join("\r\n", recorded) + "\n\n");
+        Path output = tempDir.resolve("raw-events.ndjson");
+        writer = new RawEventWriter(output.toString());
+        writer.start();
+
+        EventReplayer replayer = new EventReplayer(writer, source, 0, 0);
+        replayer.start();
+        assertThat(replayer.awaitCompletion(10, TimeUnit.SECONDS)).isTrue();
+        writer.stop();
+
+        assertThat(replayer.emittedCount()).isEqualTo(500);
+        assertThat(Files.readAllLines(output, StandardCharsets.UTF_8)).isEqualTo(recorded);
+    }
+
+    @Test
+    void replay_keepsRecordedGapsScaledBySpeed() throws Exception {
+        // 1.2 s of recorded time (mixed timestamp formats, one missing, one out of order) replayed at 4x ~ 300 ms.
+        Path source = tempDir.resolve("captured.ndjson");
+        Files.writeString(source, String.join("\n",
+            "{\"timestamp\":\"2024-01-01T00:00:00Z\",\"n\":0}",
+            "{\"timestamp\":1704067200400,\"n\":1}",
+            "{\"n\":2}",
+            "{\"timestamp\":\"2024-01-01T00:00:00.200Z\",\"n\":3}",
+            "{\"timestamp\":\"2024-01-01T00:00:01.200\",\"n\":4}") + "\n");
+        Path output = tempDir.resolve("raw-events.ndjson");
+        writer = new RawEventWriter(output.toString());
+        writer.start();
+
+        EventReplayer replayer = new EventReplayer(writer, source, 4, 0);
+        long start = System.nanoTime();
+        replayer.start();
+        assertThat(replayer.awaitCompletion(10, TimeUnit.SECONDS)).isTrue();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(replayer.emittedCount()).isEqualTo(5);
+        assertThat(elapsedMs).isBetween(280L, 1200L);
+    }
+
+    @Test
+    void timestampMillis_readsSupportedFormats() {
+        assertThat(EventReplayer.timestampMillis("{\"timestamp\":\"2024-01-01T00:00:00Z\"}".getBytes()))
+            .isEqualTo(1_704_067_200_000L);
+        assertThat(EventReplayer.timestampMillis("{\"a\":{\"timestamp\":1},\"timestamp\":1704067200001}".getBytes()))
+            .isEqualTo(1_704_067_200_001L);
+        assertThat(EventReplayer.timestampMillis("{\"timestamp\":\"2024-01-01T00:00:00.5\"}".getBytes()))
+            .isEqualTo(1_704_067_200_500L);
+        assertThat(EventReplayer.timestampMillis("{\"timestamp\":null}".getBytes())).isEqualTo(Long.MIN_VALUE);
+        assertThat(EventReplayer.timestampMillis("not json".getBytes())).isEqualTo(Long.MIN_VALUE);
+    }
+
+    @Test
+    void start_rejectsOwnOutputAsSource() throws Exception {
+        Path output = tempDir.resolve("raw-events.ndjson");
+        Files.writeString(output, "{}\n");
+        writer = new RawEventWriter(output.toString());
+        assertThatThrownBy(() -> new EventReplayer(writer, output, 1, 0).start())
+            .isInstanceOf(IllegalArgumentException.class);
+        writer = null;
+    }
+}
@@ -0,0 +1,78 @@
+package com.endpoint.security.collector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventRingBufferTest {
+
+    @Test
+    void capacity_roundsUpToPowerOfTwo() {
+        assertThat(new EventRingBuffer<String>(5).capacity()).isEqualTo(8);
+        assertThat(new EventRingBuffer<String>(8).capacity()).isEqualTo(8);
+        assertThatThrownBy(() -> new EventRingBuffer<String>(1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void offerAndPoll_preserveFifoOrderAndRejectWhenFull() {
+        EventRingBuffer<Integer> ring = new EventRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(ring.offer(i)).isTrue();
+        }
+        assertThat(ring.offer(99)).isFalse();
+        assertThat(ring.size()).isEqualTo(4);
+        assertThat(ring.poll()).isEqualTo(0);
+        assertThat(ring.offer(4)).isTrue();
+
+        List<Integer> drained = new ArrayList<>();
+        assertThat(ring.drainTo(drained, 10)).isEqualTo(4);
+        assertThat(drained).containsExactly(1, 2, 3, 4);
+        assertThat(ring.isEmpty()).isTrue();
+        assertThat(ring.poll()).isNull();
+    }
+
+    @Test
+    void concurrentProducers_deliverEveryElementExactlyOnce() throws Exception {
+        EventRingBuffer<Integer> ring = new EventRingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 20_000;
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int base = p * perProducer;
+            Thread t = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+        go.countDown();
+        Set<Integer> seen = new HashSet<>();
+        while (seen.size() < producers * perProducer) {
+            Integer v = ring.poll();
+            if (v != null) {
+                assertThat(seen.add(v)).isTrue();
+            }
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertThat(ring.isEmpty()).isTrue();
+    }
+}
@@ -0,0 +1,113 @@
+package com.endpoint.security.collector;
+
+import com.endpoint.security.collector.model.RawSecurityEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FastRawEventGeneratorTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void encode_producesSameKeyLayoutAsPojoSerialization() throws Exception {
+        String endpointId = UUID.randomUUID().toString();
+        JsonNode pojo = mapper.readTree(mapper.writeValueAsString(new RawEventGenerator(3).generate(endpointId)));
+        JsonNode fast = mapper.readTree(encode(new FastRawEventGenerator(3), endpointId, System.currentTimeMillis()));
+
+        List<String> pojoKeys = new ArrayList<>();
+        pojo.fieldNames().forEachRemaining(pojoKeys::add);
+        List<String> fastKeys = new ArrayList<>();
+        fast.fieldNames().forEachRemaining(fastKeys::add);
+        assertThat(fastKeys).isEqualTo(pojoKeys);
+    }
+
+    @Test
+    void encode_producesValidRawEventsWithAllVariants() throws Exception {
+        FastRawEventGenerator generator = new FastRawEventGenerator(5);
+        String endpointId = UUID.randomUUID().toString();
+        Set<String> timestampKinds = new HashSet<>();
+        Set<String> snakeKeysSeen = new HashSet<>();
+        int alerts = 0;
+        for (int i = 0; i < 2000; i++) {
+            String json = encode(generator, endpointId, System.currentTimeMillis());
+            RawSecurityEvent event = mapper.readValue(json, RawSecurityEvent.class);
+            assertThat(event.getEndpointId()).isEqualTo(endpointId);
+            assertThat(event.getEventType()).isNotNull();
+            assertThat(event.getUserId()).startsWith("user_");
+            assertThat(event.getProcessName()).isNotNull();
+            if (event.getAlertScore() != null) {
+                assertThat(event.getAlertScore()).isBetween(1, 100);
+                assertThat(event.getAlertReason()).isNotBlank();
+                alerts++;
+            }
+            JsonNode node = mapper.readTree(json);
+            JsonNode ts = node.get("timestamp");
+            timestampKinds.add(ts.isNull() ? "null" : ts.isNumber() ? "millis" : ts.asText().endsWith("Z") ? "instant" : "local");
+            node.fieldNames().forEachRemaining(k -> {
+                if (k.contains("_") && !node.get(k).isNull()) snakeKeysSeen.add(k);
+            });
+        }
+        assertThat(timestampKinds).containsExactlyInAnyOrder("null", "millis", "instant", "local");
+        assertThat(snakeKeysSeen).contains("endpoint_id", "event_type");
+        assertThat(alerts).isGreaterThan(0);
+    }
+
+    @Test
+    void encode_formatsTimestampsLikeJdkFormatters() throws Exception {
+        SplittableRandom random = new SplittableRandom(7);
+        FastRawEventGenerator generator = new FastRawEventGenerator(3);
+        for (int i = 0; i < 500; i++) {
+            long millis = random.nextLong(0, 4_102_444_800_000L);
+            if (i % 5 == 0) millis -= millis % 1000;
+            Set<String> allowed = Set.of(
+                Instant.ofEpochMilli(millis).toString(),
+                DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(Instant.ofEpochMilli(millis).atZone(ZoneId.of("UTC"))),
+                Long.toString(millis),
+                "null");
+            for (int j = 0; j < 8; j++) {
+                JsonNode ts = mapper.readTree(encode(generator, "ep", millis)).get("timestamp");
+                assertThat(ts.isNull() ? "null" : ts.asText()).isIn(allowed);
+            }
+        }
+    }
+
+    @Test
+    void forWorker_sameSeedAndIndexIsReproducible() {
+        String endpointId = UUID.randomUUID().toString();
+        FastRawEventGenerator a = FastRawEventGenerator.forWorker(3, 42L, 1);
+        FastRawEventGenerator b = FastRawEventGenerator.forWorker(3, 42L, 1);
+        FastRawEventGenerator other = FastRawEventGenerator.forWorker(3, 42L, 2);
+        StringBuilder sa = new StringBuilder();
+        StringBuilder sb = new StringBuilder();
+        StringBuilder so = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sa.append(encode(a, endpointId, 1_700_000_000_000L + i));
+            sb.append(encode(b, endpointId, 1_700_000_000_000L + i));
+            so.append(encode(other, endpointId, 1_700_000_000_000L + i));
+        }
+        assertThat(sa.toString()).isEqualTo(sb.toString());
+        assertThat(sa.toString()).isNotEqualTo(so.toString());
+    }
+
+    private static String encode(FastRawEventGenerator generator, String endpointId, long millis) {
+        ByteBuffer buf = ByteBuffer.allocate(FastRawEventGenerator.MAX_EVENT_BYTES);
+        int n = generator.encode(FastRawEventGenerator.endpointIdBytes(endpointId), millis, buf);
+        assertThat(n).isEqualTo(buf.position());
+        return new String(buf.array(), 0, n, StandardCharsets.US_ASCII);
+    }
+}
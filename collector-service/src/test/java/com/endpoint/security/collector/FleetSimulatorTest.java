@@ -0,0 +1,110 @@
+package com.endpoint.security.collector;
+
+import com.endpoint.security.collector.model.RawSecurityEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FleetSimulatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private RawEventWriter writer;
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void start_emitsEventsForManyEndpointsWithoutOvershootingTarget() throws Exception {
+        Path output = tempDir.resolve("raw-events.ndjson");
+        writer = new RawEventWriter(output.toAbsolutePath().toString());
+        writer.start();
+        FleetSimulator fleet = new FleetSimulator(new RawEventGenerator(3), writer, 20, 2000, 4, 0);
+
+        fleet.start();
+        Thread.sleep(500);
+        fleet.stop();
+        assertThat(fleet.emittedCount()).isGreaterThan(0);
+        assertThat(fleet.achievedRate()).isLessThanOrEqualTo(2000 * 1.1);
+        // Wait for background writer thread to drain queue and flush
+        for (int i = 0; i < 50; i++) {
+            if (Files.exists(output) && Files.readAllLines(output).size() >= fleet.emittedCount()) break;
+            Thread.sleep(100);
+        }
+
+        List<String> lines = Files.readAllLines(output);
+        assertThat(lines).hasSize((int) fleet.emittedCount());
+        ObjectMapper mapper = new ObjectMapper();
+        Set<String> endpoints = new HashSet<>();
+        for (String line : lines) {
+            endpoints.add(mapper.readValue(line, RawSecurityEvent.class).getEndpointId());
+        }
+        assertThat(endpoints).hasSizeGreaterThan(1).hasSizeLessThanOrEqualTo(20);
+    }
+
+    @Test
+    void start_withEncodedEventsWritesParseableLines() throws Exception {
+        Path output = tempDir.resolve("encoded.ndjson");
+        writer = new RawEventWriter(output.toAbsolutePath().toString());
+        writer.start();
+        FleetSimulator fleet = new FleetSimulator(new RawEventGenerator(3), writer, 10, 2000, 2, 0, true, 42L);
+
+        fleet.start();
+        Thread.sleep(300);
+        fleet.stop();
+        writer.stop();
+
+        List<String> lines = Files.readAllLines(output);
+        assertThat(lines).hasSize((int) fleet.emittedCount()).isNotEmpty();
+        ObjectMapper mapper = new ObjectMapper();
+        for (String line : lines) {
+            assertThat(mapper.readValue(line, RawSecurityEvent.class).getEventType()).isNotNull();
+        }
+    }
+
+    @Test
+    void start_keepsANonDaemonThreadAliveUntilStop() throws Exception {
+        writer = new RawEventWriter(tempDir.resolve("lifecycle.ndjson").toAbsolutePath().toString());
+        writer.start();
+        FleetSimulator fleet = new FleetSimulator(new RawEventGenerator(3), writer, 4, 100, 2, 0);
+
+        fleet.start();
+        Thread.sleep(100);
+        // Without a web server, this thread is what keeps the collector's JVM running in fleet mode.
+        assertThat(liveThread("FleetSupervisor")).isNotNull().matches(t -> !t.isDaemon());
+        fleet.stop();
+        assertThat(liveThread("FleetSupervisor")).isNull();
+    }
+
+    @Test
+    void constructor_clampsWorkersToEndpointCount() {
+        FleetSimulator fleet = new FleetSimulator(new RawEventGenerator(3), new RawEventWriter("unused"), 2, 100, 8, 0);
+        assertThat(fleet.workerCount()).isEqualTo(2);
+    }
+
+    @Test
+    void constructor_rejectsNonPositiveRate() {
+        assertThatThrownBy(() -> new FleetSimulator(new RawEventGenerator(3), new RawEventWriter("unused"), 10, 0, 1, 0))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Thread liveThread(String name) {
+        return Thread.getAllStackTraces().keySet().stream()
+            .filter(t -> t.getName().equals(name) && t.isAlive()).findFirst().orElse(null);
+    }
+}
@@ -0,0 +1,56 @@
+package com.endpoint.security.collector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Tails one segment written by {@link MappedSegmentSink}. Only bytes covered by the committed-length header
+ * are ever returned, so every read ends on a complete NDJSON line. Test-only: no service consumes mmap output.
+ */
+class MappedSegmentReader implements Closeable {
+
+    private final MappedByteBuffer mapped;
+    private long position;
+
+    public MappedSegmentReader(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        if (mapped.capacity() < MappedSegmentSink.HEADER_BYTES || mapped.getInt(0) != MappedSegmentSink.MAGIC) {
+            throw new IOException("Not a raw-event mmap segment: " + segment);
+        }
+        if (mapped.getInt(4) != MappedSegmentSink.VERSION) {
+            throw new IOException("Unsupported mmap segment version " + mapped.getInt(4) + ": " + segment);
+        }
+    }
+
+    /** Returns newly committed bytes since the last call (possibly empty), as a read-only view. */
+    public ByteBuffer poll() {
+        long committed = (long) MappedSegmentSink.LONG_VIEW.getAcquire(mapped, MappedSegmentSink.COMMITTED_OFFSET);
+        int from = MappedSegmentSink.HEADER_BYTES + (int) position;
+        int length = (int) (committed - position);
+        position = committed;
+        return mapped.slice(from, length).asReadOnlyBuffer();
+    }
+
+    /** True once the writer has moved on to the next segment or closed; after that no more data will be committed here. */
+    public boolean isSealed() {
+        return (int) MappedSegmentSink.INT_VIEW.getAcquire(mapped, MappedSegmentSink.SEALED_OFFSET) == 1;
+    }
+
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public void close() {
+        // The mapping is released when the buffer is garbage collected.
+    }
+}
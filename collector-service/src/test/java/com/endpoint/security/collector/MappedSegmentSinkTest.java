@@ -0,0 +1,105 @@
+package com.endpoint.security.collector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedSegmentSinkTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void reader_seesOnlyCommittedBatches() throws Exception {
+        MappedSegmentSink sink = new MappedSegmentSink(tempDir.resolve("raw-events.ndjson"), 4096);
+        Path segment = tempDir.resolve(sink.activeSegmentName());
+        MappedSegmentReader reader = new MappedSegmentReader(segment);
+        assertThat(reader.poll().remaining()).isZero();
+
+        sink.append(lines("{\"a\":1}", "{\"a\":2}"), 2);
+        assertThat(text(reader.poll())).isEqualTo("{\"a\":1}\n{\"a\":2}\n");
+        sink.append(lines("{\"a\":3}"), 1);
+        assertThat(text(reader.poll())).isEqualTo("{\"a\":3}\n");
+        assertThat(reader.poll().remaining()).isZero();
+        assertThat(reader.isSealed()).isFalse();
+        assertThat(Files.size(segment)).isEqualTo(4096);
+        sink.close();
+    }
+
+    @Test
+    void append_rollsToNewSegmentAndSealsPreviousOne() throws Exception {
+        MappedSegmentSink sink = new MappedSegmentSink(tempDir.resolve("raw-events.ndjson"), MappedSegmentSink.HEADER_BYTES + 32);
+        String first = sink.activeSegmentName();
+        sink.append(lines("{\"n\":\"0123456789\"}"), 1);
+        sink.append(lines("{\"n\":\"abcdefghij\"}"), 1);
+        String second = sink.activeSegmentName();
+        sink.close();
+
+        assertThat(first).isEqualTo("raw-events-000000.mmap");
+        assertThat(second).isEqualTo("raw-events-000001.mmap");
+        MappedSegmentReader sealed = new MappedSegmentReader(tempDir.resolve(first));
+        assertThat(sealed.isSealed()).isTrue();
+        assertThat(text(sealed.poll())).isEqualTo("{\"n\":\"0123456789\"}\n");
+        assertThat(text(new MappedSegmentReader(tempDir.resolve(second)).poll())).isEqualTo("{\"n\":\"abcdefghij\"}\n");
+
+        assertThatThrownBy(() -> new MappedSegmentSink(tempDir.resolve("raw-events.ndjson"), 100)
+                .append(ByteBuffer.allocate(200), 1))
+            .isInstanceOf(java.io.IOException.class);
+    }
+
+    @Test
+    void close_sealsLastSegmentAndStartSealsOneLeftOpen() throws Exception {
+        Path output = tempDir.resolve("raw-events.ndjson");
+        MappedSegmentSink first = new MappedSegmentSink(output, 4096);
+        first.append(lines("{\"a\":1}"), 1);
+        MappedSegmentReader tail = new MappedSegmentReader(tempDir.resolve(first.activeSegmentName()));
+        first.close();
+        assertThat(tail.isSealed()).isTrue();
+        assertThat(text(tail.poll())).isEqualTo("{\"a\":1}\n");
+
+        // A run that dies without close() leaves its segment unsealed; the next run seals it before going on.
+        MappedSegmentSink crashed = new MappedSegmentSink(output, 4096);
+        crashed.append(lines("{\"a\":2}"), 1);
+        MappedSegmentReader orphan = new MappedSegmentReader(tempDir.resolve(crashed.activeSegmentName()));
+        assertThat(orphan.isSealed()).isFalse();
+        MappedSegmentSink restarted = new MappedSegmentSink(output, 4096);
+        assertThat(orphan.isSealed()).isTrue();
+        assertThat(restarted.activeSegmentName()).isEqualTo("raw-events-000002.mmap");
+        restarted.close();
+    }
+
+    @Test
+    void writer_withMmapFormatProducesTailableSegment() throws Exception {
+        Path output = tempDir.resolve("raw-events.ndjson");
+        RawEventWriter writer = new RawEventWriter(output.toString(), 64, "none", 1000, 0, 1024, "block", "", 1 << 20, 0, "mmap", 4096, 1, 10000, 1);
+        writer.start();
+        RawEventGenerator generator = new RawEventGenerator(3);
+        for (int i = 0; i < 100; i++) {
+            writer.write(generator.generate("ep-" + i));
+        }
+        writer.stop();
+
+        MappedSegmentReader reader = new MappedSegmentReader(tempDir.resolve("raw-events-000000.mmap"));
+        List<String> lines = new ArrayList<>(List.of(text(reader.poll()).split("\n")));
+        assertThat(lines).hasSize(100).allMatch(l -> l.startsWith("{") && l.endsWith("}"));
+    }
+
+    private static ByteBuffer lines(String... json) {
+        return ByteBuffer.wrap((String.join("\n", json) + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String text(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
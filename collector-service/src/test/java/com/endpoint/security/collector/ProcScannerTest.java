@@ -0,0 +1,112 @@
+package com.endpoint.security.collector;
+
+import com.endpoint.security.collector.model.RawSecurityEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ProcScannerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private RawEventWriter writer;
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void scan_reportsOnlyProcessesNewSinceBaseline() throws Exception {
+        Path proc = Files.createDirectories(tempDir.resolve("proc"));
+        Files.writeString(proc.resolve("stat"), "cpu  1 2 3\nbtime 1704067200\n");
+        fakeProcess(proc, 1, "systemd", 0, 5);
+        fakeProcess(proc, 42, "bash", 1, 900);
+        Files.createDirectories(proc.resolve("self"));
+        Path output = tempDir.resolve("raw-events.ndjson");
+        writer = new RawEventWriter(output.toString());
+        writer.start();
+        ProcScanner scanner = new ProcScanner(writer, proc, "550e8400-e29b-41d4-a716-446655440000", 500, 0);
+
+        assertThat(scanner.scanOnce()).isZero();
+        assertThat(scanner.processCount()).isEqualTo(2);
+
+        fakeProcess(proc, 7, "sshd", 1, 1000);
+        fakeProcess(proc, 1000, "my (odd) proc", 42, 250);
+        assertThat(scanner.scanOnce()).isEqualTo(2);
+        assertThat(scanner.scanOnce()).isZero();
+
+        deleteProcess(proc, 42);
+        fakeProcess(proc, 43, "python3", 7, 300);
+        assertThat(scanner.scanOnce()).isEqualTo(1);
+        assertThat(scanner.startedCount()).isEqualTo(3);
+        writer.stop();
+
+        ObjectMapper mapper = new ObjectMapper();
+        List<RawSecurityEvent> events = new ArrayList<>();
+        for (String line : Files.readAllLines(output)) {
+            events.add(mapper.readValue(line, RawSecurityEvent.class));
+        }
+        assertThat(events).extracting(RawSecurityEvent::getProcessName).containsExactly("sshd", "my (odd) proc", "python3");
+        assertThat(events).extracting(RawSecurityEvent::getParentPid).containsExactly(1, 42, 7);
+        assertThat(events).allMatch(e -> e.getEventType().equals("process_start"));
+        assertThat(events.get(0).getUserId()).isEqualTo(Files.getAttribute(proc.resolve("7"), "unix:uid").toString());
+        // btime + starttime ticks / USER_HZ
+        assertThat(events.get(0).getTimestamp()).isEqualTo(Instant.ofEpochSecond(1_704_067_200L + 10).toString());
+    }
+
+    @Test
+    void scan_seesRealProcessStartOnLinux() throws Exception {
+        assumeTrue(Files.isDirectory(Path.of("/proc/self")), "requires Linux /proc");
+        Path output = tempDir.resolve("raw-events.ndjson");
+        writer = new RawEventWriter(output.toString());
+        writer.start();
+        ProcScanner scanner = new ProcScanner(writer, Path.of("/proc"), "550e8400-e29b-41d4-a716-446655440000", 500, 0);
+        scanner.scanOnce();
+
+        Process child = new ProcessBuilder("sleep", "5").start();
+        try {
+            scanner.scanOnce();
+        } finally {
+            child.destroy();
+        }
+        writer.stop();
+
+        ObjectMapper mapper = new ObjectMapper();
+        List<String> names = new ArrayList<>();
+        for (String line : Files.readAllLines(output)) {
+            names.add(mapper.readValue(line, RawSecurityEvent.class).getProcessName());
+        }
+        assertThat(names).contains("sleep");
+    }
+
+    private static void fakeProcess(Path proc, int pid, String comm, int ppid, long startTicks) throws IOException {
+        Path dir = Files.createDirectories(proc.resolve(Integer.toString(pid)));
+        Files.writeString(dir.resolve("comm"), comm + "\n");
+        StringBuilder stat = new StringBuilder().append(pid).append(" (").append(comm).append(") S ").append(ppid);
+        for (int field = 5; field <= 21; field++) stat.append(" 0");
+        stat.append(' ').append(startTicks).append(" 1000 200\n");
+        Files.writeString(dir.resolve("stat"), stat);
+    }
+
+    private static void deleteProcess(Path proc, int pid) throws IOException {
+        Path dir = proc.resolve(Integer.toString(pid));
+        Files.delete(dir.resolve("comm"));
+        Files.delete(dir.resolve("stat"));
+        Files.delete(dir);
+    }
+}
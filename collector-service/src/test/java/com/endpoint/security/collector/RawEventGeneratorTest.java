@@ -1,6 +1,7 @@
 package com.endpoint.security.collector;
 
 import com.endpoint.security.collector.model.RawSecurityEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 
 import java.util.Set;
@@ -89,4 +90,52 @@ class RawEventGeneratorTest {
         assertThat(e1).isNotNull();
         assertThat(e2).isNotNull();
     }
+
+    @Test
+    void payloadProfiles_scaleSerializedSizeAndKeepMinimalUnchanged() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        String endpointId = UUID.randomUUID().toString();
+        double minimal = averageBytes(mapper, new RawEventGenerator(3), endpointId);
+        double typical = averageBytes(mapper, new RawEventGenerator(3, PayloadProfile.TYPICAL), endpointId);
+        double heavy = averageBytes(mapper, new RawEventGenerator(3, PayloadProfile.HEAVY), endpointId);
+
+        String minimalJson = mapper.writeValueAsString(new RawEventGenerator(3).generate(endpointId));
+        assertThat(minimalJson).doesNotContain("commandLine", "parentPid", "filePath", "sha256", "destIp", "destPort");
+        assertThat(typical / minimal).isBetween(3.5, 8.0);
+        assertThat(heavy / minimal).isBetween(10.0, 20.0);
+    }
+
+    @Test
+    void typicalProfile_addsFieldsMatchingEventType() {
+        RawEventGenerator generator = new RawEventGenerator(3, PayloadProfile.TYPICAL);
+        for (int i = 0; i < 500; i++) {
+            RawSecurityEvent e = generator.generate(UUID.randomUUID().toString());
+            assertThat(e.getCommandLine()).startsWith("\"C:\\").contains(e.getProcessName());
+            assertThat(e.getParentPid()).isPositive();
+            switch (e.getEventType().toLowerCase()) {
+                case "network_connection" -> {
+                    assertThat(e.getDestIp()).matches("\\d+\\.\\d+\\.\\d+\\.\\d+");
+                    assertThat(e.getDestPort()).isBetween(1, 65535);
+                    assertThat(e.getFilePath()).isNull();
+                }
+                case "process_start" -> {
+                    assertThat(e.getFilePath()).endsWith("\\" + e.getProcessName());
+                    assertThat(e.getSha256()).matches("[0-9a-f]{64}");
+                    assertThat(e.getDestIp()).isNull();
+                }
+                default -> {
+                    assertThat(e.getFilePath()).startsWith("C:\\Users\\" + e.getUserId());
+                    assertThat(e.getDestIp()).isNull();
+                }
+            }
+        }
+    }
+
+    private static double averageBytes(ObjectMapper mapper, RawEventGenerator generator, String endpointId) throws Exception {
+        long total = 0;
+        for (int i = 0; i < 3000; i++) {
+            total += mapper.writeValueAsBytes(generator.generate(endpointId)).length;
+        }
+        return total / 3000.0;
+    }
 }
@@ -0,0 +1,124 @@
+package com.endpoint.security.collector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Compares the original {@code BufferedWriter}/{@code FileWriter} output path with the batched
+ * {@link FileChannelSink}, the memory-mapped {@link MappedSegmentSink} and the block-compressed
+ * {@link BlockCompressedSink}, writing the same pre-generated batch of raw events. Scores are events/s.
+ * <p>
+ * Run with: {@code mvn -pl collector-service test-compile exec:exec -Dexec.executable=java
+ * -Dexec.classpathScope=test -Dexec.args="-cp %classpath org.openjdk.jmh.Main RawEventSinkBenchmark"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RawEventSinkBenchmark {
+
+    private static final int BATCH = 1024;
+
+    private String[] lines;
+    private byte[] batchBytes;
+    private Path dir;
+    private BufferedWriter bufferedWriter;
+    private FileChannelSink channelSink;
+    private MappedSegmentSink mappedSink;
+    private BlockCompressedSink deflateSink;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        FastRawEventGenerator generator = FastRawEventGenerator.forWorker(3, 1L, 0);
+        byte[] endpoint = FastRawEventGenerator.endpointIdBytes(UUID.randomUUID().toString());
+        ByteBuffer all = ByteBuffer.allocate(BATCH * (FastRawEventGenerator.MAX_EVENT_BYTES + 1));
+        ByteBuffer one = ByteBuffer.allocate(FastRawEventGenerator.MAX_EVENT_BYTES);
+        lines = new String[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            one.clear();
+            generator.encode(endpoint, System.currentTimeMillis(), one);
+            lines[i] = new String(one.array(), 0, one.position(), StandardCharsets.UTF_8);
+            all.put(one.array(), 0, one.position()).put((byte) '\n');
+        }
+        batchBytes = new byte[all.position()];
+        all.flip().get(batchBytes);
+    }
+
+    @Setup(Level.Iteration)
+    public void open() throws IOException {
+        dir = Files.createTempDirectory("sink-bench");
+        bufferedWriter = new BufferedWriter(new FileWriter(dir.resolve("buffered.ndjson").toFile(), true));
+        channelSink = new FileChannelSink(dir.resolve("channel.ndjson"));
+        mappedSink = new MappedSegmentSink(dir.resolve("mapped.ndjson"), 256L * 1024 * 1024);
+        deflateSink = new BlockCompressedSink(dir.resolve("deflate.ndjson"), 4096, 1, 0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() throws IOException {
+        bufferedWriter.close();
+        channelSink.close();
+        mappedSink.close();
+        deflateSink.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    /** Original path: one String per event through BufferedWriter/FileWriter (char encoding + copies). */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void bufferedWriter() throws IOException {
+        for (String line : lines) {
+            bufferedWriter.write(line);
+            bufferedWriter.newLine();
+        }
+        bufferedWriter.flush();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void fileChannelBatch() throws IOException {
+        channelSink.append(ByteBuffer.wrap(batchBytes), BATCH);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void mappedSegment() throws IOException {
+        mappedSink.append(ByteBuffer.wrap(batchBytes), BATCH);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void deflateBlocks() throws IOException {
+        deflateSink.append(ByteBuffer.wrap(batchBytes), BATCH);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RawEventSinkBenchmark.class.getSimpleName()).build()).run();
+    }
+}
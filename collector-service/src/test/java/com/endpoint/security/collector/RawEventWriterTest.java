@@ -1,6 +1,8 @@
 package com.endpoint.security.collector;
 
 import com.endpoint.security.collector.model.RawSecurityEvent;
+import com.endpoint.security.collector.model.ShardDescriptor;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -9,7 +11,11 @@ import org.junit.jupiter.api.io.TempDir;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -72,4 +78,153 @@ class RawEventWriterTest {
         Thread.sleep(200);
         assertThat(Files.readAllLines(output)).isEmpty();
     }
+
+    @Test
+    void write_groupsQueuedEventsIntoBatches() throws Exception {
+        Path output = tempDir.resolve("batched.ndjson");
+        writer = new RawEventWriter(output.toAbsolutePath().toString(), 100, "batch", 1000, 0, 1024, "block", "", 0, 0, "ndjson", 4096, 1, 10000, 1);
+        RawEventGenerator generator = new RawEventGenerator(3);
+        for (int i = 0; i < 1000; i++) {
+            writer.write(generator.generate(UUID.randomUUID().toString()));
+        }
+        writer.start();
+        writer.stop();
+
+        assertThat(Files.readAllLines(output)).hasSize(1000);
+        assertThat(writer.writtenCount()).isEqualTo(1000);
+        assertThat(writer.batchCount()).isEqualTo(10);
+    }
+
+    @Test
+    void stop_drainsPendingEventsBeforeClosing() throws Exception {
+        Path output = tempDir.resolve("drain.ndjson");
+        writer = new RawEventWriter(output.toAbsolutePath().toString(), 16, "interval", 50, 0, 64, "block", "", 0, 0, "ndjson", 4096, 1, 10000, 1);
+        writer.start();
+        RawEventGenerator generator = new RawEventGenerator(3);
+        for (int i = 0; i < 500; i++) {
+            writer.write(generator.generate(UUID.randomUUID().toString()));
+        }
+        writer.stop();
+
+        List<String> lines = Files.readAllLines(output);
+        assertThat(lines).hasSize(500);
+        ObjectMapper mapper = new ObjectMapper();
+        for (String line : lines) {
+            assertThat(mapper.readValue(line, RawSecurityEvent.class).getEndpointId()).isNotNull();
+        }
+    }
+
+    @Test
+    void writeEncoded_copiesFromAReusedBufferBeforeTheCallerOverwritesIt() throws Exception {
+        Path output = tempDir.resolve("reused.ndjson");
+        writer = new RawEventWriter(output.toString(), 8, "none", 1000, 0, 16, "block", "", 0, 0, "ndjson", 4096, 1, 10000, 1);
+        writer.start();
+        byte[] scratch = new byte[64];
+        for (int i = 0; i < 200; i++) {
+            byte[] line = ("{\"endpointId\":\"ep-1\",\"seq\":" + i + "}").getBytes();
+            Arrays.fill(scratch, (byte) 'x');
+            System.arraycopy(line, 0, scratch, 3, line.length);
+            writer.writeEncoded("ep-1", scratch, 3, line.length);
+        }
+        writer.stop();
+
+        List<String> lines = Files.readAllLines(output);
+        assertThat(lines).hasSize(200);
+        for (int i = 0; i < lines.size(); i++) {
+            assertThat(lines.get(i)).isEqualTo("{\"endpointId\":\"ep-1\",\"seq\":" + i + "}");
+        }
+    }
+
+    @Test
+    void overflow_dropNewestCountsDiscardedEvents() {
+        writer = new RawEventWriter(tempDir.resolve("drop.ndjson").toString(), 16, "none", 1000, 0, 4, "drop-newest", "", 0, 0, "ndjson", 4096, 1, 10000, 1);
+        RawEventGenerator generator = new RawEventGenerator(3);
+        for (int i = 0; i < 10; i++) {
+            writer.write(generator.generate(UUID.randomUUID().toString()));
+        }
+        assertThat(writer.droppedCount()).isEqualTo(6);
+        assertThat(writer.spilledCount()).isZero();
+    }
+
+    @Test
+    void overflow_dropOldestKeepsMostRecentEvents() throws Exception {
+        Path output = tempDir.resolve("drop-oldest.ndjson");
+        writer = new RawEventWriter(output.toString(), 16, "none", 1000, 0, 4, "drop-oldest", "", 0, 0, "ndjson", 4096, 1, 10000, 1);
+        for (int i = 0; i < 10; i++) {
+            RawSecurityEvent e = new RawSecurityEvent();
+            e.setEndpointId("ep-" + i);
+            writer.write(e);
+        }
+        writer.start();
+        writer.stop();
+
+        assertThat(writer.droppedCount()).isEqualTo(6);
+        assertThat(Files.readAllLines(output)).hasSize(4).last().asString().contains("ep-9");
+    }
+
+    @Test
+    void overflow_spillWritesToOverflowFile() throws Exception {
+        Path output = tempDir.resolve("raw-events.ndjson");
+        writer = new RawEventWriter(output.toString(), 16, "none", 1000, 0, 4, "spill", "", 0, 0, "ndjson", 4096, 1, 10000, 1);
+        RawEventGenerator generator = new RawEventGenerator(3);
+        for (int i = 0; i < 10; i++) {
+            writer.write(generator.generate(UUID.randomUUID().toString()));
+        }
+        writer.start();
+        writer.stop();
+
+        assertThat(writer.spilledCount()).isEqualTo(6);
+        assertThat(Files.readAllLines(output)).hasSize(4);
+        assertThat(Files.readAllLines(tempDir.resolve("raw-events-overflow.ndjson"))).hasSize(6);
+    }
+
+    @Test
+    void shards_routeEachEndpointToOneFileInOrderAndWriteDescriptor() throws Exception {
+        Path output = tempDir.resolve("raw-events.ndjson");
+        writer = new RawEventWriter(output.toString(), 16, "none", 1000, 0, 1024, "block", "", 0, 0, "ndjson", 4096, 1, 10000, 4);
+        writer.start();
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            final int producer = p;
+            producers[p] = new Thread(() -> {
+                for (int seq = 0; seq < 50; seq++) {
+                    for (int e = producer; e < 40; e += 4) {
+                        String line = "{\"endpointId\":\"ep-" + e + "\",\"seq\":" + seq + "}";
+                        if (seq % 2 == 0) writer.writeEncoded(line.getBytes());
+                        else writer.writeEncoded("ep-" + e, line.getBytes());
+                    }
+                }
+            });
+            producers[p].start();
+        }
+        for (Thread t : producers) t.join();
+        writer.stop();
+
+        ObjectMapper mapper = new ObjectMapper();
+        ShardDescriptor descriptor = mapper.readValue(tempDir.resolve("raw-events.shards.json").toFile(), ShardDescriptor.class);
+        assertThat(descriptor.shards()).isEqualTo(4);
+        assertThat(descriptor.segmented()).isFalse();
+        assertThat(descriptor.files()).extracting(ShardDescriptor.Shard::path)
+            .containsExactly("raw-events-shard-0.ndjson", "raw-events-shard-1.ndjson",
+                "raw-events-shard-2.ndjson", "raw-events-shard-3.ndjson");
+
+        Map<String, Integer> shardOf = new HashMap<>();
+        Map<String, Integer> lastSeq = new HashMap<>();
+        int total = 0;
+        for (ShardDescriptor.Shard shard : descriptor.files()) {
+            for (String line : Files.readAllLines(tempDir.resolve(shard.path()))) {
+                JsonNode node = mapper.readTree(line);
+                String endpoint = node.get("endpointId").asText();
+                assertThat(shardOf.computeIfAbsent(endpoint, k -> shard.shard())).isEqualTo(shard.shard());
+                assertThat(RawEventWriter.shardIndex(endpoint, 4)).isEqualTo(shard.shard());
+                int seq = node.get("seq").asInt();
+                assertThat(seq).isEqualTo(lastSeq.getOrDefault(endpoint, -1) + 1);
+                lastSeq.put(endpoint, seq);
+                total++;
+            }
+        }
+        assertThat(total).isEqualTo(2000);
+        assertThat(writer.writtenCount()).isEqualTo(2000);
+        assertThat(new HashSet<>(shardOf.values())).hasSizeGreaterThan(1);
+    }
 }
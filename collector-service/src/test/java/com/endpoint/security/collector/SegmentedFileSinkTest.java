@@ -0,0 +1,83 @@
+package com.endpoint.security.collector;
+
+import com.endpoint.security.collector.model.SegmentManifest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentedFileSinkTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void append_rotatesBySizeAndListsSealedSegmentsInManifest() throws Exception {
+        SegmentedFileSink sink = new SegmentedFileSink(tempDir.resolve("raw-events.ndjson"), 100, 0);
+        long written = 0;
+        for (int i = 0; i < 10; i++) {
+            ByteBuffer line = line("{\"n\":" + i + ",\"pad\":\"xxxxxxxxxxxxxxxxxxxx\"}");
+            written += line.remaining();
+            sink.append(line, 1);
+        }
+        sink.close();
+
+        SegmentManifest manifest = readManifest();
+        assertThat(manifest.sealed()).isNotEmpty();
+        assertThat(manifest.active()).isEqualTo(sink.activeSegmentName());
+        long total = 0;
+        for (SegmentManifest.Segment s : manifest.sealed()) {
+            assertThat(s.bytes()).isLessThanOrEqualTo(100).isEqualTo(Files.size(tempDir.resolve(s.name())));
+            assertThat(Files.readAllLines(tempDir.resolve(s.name()))).allMatch(l -> l.startsWith("{") && l.endsWith("}"));
+            total += s.bytes();
+        }
+        total += Files.size(tempDir.resolve(manifest.active()));
+        assertThat(total).isEqualTo(written);
+        assertThat(manifest.sealed().get(0).name()).isEqualTo("raw-events-000000.ndjson");
+    }
+
+    @Test
+    void onIdle_sealsSegmentOnceItIsOldEnough() throws Exception {
+        SegmentedFileSink sink = new SegmentedFileSink(tempDir.resolve("raw-events.ndjson"), 0, 50);
+        sink.append(line("{}"), 1);
+        Thread.sleep(80);
+        sink.onIdle();
+        sink.close();
+
+        assertThat(readManifest().sealed()).extracting(SegmentManifest.Segment::name)
+            .containsExactly("raw-events-000000.ndjson");
+    }
+
+    @Test
+    void restart_sealsPreviousActiveSegmentAndPrunesDeletedOnes() throws Exception {
+        SegmentedFileSink first = new SegmentedFileSink(tempDir.resolve("raw-events.ndjson"), 10, 0);
+        first.append(line("{\"a\":1111}"), 1);
+        first.append(line("{\"a\":2222}"), 1);
+        first.close();
+        Files.delete(tempDir.resolve("raw-events-000000.ndjson"));
+
+        SegmentedFileSink second = new SegmentedFileSink(tempDir.resolve("raw-events.ndjson"), 10, 0);
+        second.close();
+
+        SegmentManifest manifest = readManifest();
+        assertThat(manifest.sealed()).extracting(SegmentManifest.Segment::name).containsExactly("raw-events-000001.ndjson");
+        assertThat(manifest.active()).isEqualTo("raw-events-000002.ndjson");
+        assertThat(manifest.nextSequence()).isEqualTo(3);
+    }
+
+    private SegmentManifest readManifest() throws Exception {
+        return mapper.readValue(tempDir.resolve("raw-events.manifest.json").toFile(), SegmentManifest.class);
+    }
+
+    private static ByteBuffer line(String json) {
+        return ByteBuffer.wrap((json + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,67 @@
+package com.endpoint.security.collector;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriterShardTest {
+
+    @Test
+    void stop_waitsForASlowSinkToDrainEverythingQueuedAndClosesIt() throws Exception {
+        SlowSink sink = new SlowSink(200);
+        WriterShard shard = new WriterShard("slow-shard", new ObjectMapper().writer(), 1, FsyncPolicy.NONE, 0, 0,
+            64, OverflowPolicy.BLOCK, null);
+        shard.start(sink);
+
+        int events = 30;
+        for (int i = 0; i < events; i++) {
+            shard.enqueue(("{\"n\":" + i + "}").getBytes(StandardCharsets.UTF_8));
+        }
+        assertThat(sink.firstAppend.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // 30 batches at 200 ms each outlast a single 5 s join.
+        shard.stop();
+
+        assertThat(sink.appended.get()).isEqualTo(events);
+        assertThat(sink.closed.get()).isTrue();
+    }
+
+    private static final class SlowSink implements RawEventSink {
+        private final long delayMs;
+        final AtomicInteger appended = new AtomicInteger();
+        final AtomicBoolean closed = new AtomicBoolean();
+        final CountDownLatch firstAppend = new CountDownLatch(1);
+
+        SlowSink(long delayMs) {
+            this.delayMs = delayMs;
+        }
+
+        @Override
+        public void append(ByteBuffer lines, int events) {
+            firstAppend.countDown();
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            appended.addAndGet(events);
+        }
+
+        @Override
+        public void sync() {
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.endpoint.security.ingestion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how long a tailing loop sleeps between passes over its input file (or files).
+ * <p>
+ * In {@code watch} mode each file's directory is registered with a {@link WatchService} (inotify on Linux), and
+ * {@link #await} returns as soon as one of the files is created or modified. The wait is still capped. Some filesystems
+ * never deliver events, e.g. some bind mounts and network shares, so the cap keeps the loop polling there too.
+ * In {@code poll} mode, or if the directory cannot be watched, only the cap applies.
+ * <p>
+ * The cap is adaptive: it drops to {@code minWaitMs} whenever a pass found data and doubles after each idle
+ * pass, up to {@code maxWaitMs}. The loop therefore polls quickly while data is flowing and rarely when idle.
+ * Kept identical to the normalizer service's copy (see {@link FileTailer}).
+ */
+public class ChangeWaiter implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeWaiter.class);
+
+    private List<Path> files;
+    private final long minWaitMs;
+    private final long maxWaitMs;
+    private WatchService watcher;
+    private boolean watch;
+    private long waitMs;
+    private long wakeups;
+    private long notifiedWakeups;
+
+    public ChangeWaiter(Path file, String mode, long minWaitMs, long maxWaitMs) {
+        this(List.of(file), mode, minWaitMs, maxWaitMs);
+    }
+
+    public ChangeWaiter(List<Path> files, String mode, long minWaitMs, long maxWaitMs) {
+        String m = mode.trim().toLowerCase();
+        if (!m.equals("watch") && !m.equals("poll")) {
+            throw new IllegalArgumentException("Unknown tail mode: " + mode + " (expected watch or poll)");
+        }
+        if (minWaitMs < 1 || maxWaitMs < minWaitMs) {
+            throw new IllegalArgumentException("Need 1 <= minWaitMs <= maxWaitMs, got " + minWaitMs + " and " + maxWaitMs);
+        }
+        this.files = files.stream().map(f -> f.toAbsolutePath().normalize()).toList();
+        this.minWaitMs = minWaitMs;
+        this.maxWaitMs = maxWaitMs;
+        this.watch = m.equals("watch");
+        this.waitMs = minWaitMs;
+    }
+
+    /**
+     * Blocks until the input may have changed or the current wait cap elapses.
+     *
+     * @param progressed whether the pass just finished found new data
+     */
+    public void await(boolean progressed) throws InterruptedException {
+        waitMs = progressed ? minWaitMs : Math.min(maxWaitMs, waitMs * 2);
+        wakeups++;
+        if (!watch || !ensureWatching()) {
+            Thread.sleep(waitMs);
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMs);
+        try {
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                WatchKey key = watcher.poll(remaining, TimeUnit.NANOSECONDS);
+                if (key == null) return;
+                boolean relevant = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    relevant |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                        || (event.context() instanceof Path name && files.contains(((Path) key.watchable()).resolve(name)));
+                }
+                if (!key.reset()) {
+                    // Directory deleted; register again on the next call.
+                    closeWatcher();
+                    return;
+                }
+                if (relevant) {
+                    notifiedWakeups++;
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            watcher = null;
+        }
+    }
+
+    /**
+     * Replaces the files whose changes end a wait, e.g. once the input's layout is known. Directories that are no
+     * longer needed stop being watched, and new ones are registered on the next {@link #await}.
+     */
+    public void watch(List<Path> files) {
+        List<Path> normalized = files.stream().map(f -> f.toAbsolutePath().normalize()).toList();
+        if (!directories(normalized).equals(directories(this.files))) closeWatcher();
+        this.files = normalized;
+    }
+
+    /** Current wait cap in ms. */
+    public long currentWaitMs() {
+        return waitMs;
+    }
+
+    /** True while change notifications are in use, i.e. not polling only. */
+    public boolean isWatching() {
+        return watch && watcher != null;
+    }
+
+    /** Share of {@link #await} calls that ended because of a change notification instead of the cap. */
+    public double notifiedFraction() {
+        return wakeups == 0 ? 0 : (double) notifiedWakeups / wakeups;
+    }
+
+    @Override
+    public void close() {
+        closeWatcher();
+    }
+
+    private boolean ensureWatching() {
+        if (watcher != null) return true;
+        Set<Path> dirs = directories(files);
+        for (Path dir : dirs) {
+            if (dir == null || !dir.toFile().isDirectory()) return false;
+        }
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            for (Path dir : dirs) {
+                dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+            log.info("Watching {} for changes to {}", dirs, files.stream().map(Path::getFileName).toList());
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("Cannot watch {} ({}); falling back to adaptive polling", dirs, e.toString());
+            closeWatcher();
+            watch = false;
+            return false;
+        }
+    }
+
+    private static Set<Path> directories(List<Path> files) {
+        Set<Path> dirs = new LinkedHashSet<>();
+        for (Path file : files) dirs.add(file.getParent());
+        return dirs;
+    }
+
+    private void closeWatcher() {
+        if (watcher == null) return;
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            // nothing left to release
+        }
+        watcher = null;
+    }
+}
@@ -4,6 +4,7 @@ import com.endpoint.security.ingestion.document.AlertDocument;
 import com.endpoint.security.ingestion.entity.SecurityEventEntity;
 import com.endpoint.security.ingestion.model.NormalizedEventRecord;
 import com.endpoint.security.ingestion.repository.AlertDocumentRepository;
+import com.endpoint.security.ingestion.repository.SecurityEventCopyWriter;
 import com.endpoint.security.ingestion.repository.SecurityEventRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -12,11 +13,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -24,97 +26,116 @@ import java.util.List;
 public class IngestionRunner implements CommandLineRunner {
 
     private static final Logger log = LoggerFactory.getLogger(IngestionRunner.class);
-    private static final int BATCH_SIZE = 100;
+    private static final int TAIL_BUFFER_BYTES = 1024 * 1024;
 
     private final String inputPath;
+    private final String alertsPath;
+    private final String checkpointPath;
     private final int maxRecordsPerPoll;
+    private final int batchSize;
+    private final boolean copy;
     private final long pollIntervalMs;
+    private final String tailMode;
+    private final long tailMinWaitMs;
     private final SecurityEventRepository eventRepo;
     private final AlertDocumentRepository alertRepo;
+    private final SecurityEventCopyWriter copyWriter;
+    private long copyFallbacks;
     private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
 
     public IngestionRunner(
             @org.springframework.beans.factory.annotation.Value("${ingestion.input.path:./output/normalized-events.ndjson}") String inputPath,
             @org.springframework.beans.factory.annotation.Value("${ingestion.max-records-per-poll:0}") int maxRecordsPerPoll,
             @org.springframework.beans.factory.annotation.Value("${ingestion.poll-interval-ms:3000}") long pollIntervalMs,
+            @org.springframework.beans.factory.annotation.Value("${ingestion.tail.mode:watch}") String tailMode,
+            @org.springframework.beans.factory.annotation.Value("${ingestion.tail.min-wait-ms:5}") long tailMinWaitMs,
+            @org.springframework.beans.factory.annotation.Value("${ingestion.alerts.path:}") String alertsPath,
+            @org.springframework.beans.factory.annotation.Value("${ingestion.batch-size:1000}") int batchSize,
+            @org.springframework.beans.factory.annotation.Value("${ingestion.postgres.writer:copy}") String postgresWriter,
+            @org.springframework.beans.factory.annotation.Value("${ingestion.checkpoint.path:}") String checkpointPath,
             SecurityEventRepository eventRepo,
-            AlertDocumentRepository alertRepo) {
+            AlertDocumentRepository alertRepo,
+            SecurityEventCopyWriter copyWriter) {
         this.inputPath = inputPath;
+        this.alertsPath = alertsPath;
+        this.checkpointPath = checkpointPath;
         this.maxRecordsPerPoll = maxRecordsPerPoll;
+        this.batchSize = Math.max(1, batchSize);
+        String writer = postgresWriter.trim().toLowerCase();
+        if (!writer.equals("copy") && !writer.equals("jpa")) {
+            throw new IllegalArgumentException("Unknown ingestion.postgres.writer: " + postgresWriter + " (expected copy or jpa)");
+        }
+        this.copy = writer.equals("copy");
         this.pollIntervalMs = pollIntervalMs;
+        this.tailMode = tailMode;
+        this.tailMinWaitMs = tailMinWaitMs;
         this.eventRepo = eventRepo;
         this.alertRepo = alertRepo;
+        this.copyWriter = copyWriter;
     }
 
     @Override
     public void run(String... args) throws Exception {
         Path path = Paths.get(inputPath);
-        log.info("Ingestion started, input: {}, maxRecordsPerPoll: {} (0=no limit), pollIntervalMs: {}", inputPath, maxRecordsPerPoll, pollIntervalMs);
+        Path alerts = alertsPath.isBlank() ? null : Paths.get(alertsPath);
+        // Not <input>.checkpoint: that is the normalizer's checkpoint for the file it writes.
+        Path checkpoint = checkpointPath.isBlank() ? Paths.get(inputPath + ".ingestion.checkpoint") : Paths.get(checkpointPath);
+        Path alertCheckpoint = alerts == null ? null : Paths.get(alerts + ".ingestion.checkpoint");
+        log.info("Ingestion started, input: {}, checkpoint {}, maxRecordsPerPoll: {} (0=no limit), pollIntervalMs: {}, "
+            + "tail mode {} (min wait {} ms), Postgres writer {} in batches of {}", inputPath, checkpoint, maxRecordsPerPoll,
+            pollIntervalMs, tailMode, tailMinWaitMs, copy ? "copy" : "jpa", batchSize);
+        if (alerts != null) log.info("Alert lane on: {} is drained before and between bulk batches, checkpoint {}", alerts, alertCheckpoint);
         Thread t = new Thread(() -> {
-            long lastSize = 0;
-            try {
-                while (!Thread.currentThread().isInterrupted()) {
-                    if (Files.exists(path)) {
-                        long len = Files.size(path);
-                        if (len > lastSize) {
-                            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-                                long toSkip = lastSize;
-                                while (toSkip > 0) {
-                                    long s = reader.skip(toSkip);
-                                    if (s <= 0) break;
-                                    toSkip -= s;
-                                }
-                                List<SecurityEventEntity> eventsBatch = new ArrayList<>();
-                                List<AlertDocument> alertsBatch = new ArrayList<>();
-                                String line;
-                                int processedThisPoll = 0;
-                                long bytesReadThisPoll = 0;
-                                while ((line = reader.readLine()) != null) {
-                                    if (line.isBlank()) continue;
-                                    try {
-                                        NormalizedEventRecord r = objectMapper.readValue(line, NormalizedEventRecord.class);
-                                        Boolean isAlert = r.isAlert() != null && r.isAlert();
-                                        if (isAlert && r.alertScore() != null) {
-                                            AlertDocument doc = new AlertDocument();
-                                            doc.setTimestamp(r.timestamp());
-                                            doc.setEndpointId(r.endpointId());
-                                            doc.setEventType(r.eventType());
-                                            doc.setUserId(r.userId());
-                                            doc.setProcessName(r.processName());
-                                            doc.setAlertScore(r.alertScore());
-                                            doc.setAlertReason(r.alertReason());
-                                            alertsBatch.add(doc);
-                                        } else {
-                                            SecurityEventEntity e = new SecurityEventEntity();
-                                            e.setTimestamp(r.timestamp());
-                                            e.setEndpointId(r.endpointId());
-                                            e.setEventType(r.eventType());
-                                            e.setUserId(r.userId());
-                                            e.setProcessName(r.processName());
-                                            e.setAlert(isAlert);
-                                            eventsBatch.add(e);
-                                        }
-                                        processedThisPoll++;
-                                        bytesReadThisPoll += line.getBytes(StandardCharsets.UTF_8).length + 1;
-                                        if (maxRecordsPerPoll > 0 && processedThisPoll >= maxRecordsPerPoll) {
-                                            log.info("Ingestion reached max records per poll ({}), stopping this cycle", maxRecordsPerPoll);
-                                            break;
-                                        }
-                                        if (eventsBatch.size() + alertsBatch.size() >= BATCH_SIZE) {
-                                            flush(eventsBatch, alertsBatch);
-                                        }
-                                    } catch (Exception e) {
-                                        log.trace("Skip line: {}", e.getMessage());
-                                    }
-                                }
-                                flush(eventsBatch, alertsBatch);
-                                lastSize = (maxRecordsPerPoll > 0 && processedThisPoll >= maxRecordsPerPoll)
-                                    ? lastSize + bytesReadThisPoll
-                                    : len;
-                            }
+            try (FileTailer tailer = new FileTailer(path, checkpoint, TAIL_BUFFER_BYTES);
+                 FileTailer alertTailer = alerts == null ? null : new FileTailer(alerts, alertCheckpoint, TAIL_BUFFER_BYTES);
+                 ChangeWaiter waiter = new ChangeWaiter(alerts == null ? List.of(path) : List.of(path, alerts),
+                     tailMode, tailMinWaitMs, pollIntervalMs)) {
+                List<SecurityEventEntity> eventsBatch = new ArrayList<>();
+                List<AlertDocument> alertsBatch = new ArrayList<>();
+                LaneLatency bulkLatency = new LaneLatency();
+                AlertLane lane = alertTailer == null ? null : new AlertLane(alertTailer);
+                int[] processedThisPoll = new int[1];
+                FileTailer.LineHandler handler = (bytes, offset, length) -> {
+                    try {
+                        NormalizedEventRecord r = objectMapper.readValue(bytes, offset, length, NormalizedEventRecord.class);
+                        addToBatch(r, eventsBatch, alertsBatch);
+                        processedThisPoll[0]++;
+                        if (maxRecordsPerPoll > 0 && processedThisPoll[0] >= maxRecordsPerPoll) {
+                            log.info("Ingestion reached max records per poll ({}), stopping this cycle", maxRecordsPerPoll);
+                            return false;
+                        }
+                        if (eventsBatch.size() + alertsBatch.size() >= batchSize) {
+                            flush(eventsBatch, alertsBatch, bulkLatency);
+                            // A long bulk backlog must not hold up alerts that arrive meanwhile.
+                            if (lane != null) lane.drain();
                         }
+                    } catch (Exception e) {
+                        log.trace("Skip line: {}", e.getMessage());
+                    }
+                    return true;
+                };
+                while (!Thread.currentThread().isInterrupted()) {
+                    boolean alertsFound = lane != null && lane.drain();
+                    long startOffset = tailer.offset();
+                    long before;
+                    processedThisPoll[0] = 0;
+                    boolean limited;
+                    do {
+                        before = tailer.offset();
+                        tailer.poll(handler);
+                        limited = maxRecordsPerPoll > 0 && processedThisPoll[0] >= maxRecordsPerPoll;
+                    } while (tailer.offset() != before && !limited);
+                    flush(eventsBatch, alertsBatch, bulkLatency);
+                    // Every line before the offset is now stored; a restart re-reads at most what followed.
+                    tailer.checkpoint();
+                    if (bulkLatency.count > 0) {
+                        log.info("Bulk lane stored {} this pass", bulkLatency.report());
+                    }
+                    if (limited) {
+                        Thread.sleep(pollIntervalMs);
+                    } else {
+                        waiter.await(alertsFound || tailer.offset() != startOffset);
                     }
-                    Thread.sleep(pollIntervalMs);
                 }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -126,16 +147,132 @@ public class IngestionRunner implements CommandLineRunner {
         t.start();
     }
 
-    private void flush(List<SecurityEventEntity> eventsBatch, List<AlertDocument> alertsBatch) {
+    /** Stores one batch with COPY, or through JPA if that is configured or the COPY failed; returns the path used. */
+    private String saveEvents(List<SecurityEventEntity> eventsBatch) {
+        if (copy) {
+            try {
+                copyWriter.write(eventsBatch);
+                return "copy";
+            } catch (SQLException | RuntimeException e) {
+                copyFallbacks++;
+                log.warn("COPY of {} events failed, saving the batch through JPA instead ({} fallbacks so far): {}",
+                    eventsBatch.size(), copyFallbacks, e.getMessage());
+            }
+        }
+        eventRepo.saveAll(eventsBatch);
+        return "jpa";
+    }
+
+    /** Alerts go to MongoDB when scored; everything else (including unscored alerts) to Postgres. */
+    private static void addToBatch(NormalizedEventRecord r, List<SecurityEventEntity> eventsBatch, List<AlertDocument> alertsBatch) {
+        Boolean isAlert = r.isAlert() != null && r.isAlert();
+        if (isAlert && r.alertScore() != null) {
+            AlertDocument doc = new AlertDocument();
+            doc.setTimestamp(r.timestamp());
+            doc.setEndpointId(r.endpointId());
+            doc.setEventType(r.eventType());
+            doc.setUserId(r.userId());
+            doc.setProcessName(r.processName());
+            doc.setAlertScore(r.alertScore());
+            doc.setAlertReason(r.alertReason());
+            doc.setCommandLine(r.commandLine());
+            doc.setParentPid(r.parentPid());
+            doc.setFilePath(r.filePath());
+            doc.setSha256(r.sha256());
+            doc.setDestIp(r.destIp());
+            doc.setDestPort(r.destPort());
+            alertsBatch.add(doc);
+        } else {
+            SecurityEventEntity e = new SecurityEventEntity();
+            e.setTimestamp(r.timestamp());
+            e.setEndpointId(r.endpointId());
+            e.setEventType(r.eventType());
+            e.setUserId(r.userId());
+            e.setProcessName(r.processName());
+            e.setAlert(isAlert);
+            e.setCommandLine(r.commandLine());
+            e.setParentPid(r.parentPid());
+            e.setFilePath(r.filePath());
+            e.setSha256(r.sha256());
+            e.setDestIp(r.destIp());
+            e.setDestPort(r.destPort());
+            eventsBatch.add(e);
+        }
+    }
+
+    private void flush(List<SecurityEventEntity> eventsBatch, List<AlertDocument> alertsBatch, LaneLatency latency) {
         if (!eventsBatch.isEmpty()) {
-            eventRepo.saveAll(eventsBatch);
-            log.info("Ingestion saved {} events to Postgres", eventsBatch.size());
+            long t0 = System.nanoTime();
+            String path = saveEvents(eventsBatch);
+            long micros = Math.max(1, (System.nanoTime() - t0) / 1000);
+            for (SecurityEventEntity e : eventsBatch) latency.record(e.getTimestamp());
+            log.info("Ingestion saved {} events to Postgres ({}, {} rows/s)", eventsBatch.size(), path,
+                eventsBatch.size() * 1_000_000L / micros);
             eventsBatch.clear();
         }
         if (!alertsBatch.isEmpty()) {
             alertRepo.saveAll(alertsBatch);
+            for (AlertDocument doc : alertsBatch) latency.record(doc.getTimestamp());
             log.info("Ingestion saved {} alerts to MongoDB", alertsBatch.size());
             alertsBatch.clear();
         }
     }
+
+    /** The alert file's tailer and batches; {@link #drain} stores everything new on it at once. */
+    private final class AlertLane {
+        private final FileTailer tailer;
+        private final List<SecurityEventEntity> eventsBatch = new ArrayList<>();
+        private final List<AlertDocument> alertsBatch = new ArrayList<>();
+        private final LaneLatency latency = new LaneLatency();
+        private final FileTailer.LineHandler handler = (bytes, offset, length) -> {
+            try {
+                addToBatch(objectMapper.readValue(bytes, offset, length, NormalizedEventRecord.class), eventsBatch, alertsBatch);
+            } catch (Exception e) {
+                log.trace("Skip alert line: {}", e.getMessage());
+            }
+            return true;
+        };
+
+        AlertLane(FileTailer tailer) {
+            this.tailer = tailer;
+        }
+
+        /** Reads the alert file to its end and stores what it found; true if there was anything. */
+        boolean drain() throws IOException {
+            long start = tailer.offset();
+            long before;
+            do {
+                before = tailer.offset();
+                tailer.poll(handler);
+            } while (tailer.offset() != before);
+            flush(eventsBatch, alertsBatch, latency);
+            tailer.checkpoint();
+            if (latency.count > 0) log.info("Alert lane stored {}", latency.report());
+            return tailer.offset() != start;
+        }
+    }
+
+    /** Time from event timestamp to stored, per lane, since the last report. */
+    private static final class LaneLatency {
+        long count;
+        long totalMs;
+        long maxMs;
+
+        void record(Instant timestamp) {
+            if (timestamp == null) return;
+            long ms = Duration.between(timestamp, Instant.now()).toMillis();
+            count++;
+            totalMs += ms;
+            maxMs = Math.max(maxMs, ms);
+        }
+
+        /** e.g. {@code 12 records, latency avg 40 ms, max 95 ms}; resets the counts. */
+        String report() {
+            String report = count + " records, latency avg " + totalMs / Math.max(count, 1) + " ms, max " + maxMs + " ms";
+            count = 0;
+            totalMs = 0;
+            maxMs = 0;
+            return report;
+        }
+    }
 }
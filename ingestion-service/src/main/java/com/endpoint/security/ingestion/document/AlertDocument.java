@@ -21,6 +21,12 @@ public class AlertDocument {
     @Indexed
     private int alertScore;
     private String alertReason;
+    private String commandLine;
+    private Integer parentPid;
+    private String filePath;
+    private String sha256;
+    private String destIp;
+    private Integer destPort;
 
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -38,4 +44,16 @@ public class AlertDocument {
     public void setAlertScore(int alertScore) { this.alertScore = alertScore; }
     public String getAlertReason() { return alertReason; }
     public void setAlertReason(String alertReason) { this.alertReason = alertReason; }
+    public String getCommandLine() { return commandLine; }
+    public void setCommandLine(String commandLine) { this.commandLine = commandLine; }
+    public Integer getParentPid() { return parentPid; }
+    public void setParentPid(Integer parentPid) { this.parentPid = parentPid; }
+    public String getFilePath() { return filePath; }
+    public void setFilePath(String filePath) { this.filePath = filePath; }
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+    public String getDestIp() { return destIp; }
+    public void setDestIp(String destIp) { this.destIp = destIp; }
+    public Integer getDestPort() { return destPort; }
+    public void setDestPort(Integer destPort) { this.destPort = destPort; }
 }
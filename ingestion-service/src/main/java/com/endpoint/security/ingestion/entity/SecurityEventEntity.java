@@ -32,6 +32,24 @@ public class SecurityEventEntity {
     @Column(name = "is_alert", nullable = false)
     private boolean alert;
 
+    @Column(name = "command_line", columnDefinition = "TEXT")
+    private String commandLine;
+
+    @Column(name = "parent_pid")
+    private Integer parentPid;
+
+    @Column(name = "file_path", columnDefinition = "TEXT")
+    private String filePath;
+
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    @Column(name = "dest_ip", length = 45)
+    private String destIp;
+
+    @Column(name = "dest_port")
+    private Integer destPort;
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     public Instant getTimestamp() { return timestamp; }
@@ -46,4 +64,16 @@ public class SecurityEventEntity {
     public void setProcessName(String processName) { this.processName = processName; }
     public boolean isAlert() { return alert; }
     public void setAlert(boolean alert) { this.alert = alert; }
+    public String getCommandLine() { return commandLine; }
+    public void setCommandLine(String commandLine) { this.commandLine = commandLine; }
+    public Integer getParentPid() { return parentPid; }
+    public void setParentPid(Integer parentPid) { this.parentPid = parentPid; }
+    public String getFilePath() { return filePath; }
+    public void setFilePath(String filePath) { this.filePath = filePath; }
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+    public String getDestIp() { return destIp; }
+    public void setDestIp(String destIp) { this.destIp = destIp; }
+    public Integer getDestPort() { return destPort; }
+    public void setDestPort(Integer destPort) { this.destPort = destPort; }
 }
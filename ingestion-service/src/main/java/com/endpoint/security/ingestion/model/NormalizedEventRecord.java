@@ -15,5 +15,17 @@ public record NormalizedEventRecord(
     String processName,
     Boolean isAlert,
     Integer alertScore,
-    String alertReason
-) {}
+    String alertReason,
+    String commandLine,
+    Integer parentPid,
+    String filePath,
+    String sha256,
+    String destIp,
+    Integer destPort
+) {
+    public NormalizedEventRecord(Instant timestamp, String endpointId, String eventType, String userId,
+                                 String processName, Boolean isAlert, Integer alertScore, String alertReason) {
+        this(timestamp, endpointId, eventType, userId, processName, isAlert, alertScore, alertReason,
+            null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,13 @@
+package com.endpoint.security.ingestion.model;
+
+/**
+ * Persisted position of a {@code FileTailer}: everything before {@code offset} (a byte offset just past a
+ * newline) has been processed and its output flushed. {@code fileKey} identifies the file the offset belongs
+ * to (inode on Linux; null where the filesystem has none) so a replaced input is read from the start.
+ * Kept identical to the normalizer service's copy.
+ */
+public record TailCheckpoint(
+    String source,
+    String fileKey,
+    long offset
+) {}
@@ -0,0 +1,6 @@
+ALTER TABLE security_events ADD COLUMN IF NOT EXISTS command_line TEXT;
+ALTER TABLE security_events ADD COLUMN IF NOT EXISTS parent_pid INTEGER;
+ALTER TABLE security_events ADD COLUMN IF NOT EXISTS file_path TEXT;
+ALTER TABLE security_events ADD COLUMN IF NOT EXISTS sha256 VARCHAR(64);
+ALTER TABLE security_events ADD COLUMN IF NOT EXISTS dest_ip VARCHAR(45);
+ALTER TABLE security_events ADD COLUMN IF NOT EXISTS dest_port INTEGER;
@@ -3,6 +3,7 @@ package com.endpoint.security;
 import com.endpoint.security.ingestion.document.AlertDocument;
 import com.endpoint.security.ingestion.entity.SecurityEventEntity;
 import com.endpoint.security.ingestion.repository.AlertDocumentRepository;
+import com.endpoint.security.ingestion.repository.SecurityEventCopyWriter;
 import com.endpoint.security.ingestion.repository.SecurityEventRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -44,6 +45,9 @@ class IngestionServiceIntegrationTest {
     @Autowired
     AlertDocumentRepository alertRepository;
 
+    @Autowired
+    SecurityEventCopyWriter copyWriter;
+
     @Test
     void postgres_saveAndFindEvents() {
         SecurityEventEntity e = new SecurityEventEntity();
@@ -61,6 +65,36 @@ class IngestionServiceIntegrationTest {
         assertThat(all.get(0).getEventType()).isEqualTo("process_start");
     }
 
+    @Test
+    void postgres_copyWriterStoresTheSameRowsAsJpa() throws Exception {
+        Instant ts = Instant.parse("2024-01-15T10:00:00.123456Z");
+        SecurityEventEntity viaJpa = eventRepository.save(tricky(ts, "jpa"));
+        assertThat(copyWriter.write(List.of(tricky(ts, "copy"), tricky(ts, "copy")))).isEqualTo(2);
+        try {
+            List<SecurityEventEntity> copied = eventRepository.findAll().stream().filter(e -> e.getUserId().equals("copy")).toList();
+            assertThat(copied).hasSize(2);
+            SecurityEventEntity stored = eventRepository.findById(viaJpa.getId()).orElseThrow();
+            assertThat(copied.get(0).getId()).isGreaterThan(stored.getId());
+            assertThat(copied.get(0)).usingRecursiveComparison().ignoringFields("id", "userId").isEqualTo(stored);
+        } finally {
+            eventRepository.deleteAll();
+        }
+    }
+
+    private static SecurityEventEntity tricky(Instant ts, String userId) {
+        SecurityEventEntity e = new SecurityEventEntity();
+        e.setTimestamp(ts);
+        e.setEndpointId("550e8400-e29b-41d4-a716-446655440002");
+        e.setEventType("process_start");
+        e.setUserId(userId);
+        e.setProcessName("pöwershell.exe");
+        e.setAlert(true);
+        e.setCommandLine("C:\\Windows\\cmd.exe /c \"a\tb\"\r\nnext \\N");
+        e.setParentPid(4242);
+        e.setDestIp("10.0.0.1");
+        return e;
+    }
+
     @Test
     void mongodb_saveAndFindAlerts() {
         AlertDocument doc = new AlertDocument();
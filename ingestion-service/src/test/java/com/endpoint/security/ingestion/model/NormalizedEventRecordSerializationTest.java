@@ -58,4 +58,17 @@ class NormalizedEventRecordSerializationTest {
         assertThat(r.endpointId()).isEqualTo("a");
         assertThat(r.eventType()).isEqualTo("network_connection");
     }
+
+    @Test
+    void deserialize_lineWithPayloadFields() throws Exception {
+        String line = "{\"timestamp\":\"2024-01-15T10:00:00.000Z\",\"endpointId\":\"a\",\"eventType\":\"network_connection\",\"userId\":\"u\",\"processName\":\"p\",\"isAlert\":false,"
+            + "\"commandLine\":\"p.exe --flag\",\"parentPid\":812,\"destIp\":\"10.0.0.1\",\"destPort\":443}";
+        NormalizedEventRecord r = mapper.readValue(line, NormalizedEventRecord.class);
+        assertThat(r.commandLine()).isEqualTo("p.exe --flag");
+        assertThat(r.parentPid()).isEqualTo(812);
+        assertThat(r.destIp()).isEqualTo("10.0.0.1");
+        assertThat(r.destPort()).isEqualTo(443);
+        assertThat(r.filePath()).isNull();
+        assertThat(r.sha256()).isNull();
+    }
 }
@@ -0,0 +1,30 @@
+package com.endpoint.security.ingestion.repository;
+
+import com.endpoint.security.ingestion.entity.SecurityEventEntity;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecurityEventCopyWriterTest {
+
+    @Test
+    void encode_writesOneTextFormatRowWithNullsAndEscapes() {
+        SecurityEventEntity e = new SecurityEventEntity();
+        e.setTimestamp(Instant.parse("2024-01-15T10:00:00.123Z"));
+        e.setEndpointId("550e8400-e29b-41d4-a716-446655440000");
+        e.setEventType("process_start");
+        e.setUserId("jürgen");
+        e.setProcessName("cmd.exe");
+        e.setAlert(true);
+        e.setCommandLine("C:\\Windows\\cmd.exe /c \"a\tb\"\r\nnext");
+        e.setParentPid(4242);
+
+        StringBuilder out = new StringBuilder();
+        SecurityEventCopyWriter.encode(e, out);
+
+        assertThat(out.toString()).isEqualTo("2024-01-15T10:00:00.123Z\t550e8400-e29b-41d4-a716-446655440000\tprocess_start\t"
+            + "jürgen\tcmd.exe\tt\tC:\\\\Windows\\\\cmd.exe /c \"a\\tb\"\\r\\nnext\t4242\t\\N\t\\N\t\\N\t\\N\n");
+    }
+}
@@ -0,0 +1,221 @@
+package com.endpoint.security.normalizer;
+
+import com.endpoint.security.normalizer.model.BlockIndexEntry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Writes normalized events as independently deflated blocks of {@code blockLines} lines
+ * ({@code normalized-events.ndjson.deflate}) plus a sidecar NDJSON index ({@code .deflate.idx}) with each
+ * block's byte offset and line range; same format as the collector's block-compressed raw output.
+ * A block's index entry is appended after the block, so readers following the index never see a partial
+ * block. {@link #cutBlockIfDue()} compresses a partial block once its first line has waited {@code maxBlockAgeMs},
+ * so a slow input is not stored as one-line blocks whose index entries outweigh what compression saves.
+ * {@link #linesCut()} tells callers how much of what they wrote is in complete blocks, e.g. to checkpoint only that.
+ */
+public class BlockCompressedWriter implements Closeable {
+
+    static final String EXTENSION = ".deflate";
+    static final String INDEX_EXTENSION = ".idx";
+
+    private static final Logger log = LoggerFactory.getLogger(BlockCompressedWriter.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FileChannel data;
+    private final FileChannel index;
+    private final Deflater deflater;
+    private final int blockLines;
+    private final long maxBlockAgeNanos;
+    private byte[] pending = new byte[256 * 1024];
+    private int pendingBytes;
+    private int pendingLines;
+    private long pendingSinceNanos;
+    private long linesAccepted;
+    private long linesCut;
+    private byte[] compressed = new byte[0];
+    private long blockNumber;
+    private long nextLine;
+    private long totalUncompressed;
+    private long totalCompressed;
+    private long totalEncodeNanos;
+
+    /** @param outputPath configured output file; data goes to {@code <outputPath>.deflate} */
+    public BlockCompressedWriter(Path outputPath, int blockLines, int level) throws IOException {
+        this(outputPath, blockLines, level, false);
+    }
+
+    /**
+     * @param append continue an existing file after its last indexed block (dropping any unindexed tail left by
+     *               a crash) instead of starting a fresh one
+     */
+    public BlockCompressedWriter(Path outputPath, int blockLines, int level, boolean append) throws IOException {
+        this(outputPath, blockLines, level, append, 0);
+    }
+
+    /** @param maxBlockAgeMs how long a partial block waits for more lines before {@link #cutBlockIfDue()} cuts it */
+    public BlockCompressedWriter(Path outputPath, int blockLines, int level, boolean append, long maxBlockAgeMs)
+            throws IOException {
+        if (blockLines < 1) throw new IllegalArgumentException("blockLines must be >= 1");
+        if (maxBlockAgeMs < 0) throw new IllegalArgumentException("maxBlockAgeMs must be >= 0");
+        Path dataPath = Path.of(outputPath + EXTENSION);
+        if (dataPath.getParent() != null) Files.createDirectories(dataPath.getParent());
+        this.data = FileChannel.open(dataPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.index = FileChannel.open(Path.of(dataPath + INDEX_EXTENSION), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.deflater = new Deflater(level);
+        this.blockLines = blockLines;
+        this.maxBlockAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxBlockAgeMs);
+        if (append) {
+            resume();
+        } else {
+            data.truncate(0);
+            index.truncate(0);
+        }
+    }
+
+    public void writeLine(String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        writeLine(bytes, 0, bytes.length);
+    }
+
+    /** Same as {@link #writeLine(String)} for one UTF-8 encoded line without its '\n'. */
+    public void writeLine(byte[] bytes, int offset, int length) throws IOException {
+        if (pendingLines == 0) pendingSinceNanos = System.nanoTime();
+        int needed = pendingBytes + length + 1;
+        if (needed > pending.length) pending = Arrays.copyOf(pending, Math.max(needed, pending.length * 2));
+        System.arraycopy(bytes, offset, pending, pendingBytes, length);
+        pendingBytes += length;
+        pending[pendingBytes++] = '\n';
+        linesAccepted++;
+        if (++pendingLines == blockLines) {
+            cutBlock();
+        }
+    }
+
+    /** Cuts the pending partial block if its first line has waited {@code maxBlockAgeMs}; true if it did. */
+    public boolean cutBlockIfDue() throws IOException {
+        if (pendingLines == 0 || System.nanoTime() - pendingSinceNanos < maxBlockAgeNanos) return false;
+        cutBlock();
+        return true;
+    }
+
+    /** Compresses and indexes any pending lines as a (possibly short) block. */
+    public void cutBlock() throws IOException {
+        if (pendingLines == 0) return;
+        long t0 = System.nanoTime();
+        int bound = pendingBytes + (pendingBytes >> 12) + (pendingBytes >> 14) + (pendingBytes >> 25) + 64;
+        if (compressed.length < bound) compressed = new byte[bound];
+        deflater.reset();
+        deflater.setInput(pending, 0, pendingBytes);
+        deflater.finish();
+        int compressedBytes = 0;
+        while (!deflater.finished()) {
+            compressedBytes += deflater.deflate(compressed, compressedBytes, compressed.length - compressedBytes);
+            if (compressedBytes == compressed.length) compressed = Arrays.copyOf(compressed, compressed.length * 2);
+        }
+        long encodeNanos = System.nanoTime() - t0;
+
+        long offset = data.position();
+        ByteBuffer out = ByteBuffer.wrap(compressed, 0, compressedBytes);
+        while (out.hasRemaining()) data.write(out);
+        BlockIndexEntry entry = new BlockIndexEntry(blockNumber++, offset, compressedBytes, pendingBytes,
+            nextLine, pendingLines, encodeNanos);
+        ByteBuffer line = ByteBuffer.wrap((objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8));
+        while (line.hasRemaining()) index.write(line);
+        if (log.isDebugEnabled()) {
+            log.debug("Block {}: {} lines, {} -> {} bytes (ratio {}), encode {} MB/s", entry.block(), entry.lineCount(),
+                pendingBytes, compressedBytes, String.format("%.2f", entry.compressionRatio()),
+                String.format("%.1f", entry.encodeMbPerSecond()));
+        }
+
+        nextLine += pendingLines;
+        linesCut += pendingLines;
+        totalUncompressed += pendingBytes;
+        totalCompressed += compressedBytes;
+        totalEncodeNanos += encodeNanos;
+        pendingBytes = 0;
+        pendingLines = 0;
+    }
+
+    /** Positions both files after the last complete index entry and continues its block and line numbering. */
+    private void resume() throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) index.size());
+        while (buf.hasRemaining()) {
+            if (index.read(buf, buf.position()) < 0) break;
+        }
+        byte[] bytes = buf.array();
+        int complete = 0;
+        BlockIndexEntry last = null;
+        for (int i = 0; i < buf.position(); i++) {
+            if (bytes[i] == '\n') {
+                last = objectMapper.readValue(bytes, complete, i - complete, BlockIndexEntry.class);
+                complete = i + 1;
+            }
+        }
+        long dataEnd = last == null ? 0 : last.offset() + last.compressedBytes();
+        if (data.size() < dataEnd) throw new IOException("Compressed data is shorter than its index: " + data.size() + " < " + dataEnd);
+        index.truncate(complete);
+        data.truncate(dataEnd);
+        index.position(complete);
+        data.position(dataEnd);
+        if (last != null) {
+            blockNumber = last.block() + 1;
+            nextLine = last.firstLine() + last.lineCount();
+            log.info("Appending to block-compressed output after block {} (line {})", last.block(), nextLine);
+        }
+    }
+
+    /** Overall uncompressed / compressed size of the blocks written so far. */
+    public double compressionRatio() {
+        return totalCompressed == 0 ? 0 : (double) totalUncompressed / totalCompressed;
+    }
+
+    public double encodeMbPerSecond() {
+        return totalEncodeNanos == 0 ? 0 : totalUncompressed / (totalEncodeNanos / 1e9) / (1024 * 1024);
+    }
+
+    public long blockCount() {
+        return blockNumber;
+    }
+
+    /** Lines written since this writer was opened. */
+    public long linesAccepted() {
+        return linesAccepted;
+    }
+
+    /** Lines since this writer was opened that are in complete, indexed blocks. */
+    public long linesCut() {
+        return linesCut;
+    }
+
+    /** Lines waiting for their block to be cut. */
+    public int pendingLines() {
+        return pendingLines;
+    }
+
+    @Override
+    public void close() throws IOException {
+        cutBlock();
+        deflater.end();
+        data.close();
+        index.close();
+        if (totalCompressed > 0) {
+            log.info("Block-compressed output closed: {} blocks, {} -> {} bytes (ratio {}), encode {} MB/s",
+                blockNumber, totalUncompressed, totalCompressed, String.format("%.2f", compressionRatio()),
+                String.format("%.1f", encodeMbPerSecond()));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.endpoint.security.normalizer;
+
+import com.endpoint.security.normalizer.model.SecurityEvent;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fires when more than {@code threshold} events of one type and process (e.g. {@code process_start} of
+ * {@code powershell.exe}) occur on one endpoint within {@code windowMs} of event time.
+ * <p>
+ * Each endpoint that has had a matching event keeps a ring of the last {@code threshold + 1} matching
+ * timestamps, so the check is one comparison of the newest with the oldest. After a match the ring starts
+ * over, so a sustained burst raises one alert per {@code threshold + 1} events rather than one per event.
+ * <p>
+ * Endpoints are kept in two generations that rotate every {@code windowMs} of event time: an endpoint without
+ * a matching event for longer than that has nothing left in the window and is dropped at the next rotation.
+ * At most {@code maxEndpoints} are held (about {@code 100 + 8 * threshold} bytes each); a generation that fills
+ * up rotates early, losing the older generation's state. Endpoints are keyed on a 64-bit hash of their id.
+ */
+public class BurstRule implements DetectionRules.Rule {
+
+    private final String eventType;
+    private final String processPattern;
+    private final ProcessNameMatcher process;
+    private final int threshold;
+    private final long windowMs;
+    private final int score;
+    private final int maxGeneration;
+    private final String reason;
+    private Map<Long, long[]> current = new HashMap<>();
+    private Map<Long, long[]> previous = new HashMap<>();
+    private long generationStartMs = Long.MIN_VALUE;
+    private volatile long matches;
+    private volatile int tracked;
+
+    /**
+     * @param eventType      event type to count, or {@code *} for any
+     * @param processPattern {@link ProcessNameMatcher} pattern the process name must match
+     */
+    public BurstRule(String eventType, String processPattern, int threshold, long windowMs, int score, int maxEndpoints) {
+        if (threshold < 1 || threshold > 10_000) throw new IllegalArgumentException("threshold must be in 1..10000");
+        if (windowMs < 1) throw new IllegalArgumentException("windowMs must be >= 1");
+        if (maxEndpoints < 2) throw new IllegalArgumentException("maxEndpoints must be >= 2");
+        this.eventType = eventType;
+        this.processPattern = processPattern;
+        this.process = ProcessNameMatcher.compile(List.of(processPattern));
+        this.threshold = threshold;
+        this.windowMs = windowMs;
+        this.score = score;
+        this.maxGeneration = maxEndpoints / 2;
+        this.reason = "burst: more than " + threshold + " " + eventType + " of " + processPattern + " within " + windowMs + " ms";
+    }
+
+    @Override
+    public long key(SecurityEvent event) {
+        if (event.timestamp() == null || event.endpointId() == null) return 0;
+        if (!eventType.equals("*") && !eventType.equalsIgnoreCase(event.eventType())) return 0;
+        if (event.processName() == null || !process.isDenied(event.processName())) return 0;
+        return DetectionRules.key(0, event.endpointId());
+    }
+
+    @Override
+    public SecurityEvent evaluate(SecurityEvent event, long endpointKey) {
+        long t = event.timestamp().toEpochMilli();
+        rotate(t);
+        Long key = endpointKey;
+        long[] ring = current.get(key);
+        if (ring == null) {
+            if (current.size() >= maxGeneration) rotate();
+            ring = previous.remove(key);
+            if (ring == null) ring = new long[threshold + 2];
+            current.put(key, ring);
+            tracked = current.size() + previous.size();
+        }
+        // ring[0] = events recorded since the last match; ring[1..threshold + 1] = their timestamps, circular.
+        int capacity = threshold + 1;
+        long n = ring[0];
+        ring[1 + (int) (n % capacity)] = t;
+        ring[0] = ++n;
+        if (n < capacity) return null;
+        long oldest = ring[1 + (int) (n % capacity)];
+        if (Math.abs(t - oldest) > windowMs) return null;
+        ring[0] = 0;
+        matches++;
+        return DetectionRules.alert(event, score, reason);
+    }
+
+    private void rotate(long eventMs) {
+        if (generationStartMs == Long.MIN_VALUE) generationStartMs = eventMs;
+        if (eventMs - generationStartMs < windowMs) return;
+        if (eventMs - generationStartMs >= 2 * windowMs) current.clear();
+        rotate();
+        generationStartMs = eventMs;
+    }
+
+    private void rotate() {
+        Map<Long, long[]> dropped = previous;
+        previous = current;
+        dropped.clear();
+        current = dropped;
+        tracked = previous.size();
+    }
+
+    @Override
+    public String name() {
+        return "burst " + eventType + " " + processPattern + " >" + threshold + "/" + windowMs + "ms";
+    }
+
+    @Override
+    public long matches() {
+        return matches;
+    }
+
+    @Override
+    public int tracked() {
+        return tracked;
+    }
+}
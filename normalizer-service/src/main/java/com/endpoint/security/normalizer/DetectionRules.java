@@ -0,0 +1,146 @@
+package com.endpoint.security.normalizer;
+
+import com.endpoint.security.normalizer.model.SecurityEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Detection rules evaluated on every normalized event, beyond what agents already flag with {@code alertScore}.
+ * <p>
+ * A match becomes a synthetic alert: a copy of the triggering event (payload included) with {@code isAlert}
+ * set, the rule's score and an {@code alertReason} starting with {@code "rule "}. Synthetic alerts are not fed
+ * back into the rules.
+ * <p>
+ * Evaluation is split like {@link DuplicateFilter}'s: {@link #keys} does the per-event work (matching names,
+ * hashing ids) and is safe to call from any thread, so the pipeline's workers do it in parallel. {@link #evaluate}
+ * only looks the keys up in the rules' state; it is not thread-safe, and one thread (the pipeline's sequencer)
+ * calls it in input order, so the same input always raises the same alerts whatever the worker count. Counters
+ * may be read from other threads.
+ */
+public class DetectionRules {
+
+    /** One windowed condition; keeps whatever per-endpoint or per-user state it needs, within a fixed bound. */
+    public interface Rule {
+        /** Thread-safe: the key of the state this event updates, or 0 if the rule ignores it. */
+        long key(SecurityEvent event);
+
+        /** The alert this event raises, or null; {@code key} is {@link #key}'s non-zero result for it. */
+        SecurityEvent evaluate(SecurityEvent event, long key);
+
+        /** Short label for logs, e.g. {@code burst process_start powershell.exe >20/10000ms}. */
+        String name();
+
+        long matches();
+
+        /** Entries currently held (endpoints, user/process pairs). */
+        int tracked();
+    }
+
+    private final List<Rule> rules;
+
+    public DetectionRules(List<? extends Rule> rules) {
+        this.rules = List.copyOf(rules);
+    }
+
+    /**
+     * Builds burst rules from {@code ;}-separated {@code eventType:count:windowMs:processPattern} entries, e.g.
+     * {@code process_start:20:10000:powershell.exe}. The event type may be {@code *} (any); the process
+     * pattern uses {@link ProcessNameMatcher} syntax and comes last, so it may contain {@code :}.
+     */
+    public static List<BurstRule> parseBursts(String spec, int score, int maxEndpoints) {
+        List<BurstRule> bursts = new ArrayList<>();
+        for (String entry : spec.split(";")) {
+            if (entry.isBlank()) continue;
+            String[] parts = entry.trim().split(":", 4);
+            if (parts.length != 4 || parts[3].isBlank()) {
+                throw new IllegalArgumentException("Bad burst rule '" + entry.trim() + "' (expected eventType:count:windowMs:processPattern)");
+            }
+            try {
+                bursts.add(new BurstRule(parts[0].trim(), parts[3].trim(), Integer.parseInt(parts[1].trim()),
+                    Long.parseLong(parts[2].trim()), score, maxEndpoints));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad burst rule '" + entry.trim() + "': count and windowMs must be numbers", e);
+            }
+        }
+        return bursts;
+    }
+
+    /** Number of keys {@link #keys} stores per event. */
+    public int size() {
+        return rules.size();
+    }
+
+    /** Thread-safe: stores each rule's key for {@code event} at {@code keys[offset..offset + size())}. */
+    public void keys(SecurityEvent event, long[] keys, int offset) {
+        for (int r = 0; r < rules.size(); r++) keys[offset + r] = rules.get(r).key(event);
+    }
+
+    /** Evaluates every rule on {@code event}, given its {@link #keys}, adding the alerts it raises to {@code alerts}. */
+    public void evaluate(SecurityEvent event, long[] keys, int offset, List<SecurityEvent> alerts) {
+        for (int r = 0; r < rules.size(); r++) {
+            long key = keys[offset + r];
+            if (key == 0) continue;
+            SecurityEvent alert = rules.get(r).evaluate(event, key);
+            if (alert != null) alerts.add(alert);
+        }
+    }
+
+    /** {@link #keys} and {@link #evaluate(SecurityEvent, long[], int, List)} in one call. */
+    public void evaluate(SecurityEvent event, List<SecurityEvent> alerts) {
+        long[] keys = new long[rules.size()];
+        keys(event, keys, 0);
+        evaluate(event, keys, 0, alerts);
+    }
+
+    public List<Rule> rules() {
+        return rules;
+    }
+
+    /** Alerts raised so far, all rules. */
+    public long matches() {
+        long total = 0;
+        for (Rule rule : rules) total += rule.matches();
+        return total;
+    }
+
+    /** Per rule {@code [name] matches, tracked}, e.g. {@code [first-seen process] 3 alerts, 1200 tracked}. */
+    public String summary() {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (Rule rule : rules) joiner.add("[" + rule.name() + "] " + rule.matches() + " alerts, " + rule.tracked() + " tracked");
+        return joiner.toString();
+    }
+
+    /** The synthetic alert for {@code trigger}. */
+    static SecurityEvent alert(SecurityEvent trigger, int score, String reason) {
+        return new SecurityEvent(trigger.timestamp(), trigger.endpointId(), trigger.eventType(), trigger.userId(),
+            trigger.processName(), true, score, "rule " + reason, trigger.commandLine(), trigger.parentPid(),
+            trigger.filePath(), trigger.sha256(), trigger.destIp(), trigger.destPort());
+    }
+
+    /**
+     * 64-bit key for a string, case-insensitive, never 0; rule state is keyed on these instead of holding the
+     * strings.
+     */
+    static long key(long seed, String s) {
+        long h = seed ^ 0xCBF29CE484222325L;
+        if (s != null) {
+            for (int i = 0; i < s.length(); i++) {
+                int c = s.charAt(i);
+                if (c >= 'A' && c <= 'Z') {
+                    c += 'a' - 'A';
+                } else if (c >= 0x80) {
+                    c = Character.toLowerCase(c);
+                }
+                h = (h ^ c) * 0x100000001B3L;
+            }
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+}
@@ -0,0 +1,214 @@
+package com.endpoint.security.normalizer;
+
+import com.endpoint.security.normalizer.model.SecurityEvent;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Suppresses normalized events identical to one seen within the last {@code windowMs}, e.g. batches an agent
+ * sends again after reconnecting.
+ * <p>
+ * Events are keyed on a 64-bit hash of all normalized fields, including the event timestamp. An event whose raw
+ * line had no timestamp was stamped with the normalizer's clock, which differs on every resend; such events pass
+ * unchecked unless {@code keyUntimed} is set, in which case they are keyed without the timestamp. That catches
+ * their resends, but also suppresses a genuine repeat within the window (a user starting the same process twice),
+ * since the two look identical. The window is split into {@code buckets} rotating Bloom filters. An event is looked up in all of them and recorded in the
+ * newest, and every {@code windowMs / buckets} the oldest filter is cleared and becomes the newest. A
+ * duplicate is therefore caught if its original arrived between {@code windowMs - windowMs / buckets} and
+ * {@code windowMs} ago or more recently. Memory is fixed at construction, whatever the fleet size.
+ * <p>
+ * Each filter is sized for {@code expectedEventsPerSecond} over its slice of the window, so that a lookup
+ * across all filters wrongly reports a duplicate with probability {@code falsePositiveBudget}. If more events
+ * arrive, filters fill up and the real rate rises. {@link #estimatedFalsePositiveRate()} derives it from the
+ * filters' fill so it can be checked against the budget.
+ * <p>
+ * Not thread-safe: one thread (the pipeline's sequencer) checks events, in output order. Counters may be read
+ * from other threads.
+ */
+public class DuplicateFilter {
+
+    private final long bucketMs;
+    private final int hashes;
+    private final int bitsPerFilter;
+    private final long[][] filters;
+    private final int[] bitsSet;
+    private final double falsePositiveBudget;
+    private final boolean keyUntimed;
+    private int newest;
+    private long newestStartMs = Long.MIN_VALUE;
+    private volatile long checked;
+    private volatile long suppressed;
+
+    /** Key returned by {@link #key} for an event that is not checked; {@link #firstSeen} always passes it. */
+    public static final long UNCHECKED = 0;
+
+    public DuplicateFilter(long windowMs, int buckets, long expectedEventsPerSecond, double falsePositiveBudget) {
+        this(windowMs, buckets, expectedEventsPerSecond, falsePositiveBudget, false);
+    }
+
+    /** @param keyUntimed check events without a timestamp of their own too, keyed on their other fields */
+    public DuplicateFilter(long windowMs, int buckets, long expectedEventsPerSecond, double falsePositiveBudget,
+                           boolean keyUntimed) {
+        if (windowMs < 1 || buckets < 1 || expectedEventsPerSecond < 1) {
+            throw new IllegalArgumentException("window, buckets and expected rate must be >= 1");
+        }
+        if (!(falsePositiveBudget > 0 && falsePositiveBudget < 1)) {
+            throw new IllegalArgumentException("falsePositiveBudget must be in (0, 1)");
+        }
+        this.bucketMs = Math.max(1, windowMs / buckets);
+        this.falsePositiveBudget = falsePositiveBudget;
+        this.keyUntimed = keyUntimed;
+        // A lookup probes every filter: 1 - (1 - p)^buckets = budget gives each filter's own target p.
+        double p = 1 - Math.pow(1 - falsePositiveBudget, 1.0 / buckets);
+        double n = Math.max(1.0, expectedEventsPerSecond * (bucketMs / 1000.0));
+        long bits = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        bits = Math.min(Math.max(bits, 64), Integer.MAX_VALUE - 63);
+        this.bitsPerFilter = (int) ((bits + 63) & ~63L);
+        this.hashes = Math.max(1, (int) Math.round(bitsPerFilter / n * Math.log(2)));
+        this.filters = new long[buckets][bitsPerFilter >>> 6];
+        this.bitsSet = new int[buckets];
+    }
+
+    /**
+     * Records the event hash and returns true, or returns false if it was (probably) seen within the window.
+     *
+     * @param nowMs current time; drives filter rotation and must not go backwards by more than a bucket
+     */
+    public boolean firstSeen(long hash, long nowMs) {
+        if (hash == UNCHECKED) return true;
+        rotate(nowMs);
+        checked++;
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int f = 0; f < filters.length; f++) {
+            if (contains(filters[f], h1, h2)) {
+                suppressed++;
+                return false;
+            }
+        }
+        long[] target = filters[newest];
+        int added = 0;
+        for (int i = 0; i < hashes; i++) {
+            int bit = Integer.remainderUnsigned(h1 + i * h2, bitsPerFilter);
+            long mask = 1L << bit;
+            long word = target[bit >>> 6];
+            if ((word & mask) == 0) {
+                target[bit >>> 6] = word | mask;
+                added++;
+            }
+        }
+        bitsSet[newest] += added;
+        return true;
+    }
+
+    /** Events checked so far. */
+    public long checked() {
+        return checked;
+    }
+
+    /** Events reported as duplicates so far. */
+    public long suppressed() {
+        return suppressed;
+    }
+
+    public double falsePositiveBudget() {
+        return falsePositiveBudget;
+    }
+
+    /** Probability that a new event is taken for a duplicate right now, from how full each filter is. */
+    public double estimatedFalsePositiveRate() {
+        double allClear = 1;
+        for (int f = 0; f < filters.length; f++) {
+            allClear *= 1 - Math.pow((double) bitsSet[f] / bitsPerFilter, hashes);
+        }
+        return 1 - allClear;
+    }
+
+    public long memoryBytes() {
+        return (long) filters.length * bitsPerFilter / 8;
+    }
+
+    private boolean contains(long[] filter, int h1, int h2) {
+        for (int i = 0; i < hashes; i++) {
+            int bit = Integer.remainderUnsigned(h1 + i * h2, bitsPerFilter);
+            if ((filter[bit >>> 6] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    private void rotate(long nowMs) {
+        if (newestStartMs == Long.MIN_VALUE) {
+            newestStartMs = nowMs;
+            return;
+        }
+        long elapsed = (nowMs - newestStartMs) / bucketMs;
+        if (elapsed <= 0) return;
+        // After an idle gap longer than the window every filter is stale; clear each at most once.
+        for (long i = 0; i < Math.min(elapsed, filters.length); i++) {
+            newest = (newest + 1) % filters.length;
+            Arrays.fill(filters[newest], 0);
+            bitsSet[newest] = 0;
+        }
+        newestStartMs += elapsed * bucketMs;
+    }
+
+    /**
+     * Thread-safe: the key {@link #firstSeen} checks for {@code e}, or {@link #UNCHECKED}.
+     *
+     * @param timestampAssigned the normalizer gave {@code e} its timestamp (see {@link EventNormalizer.Outcome})
+     */
+    public long key(SecurityEvent e, boolean timestampAssigned) {
+        if (!timestampAssigned) return hash(e);
+        return keyUntimed ? hash(e, true) : UNCHECKED;
+    }
+
+    /** 64-bit hash of every normalized field, never {@link #UNCHECKED}; equal events hash equal, without allocating. */
+    public static long hash(SecurityEvent e) {
+        return hash(e, false);
+    }
+
+    /** As {@link #hash(SecurityEvent)}; with {@code withoutTimestamp} the timestamp is hashed as if absent. */
+    public static long hash(SecurityEvent e, boolean withoutTimestamp) {
+        long h = 0x9E3779B97F4A7C15L;
+        Instant ts = withoutTimestamp ? null : e.timestamp();
+        h = mix(h, ts == null ? Long.MIN_VALUE : ts.getEpochSecond());
+        h = mix(h, ts == null ? -1 : ts.getNano());
+        h = mix(h, e.endpointId());
+        h = mix(h, e.eventType());
+        h = mix(h, e.userId());
+        h = mix(h, e.processName());
+        h = mix(h, Boolean.TRUE.equals(e.isAlert()) ? 1 : 0);
+        h = mix(h, e.alertScore() == null ? Long.MIN_VALUE : e.alertScore());
+        h = mix(h, e.alertReason());
+        h = mix(h, e.commandLine());
+        h = mix(h, e.parentPid() == null ? Long.MIN_VALUE : e.parentPid());
+        h = mix(h, e.filePath());
+        h = mix(h, e.sha256());
+        h = mix(h, e.destIp());
+        h = mix(h, e.destPort() == null ? Long.MIN_VALUE : e.destPort());
+        long k = fmix64(h);
+        return k == UNCHECKED ? 1 : k;
+    }
+
+    private static long mix(long h, String s) {
+        if (s == null) return mix(h, Long.MIN_VALUE + 1);
+        long v = 0xCBF29CE484222325L;
+        for (int i = 0; i < s.length(); i++) v = (v ^ s.charAt(i)) * 0x100000001B3L;
+        return mix(h, v ^ s.length());
+    }
+
+    private static long mix(long h, long v) {
+        return (h ^ fmix64(v)) * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L;
+    }
+
+    /** MurmurHash3 finalizer: spreads every input bit over the whole result. */
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB93FE1A85EC3L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -1,100 +1,203 @@
 package com.endpoint.security.normalizer;
 
 import com.endpoint.security.normalizer.model.SecurityEvent;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.time.Instant;
-import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Set;
-import java.util.UUID;
 
 /**
  * Normalizes raw JSON event to SecurityEvent. Handles flexible input (timestamp, field names, casing).
+ * Input is either a parsed tree or the encoded line itself, read in one streaming pass into a per-thread
+ * {@link RawEventFields}; both go through the same validation. With {@link ShapeDecoders}, lines with a
+ * recurring key layout skip the parser. Each dropped line is reported to {@link Rejections} with its
+ * {@link RejectReason}.
  */
 public class EventNormalizer {
 
     private static final Logger log = LoggerFactory.getLogger(EventNormalizer.class);
     private static final Set<String> VALID_EVENT_TYPES = Set.of("process_start", "file_access", "network_connection");
     private static final Instant MIN_VALID = Instant.parse("2000-01-01T00:00:00Z");
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final ThreadLocal<RawEventFields> FIELDS = ThreadLocal.withInitial(RawEventFields::new);
 
-    private final Set<String> denylist;
+    private final ProcessDenylist denylist;
+    private final ShapeDecoders shapes;
+    private final Rejections rejections;
 
+    /** Denies the given process names exactly (case-insensitively). */
     public EventNormalizer(Set<String> denylist) {
+        this(new ProcessDenylist(List.copyOf(denylist), null, 0));
+    }
+
+    public EventNormalizer(ProcessDenylist denylist) {
+        this(denylist, null);
+    }
+
+    /** @param shapes learned decoders tried before the generic streaming path, or null for the generic path only */
+    public EventNormalizer(ProcessDenylist denylist, ShapeDecoders shapes) {
+        this(denylist, shapes, new Rejections());
+    }
+
+    public EventNormalizer(ProcessDenylist denylist, ShapeDecoders shapes, Rejections rejections) {
         this.denylist = denylist;
+        this.shapes = shapes;
+        this.rejections = rejections;
+    }
+
+    /** What a normalize call found out about its event besides the event itself; reusable from call to call. */
+    public static final class Outcome {
+        private boolean timestampAssigned;
+
+        /**
+         * The raw event had no usable timestamp and was given the current time, so a resend of it differs in
+         * that time (see {@link DuplicateFilter#key}).
+         */
+        public boolean timestampAssigned() {
+            return timestampAssigned;
+        }
+    }
+
+    /** Counts of dropped lines by reason. */
+    public Rejections rejections() {
+        return rejections;
     }
 
     public SecurityEvent normalize(JsonNode node) {
-        if (node == null || !node.isObject()) return null;
+        if (node == null || !node.isObject()) return reject(RejectReason.MALFORMED_JSON, null, 0, 0);
+        RawEventFields f = FIELDS.get();
+        f.read(node);
+        return toEvent(f, null, 0, 0, null);
+    }
+
+    /**
+     * Normalizes one encoded JSON object in a single streaming pass, without building a tree. Same result as
+     * {@link #normalize(JsonNode)} on the parsed line.
+     *
+     * @throws IOException if the bytes are not well-formed JSON (counted as {@link RejectReason#MALFORMED_JSON})
+     */
+    public SecurityEvent normalize(byte[] json, int offset, int length) throws IOException {
+        return normalize(json, offset, length, null);
+    }
+
+    /** As {@link #normalize(byte[], int, int)}, also filling in {@code outcome} for the returned event. */
+    public SecurityEvent normalize(byte[] json, int offset, int length, Outcome outcome) throws IOException {
+        if (outcome != null) outcome.timestampAssigned = false;
+        RawEventFields f = FIELDS.get();
+        if (shapes != null && shapes.decode(json, offset, length, f)) return toEvent(f, json, offset, length, outcome);
+        try (JsonParser parser = JSON.createParser(json, offset, length)) {
+            if (!f.read(parser)) return reject(RejectReason.MALFORMED_JSON, json, offset, length);
+        } catch (IOException e) {
+            reject(RejectReason.MALFORMED_JSON, json, offset, length);
+            throw e;
+        }
+        if (shapes != null) shapes.learn(f);
+        return toEvent(f, json, offset, length, outcome);
+    }
 
-        String endpointId = text(node, "endpointId", "endpoint_id");
-        if (endpointId == null || endpointId.isBlank()) return null;
-        if (!isValidUuid(endpointId)) return null;
+    /** @param json the raw line, for the dead-letter sample, or null when normalizing a tree */
+    private SecurityEvent toEvent(RawEventFields f, byte[] json, int offset, int length, Outcome outcome) {
+        String endpointId = text(f, RawEventFields.ENDPOINT_ID, RawEventFields.ENDPOINT_ID_SNAKE);
+        if (endpointId == null || endpointId.isBlank()) return reject(RejectReason.MISSING_FIELD, json, offset, length);
+        if (!UuidValidator.isValid(endpointId)) return reject(RejectReason.BAD_UUID, json, offset, length);
 
-        String eventTypeRaw = text(node, "eventType", "event_type");
-        if (eventTypeRaw == null || eventTypeRaw.isBlank()) return null;
+        String eventTypeRaw = text(f, RawEventFields.EVENT_TYPE, RawEventFields.EVENT_TYPE_SNAKE);
+        if (eventTypeRaw == null || eventTypeRaw.isBlank()) return reject(RejectReason.MISSING_FIELD, json, offset, length);
         String eventType = eventTypeRaw.trim().toLowerCase();
-        if (!VALID_EVENT_TYPES.contains(eventType)) return null;
+        if (!VALID_EVENT_TYPES.contains(eventType)) return reject(RejectReason.UNKNOWN_EVENT_TYPE, json, offset, length);
 
-        String userId = text(node, "userId", "user");
-        if (userId == null || userId.isBlank()) return null;
+        String userId = text(f, RawEventFields.USER_ID, RawEventFields.USER);
+        if (userId == null || userId.isBlank()) return reject(RejectReason.MISSING_FIELD, json, offset, length);
 
-        String processName = text(node, "processName", "process");
-        if (processName == null || processName.isBlank()) return null;
-        if (denylist.contains(processName.toLowerCase().trim())) return null;
+        String processName = text(f, RawEventFields.PROCESS_NAME, RawEventFields.PROCESS);
+        if (processName == null || processName.isBlank()) return reject(RejectReason.MISSING_FIELD, json, offset, length);
+        if (denylist.isDenied(processName)) return reject(RejectReason.DENYLISTED, json, offset, length);
 
-        Instant ts = parseTimestamp(node.get("timestamp"));
-        if (ts == null) ts = Instant.now();
+        Instant ts = parseTimestamp(f, RawEventFields.TIMESTAMP);
+        if (ts == null) {
+            ts = Instant.now();
+            if (outcome != null) outcome.timestampAssigned = true;
+        }
 
-        Integer alertScore = node.has("alertScore") && !node.get("alertScore").isNull()
-            ? node.get("alertScore").asInt() : null;
-        if (alertScore != null && (alertScore < 1 || alertScore > 100)) return null;
+        Integer alertScore = f.has(RawEventFields.ALERT_SCORE) ? f.asInt(RawEventFields.ALERT_SCORE) : null;
+        if (alertScore != null && (alertScore < 1 || alertScore > 100)) {
+            return reject(RejectReason.SCORE_OUT_OF_RANGE, json, offset, length);
+        }
 
-        String alertReason = node.has("alertReason") && !node.get("alertReason").isNull()
-            ? node.get("alertReason").asText() : null;
+        String alertReason = text(f, RawEventFields.ALERT_REASON);
 
         boolean isAlert = alertScore != null;
 
-        if (isAlert) {
-            return new SecurityEvent(ts, endpointId, eventType, userId, processName, alertScore, alertReason);
-        } else {
-            return new SecurityEvent(ts, endpointId, eventType, userId, processName);
-        }
+        // Optional payload: malformed values are dropped rather than rejecting the event.
+        String sha256 = text(f, RawEventFields.SHA256);
+        if (sha256 != null && !isSha256(sha256)) sha256 = null;
+        Integer destPort = integer(f, RawEventFields.DEST_PORT, RawEventFields.DEST_PORT_SNAKE);
+        if (destPort != null && (destPort < 1 || destPort > 65535)) destPort = null;
+
+        return new SecurityEvent(ts, endpointId, eventType, userId, processName, isAlert,
+            alertScore, isAlert ? alertReason : null,
+            text(f, RawEventFields.COMMAND_LINE, RawEventFields.COMMAND_LINE_SNAKE),
+            integer(f, RawEventFields.PARENT_PID, RawEventFields.PARENT_PID_SNAKE),
+            text(f, RawEventFields.FILE_PATH, RawEventFields.FILE_PATH_SNAKE), sha256 != null ? sha256.toLowerCase() : null,
+            text(f, RawEventFields.DEST_IP, RawEventFields.DEST_IP_SNAKE), destPort);
+    }
+
+    private SecurityEvent reject(RejectReason reason, byte[] json, int offset, int length) {
+        rejections.reject(reason, json, offset, length);
+        return null;
+    }
+
+    private static String text(RawEventFields f, int key) {
+        return f.has(key) ? f.text(key) : null;
     }
 
-    private static String text(JsonNode n, String... keys) {
-        for (String k : keys) {
-            if (n.has(k) && !n.get(k).isNull()) return n.get(k).asText();
+    /** Value of the preferred key if present, else of its alias. */
+    private static String text(RawEventFields f, int key, int alias) {
+        if (f.has(key)) return f.text(key);
+        if (f.has(alias)) return f.text(alias);
+        return null;
+    }
+
+    private static Integer integer(RawEventFields f, int key, int alias) {
+        int slot = f.has(key) ? key : f.has(alias) ? alias : -1;
+        if (slot < 0) return null;
+        if (f.canConvertToInt(slot)) return f.asInt(slot);
+        if (f.isTextual(slot)) {
+            try {
+                return Integer.parseInt(f.text(slot).trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
         }
         return null;
     }
 
-    private static boolean isValidUuid(String s) {
-        try {
-            UUID.fromString(s.trim());
-            return true;
-        } catch (Exception e) {
-            return false;
+    private static boolean isSha256(String s) {
+        if (s.length() != 64) return false;
+        for (int i = 0; i < 64; i++) {
+            if (Character.digit(s.charAt(i), 16) < 0) return false;
         }
+        return true;
     }
 
-    private static Instant parseTimestamp(com.fasterxml.jackson.databind.JsonNode tsNode) {
-        if (tsNode == null || tsNode.isNull()) return null;
+    private static Instant parseTimestamp(RawEventFields f, int slot) {
+        if (!f.has(slot)) return null;
         try {
-            if (tsNode.isNumber()) {
-                long ms = tsNode.asLong();
+            if (f.isNumber(slot)) {
+                long ms = f.asLong(slot);
                 if (ms < 1e12) ms *= 1000;
                 return Instant.ofEpochMilli(ms);
             }
-            String str = tsNode.asText();
+            String str = f.text(slot);
             if (str == null || str.isBlank()) return null;
-            try {
-                return Instant.parse(str);
-            } catch (Exception e) {
-                return Instant.from(DateTimeFormatter.ISO_DATE_TIME.parse(str.replace(" ", "T")));
-            }
-        } catch (Exception e) {
+            return TimestampParser.parse(str);
+        } catch (RuntimeException e) {
             return null;
         }
     }
@@ -0,0 +1,243 @@
+package com.endpoint.security.normalizer;
+
+import com.endpoint.security.normalizer.model.TailCheckpoint;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Follows a growing NDJSON file through one open {@link FileChannel}, handing out complete lines as byte
+ * ranges of its read buffer (no {@code String} per line) and remembering the exact byte offset after the last
+ * one. A trailing line without its newline, e.g. one cut by the buffer boundary or still being written, is kept
+ * at the start of the buffer and completed by the next {@link #poll}, which reads on from where the previous one
+ * stopped. Each poll reads only new bytes, so its cost depends on the new data, not on the file size. Newlines
+ * are searched for eight bytes at a time.
+ * <p>
+ * {@link #checkpoint()} persists the offset (write to {@code .tmp}, then atomic rename); call it after the
+ * output produced from those lines has been flushed. A restart resumes from the checkpoint; lines handed out
+ * after the last checkpoint are delivered again (at-least-once). If the file shrinks below the offset or is
+ * replaced by a different file (new inode), reading restarts at byte 0. A checkpoint taken on a file with another
+ * name is ignored, so tailers of successive files can share one checkpoint path.
+ * <p>
+ * The ingestion service has an identical copy, as do {@link ChangeWaiter} and {@code TailCheckpoint}. There
+ * is no shared module because each service's image builds its own module alone. Change both copies together.
+ */
+public class FileTailer implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(FileTailer.class);
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+
+    /**
+     * Receives one line, without its line terminator, as {@code bytes[offset, offset + length)}. Returning false
+     * ends the poll after this line; the rest is handed out by the next poll.
+     */
+    @FunctionalInterface
+    public interface LineHandler {
+        boolean line(byte[] bytes, int offset, int length) throws IOException;
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path source;
+    private final Path checkpointPath;
+    private final int bufferBytes;
+    private FileChannel channel;
+    private Object fileKey;
+    private long offset;
+    private long committedOffset = -1;
+    private String resumeKey;
+    private byte[] buffer;
+    /** buffer[0, carry) already holds file bytes [offset, offset + carry): the start of a line, without newline. */
+    private int carry;
+
+    /**
+     * @param checkpointPath where the offset is persisted; null keeps it in memory only
+     * @param bufferBytes most bytes one {@link #poll} reads (a single longer line is still read whole)
+     */
+    public FileTailer(Path source, Path checkpointPath, int bufferBytes) throws IOException {
+        if (bufferBytes < 1) throw new IllegalArgumentException("bufferBytes must be >= 1");
+        this.source = source;
+        this.checkpointPath = checkpointPath;
+        this.bufferBytes = bufferBytes;
+        this.buffer = new byte[bufferBytes];
+        if (checkpointPath != null && Files.exists(checkpointPath)) {
+            TailCheckpoint saved = objectMapper.readValue(checkpointPath.toFile(), TailCheckpoint.class);
+            if (!sameFileName(saved.source(), source)) {
+                log.info("{} holds the offset of {}, not {}; reading from the start", checkpointPath, saved.source(), source);
+                return;
+            }
+            offset = saved.offset();
+            committedOffset = saved.offset();
+            resumeKey = saved.fileKey();
+            log.info("Resuming {} at byte {} from {}", source, offset, checkpointPath);
+        }
+    }
+
+    /**
+     * Hands complete lines added since the last call to {@code handler}, up to one buffer's worth (blank lines
+     * are skipped), and returns the number handed out; 0 when there is nothing new or no file yet.
+     */
+    public int poll(LineHandler handler) throws IOException {
+        if (!ensureOpen()) return 0;
+        long size = channel.size();
+        if (size < offset + carry) {
+            log.warn("{} shrank to {} bytes (below offset {}), reading from the start", source, size, offset + carry);
+            offset = 0;
+            carry = 0;
+        }
+        if (size == offset + carry) {
+            if (replaced()) reopen();
+            return 0;
+        }
+
+        int length = carry;
+        int lineStart = 0;
+        int scanned = carry;
+        int lines = 0;
+        long available = size - offset;
+        boolean stopped = false;
+        while (!stopped) {
+            int i;
+            while (!stopped && (i = indexOfNewline(buffer, scanned, length)) >= 0) {
+                int end = i > lineStart && buffer[i - 1] == '\r' ? i - 1 : i;
+                if (!isBlank(buffer, lineStart, end)) {
+                    stopped = !handler.line(buffer, lineStart, end - lineStart);
+                    lines++;
+                }
+                lineStart = i + 1;
+                scanned = lineStart;
+            }
+            if (stopped) break;
+            scanned = length;
+            if (length == available) break;
+            if (length == buffer.length) {
+                if (lineStart > 0) break; // full of complete lines; the rest is read by the next poll
+                buffer = Arrays.copyOf(buffer, buffer.length * 2); // a single line longer than the buffer
+            }
+            int want = (int) Math.min(buffer.length - length, available - length);
+            int n = channel.read(ByteBuffer.wrap(buffer, length, want), offset + length);
+            if (n <= 0) break;
+            length += n;
+        }
+        // A partial line moves to the front of the buffer; after a stop, the rest is read again next time.
+        offset += lineStart;
+        carry = stopped ? 0 : length - lineStart;
+        byte[] target = buffer.length > bufferBytes && carry <= bufferBytes ? new byte[bufferBytes] : buffer;
+        System.arraycopy(buffer, lineStart, target, 0, carry);
+        buffer = target;
+        return lines;
+    }
+
+    /** Byte offset just past the last line handed out. */
+    public long offset() {
+        return offset;
+    }
+
+    /** Offset of the last successful {@link #checkpoint()} (or the one resumed from); -1 if none. */
+    public long committedOffset() {
+        return committedOffset;
+    }
+
+    /** Atomically persists the current offset. */
+    public void checkpoint() throws IOException {
+        checkpoint(offset);
+    }
+
+    /**
+     * Atomically persists {@code offset}, at most {@link #offset()}: the start of the earliest line whose output
+     * is not flushed yet, when output lags behind the lines handed out.
+     */
+    public void checkpoint(long offset) throws IOException {
+        if (checkpointPath == null || offset == committedOffset) return;
+        if (checkpointPath.getParent() != null) Files.createDirectories(checkpointPath.getParent());
+        Path tmp = Path.of(checkpointPath + ".tmp");
+        TailCheckpoint checkpoint = new TailCheckpoint(source.toString(), fileKey == null ? null : fileKey.toString(), offset);
+        Files.write(tmp, objectMapper.writeValueAsBytes(checkpoint));
+        Files.move(tmp, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committedOffset = offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private boolean ensureOpen() throws IOException {
+        if (channel != null) return true;
+        try {
+            channel = FileChannel.open(source, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        fileKey = Files.readAttributes(source, BasicFileAttributes.class).fileKey();
+        if (resumeKey != null && fileKey != null && !resumeKey.equals(fileKey.toString())) {
+            log.warn("{} is not the file the checkpoint was taken on, reading from the start", source);
+            offset = 0;
+        }
+        resumeKey = null;
+        return true;
+    }
+
+    private static boolean sameFileName(String saved, Path source) {
+        return saved != null && Path.of(saved).getFileName().equals(source.getFileName());
+    }
+
+    /** True if the path now names a different file than the open channel (e.g. deleted and recreated). */
+    private boolean replaced() throws IOException {
+        if (fileKey == null) return false;
+        try {
+            return !Objects.equals(fileKey, Files.readAttributes(source, BasicFileAttributes.class).fileKey());
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private void reopen() throws IOException {
+        log.info("{} was replaced, reading the new file from the start", source);
+        close();
+        offset = 0;
+        carry = 0;
+        ensureOpen();
+    }
+
+    /** Index of the first '\n' in {@code b[from, to)}, or -1; tests eight bytes per step. */
+    static int indexOfNewline(byte[] b, int from, int to) {
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = (long) LONGS.get(b, i) ^ NEWLINES;
+            // High bit set in each byte that was '\n' (and possibly above it, which the lowest match rules out).
+            long found = (word - 0x0101010101010101L) & ~word & 0x8080808080808080L;
+            if (found != 0) return i + (Long.numberOfTrailingZeros(found) >>> 3);
+        }
+        for (; i < to; i++) {
+            if (b[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static boolean isBlank(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] > ' ') return false;
+        }
+        return true;
+    }
+}
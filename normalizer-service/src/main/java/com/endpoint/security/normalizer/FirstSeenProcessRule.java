@@ -0,0 +1,102 @@
+package com.endpoint.security.normalizer;
+
+import com.endpoint.security.normalizer.model.SecurityEvent;
+
+import java.util.Arrays;
+
+/**
+ * Fires the first time a user runs a process (names compared case-insensitively), e.g. the first
+ * {@code powershell.exe} ever seen for an account that never used it.
+ * <p>
+ * Known user/process pairs are kept as 64-bit hashes in two open-addressing generations of
+ * {@code maxPairs / 2} entries each (8 bytes per slot, half full at most). A pair found in the older generation
+ * is copied into the newer one; when the newer one is full, the older one is dropped. Pairs seen recently are
+ * therefore never forgotten, and a pair unused for a long time may alert again. For the first {@code learnMs}
+ * of event time after the first event, pairs are only recorded, so a restart does not alert on every pair in
+ * the fleet.
+ */
+public class FirstSeenProcessRule implements DetectionRules.Rule {
+
+    private final long learnMs;
+    private final int score;
+    private final int maxGeneration;
+    private long[] current;
+    private long[] previous;
+    private int currentSize;
+    private int previousSize;
+    private long learnUntilMs = Long.MIN_VALUE;
+    private volatile long matches;
+    private volatile int tracked;
+
+    public FirstSeenProcessRule(long learnMs, int score, int maxPairs) {
+        if (learnMs < 0) throw new IllegalArgumentException("learnMs must be >= 0");
+        if (maxPairs < 2) throw new IllegalArgumentException("maxPairs must be >= 2");
+        this.learnMs = learnMs;
+        this.score = score;
+        this.maxGeneration = maxPairs / 2;
+        // Power of two, at most half full.
+        int slots = Integer.highestOneBit(Math.max(2, maxGeneration) * 2 - 1) << 1;
+        this.current = new long[slots];
+        this.previous = new long[slots];
+    }
+
+    @Override
+    public long key(SecurityEvent event) {
+        if (event.timestamp() == null || event.userId() == null || event.processName() == null) return 0;
+        return DetectionRules.key(DetectionRules.key(1, event.userId()), event.processName().trim());
+    }
+
+    @Override
+    public SecurityEvent evaluate(SecurityEvent event, long key) {
+        long t = event.timestamp().toEpochMilli();
+        if (learnUntilMs == Long.MIN_VALUE) learnUntilMs = t + learnMs;
+        // Keys are never 0, which marks an empty slot.
+        if (contains(current, key)) return null;
+        boolean known = contains(previous, key);
+        if (currentSize >= maxGeneration) {
+            long[] dropped = previous;
+            previous = current;
+            previousSize = currentSize;
+            Arrays.fill(dropped, 0);
+            current = dropped;
+            currentSize = 0;
+        }
+        add(current, key);
+        currentSize++;
+        tracked = currentSize + previousSize;
+        if (known || t < learnUntilMs) return null;
+        matches++;
+        return DetectionRules.alert(event, score, "first-seen: first " + event.processName() + " for user " + event.userId());
+    }
+
+    private static boolean contains(long[] table, long key) {
+        int mask = table.length - 1;
+        for (int i = (int) (key >>> 32) & mask; ; i = (i + 1) & mask) {
+            long slot = table[i];
+            if (slot == key) return true;
+            if (slot == 0) return false;
+        }
+    }
+
+    private static void add(long[] table, long key) {
+        int mask = table.length - 1;
+        int i = (int) (key >>> 32) & mask;
+        while (table[i] != 0) i = (i + 1) & mask;
+        table[i] = key;
+    }
+
+    @Override
+    public String name() {
+        return "first-seen process";
+    }
+
+    @Override
+    public long matches() {
+        return matches;
+    }
+
+    @Override
+    public int tracked() {
+        return tracked;
+    }
+}
@@ -0,0 +1,472 @@
+package com.endpoint.security.normalizer;
+
+import com.endpoint.security.normalizer.model.SecurityEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Normalizes raw lines on a pool of worker threads while keeping the output in input order.
+ * <p>
+ * Three stages:
+ * <ul>
+ *   <li>reader: the caller copies lines into chunks of {@code chunkLines} lines ({@link #accept})</li>
+ *   <li>workers: each full chunk is normalized and serialized to NDJSON by whichever worker takes it
+ *       from the work queue ({@code workQueueChunks} deep)</li>
+ *   <li>sequencer: one thread takes chunks in submission order, waits for each to be finished, and hands its
+ *       output to the {@link Sink}</li>
+ * </ul>
+ * Chunks are recycled, and at most {@code inFlightChunks} exist, so a slow sink or slow workers block the
+ * reader instead of buffering without bound. With {@code workers == 0} chunks are normalized and written on
+ * the calling thread and no threads are started.
+ * <p>
+ * With a {@link DuplicateFilter}, workers also hash each event and the sequencer drops duplicates before the
+ * sink sees them. Because the filter is consulted in input order, the same input always yields the same
+ * output, whatever the worker count. With a {@link ReorderBuffer}, workers also record each event's time and
+ * the sequencer passes lines through the buffer, so the sink receives them in time order; {@link #sync()}
+ * releases what has become due while the input is idle. With {@link DetectionRules}, workers keep each event and
+ * compute its rule keys, and the sequencer evaluates the rules on them in input order, appending the alerts they raise to the chunk (so a
+ * synthetic alert follows its trigger by at most a chunk). With an alert sink, the sequencer moves alert lines out
+ * of each chunk and hands them to it straight away, ahead of the reorder buffer and the main sink.
+ */
+public class NormalizationPipeline implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(NormalizationPipeline.class);
+
+    /** Receives normalized output in input order, on the sequencer thread (or the caller with no workers). */
+    @FunctionalInterface
+    public interface Sink {
+        /**
+         * {@code lines} NDJSON lines, each ending in '\n', stored back to back in {@code ndjson}; line {@code i}
+         * ends just after {@code ends[i] - 1}.
+         */
+        void write(byte[] ndjson, int[] ends, int lines) throws IOException;
+    }
+
+    private final EventNormalizer normalizer;
+    private final ObjectWriter eventWriter;
+    private final Sink sink;
+    private final DuplicateFilter duplicates;
+    private final ReorderBuffer reorder;
+    private final DetectionRules rules;
+    private final List<SecurityEvent> ruleAlerts = new ArrayList<>();
+    private int[] ruleTriggers = new int[16];
+    private final Sink alertSink;
+    private final ByteSink alertOutput = new ByteSink();
+    private int[] alertEnds = new int[64];
+    private final int chunkLines;
+    private final BlockingQueue<Chunk> free;
+    private final BlockingQueue<Chunk> work;
+    private final BlockingQueue<Chunk> ordered;
+    private final List<Thread> threads = new ArrayList<>();
+    private final Object progress = new Object();
+
+    private Chunk current;
+    private long submittedChunks;
+    private long writtenChunks;
+    private long linesRead;
+    private volatile long eventsWritten;
+    private volatile long alertsWritten;
+    private volatile IOException failure;
+
+    public NormalizationPipeline(EventNormalizer normalizer, ObjectMapper objectMapper, Sink sink, int workers,
+                                 int chunkLines, int workQueueChunks, int inFlightChunks) {
+        this(normalizer, objectMapper, sink, workers, chunkLines, workQueueChunks, inFlightChunks, null, null, null, null);
+    }
+
+    /**
+     * @param duplicates duplicate suppression, or null to write every normalized event
+     * @param reorder    time-ordering stage, or null to write events in input order
+     * @param rules      detection rules, or null to raise no alerts of its own
+     * @param alertSink  receives alerts (in input order) as soon as their chunk is done, or null to keep them in
+     *                   the main output
+     */
+    public NormalizationPipeline(EventNormalizer normalizer, ObjectMapper objectMapper, Sink sink, int workers,
+                                 int chunkLines, int workQueueChunks, int inFlightChunks, DuplicateFilter duplicates,
+                                 ReorderBuffer reorder, DetectionRules rules, Sink alertSink) {
+        if (workers < 0) throw new IllegalArgumentException("workers must be >= 0");
+        if (chunkLines < 1) throw new IllegalArgumentException("chunkLines must be >= 1");
+        if (workQueueChunks < 1 || inFlightChunks < 1) throw new IllegalArgumentException("queue depths must be >= 1");
+        this.normalizer = normalizer;
+        this.eventWriter = objectMapper.writerFor(SecurityEvent.class);
+        this.sink = sink;
+        this.duplicates = duplicates;
+        this.reorder = reorder;
+        this.rules = rules;
+        this.alertSink = alertSink;
+        this.chunkLines = chunkLines;
+        int chunks = workers == 0 ? 1 : inFlightChunks;
+        this.free = new ArrayBlockingQueue<>(chunks);
+        for (int i = 0; i < chunks; i++) free.add(new Chunk(chunkLines, rules == null ? 0 : rules.size()));
+        this.work = workers == 0 ? null : new ArrayBlockingQueue<>(workQueueChunks);
+        this.ordered = workers == 0 ? null : new ArrayBlockingQueue<>(chunks);
+        for (int i = 0; i < workers; i++) {
+            threads.add(new Thread(this::runWorker, "NormalizerWorker-" + i));
+        }
+        if (workers > 0) threads.add(new Thread(this::runSequencer, "NormalizerSequencer"));
+        for (Thread t : threads) {
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    /**
+     * Queues one raw line (copied, so the caller may reuse {@code bytes}). Blocks while all chunks are in flight.
+     *
+     * @throws IOException if the sink has failed
+     */
+    public void accept(byte[] bytes, int offset, int length) throws IOException, InterruptedException {
+        checkFailure();
+        if (current == null) {
+            current = free.take();
+            current.firstLine = linesRead;
+        }
+        current.add(bytes, offset, length);
+        linesRead++;
+        if (current.inputLines == chunkLines) dispatch();
+    }
+
+    /**
+     * Sends the partly filled chunk, if any, and waits until the sink has received everything accepted so far
+     * (except what a {@link ReorderBuffer} still holds; lines that have become due are released here).
+     *
+     * @throws IOException if the sink has failed
+     */
+    public void sync() throws IOException, InterruptedException {
+        if (current != null && current.inputLines > 0) dispatch();
+        synchronized (progress) {
+            while (writtenChunks < submittedChunks && failure == null) progress.wait();
+        }
+        // Nothing is in flight, so the sequencer is idle and the buffer can be released from this thread.
+        if (reorder != null) emit(() -> reorder.release(System.currentTimeMillis(), this::toSink));
+        checkFailure();
+    }
+
+    /** Lines accepted so far. */
+    public long linesRead() {
+        return linesRead;
+    }
+
+    /** Normalized events the sinks (main and alert) have received so far. */
+    public long eventsWritten() {
+        return eventsWritten;
+    }
+
+    /** Alerts the alert sink has received so far. */
+    public long alertsWritten() {
+        return alertsWritten;
+    }
+
+    /** Stops the threads; chunks not yet written by {@link #sync()} are dropped. */
+    @Override
+    public void close() {
+        for (Thread t : threads) t.interrupt();
+        for (Thread t : threads) {
+            try {
+                t.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void dispatch() throws IOException, InterruptedException {
+        Chunk chunk = current;
+        current = null;
+        submittedChunks++;
+        if (work == null) {
+            normalize(chunk);
+            write(chunk);
+            checkFailure();
+            return;
+        }
+        // ordered holds the whole pool, so only work.put() can wait (for a worker to free a slot).
+        ordered.put(chunk);
+        work.put(chunk);
+    }
+
+    private void runWorker() {
+        try {
+            while (true) {
+                Chunk chunk = work.take();
+                try {
+                    normalize(chunk);
+                } finally {
+                    chunk.done.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    private void runSequencer() {
+        try {
+            while (true) {
+                Chunk chunk = ordered.take();
+                chunk.done.acquire();
+                write(chunk);
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    private void normalize(Chunk chunk) {
+        chunk.output.reset();
+        chunk.outputLines = 0;
+        EventNormalizer.Outcome outcome = new EventNormalizer.Outcome();
+        int start = 0;
+        for (int i = 0; i < chunk.inputLines; i++) {
+            int end = chunk.inputEnds[i];
+            try {
+                SecurityEvent ev = normalizer.normalize(chunk.input, start, end - start, outcome);
+                if (ev != null) {
+                    eventWriter.writeValue(chunk.output, ev);
+                    chunk.output.write('\n');
+                    if (duplicates != null) chunk.outputHashes[chunk.outputLines] = duplicates.key(ev, outcome.timestampAssigned());
+                    chunk.outputAlerts[chunk.outputLines] = Boolean.TRUE.equals(ev.isAlert());
+                    if (rules != null) {
+                        chunk.outputEvents[chunk.outputLines] = ev;
+                        rules.keys(ev, chunk.outputRuleKeys, chunk.outputLines * rules.size());
+                    }
+                    if (reorder != null) {
+                        chunk.outputTimes[chunk.outputLines] = ev.timestamp().toEpochMilli();
+                        chunk.outputSources[chunk.outputLines] = i;
+                    }
+                    chunk.outputEnds[chunk.outputLines++] = chunk.output.size;
+                }
+            } catch (IOException | RuntimeException e) {
+                log.trace("Skip line: {}", e.getMessage());
+            }
+            start = end;
+        }
+    }
+
+    /** Hands a finished chunk to the sink, through the reorder buffer if any (skipped after a sink failure), and recycles it. */
+    private void write(Chunk chunk) {
+        if (duplicates != null) dropDuplicates(chunk);
+        if (rules != null) applyRules(chunk);
+        if (alertSink != null) splitAlerts(chunk);
+        if (reorder != null) {
+            long now = System.currentTimeMillis();
+            int start = 0;
+            for (int i = 0; i < chunk.outputLines; i++) {
+                int end = chunk.outputEnds[i];
+                reorder.add(chunk.output.bytes, start, end, chunk.outputTimes[i], chunk.firstLine + chunk.outputSources[i], now);
+                start = end;
+            }
+            emit(() -> reorder.release(now, this::toSink));
+        } else if (chunk.outputLines > 0) {
+            emit(() -> toSink(chunk.output.bytes, chunk.outputEnds, chunk.outputLines));
+        }
+        chunk.inputLines = 0;
+        chunk.inputBytes = 0;
+        free.add(chunk);
+        synchronized (progress) {
+            writtenChunks++;
+            progress.notifyAll();
+        }
+    }
+
+    private void toSink(byte[] ndjson, int[] ends, int lines) throws IOException {
+        sink.write(ndjson, ends, lines);
+        eventsWritten += lines;
+    }
+
+    /** Evaluates the rules on the chunk's events in input order and appends the alerts they raise to the chunk. */
+    private void applyRules(Chunk chunk) {
+        ruleAlerts.clear();
+        int lines = chunk.outputLines;
+        for (int i = 0; i < lines; i++) {
+            int before = ruleAlerts.size();
+            rules.evaluate(chunk.outputEvents[i], chunk.outputRuleKeys, i * rules.size(), ruleAlerts);
+            chunk.outputEvents[i] = null;
+            for (int a = before; a < ruleAlerts.size(); a++) {
+                if (a == ruleTriggers.length) ruleTriggers = Arrays.copyOf(ruleTriggers, a * 2);
+                ruleTriggers[a] = i;
+            }
+        }
+        if (ruleAlerts.isEmpty()) return;
+        chunk.ensureOutputLines(lines + ruleAlerts.size());
+        for (int a = 0; a < ruleAlerts.size(); a++) {
+            SecurityEvent alert = ruleAlerts.get(a);
+            try {
+                eventWriter.writeValue(chunk.output, alert);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // an in-memory buffer does not fail
+            }
+            chunk.output.write('\n');
+            int k = chunk.outputLines++;
+            chunk.outputAlerts[k] = true;
+            chunk.outputTimes[k] = alert.timestamp().toEpochMilli();
+            chunk.outputSources[k] = chunk.outputSources[ruleTriggers[a]];
+            chunk.outputEnds[k] = chunk.output.size;
+        }
+        ruleAlerts.clear();
+    }
+
+    /** Hands the chunk's alerts to the alert sink and moves the remaining lines down in place. */
+    private void splitAlerts(Chunk chunk) {
+        byte[] bytes = chunk.output.bytes;
+        alertOutput.reset();
+        int alerts = 0;
+        int kept = 0;
+        int keptBytes = 0;
+        int start = 0;
+        for (int i = 0; i < chunk.outputLines; i++) {
+            int end = chunk.outputEnds[i];
+            if (chunk.outputAlerts[i]) {
+                alertOutput.write(bytes, start, end - start);
+                if (alerts == alertEnds.length) alertEnds = Arrays.copyOf(alertEnds, alerts * 2);
+                alertEnds[alerts++] = alertOutput.size;
+            } else {
+                if (keptBytes != start) System.arraycopy(bytes, start, bytes, keptBytes, end - start);
+                keptBytes += end - start;
+                chunk.outputTimes[kept] = chunk.outputTimes[i];
+                chunk.outputSources[kept] = chunk.outputSources[i];
+                chunk.outputEnds[kept++] = keptBytes;
+            }
+            start = end;
+        }
+        chunk.outputLines = kept;
+        if (alerts == 0) return;
+        int count = alerts;
+        emit(() -> {
+            alertSink.write(alertOutput.bytes, alertEnds, count);
+            eventsWritten += count;
+            alertsWritten += count;
+        });
+    }
+
+    /** Runs one sink call unless the sink has already failed, recording its failure. */
+    private void emit(SinkCall call) {
+        if (failure != null) return;
+        try {
+            call.run();
+        } catch (IOException | RuntimeException e) {
+            failure = e instanceof IOException io ? io : new IOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SinkCall {
+        void run() throws IOException;
+    }
+
+    /** Removes lines whose event the filter has seen, moving the kept lines (and their times) down in place. */
+    private void dropDuplicates(Chunk chunk) {
+        long now = System.currentTimeMillis();
+        byte[] bytes = chunk.output.bytes;
+        int kept = 0;
+        int keptBytes = 0;
+        int start = 0;
+        for (int i = 0; i < chunk.outputLines; i++) {
+            int end = chunk.outputEnds[i];
+            if (duplicates.firstSeen(chunk.outputHashes[i], now)) {
+                if (keptBytes != start) System.arraycopy(bytes, start, bytes, keptBytes, end - start);
+                keptBytes += end - start;
+                chunk.outputTimes[kept] = chunk.outputTimes[i];
+                chunk.outputSources[kept] = chunk.outputSources[i];
+                chunk.outputAlerts[kept] = chunk.outputAlerts[i];
+                if (rules != null) {
+                    chunk.outputEvents[kept] = chunk.outputEvents[i];
+                    System.arraycopy(chunk.outputRuleKeys, i * rules.size(), chunk.outputRuleKeys, kept * rules.size(), rules.size());
+                }
+                chunk.outputEnds[kept++] = keptBytes;
+            }
+            start = end;
+        }
+        if (rules != null) Arrays.fill(chunk.outputEvents, kept, chunk.outputLines, null);
+        chunk.outputLines = kept;
+    }
+
+    private void checkFailure() throws IOException {
+        IOException e = failure;
+        if (e != null) throw new IOException("Normalized output failed", e);
+    }
+
+    /** A batch of raw lines and, once a worker is done with it, their normalized NDJSON. */
+    private static final class Chunk {
+        final Semaphore done = new Semaphore(0);
+        final int[] inputEnds;
+        final long[] outputHashes;
+        final SecurityEvent[] outputEvents;
+        final long[] outputRuleKeys;
+        // Rule alerts may add lines beyond the chunk's input, so these grow.
+        int[] outputEnds;
+        long[] outputTimes;
+        int[] outputSources;
+        boolean[] outputAlerts;
+        final ByteSink output = new ByteSink();
+        byte[] input = new byte[64 * 1024];
+        long firstLine;
+        int inputBytes;
+        int inputLines;
+        int outputLines;
+
+        Chunk(int lines, int ruleKeys) {
+            inputEnds = new int[lines];
+            outputEnds = new int[lines];
+            outputHashes = new long[lines];
+            outputTimes = new long[lines];
+            outputSources = new int[lines];
+            outputAlerts = new boolean[lines];
+            outputEvents = new SecurityEvent[ruleKeys == 0 ? 0 : lines];
+            outputRuleKeys = new long[lines * ruleKeys];
+        }
+
+        void ensureOutputLines(int lines) {
+            if (lines <= outputEnds.length) return;
+            int capacity = Math.max(lines, outputEnds.length * 2);
+            outputEnds = Arrays.copyOf(outputEnds, capacity);
+            outputTimes = Arrays.copyOf(outputTimes, capacity);
+            outputSources = Arrays.copyOf(outputSources, capacity);
+            outputAlerts = Arrays.copyOf(outputAlerts, capacity);
+        }
+
+        void add(byte[] bytes, int offset, int length) {
+            int needed = inputBytes + length;
+            if (needed > input.length) input = Arrays.copyOf(input, Math.max(needed, input.length * 2));
+            System.arraycopy(bytes, offset, input, inputBytes, length);
+            inputBytes = needed;
+            inputEnds[inputLines++] = needed;
+        }
+    }
+
+    /** Growable byte array that, unlike ByteArrayOutputStream, exposes its buffer and does not synchronize. */
+    private static final class ByteSink extends OutputStream {
+        byte[] bytes = new byte[64 * 1024];
+        int size;
+
+        void reset() {
+            size = 0;
+        }
+
+        @Override
+        public void write(int b) {
+            if (size == bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            bytes[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (size + len > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(size + len, bytes.length * 2));
+            System.arraycopy(b, off, bytes, size, len);
+            size += len;
+        }
+    }
+}
@@ -1,22 +1,23 @@
 package com.endpoint.security.normalizer;
 
 import com.endpoint.security.normalizer.model.SecurityEvent;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 
 @Component
 public class NormalizerRunner implements CommandLineRunner {
@@ -24,17 +25,126 @@ public class NormalizerRunner implements CommandLineRunner {
     private static final Logger log = LoggerFactory.getLogger(NormalizerRunner.class);
     private final String rawPath;
     private final String normalizedPath;
+    private final String alertsPath;
     private final EventNormalizer normalizer;
+    private final ProcessDenylist denylist;
+    private final long denylistReportMs;
+    private final DuplicateFilter duplicates;
+    private final ShapeDecoders shapes;
+    private final long shapesReportMs;
+    private final Rejections rejections;
+    private final ReorderBuffer reorder;
+    private final DetectionRules rules;
+    private final String outputFormat;
+    private final int blockLines;
+    private final int deflateLevel;
+    private final long blockMaxAgeMs;
+    private final String checkpointPath;
+    private final int tailBufferBytes;
+    private final String tailMode;
+    private final long tailMinWaitMs;
+    private final long tailMaxWaitMs;
+    private final int workers;
+    private final int chunkLines;
+    private final int workQueueChunks;
+    private final int inFlightChunks;
     private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
 
     public NormalizerRunner(
             @org.springframework.beans.factory.annotation.Value("${normalizer.input.path:./output/raw-events.ndjson}") String rawPath,
             @org.springframework.beans.factory.annotation.Value("${normalizer.output.path:./output/normalized-events.ndjson}") String normalizedPath,
-            @org.springframework.beans.factory.annotation.Value("${normalizer.denylist:system_idle_process,svchost.exe}") String denylistStr) {
+            @org.springframework.beans.factory.annotation.Value("${normalizer.denylist:system_idle_process,svchost.exe}") String denylistStr,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.output.format:ndjson}") String outputFormat,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.output.block-lines:4096}") int blockLines,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.output.deflate-level:1}") int deflateLevel,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.output.block-max-age-ms:10000}") long blockMaxAgeMs,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.checkpoint.path:}") String checkpointPath,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.tail.buffer-bytes:1048576}") int tailBufferBytes,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.tail.mode:watch}") String tailMode,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.tail.min-wait-ms:5}") long tailMinWaitMs,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.tail.max-wait-ms:2000}") long tailMaxWaitMs,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.pipeline.workers:0}") int workers,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.pipeline.chunk-lines:512}") int chunkLines,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.pipeline.work-queue-chunks:32}") int workQueueChunks,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.pipeline.in-flight-chunks:64}") int inFlightChunks,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.denylist.file:}") String denylistFile,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.denylist.reload-interval-ms:2000}") long denylistReloadMs,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.denylist.report-interval-ms:60000}") long denylistReportMs,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.dedup.enabled:false}") boolean dedupEnabled,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.dedup.window-ms:300000}") long dedupWindowMs,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.dedup.buckets:6}") int dedupBuckets,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.dedup.expected-events-per-second:10000}") long dedupExpectedRate,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.dedup.false-positive-budget:0.001}") double dedupFalsePositiveBudget,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.dedup.key-untimed:false}") boolean dedupKeyUntimed,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.shapes.enabled:true}") boolean shapesEnabled,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.shapes.max:64}") int maxShapes,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.shapes.promote-after:16}") int shapePromoteAfter,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.shapes.report-interval-ms:60000}") long shapesReportMs,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.dead-letter.path:}") String deadLetterPath,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.dead-letter.sample-every:100}") int deadLetterSampleEvery,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.dead-letter.max-bytes:104857600}") long deadLetterMaxBytes,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.reorder.enabled:false}") boolean reorderEnabled,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.reorder.lag-ms:5000}") long reorderLagMs,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.reorder.max-events:200000}") int reorderMaxEvents,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.alerts.path:}") String alertsPath,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.rules.bursts:}") String burstRules,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.rules.burst-score:70}") int burstScore,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.rules.max-endpoints:200000}") int ruleMaxEndpoints,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.rules.first-seen.enabled:false}") boolean firstSeenEnabled,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.rules.first-seen.learn-ms:3600000}") long firstSeenLearnMs,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.rules.first-seen.score:40}") int firstSeenScore,
+            @org.springframework.beans.factory.annotation.Value("${normalizer.rules.first-seen.max-pairs:1000000}") int firstSeenMaxPairs,
+            MeterRegistry meterRegistry) {
         this.rawPath = rawPath;
         this.normalizedPath = normalizedPath;
-        Set<String> denylist = new HashSet<>(Arrays.asList(denylistStr.split(",")));
-        this.normalizer = new EventNormalizer(denylist);
+        this.alertsPath = alertsPath;
+        this.outputFormat = outputFormat.trim().toLowerCase();
+        if (!this.outputFormat.equals("ndjson") && !this.outputFormat.equals("deflate")) {
+            throw new IllegalArgumentException("Unknown normalizer.output.format: " + outputFormat + " (expected ndjson or deflate)");
+        }
+        this.blockLines = blockLines;
+        this.deflateLevel = deflateLevel;
+        this.blockMaxAgeMs = blockMaxAgeMs;
+        this.checkpointPath = checkpointPath;
+        this.tailBufferBytes = tailBufferBytes;
+        this.tailMode = tailMode;
+        this.tailMinWaitMs = tailMinWaitMs;
+        this.tailMaxWaitMs = tailMaxWaitMs;
+        // 0 = one per CPU; a single worker normalizes on the reader thread, without the pipeline threads.
+        int resolved = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.workers = resolved > 1 ? resolved : 0;
+        this.chunkLines = chunkLines;
+        this.workQueueChunks = workQueueChunks;
+        this.inFlightChunks = inFlightChunks;
+        this.denylist = new ProcessDenylist(Arrays.asList(denylistStr.split(",")),
+            denylistFile.isBlank() ? null : Paths.get(denylistFile), denylistReloadMs);
+        this.denylistReportMs = denylistReportMs;
+        this.shapes = shapesEnabled ? new ShapeDecoders(maxShapes, shapePromoteAfter) : null;
+        this.shapesReportMs = shapesReportMs;
+        this.rejections = new Rejections(deadLetterPath.isBlank() ? null : Paths.get(deadLetterPath),
+            deadLetterSampleEvery, deadLetterMaxBytes);
+        rejections.bindTo(meterRegistry);
+        this.normalizer = new EventNormalizer(denylist, shapes, rejections);
+        this.duplicates = dedupEnabled
+            ? new DuplicateFilter(dedupWindowMs, dedupBuckets, dedupExpectedRate, dedupFalsePositiveBudget, dedupKeyUntimed)
+            : null;
+        if (!deadLetterPath.isBlank()) {
+            log.info("Dead-letter file {}: about 1 in {} rejected lines", deadLetterPath, Math.max(1, deadLetterSampleEvery));
+        }
+        this.reorder = reorderEnabled ? new ReorderBuffer(reorderLagMs, reorderMaxEvents) : null;
+        if (reorder != null) {
+            log.info("Time-ordered output on: events held up to {} ms of event time, at most {}", reorderLagMs, reorderMaxEvents);
+        }
+        List<DetectionRules.Rule> ruleList = new ArrayList<>(DetectionRules.parseBursts(burstRules, burstScore, ruleMaxEndpoints));
+        if (firstSeenEnabled) ruleList.add(new FirstSeenProcessRule(firstSeenLearnMs, firstSeenScore, firstSeenMaxPairs));
+        this.rules = ruleList.isEmpty() ? null : new DetectionRules(ruleList);
+        if (rules != null) {
+            log.info("Detection rules on: {}", rules.rules().stream().map(DetectionRules.Rule::name).toList());
+        }
+        if (duplicates != null) {
+            log.info("Duplicate suppression on: {} ms window, {} KB of filters, false-positive budget {}", dedupWindowMs,
+                duplicates.memoryBytes() / 1024, duplicates.falsePositiveBudget());
+        }
     }
 
     @Override
@@ -43,57 +153,216 @@ public class NormalizerRunner implements CommandLineRunner {
         Path out = Paths.get(normalizedPath);
         if (out.getParent() != null) Files.createDirectories(out.getParent());
 
-        log.info("Normalizer started: {} -> {}", rawPath, normalizedPath);
+        Path alerts = alertsPath.isBlank() ? null : Paths.get(alertsPath);
+        if (alerts != null && alerts.getParent() != null) Files.createDirectories(alerts.getParent());
+
+        Path checkpoint = checkpointPath.isBlank() ? Paths.get(normalizedPath + ".checkpoint") : Paths.get(checkpointPath);
+
+        log.info("Normalizer started: {} -> {} ({}), checkpoint {}, tail mode {} ({}-{} ms), {} workers", rawPath,
+            normalizedPath, outputFormat, checkpoint, tailMode, tailMinWaitMs, tailMaxWaitMs, Math.max(workers, 1));
+        if (alerts != null) log.info("Alert lane on: alerts go to {} as soon as they are normalized", alerts);
+        // Opened here, not on the loop thread, so a collector layout the normalizer cannot read fails startup.
+        RawInput rawInput = new RawInput(raw, checkpoint, tailBufferBytes);
         Thread t = new Thread(() -> {
-            long lastSize = 0;
-            try {
+            BlockCompressedWriter compressed = null;
+            OutputStream plain = null;
+            OutputStream alertOut = null;
+            NormalizationPipeline pipeline = null;
+            // With deflate, the checkpoint may not pass lines still in the open block: lines written and the input they cover.
+            ArrayDeque<Mark> blockMarks = new ArrayDeque<>();
+            try (RawInput input = rawInput;
+                 ChangeWaiter waiter = new ChangeWaiter(input.watchedFiles(), tailMode, tailMinWaitMs, tailMaxWaitMs)) {
+                if (outputFormat.equals("deflate")) {
+                    // Resuming mid-input must keep the blocks written before the restart.
+                    compressed = new BlockCompressedWriter(out, blockLines, deflateLevel, input.resumed(), blockMaxAgeMs);
+                } else {
+                    plain = new BufferedOutputStream(Files.newOutputStream(out,
+                        java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.APPEND), 64 * 1024);
+                }
+                BlockCompressedWriter blocks = compressed;
+                OutputStream writer = plain;
+                NormalizationPipeline.Sink sink = (ndjson, ends, lines) -> {
+                    if (blocks != null) {
+                        int lineStart = 0;
+                        for (int i = 0; i < lines; i++) {
+                            blocks.writeLine(ndjson, lineStart, ends[i] - lineStart - 1);
+                            lineStart = ends[i];
+                        }
+                    } else {
+                        writer.write(ndjson, 0, ends[lines - 1]);
+                    }
+                };
+                NormalizationPipeline.Sink alertSink = null;
+                if (alerts != null) {
+                    alertOut = new BufferedOutputStream(Files.newOutputStream(alerts,
+                        java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.APPEND), 64 * 1024);
+                    OutputStream alertWriter = alertOut;
+                    // Flushed per chunk, not per pass: the point of the lane is that ingestion sees alerts at once.
+                    alertSink = (ndjson, ends, lines) -> {
+                        alertWriter.write(ndjson, 0, ends[lines - 1]);
+                        alertWriter.flush();
+                    };
+                }
+                pipeline = new NormalizationPipeline(normalizer, objectMapper, sink, workers, chunkLines,
+                    workQueueChunks, inFlightChunks, duplicates, reorder, rules, alertSink);
+                NormalizationPipeline stages = pipeline;
+                FileTailer.LineHandler handler = (bytes, offset, length) -> {
+                    try {
+                        stages.accept(bytes, offset, length);
+                        return true;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                };
+                long nextHitReport = System.currentTimeMillis() + denylistReportMs;
+                long lastShapesReport = System.currentTimeMillis();
+                // With reordering, the checkpoint may not pass the earliest held line: lines accepted and file offsets per read.
+                ArrayDeque<Mark> marks = new ArrayDeque<>();
+                long[] safePositions = null;
+                long[] lastPositions = null;
+                List<Path> watched = input.watchedFiles();
                 while (!Thread.currentThread().isInterrupted()) {
-                    if (Files.exists(raw)) {
-                        long len = Files.size(raw);
-                        if (len > lastSize) {
-                            try (BufferedReader reader = Files.newBufferedReader(raw);
-                                 BufferedWriter writer = Files.newBufferedWriter(out,
-                                         java.nio.file.StandardOpenOption.CREATE,
-                                         java.nio.file.StandardOpenOption.APPEND)) {
-                                long toSkip = lastSize;
-                                while (toSkip > 0) {
-                                    long s = reader.skip(toSkip);
-                                    if (s <= 0) break;
-                                    toSkip -= s;
-                                }
-                                String line;
-                                int normalized = 0;
-                                while ((line = reader.readLine()) != null) {
-                                    if (line.isBlank()) continue;
-                                    try {
-                                        JsonNode node = objectMapper.readTree(line);
-                                        SecurityEvent ev = normalizer.normalize(node);
-                                        if (ev != null) {
-                                            writer.write(objectMapper.writeValueAsString(ev));
-                                            writer.newLine();
-                                            normalized++;
-                                        }
-                                    } catch (Exception e) {
-                                        log.trace("Skip line: {}", e.getMessage());
-                                    }
-                                }
-                                writer.flush();
-                                if (normalized > 0) {
-                                    log.info("Normalizer processed {} new lines, total file size {} bytes", normalized, len);
+                    long t0 = System.nanoTime();
+                    long startEvents = stages.eventsWritten();
+                    long startSuppressed = duplicates != null ? duplicates.suppressed() : 0;
+                    long startLate = reorder != null ? reorder.late() : 0;
+                    long startOverflowed = reorder != null ? reorder.overflowed() : 0;
+                    long startMatches = rules != null ? rules.matches() : 0;
+                    boolean polled;
+                    boolean progressed = false;
+                    do {
+                        denylist.reloadIfChanged(System.currentTimeMillis());
+                        polled = input.poll(handler);
+                        progressed |= polled;
+                        if (polled && (reorder != null || blocks != null)) {
+                            long[] positions = input.positions();
+                            if (lastPositions != null && restarted(lastPositions, positions)) {
+                                marks.clear();
+                                blockMarks.clear();
+                            }
+                            lastPositions = positions;
+                            if (reorder != null) marks.add(new Mark(stages.linesRead(), positions));
+                        }
+                    } while (polled && !Thread.currentThread().isInterrupted());
+                    if (progressed || (reorder != null && reorder.held() > 0) || (blocks != null && blocks.pendingLines() > 0)) {
+                        stages.sync();
+                        // Input whose output has all reached the writer: everything read, or up to the earliest held line.
+                        long[] written;
+                        if (reorder == null) {
+                            written = input.positions();
+                        } else {
+                            long oldestHeld = reorder.oldestHeldLine();
+                            while (!marks.isEmpty() && marks.peekFirst().lines() <= oldestHeld) {
+                                safePositions = marks.pollFirst().positions();
+                            }
+                            written = safePositions;
+                        }
+                        // Only after the output is flushed: a crash before this line re-reads, never skips.
+                        if (blocks == null) {
+                            writer.flush();
+                            if (written != null) input.checkpoint(written);
+                        } else if (written != null || !blockMarks.isEmpty()) {
+                            if (written != null) {
+                                if (!blockMarks.isEmpty() && blockMarks.peekLast().lines() == blocks.linesAccepted()) {
+                                    blockMarks.pollLast();
                                 }
+                                blockMarks.add(new Mark(blocks.linesAccepted(), written));
+                            }
+                            blocks.cutBlockIfDue();
+                            long[] cut = null;
+                            while (!blockMarks.isEmpty() && blockMarks.peekFirst().lines() <= blocks.linesCut()) {
+                                cut = blockMarks.pollFirst().positions();
                             }
-                            lastSize = len;
+                            if (cut != null) input.checkpoint(cut);
+                        }
+                    }
+                    long normalized = stages.eventsWritten() - startEvents;
+                    if (normalized > 0) {
+                        long pollMs = (System.nanoTime() - t0) / 1_000_000;
+                        if (blocks != null) {
+                            log.info("Normalizer processed {} new lines in {} ms, input offset {} bytes, {} blocks written (ratio {}, encode {} MB/s)",
+                                normalized, pollMs, input.position(), blocks.blockCount(),
+                                String.format("%.2f", blocks.compressionRatio()),
+                                String.format("%.1f", blocks.encodeMbPerSecond()));
+                        } else {
+                            log.info("Normalizer processed {} new lines in {} ms, input offset {} bytes", normalized, pollMs, input.position());
+                        }
+                    }
+                    if (duplicates != null && duplicates.suppressed() > startSuppressed) {
+                        double fpRate = duplicates.estimatedFalsePositiveRate();
+                        log.info("Suppressed {} duplicate events ({} of {} overall), estimated false-positive rate {} (budget {})",
+                            duplicates.suppressed() - startSuppressed, duplicates.suppressed(), duplicates.checked(),
+                            String.format("%.2e", fpRate), duplicates.falsePositiveBudget());
+                        if (fpRate > duplicates.falsePositiveBudget()) {
+                            log.warn("Duplicate filter is over its false-positive budget; raise normalizer.dedup.expected-events-per-second");
+                        }
+                    }
+                    if (reorder != null && reorder.late() > startLate) {
+                        log.info("{} events arrived more than {} ms of event time behind newer ones and were written out of order ({} so far)",
+                            reorder.late() - startLate, reorder.lagMs(), reorder.late());
+                    }
+                    if (reorder != null && reorder.overflowed() > startOverflowed) {
+                        log.warn("Reorder buffer full: {} events released before their watermark; raise normalizer.reorder.max-events or lower lag-ms",
+                            reorder.overflowed() - startOverflowed);
+                    }
+                    if (rules != null && rules.matches() > startMatches) {
+                        log.info("Detection rules raised {} alerts: {}", rules.matches() - startMatches, rules.summary());
+                    }
+                    if (System.currentTimeMillis() >= nextHitReport) {
+                        nextHitReport = System.currentTimeMillis() + denylistReportMs;
+                        String hits = denylist.topHits(10);
+                        if (!hits.isEmpty()) log.info("Denylist top hits: {}", hits);
+                        String rejected = rejections.summary();
+                        if (!rejected.isEmpty()) {
+                            log.info("Rejected lines so far: {} (dead letters written {}, dropped {})", rejected,
+                                rejections.deadLettersWritten(), rejections.deadLettersDropped());
                         }
                     }
-                    Thread.sleep(2000);
+                    long now = System.currentTimeMillis();
+                    if (shapes != null && now - lastShapesReport >= shapesReportMs) {
+                        log.info("Shape decoders: {}", shapes.report(now - lastShapesReport, 5));
+                        lastShapesReport = now;
+                    }
+                    if (!input.watchedFiles().equals(watched)) {
+                        watched = input.watchedFiles();
+                        waiter.watch(watched);
+                    }
+                    waiter.await(progressed);
                 }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             } catch (Exception e) {
                 log.error("Normalizer error", e);
+            } finally {
+                // Stop the sequencer before closing the output it writes to.
+                if (pipeline != null) pipeline.close();
+                rejections.close();
+                try {
+                    if (compressed != null) {
+                        // Closing writes the open block, so its input can be checkpointed instead of re-read on restart.
+                        compressed.close();
+                        if (!blockMarks.isEmpty()) rawInput.checkpoint(blockMarks.peekLast().positions());
+                    }
+                    if (plain != null) plain.close();
+                    if (alertOut != null) alertOut.close();
+                } catch (java.io.IOException e) {
+                    log.warn("Error closing normalizer output", e);
+                }
             }
         }, "NormalizerLoop");
         t.setDaemon(false);
         t.start();
     }
+
+    /** A line count (accepted by the pipeline, or written to the block writer) reached once the input was read up to {@code positions}. */
+    private record Mark(long lines, long[] positions) {}
+
+    /** True if a file's offset went backwards (it was truncated or replaced) since {@code before}. */
+    private static boolean restarted(long[] before, long[] now) {
+        for (int i = 0; i < now.length; i++) {
+            if (now[i] < before[i]) return true;
+        }
+        return false;
+    }
 }
@@ -0,0 +1,126 @@
+package com.endpoint.security.normalizer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The live process-name denylist: patterns from configuration plus, optionally, a pattern file that is
+ * recompiled into a new {@link ProcessNameMatcher} whenever its modification time or size changes.
+ * <p>
+ * Pattern file: one pattern per line (syntax in {@link ProcessNameMatcher}); blank lines and lines starting
+ * with {@code #} are ignored. A file that cannot be read or compiled is logged and the previous patterns stay
+ * in force. Hit counts carry over a reload for patterns whose text is unchanged.
+ */
+public class ProcessDenylist {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessDenylist.class);
+
+    private final List<String> configured;
+    private final Path file;
+    private final long reloadIntervalMs;
+    private volatile ProcessNameMatcher matcher;
+    private long nextCheckMs;
+    private String loadedVersion;
+
+    /**
+     * @param configured patterns always in force (e.g. {@code normalizer.denylist}); file patterns follow them
+     * @param file       pattern file, or null for the configured patterns only
+     */
+    public ProcessDenylist(List<String> configured, Path file, long reloadIntervalMs) {
+        this.configured = configured.stream().map(String::trim).filter(p -> !p.isEmpty()).toList();
+        this.file = file;
+        this.reloadIntervalMs = reloadIntervalMs;
+        this.matcher = ProcessNameMatcher.compile(this.configured);
+        if (file != null) reload();
+    }
+
+    public boolean isDenied(String processName) {
+        return matcher.isDenied(processName);
+    }
+
+    public ProcessNameMatcher matcher() {
+        return matcher;
+    }
+
+    /**
+     * Checks the pattern file at most once per reload interval and recompiles it if it changed.
+     *
+     * @return whether new patterns were installed
+     */
+    public boolean reloadIfChanged(long nowMs) {
+        if (file == null || nowMs < nextCheckMs) return false;
+        nextCheckMs = nowMs + reloadIntervalMs;
+        return reload();
+    }
+
+    /** Non-zero hit counts, highest first, as {@code pattern=count}; at most {@code limit} entries. */
+    public String topHits(int limit) {
+        ProcessNameMatcher m = matcher;
+        return IntStream.range(0, m.size())
+            .filter(id -> m.hits(id) > 0)
+            .boxed()
+            .sorted(Comparator.comparingLong((Integer id) -> m.hits(id)).reversed())
+            .limit(limit)
+            .map(id -> m.pattern(id) + "=" + m.hits(id))
+            .collect(Collectors.joining(", "));
+    }
+
+    private boolean reload() {
+        String version;
+        List<String> lines;
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            version = attrs.lastModifiedTime() + "/" + attrs.size();
+            if (version.equals(loadedVersion)) return false;
+            lines = Files.readAllLines(file);
+        } catch (NoSuchFileException e) {
+            version = "missing";
+            if (version.equals(loadedVersion)) return false;
+            log.warn("Denylist file {} not found; using the {} configured patterns", file, configured.size());
+            lines = List.of();
+        } catch (IOException e) {
+            log.warn("Cannot read denylist file {}: {}", file, e.getMessage());
+            return false;
+        }
+
+        long t0 = System.nanoTime();
+        List<String> patterns = new ArrayList<>(configured);
+        for (String line : lines) {
+            String p = line.trim();
+            if (!p.isEmpty() && !p.startsWith("#")) patterns.add(p);
+        }
+        ProcessNameMatcher compiled;
+        try {
+            compiled = ProcessNameMatcher.compile(patterns);
+        } catch (IllegalArgumentException e) {
+            log.warn("Denylist file {} rejected, keeping previous patterns: {}", file, e.getMessage());
+            loadedVersion = version;
+            return false;
+        }
+        ProcessNameMatcher previous = matcher;
+        Map<String, Long> carried = new HashMap<>();
+        for (int id = 0; id < previous.size(); id++) carried.merge(previous.pattern(id), previous.hits(id), Long::sum);
+        for (int id = 0; id < compiled.size(); id++) {
+            Long count = carried.remove(compiled.pattern(id));
+            if (count != null) compiled.addHits(id, count);
+        }
+        matcher = compiled;
+        loadedVersion = version;
+        log.info("Denylist loaded: {} patterns ({} from {}) compiled in {} ms", compiled.size(),
+            compiled.size() - configured.size(), file, (System.nanoTime() - t0) / 1_000_000);
+        return true;
+    }
+}
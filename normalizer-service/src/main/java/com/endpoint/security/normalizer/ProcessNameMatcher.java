@@ -0,0 +1,291 @@
+package com.endpoint.security.normalizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-name denylist compiled into one Aho-Corasick automaton, matched case-insensitively against the
+ * trimmed name without allocating.
+ * <p>
+ * Pattern syntax, one per entry:
+ * <ul>
+ *   <li>{@code svchost.exe} exact name</li>
+ *   <li>{@code python*} prefix, {@code *.scr} suffix, {@code *\temp\*.exe} glob; {@code *} is any run of
+ *       characters and {@code ?} any single character</li>
+ *   <li>{@code !pattern} allow: a name matching any allow pattern is never denied</li>
+ * </ul>
+ * Each pattern contributes its longest literal run (its anchor) to the automaton. One pass over the name finds
+ * every pattern whose anchor occurs in it; only those are verified against the full pattern. Patterns
+ * without any literal character (e.g. {@code *}) are verified on every name.
+ * <p>
+ * Every decision is counted against one pattern: the first matching allow pattern when it overrides a deny,
+ * otherwise the first matching deny pattern. Instances are immutable apart from those counters and safe to
+ * share between threads.
+ */
+public final class ProcessNameMatcher {
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final int[] NO_INTS = new int[0];
+
+    private final String[] patterns;
+    private final char[][] folded;
+    private final boolean[] allow;
+    private final boolean[] literal;
+    private final int[] anchorStart;
+    private final int[] anchorLength;
+    private final int[] unanchored;
+    private final LongAdder[] hits;
+
+    // Automaton: per-state sorted transition keys and targets, failure links, and anchors ending in the state.
+    private final char[][] keys;
+    private final int[][] next;
+    private final int[] fail;
+    private final int[][] outputs;
+    /** Root transitions for ASCII, where the scan spends most of its time; -1 = none. */
+    private final int[] rootAscii = new int[128];
+
+    private ProcessNameMatcher(List<String> entries) {
+        int n = entries.size();
+        patterns = new String[n];
+        folded = new char[n][];
+        allow = new boolean[n];
+        literal = new boolean[n];
+        anchorStart = new int[n];
+        anchorLength = new int[n];
+        hits = new LongAdder[n];
+        List<Integer> wildcardOnly = new ArrayList<>();
+
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        children.add(new HashMap<>());
+        ends.add(new ArrayList<>());
+        for (int id = 0; id < n; id++) {
+            String entry = entries.get(id);
+            patterns[id] = entry;
+            hits[id] = new LongAdder();
+            allow[id] = entry.startsWith("!");
+            char[] p = fold(allow[id] ? entry.substring(1) : entry);
+            folded[id] = p;
+            literal[id] = true;
+            int bestStart = 0;
+            int bestLength = 0;
+            int runStart = 0;
+            for (int i = 0; i <= p.length; i++) {
+                if (i == p.length || p[i] == '*' || p[i] == '?') {
+                    if (i < p.length) literal[id] = false;
+                    if (i - runStart > bestLength) {
+                        bestStart = runStart;
+                        bestLength = i - runStart;
+                    }
+                    runStart = i + 1;
+                }
+            }
+            anchorStart[id] = bestStart;
+            anchorLength[id] = bestLength;
+            if (bestLength == 0) {
+                wildcardOnly.add(id);
+                continue;
+            }
+            int state = 0;
+            for (int i = bestStart; i < bestStart + bestLength; i++) {
+                Integer child = children.get(state).get(p[i]);
+                if (child == null) {
+                    child = children.size();
+                    children.get(state).put(p[i], child);
+                    children.add(new HashMap<>());
+                    ends.add(new ArrayList<>());
+                }
+                state = child;
+            }
+            ends.get(state).add(id);
+        }
+        unanchored = wildcardOnly.stream().mapToInt(Integer::intValue).toArray();
+
+        int states = children.size();
+        keys = new char[states][];
+        next = new int[states][];
+        fail = new int[states];
+        outputs = new int[states][];
+        for (int s = 0; s < states; s++) {
+            Character[] sorted = children.get(s).keySet().toArray(new Character[0]);
+            Arrays.sort(sorted);
+            keys[s] = sorted.length == 0 ? NO_KEYS : new char[sorted.length];
+            next[s] = sorted.length == 0 ? NO_INTS : new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                keys[s][i] = sorted[i];
+                next[s][i] = children.get(s).get(sorted[i]);
+            }
+        }
+        Arrays.fill(rootAscii, -1);
+        for (int i = 0; i < keys[0].length; i++) {
+            if (keys[0][i] < 128) rootAscii[keys[0][i]] = next[0][i];
+        }
+        // Breadth-first, so each failure target is complete before its dependants copy its outputs.
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        outputs[0] = toArray(ends.get(0));
+        for (int child : next[0]) {
+            fail[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            List<Integer> out = new ArrayList<>(ends.get(s));
+            for (int i : outputs[fail[s]]) out.add(i);
+            outputs[s] = toArray(out);
+            for (int i = 0; i < keys[s].length; i++) {
+                int child = next[s][i];
+                int f = fail[s];
+                while (f != 0 && transition(f, keys[s][i]) < 0) f = fail[f];
+                int t = transition(f, keys[s][i]);
+                fail[child] = t >= 0 && t != child ? t : 0;
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Compiles patterns in order; blank entries are ignored and entries are trimmed.
+     *
+     * @throws IllegalArgumentException for an empty allow pattern ({@code !})
+     */
+    public static ProcessNameMatcher compile(List<String> entries) {
+        List<String> cleaned = new ArrayList<>();
+        for (String entry : entries) {
+            String e = entry.trim();
+            if (e.isEmpty()) continue;
+            if (e.equals("!")) throw new IllegalArgumentException("Empty allow pattern");
+            cleaned.add(e);
+        }
+        return new ProcessNameMatcher(cleaned);
+    }
+
+    /** Whether the trimmed name matches a deny pattern and no allow pattern. */
+    public boolean isDenied(String name) {
+        int from = 0;
+        int to = name.length();
+        while (from < to && name.charAt(from) <= ' ') from++;
+        while (to > from && name.charAt(to - 1) <= ' ') to--;
+
+        int firstDeny = Integer.MAX_VALUE;
+        int firstAllow = Integer.MAX_VALUE;
+        for (int id : unanchored) {
+            if (id < (allow[id] ? firstAllow : firstDeny) && globMatches(folded[id], name, from, to)) {
+                if (allow[id]) firstAllow = id; else firstDeny = id;
+            }
+        }
+        int state = 0;
+        for (int i = from; i < to; i++) {
+            char c = fold(name.charAt(i));
+            int t;
+            while (true) {
+                t = state != 0 ? transition(state, c) : c < 128 ? rootAscii[c] : transition(0, c);
+                if (t >= 0 || state == 0) break;
+                state = fail[state];
+            }
+            state = Math.max(t, 0);
+            for (int id : outputs[state]) {
+                if (id >= (allow[id] ? firstAllow : firstDeny)) continue;
+                if (verify(id, name, from, to, i + 1 - anchorLength[id])) {
+                    if (allow[id]) firstAllow = id; else firstDeny = id;
+                }
+            }
+        }
+
+        if (firstDeny == Integer.MAX_VALUE) return false;
+        if (firstAllow != Integer.MAX_VALUE) {
+            hits[firstAllow].increment();
+            return false;
+        }
+        hits[firstDeny].increment();
+        return true;
+    }
+
+    public int size() {
+        return patterns.length;
+    }
+
+    /** Pattern text as configured (allow patterns keep their {@code !}). */
+    public String pattern(int id) {
+        return patterns[id];
+    }
+
+    public long hits(int id) {
+        return hits[id].sum();
+    }
+
+    /** Adds {@code count} to the pattern's counter, e.g. to carry counts over a reload. */
+    void addHits(int id, long count) {
+        hits[id].add(count);
+    }
+
+    /** Whether the pattern matches, given that its anchor occurs in the name at {@code at}. */
+    private boolean verify(int id, String name, int from, int to, int at) {
+        if (literal[id]) return at == from && to - from == folded[id].length;
+        // Without a '*' before the anchor, the anchor sits at a fixed offset from the start of the name.
+        if (noStar(folded[id], 0, anchorStart[id]) && at - from != anchorStart[id]) return false;
+        return globMatches(folded[id], name, from, to);
+    }
+
+    private static boolean noStar(char[] p, int from, int to) {
+        for (int i = from; i < to; i++) if (p[i] == '*') return false;
+        return true;
+    }
+
+    /** Glob match of the whole {@code name[from, to)}, folding case as it goes; linear backtracking on '*'. */
+    static boolean globMatches(char[] p, String name, int from, int to) {
+        int pi = 0;
+        int ni = from;
+        int starP = -1;
+        int starN = 0;
+        while (ni < to) {
+            if (pi < p.length && (p[pi] == '?' || (p[pi] != '*' && p[pi] == fold(name.charAt(ni))))) {
+                pi++;
+                ni++;
+            } else if (pi < p.length && p[pi] == '*') {
+                starP = pi++;
+                starN = ni;
+            } else if (starP >= 0) {
+                pi = starP + 1;
+                ni = ++starN;
+            } else {
+                return false;
+            }
+        }
+        while (pi < p.length && p[pi] == '*') pi++;
+        return pi == p.length;
+    }
+
+    private int transition(int state, char c) {
+        char[] k = keys[state];
+        int lo = 0;
+        int hi = k.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (k[mid] < c) lo = mid + 1;
+            else if (k[mid] > c) hi = mid - 1;
+            else return next[state][mid];
+        }
+        return -1;
+    }
+
+    private static char fold(char c) {
+        if (c < 0x80) return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+        return Character.toLowerCase(c);
+    }
+
+    private static char[] fold(String s) {
+        char[] out = new char[s.length()];
+        for (int i = 0; i < out.length; i++) out[i] = fold(s.charAt(i));
+        return out;
+    }
+
+    private static int[] toArray(List<Integer> ids) {
+        if (ids.isEmpty()) return NO_INTS;
+        return ids.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+}
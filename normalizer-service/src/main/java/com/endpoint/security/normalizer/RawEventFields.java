@@ -0,0 +1,246 @@
+package com.endpoint.security.normalizer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.NumberInput;
+import com.fasterxml.jackson.core.io.NumberOutput;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Reusable holder for the raw-event fields {@link EventNormalizer} looks at, one slot per accepted key
+ * (camelCase and snake_case aliases are separate slots; {@link EventNormalizer} resolves their priority).
+ * It is filled either in one pass over a {@link JsonParser} or from a {@link JsonNode}. The accessors
+ * reproduce {@code JsonNode.asText()}, {@code asInt()}, {@code asLong()} and {@code canConvertToInt()} for
+ * the value kind a tree would have built, so both inputs normalize identically.
+ * <p>
+ * Last occurrence of a key wins and an explicit {@code null} counts as absent, as with {@code readTree}.
+ * Not thread-safe; {@link #reset()} before reuse.
+ */
+public final class RawEventFields {
+
+    static final int ENDPOINT_ID = 0;
+    static final int ENDPOINT_ID_SNAKE = 1;
+    static final int EVENT_TYPE = 2;
+    static final int EVENT_TYPE_SNAKE = 3;
+    static final int USER_ID = 4;
+    static final int USER = 5;
+    static final int PROCESS_NAME = 6;
+    static final int PROCESS = 7;
+    static final int TIMESTAMP = 8;
+    static final int ALERT_SCORE = 9;
+    static final int ALERT_REASON = 10;
+    static final int COMMAND_LINE = 11;
+    static final int COMMAND_LINE_SNAKE = 12;
+    static final int PARENT_PID = 13;
+    static final int PARENT_PID_SNAKE = 14;
+    static final int FILE_PATH = 15;
+    static final int FILE_PATH_SNAKE = 16;
+    static final int SHA256 = 17;
+    static final int DEST_IP = 18;
+    static final int DEST_IP_SNAKE = 19;
+    static final int DEST_PORT = 20;
+    static final int DEST_PORT_SNAKE = 21;
+
+    private static final String[] KEYS = {
+        "endpointId", "endpoint_id", "eventType", "event_type", "userId", "user", "processName", "process",
+        "timestamp", "alertScore", "alertReason", "commandLine", "command_line", "parentPid", "parent_pid",
+        "filePath", "file_path", "sha256", "destIp", "dest_ip", "destPort", "dest_port"
+    };
+
+    // Value kinds, mirroring the JsonNode subtype readTree would create.
+    private static final byte STRING = 1;
+    private static final byte INT = 2;      // IntNode or LongNode
+    private static final byte BIG_INT = 3;  // BigIntegerNode
+    private static final byte DOUBLE = 4;   // DoubleNode
+    private static final byte TRUE = 5;
+    private static final byte FALSE = 6;
+    private static final byte CONTAINER = 7;
+
+    private final byte[] kinds = new byte[KEYS.length];
+    private final String[] texts = new String[KEYS.length];
+    private final long[] longs = new long[KEYS.length];
+    private final double[] doubles = new double[KEYS.length];
+    private int present;
+    private String[] keyOrder = new String[16];
+    private int keyCount;
+
+    public void reset() {
+        present = 0;
+        keyCount = 0;
+    }
+
+    /**
+     * Reads one JSON value from {@code parser}, which must be positioned before it. Returns false if the
+     * value is not an object; fields are then left empty.
+     */
+    public boolean read(JsonParser parser) throws IOException {
+        reset();
+        if (parser.nextToken() != JsonToken.START_OBJECT) return false;
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            if (keyCount == keyOrder.length) keyOrder = Arrays.copyOf(keyOrder, keyCount * 2);
+            keyOrder[keyCount++] = name;
+            int slot = slotOf(name);
+            JsonToken value = parser.nextToken();
+            if (slot < 0) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (value) {
+                case VALUE_STRING -> set(slot, STRING, parser.getText(), 0, 0);
+                case VALUE_NUMBER_INT -> {
+                    if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                        BigInteger big = parser.getBigIntegerValue();
+                        set(slot, BIG_INT, big.toString(), big.longValue(), 0);
+                    } else {
+                        set(slot, INT, null, parser.getLongValue(), 0);
+                    }
+                }
+                case VALUE_NUMBER_FLOAT -> set(slot, DOUBLE, null, 0, parser.getDoubleValue());
+                case VALUE_TRUE -> set(slot, TRUE, null, 0, 0);
+                case VALUE_FALSE -> set(slot, FALSE, null, 0, 0);
+                case VALUE_NULL -> present &= ~(1 << slot);
+                default -> {
+                    parser.skipChildren();
+                    set(slot, CONTAINER, null, 0, 0);
+                }
+            }
+        }
+        if (token != JsonToken.END_OBJECT) throw new IOException("Unexpected token " + token);
+        return true;
+    }
+
+    /** Copies the accepted keys of a parsed tree; {@code node} must be an object. */
+    public void read(JsonNode node) {
+        reset();
+        for (int slot = 0; slot < KEYS.length; slot++) {
+            JsonNode v = node.get(KEYS[slot]);
+            if (v == null || v.isNull()) continue;
+            if (v.isTextual()) set(slot, STRING, v.textValue(), 0, 0);
+            else if (v.isBigInteger()) set(slot, BIG_INT, v.asText(), v.longValue(), 0);
+            else if (v.isIntegralNumber()) set(slot, INT, null, v.longValue(), 0);
+            else if (v.isNumber()) set(slot, DOUBLE, null, 0, v.doubleValue());
+            else if (v.isBoolean()) set(slot, v.booleanValue() ? TRUE : FALSE, null, 0, 0);
+            else set(slot, CONTAINER, null, 0, 0);
+        }
+    }
+
+    /** Number of keys, accepted or not, in the object last read from a parser. */
+    int keyCount() {
+        return keyCount;
+    }
+
+    /** The {@code i}-th key of the object last read from a parser, in input order. */
+    String key(int i) {
+        return keyOrder[i];
+    }
+
+    void setText(int slot, String text) {
+        set(slot, STRING, text, 0, 0);
+    }
+
+    void setLong(int slot, long value) {
+        set(slot, INT, null, value, 0);
+    }
+
+    void setBoolean(int slot, boolean value) {
+        set(slot, value ? TRUE : FALSE, null, 0, 0);
+    }
+
+    /** An explicit null: the key counts as absent. */
+    void clear(int slot) {
+        present &= ~(1 << slot);
+    }
+
+    boolean has(int slot) {
+        return (present & (1 << slot)) != 0;
+    }
+
+    boolean isNumber(int slot) {
+        byte k = kinds[slot];
+        return k == INT || k == BIG_INT || k == DOUBLE;
+    }
+
+    boolean isTextual(int slot) {
+        return kinds[slot] == STRING;
+    }
+
+    /** {@code JsonNode.asText()}. */
+    String text(int slot) {
+        return switch (kinds[slot]) {
+            case STRING, BIG_INT -> texts[slot];
+            case INT -> Long.toString(longs[slot]);
+            case DOUBLE -> NumberOutput.toString(doubles[slot]);
+            case TRUE -> "true";
+            case FALSE -> "false";
+            default -> "";
+        };
+    }
+
+    /** {@code JsonNode.asInt()}. */
+    int asInt(int slot) {
+        return switch (kinds[slot]) {
+            case STRING -> NumberInput.parseAsInt(texts[slot], 0);
+            case INT, BIG_INT -> (int) longs[slot];
+            case DOUBLE -> (int) doubles[slot];
+            case TRUE -> 1;
+            default -> 0;
+        };
+    }
+
+    /** {@code JsonNode.asLong()} for numeric values. */
+    long asLong(int slot) {
+        return kinds[slot] == DOUBLE ? (long) doubles[slot] : longs[slot];
+    }
+
+    /** {@code JsonNode.canConvertToInt()}. */
+    boolean canConvertToInt(int slot) {
+        return switch (kinds[slot]) {
+            case INT -> longs[slot] >= Integer.MIN_VALUE && longs[slot] <= Integer.MAX_VALUE;
+            case DOUBLE -> doubles[slot] >= Integer.MIN_VALUE && doubles[slot] <= Integer.MAX_VALUE;
+            default -> false; // a BigIntegerNode is only built for values outside the long range
+        };
+    }
+
+    private void set(int slot, byte kind, String text, long l, double d) {
+        kinds[slot] = kind;
+        texts[slot] = text;
+        longs[slot] = l;
+        doubles[slot] = d;
+        present |= 1 << slot;
+    }
+
+    /** Slot of an accepted key, or -1 for keys {@link EventNormalizer} ignores. */
+    static int slotOf(String name) {
+        return switch (name) {
+            case "endpointId" -> ENDPOINT_ID;
+            case "endpoint_id" -> ENDPOINT_ID_SNAKE;
+            case "eventType" -> EVENT_TYPE;
+            case "event_type" -> EVENT_TYPE_SNAKE;
+            case "userId" -> USER_ID;
+            case "user" -> USER;
+            case "processName" -> PROCESS_NAME;
+            case "process" -> PROCESS;
+            case "timestamp" -> TIMESTAMP;
+            case "alertScore" -> ALERT_SCORE;
+            case "alertReason" -> ALERT_REASON;
+            case "commandLine" -> COMMAND_LINE;
+            case "command_line" -> COMMAND_LINE_SNAKE;
+            case "parentPid" -> PARENT_PID;
+            case "parent_pid" -> PARENT_PID_SNAKE;
+            case "filePath" -> FILE_PATH;
+            case "file_path" -> FILE_PATH_SNAKE;
+            case "sha256" -> SHA256;
+            case "destIp" -> DEST_IP;
+            case "dest_ip" -> DEST_IP_SNAKE;
+            case "destPort" -> DEST_PORT;
+            case "dest_port" -> DEST_PORT_SNAKE;
+            default -> -1;
+        };
+    }
+}
@@ -0,0 +1,233 @@
+package com.endpoint.security.normalizer;
+
+import com.endpoint.security.normalizer.model.ShardDescriptor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The raw events the normalizer reads. If the collector's shard descriptor sits next to the configured input
+ * ({@code raw-events.shards.json} for {@code raw-events.ndjson}), every file it lists is read. Otherwise the
+ * input file alone is read, e.g. one written by hand. Each file has its own {@link Source} and checkpoint: the
+ * configured checkpoint path when there is one file, {@code <checkpoint>.shard-N} for shard N of several. A plain
+ * file is followed by a {@link FileTailer}; a segmented one (the descriptor says so) by a {@link SegmentTailer}.
+ * <p>
+ * The layout is fixed once the descriptor or the input file exists; until then {@link #poll} reads nothing. If
+ * the collector later writes a descriptor listing other files, e.g. after a restart with a different shard
+ * count, a warning is logged and the normalizer has to be restarted to pick them up.
+ */
+class RawInput implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(RawInput.class);
+
+    /** One input file, plain or segmented, and its checkpoint. */
+    interface Source extends Closeable {
+
+        /** Hands new lines to {@code handler}, up to one buffer's worth. */
+        void poll(FileTailer.LineHandler handler) throws IOException;
+
+        /** Bytes read so far; grows as lines are handed out. */
+        long position();
+
+        /** Persists a position taken earlier from {@link #position()}. */
+        void checkpoint(long position) throws IOException;
+
+        /** True if reading resumed from a checkpoint, so output written before must be kept. */
+        boolean resumed();
+
+        List<Path> watchedFiles();
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path input;
+    private final Path descriptor;
+    private final Path checkpoint;
+    private final int bufferBytes;
+    private final List<Path> files = new ArrayList<>();
+    private final List<Source> sources = new ArrayList<>();
+    private boolean segmented;
+    /** Modification time of the descriptor as last read, to notice when the collector rewrites it. */
+    private FileTime descriptorSeen;
+
+    /**
+     * Fixes the layout at once if the descriptor or the input exists.
+     *
+     * @throws IllegalStateException if the descriptor lists output the normalizer cannot read (mmap, deflate)
+     */
+    RawInput(Path input, Path checkpoint, int bufferBytes) throws IOException {
+        this.input = input;
+        this.descriptor = descriptorPath(input);
+        this.checkpoint = checkpoint;
+        this.bufferBytes = bufferBytes;
+        resolve();
+    }
+
+    /** Where the collector writes its shard descriptor for the given output path. */
+    static Path descriptorPath(Path input) {
+        String path = input.toString();
+        String base = path.endsWith(".ndjson") ? path.substring(0, path.length() - ".ndjson".length()) : path;
+        return Paths.get(base + ".shards.json");
+    }
+
+    /** Polls every file once, handing its new lines to {@code handler}; true if any file had new lines. */
+    boolean poll(FileTailer.LineHandler handler) throws IOException {
+        if (!resolve()) return false;
+        boolean progressed = false;
+        for (Source source : sources) {
+            long before = source.position();
+            source.poll(handler);
+            progressed |= source.position() != before;
+        }
+        if (!progressed) checkDescriptor();
+        return progressed;
+    }
+
+    /** Position of each file, in shard order. */
+    long[] positions() {
+        long[] positions = new long[sources.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = sources.get(i).position();
+        }
+        return positions;
+    }
+
+    /** Bytes read across all files, for progress logs. */
+    long position() {
+        long sum = 0;
+        for (Source source : sources) sum += source.position();
+        return sum;
+    }
+
+    /** Persists every file's current position. */
+    void checkpoint() throws IOException {
+        for (Source source : sources) source.checkpoint(source.position());
+    }
+
+    /** Persists positions taken earlier by {@link #positions()}. */
+    void checkpoint(long[] positions) throws IOException {
+        for (int i = 0; i < positions.length; i++) {
+            sources.get(i).checkpoint(positions[i]);
+        }
+    }
+
+    /** True if any file resumes from a checkpoint, so output written before must be kept. */
+    boolean resumed() {
+        return sources.stream().anyMatch(Source::resumed);
+    }
+
+    /** Files whose changes should wake the reading loop. */
+    List<Path> watchedFiles() {
+        List<Path> watched = new ArrayList<>();
+        if (sources.isEmpty()) watched.add(input);
+        for (Source source : sources) watched.addAll(source.watchedFiles());
+        watched.add(descriptor);
+        return watched;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Source source : sources) source.close();
+    }
+
+    private boolean resolve() throws IOException {
+        if (!sources.isEmpty()) return true;
+        if (Files.exists(descriptor)) {
+            descriptorSeen = Files.getLastModifiedTime(descriptor);
+            ShardDescriptor shards = readDescriptor();
+            if (!"ndjson".equals(shards.format())) {
+                throw new IllegalStateException(descriptor + " lists " + shards.format()
+                    + " output, which the normalizer cannot read; run the collector with collector.output.format=ndjson");
+            }
+            files.addAll(filesIn(shards));
+            segmented = shards.segmented();
+            for (int i = 0; i < files.size(); i++) {
+                Path shardCheckpoint = files.size() == 1 ? checkpoint : Paths.get(checkpoint + ".shard-" + i);
+                sources.add(segmented
+                    ? new SegmentTailer(files.get(i), shardCheckpoint, bufferBytes)
+                    : new PlainSource(new FileTailer(files.get(i), shardCheckpoint, bufferBytes), files.get(i)));
+            }
+            log.info("Reading {} raw-event {}(s) listed in {}: {}", files.size(), segmented ? "segmented log" : "file",
+                descriptor, files.stream().map(Path::getFileName).toList());
+        } else if (Files.exists(input)) {
+            files.add(input.toAbsolutePath().normalize());
+            sources.add(new PlainSource(new FileTailer(input, checkpoint, bufferBytes), input));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /** Warns once per rewrite if the collector's descriptor no longer matches the files being read. */
+    private void checkDescriptor() throws IOException {
+        FileTime modified;
+        try {
+            modified = Files.getLastModifiedTime(descriptor);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        if (modified.equals(descriptorSeen)) return;
+        descriptorSeen = modified;
+        ShardDescriptor shards = readDescriptor();
+        if (!"ndjson".equals(shards.format()) || shards.segmented() != segmented || !filesIn(shards).equals(files)) {
+            log.warn("{} now lists {} {} file(s) but the normalizer is reading {}; restart the normalizer to follow it",
+                descriptor, shards.files().size(), shards.format(), files.stream().map(Path::getFileName).toList());
+        }
+    }
+
+    /** A plain file, read by one {@link FileTailer}; its position is the file offset. */
+    private record PlainSource(FileTailer tailer, Path file) implements Source {
+
+        @Override
+        public void poll(FileTailer.LineHandler handler) throws IOException {
+            tailer.poll(handler);
+        }
+
+        @Override
+        public long position() {
+            return tailer.offset();
+        }
+
+        @Override
+        public void checkpoint(long position) throws IOException {
+            tailer.checkpoint(position);
+        }
+
+        @Override
+        public boolean resumed() {
+            return tailer.committedOffset() > 0;
+        }
+
+        @Override
+        public List<Path> watchedFiles() {
+            return List.of(file);
+        }
+
+        @Override
+        public void close() throws IOException {
+            tailer.close();
+        }
+    }
+
+    private ShardDescriptor readDescriptor() throws IOException {
+        return objectMapper.readValue(descriptor.toFile(), ShardDescriptor.class);
+    }
+
+    private List<Path> filesIn(ShardDescriptor shards) {
+        Path dir = descriptor.toAbsolutePath().getParent();
+        return shards.files().stream()
+            .sorted(Comparator.comparingInt(ShardDescriptor.Shard::shard))
+            .map(s -> dir.resolve(s.path()).normalize())
+            .toList();
+    }
+}
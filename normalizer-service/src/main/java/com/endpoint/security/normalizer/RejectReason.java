@@ -0,0 +1,25 @@
+package com.endpoint.security.normalizer;
+
+/** Why {@link EventNormalizer} dropped a raw line. */
+public enum RejectReason {
+    /** Not well-formed JSON, or not a JSON object. */
+    MALFORMED_JSON("malformed_json"),
+    /** A required field (endpoint id, event type, user, process name) is absent or blank. */
+    MISSING_FIELD("missing_field"),
+    BAD_UUID("bad_uuid"),
+    UNKNOWN_EVENT_TYPE("unknown_event_type"),
+    DENYLISTED("denylisted"),
+    /** Alert score outside 1-100. */
+    SCORE_OUT_OF_RANGE("score_out_of_range");
+
+    private final String tag;
+
+    RejectReason(String tag) {
+        this.tag = tag;
+    }
+
+    /** Lower-case name used as metric tag and in dead-letter records. */
+    public String tag() {
+        return tag;
+    }
+}
@@ -0,0 +1,203 @@
+package com.endpoint.security.normalizer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the lines {@link EventNormalizer} drops, per {@link RejectReason}, and optionally keeps a sample of them
+ * in a dead-letter NDJSON file.
+ * <p>
+ * Counting is one {@link LongAdder} increment, so workers never contend. With a dead-letter file, about one in
+ * {@code sampleEvery} rejected lines is copied and offered to a bounded queue; a background thread writes them
+ * as {@code {"rejectedAt":...,"reason":"bad_uuid","line":"<raw line>"}} and flushes whenever the queue runs
+ * empty. Records are dropped (and counted) rather than blocking the caller when the queue is full or the file
+ * has reached {@code maxBytes}.
+ * <p>
+ * As a {@link MeterBinder} it publishes {@code normalizer.rejected} (tagged with the reason) and the dead-letter
+ * counters {@code normalizer.deadletter.written} and {@code normalizer.deadletter.dropped}.
+ */
+public class Rejections implements MeterBinder, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(Rejections.class);
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final JsonFactory JSON = JsonFactory.builder().disable(StreamWriteFeature.AUTO_CLOSE_TARGET).build();
+
+    private final LongAdder[] counts = new LongAdder[RejectReason.values().length];
+    private final Path deadLetterPath;
+    private final int sampleEvery;
+    private final long maxBytes;
+    private final BlockingQueue<DeadLetter> queue;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean closing;
+
+    /** Counters only, no dead-letter file. */
+    public Rejections() {
+        this(null, 0, 0);
+    }
+
+    /**
+     * @param deadLetterPath file sampled rejected lines are appended to, or null for counters only
+     * @param sampleEvery    keep about one in this many rejected lines (1 = all)
+     * @param maxBytes       stop writing once the file has grown to this size (0 = no limit)
+     */
+    public Rejections(Path deadLetterPath, int sampleEvery, long maxBytes) {
+        for (int i = 0; i < counts.length; i++) counts[i] = new LongAdder();
+        this.deadLetterPath = deadLetterPath;
+        this.sampleEvery = Math.max(1, sampleEvery);
+        this.maxBytes = maxBytes;
+        if (deadLetterPath == null) {
+            this.queue = null;
+            this.writer = null;
+            return;
+        }
+        this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        this.writer = new Thread(this::runWriter, "DeadLetterWriter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Counts a rejected line and, if it is sampled, queues a copy for the dead-letter file.
+     *
+     * @param line raw line bytes, or null if there is no raw line (counted only)
+     */
+    public void reject(RejectReason reason, byte[] line, int offset, int length) {
+        counts[reason.ordinal()].increment();
+        if (queue == null || line == null) return;
+        if (sampleEvery > 1 && ThreadLocalRandom.current().nextInt(sampleEvery) != 0) return;
+        DeadLetter letter = new DeadLetter(System.currentTimeMillis(), reason, Arrays.copyOfRange(line, offset, offset + length));
+        if (!queue.offer(letter)) dropped.increment();
+    }
+
+    public long count(RejectReason reason) {
+        return counts[reason.ordinal()].sum();
+    }
+
+    public long total() {
+        long total = 0;
+        for (LongAdder count : counts) total += count.sum();
+        return total;
+    }
+
+    /** Non-zero counts as {@code reason=count}, e.g. {@code bad_uuid=3, denylisted=120}; empty if none. */
+    public String summary() {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (RejectReason reason : RejectReason.values()) {
+            long count = count(reason);
+            if (count > 0) joiner.add(reason.tag() + "=" + count);
+        }
+        return joiner.toString();
+    }
+
+    /** Dead-letter records written so far. */
+    public long deadLettersWritten() {
+        return written.sum();
+    }
+
+    /** Sampled records not written because the queue was full or the file had reached its size limit. */
+    public long deadLettersDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (RejectReason reason : RejectReason.values()) {
+            FunctionCounter.builder("normalizer.rejected", counts[reason.ordinal()], LongAdder::sum)
+                .tag("reason", reason.tag())
+                .description("Raw lines dropped during normalization")
+                .register(registry);
+        }
+        FunctionCounter.builder("normalizer.deadletter.written", written, LongAdder::sum)
+            .description("Sampled rejected lines written to the dead-letter file")
+            .register(registry);
+        FunctionCounter.builder("normalizer.deadletter.dropped", dropped, LongAdder::sum)
+            .description("Sampled rejected lines not written (queue full or file size limit reached)")
+            .register(registry);
+    }
+
+    /** Stops the writer after it has written what is already queued. */
+    @Override
+    public void close() {
+        if (writer == null) return;
+        closing = true;
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriter() {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(512);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(deadLetterPath,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024)) {
+            long fileBytes = Files.size(deadLetterPath);
+            boolean full = false;
+            while (true) {
+                DeadLetter letter = queue.poll();
+                if (letter == null) {
+                    out.flush();
+                    // Closing: stop once what was queued before close() is written.
+                    if (closing) return;
+                    letter = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (letter == null) continue;
+                }
+                record.reset();
+                encode(letter, record);
+                if (maxBytes > 0 && fileBytes + record.size() > maxBytes) {
+                    if (!full) log.warn("Dead-letter file {} reached {} bytes; dropping further records", deadLetterPath, maxBytes);
+                    full = true;
+                    dropped.increment();
+                    continue;
+                }
+                record.writeTo(out);
+                fileBytes += record.size();
+                written.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Dead-letter file {} failed; no further records are written", deadLetterPath, e);
+        }
+    }
+
+    private static void encode(DeadLetter letter, OutputStream out) throws IOException {
+        try (JsonGenerator g = JSON.createGenerator(out)) {
+            g.writeStartObject();
+            g.writeStringField("rejectedAt", Instant.ofEpochMilli(letter.atMs).toString());
+            g.writeStringField("reason", letter.reason.tag());
+            g.writeStringField("line", new String(letter.line, StandardCharsets.UTF_8));
+            g.writeEndObject();
+        }
+        out.write('\n');
+    }
+
+    private record DeadLetter(long atMs, RejectReason reason, byte[] line) {
+    }
+}
@@ -0,0 +1,127 @@
+package com.endpoint.security.normalizer;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Holds normalized lines back for up to {@code lagMs} of event time and releases them in timestamp order, so
+ * the output is time-ordered even though agents deliver out of order.
+ * <p>
+ * The watermark is the newest event timestamp seen minus {@code lagMs}; lines at or before it are released,
+ * oldest first (ties in arrival order). A line whose timestamp is behind what was already released is
+ * "late": it is released at once, out of order, and counted. Timestamps ahead of the wall clock are ordered
+ * as if they had arrived now, so one skewed agent cannot push the watermark into the future. When no line
+ * has arrived for {@code lagMs} of wall time, everything held is released. At most {@code maxEvents} lines
+ * are held; beyond that the oldest are released early (and counted as overflow).
+ * <p>
+ * Not thread-safe: one thread (the pipeline's sequencer, or the caller of {@link NormalizationPipeline#sync()})
+ * adds and releases. Counters may be read from other threads.
+ */
+public class ReorderBuffer {
+
+    private final long lagMs;
+    private final int maxEvents;
+    private final PriorityQueue<Entry> byTime = new PriorityQueue<>(
+        Comparator.comparingLong((Entry e) -> e.key).thenComparingLong(e -> e.seq));
+    /** Held lines in arrival order (released ones are skipped lazily), to find the oldest input line held. */
+    private final ArrayDeque<Entry> byArrival = new ArrayDeque<>();
+    private long seq;
+    private long maxKey = Long.MIN_VALUE;
+    private long releasedKey = Long.MIN_VALUE;
+    private long lastAddMs = Long.MIN_VALUE;
+    private byte[] out = new byte[64 * 1024];
+    private int[] ends = new int[256];
+    private volatile int held;
+    private volatile long late;
+    private volatile long overflowed;
+
+    public ReorderBuffer(long lagMs, int maxEvents) {
+        if (lagMs < 0) throw new IllegalArgumentException("lagMs must be >= 0");
+        if (maxEvents < 1) throw new IllegalArgumentException("maxEvents must be >= 1");
+        this.lagMs = lagMs;
+        this.maxEvents = maxEvents;
+    }
+
+    /**
+     * Holds a copy of the NDJSON line {@code ndjson[from, to)} (ending in '\n').
+     *
+     * @param timestampMs event time
+     * @param inputLine   index of the raw input line it came from, for {@link #oldestHeldLine()}
+     */
+    public void add(byte[] ndjson, int from, int to, long timestampMs, long inputLine, long nowMs) {
+        long key = Math.min(timestampMs, nowMs);
+        if (key < releasedKey) late++;
+        Entry e = new Entry(key, seq++, inputLine, Arrays.copyOfRange(ndjson, from, to));
+        byTime.add(e);
+        byArrival.add(e);
+        held = byTime.size();
+        maxKey = Math.max(maxKey, key);
+        lastAddMs = nowMs;
+    }
+
+    /** Hands the lines that are due (all of them if idle for {@code lagMs}) to {@code sink} in one batch. */
+    public int release(long nowMs, NormalizationPipeline.Sink sink) throws IOException {
+        boolean idle = nowMs - lastAddMs >= lagMs;
+        long watermark = idle ? Long.MAX_VALUE : maxKey - lagMs;
+        int lines = 0;
+        int size = 0;
+        while (!byTime.isEmpty() && (byTime.peek().key <= watermark || byTime.size() > maxEvents)) {
+            Entry e = byTime.poll();
+            if (e.key > watermark) overflowed++;
+            e.released = true;
+            releasedKey = Math.max(releasedKey, e.key);
+            if (size + e.line.length > out.length) out = Arrays.copyOf(out, Math.max(size + e.line.length, out.length * 2));
+            if (lines == ends.length) ends = Arrays.copyOf(ends, lines * 2);
+            System.arraycopy(e.line, 0, out, size, e.line.length);
+            size += e.line.length;
+            ends[lines++] = size;
+        }
+        while (!byArrival.isEmpty() && byArrival.peekFirst().released) byArrival.pollFirst();
+        held = byTime.size();
+        if (lines > 0) sink.write(out, ends, lines);
+        return lines;
+    }
+
+    /** Index of the earliest input line still held, or {@code Long.MAX_VALUE} if none. */
+    public long oldestHeldLine() {
+        Entry first = byArrival.peekFirst();
+        return first == null ? Long.MAX_VALUE : first.inputLine;
+    }
+
+    /** Lines currently held. */
+    public int held() {
+        return held;
+    }
+
+    /** Lines that arrived behind the watermark and were released out of order. */
+    public long late() {
+        return late;
+    }
+
+    /** Lines released before the watermark reached them because {@code maxEvents} were held. */
+    public long overflowed() {
+        return overflowed;
+    }
+
+    public long lagMs() {
+        return lagMs;
+    }
+
+    private static final class Entry {
+        final long key;
+        final long seq;
+        final long inputLine;
+        final byte[] line;
+        boolean released;
+
+        Entry(long key, long seq, long inputLine, byte[] line) {
+            this.key = key;
+            this.seq = seq;
+            this.inputLine = inputLine;
+            this.line = line;
+        }
+    }
+}
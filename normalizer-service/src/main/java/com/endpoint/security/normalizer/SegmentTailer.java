@@ -0,0 +1,195 @@
+package com.endpoint.security.normalizer;
+
+import com.endpoint.security.normalizer.model.SegmentManifest;
+import com.endpoint.security.normalizer.model.TailCheckpoint;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Follows a segmented raw-event log: {@code raw-events-000000.ndjson}, {@code raw-events-000001.ndjson}, ... plus
+ * {@code raw-events.manifest.json}, which names the segment the collector is appending to. Segments are read in
+ * sequence order, each through its own {@link FileTailer}. A segment is left once the manifest names a later one as
+ * active and a final poll finds nothing new in it. Segments deleted before they were read are skipped with a warning.
+ * <p>
+ * All segments share one checkpoint file. It names the segment it was taken in, so a restart resumes there.
+ * {@link #position()} counts bytes across segments, so callers can treat the log as one growing file.
+ */
+class SegmentTailer implements RawInput.Source {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentTailer.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path directory;
+    private final String baseName;
+    private final String extension;
+    private final Pattern segmentPattern;
+    private final Path manifestPath;
+    private final Path checkpointPath;
+    private final int bufferBytes;
+    private final boolean resumed;
+    /** Segments a checkpoint may still fall in, oldest first; the last is the one being read. */
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+
+    /** A segment opened at {@code start}, the {@link #position()} its first byte has. */
+    private record Segment(long sequence, long start, FileTailer tailer) {}
+
+    /**
+     * @param basePath the collector's configured output path; segment and manifest names derive from it
+     */
+    SegmentTailer(Path basePath, Path checkpointPath, int bufferBytes) throws IOException {
+        Path absolute = basePath.toAbsolutePath().normalize();
+        this.directory = absolute.getParent();
+        String fileName = absolute.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        this.baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        this.extension = dot > 0 ? fileName.substring(dot) : "";
+        this.segmentPattern = Pattern.compile(Pattern.quote(baseName) + "-(\\d{6,})" + Pattern.quote(extension));
+        this.manifestPath = directory.resolve(baseName + ".manifest.json");
+        this.checkpointPath = checkpointPath;
+        this.bufferBytes = bufferBytes;
+        long resumeSequence = -1;
+        if (Files.exists(checkpointPath)) {
+            TailCheckpoint saved = objectMapper.readValue(checkpointPath.toFile(), TailCheckpoint.class);
+            resumeSequence = saved.source() == null ? -1 : sequenceOf(Path.of(saved.source()).getFileName().toString());
+        }
+        this.resumed = resumeSequence >= 0;
+        if (resumed) open(resumeSequence, 0);
+    }
+
+    @Override
+    public void poll(FileTailer.LineHandler handler) throws IOException {
+        if (segments.isEmpty()) {
+            long first = firstSequence();
+            if (first < 0) return;
+            open(first, 0);
+        }
+        while (true) {
+            FileTailer tailer = segments.peekLast().tailer();
+            long before = tailer.offset();
+            tailer.poll(handler);
+            if (tailer.offset() != before) return;
+            long next = nextSequence();
+            if (next < 0) return;
+            // The manifest moved on, so nothing more is written here; one more poll catches a last batch.
+            before = tailer.offset();
+            tailer.poll(handler);
+            if (tailer.offset() != before) return;
+            advance(next);
+        }
+    }
+
+    @Override
+    public long position() {
+        Segment current = segments.peekLast();
+        return current == null ? 0 : current.start() + current.tailer().offset();
+    }
+
+    /** Persists {@code position}, which must not be older than the last one persisted. */
+    @Override
+    public void checkpoint(long position) throws IOException {
+        Segment target = null;
+        for (Segment segment : segments) {
+            if (segment.start() <= position) target = segment;
+        }
+        if (target == null) return;
+        target.tailer().checkpoint(position - target.start());
+        while (segments.peekFirst() != target) segments.pollFirst();
+    }
+
+    @Override
+    public boolean resumed() {
+        return resumed;
+    }
+
+    @Override
+    public List<Path> watchedFiles() {
+        List<Path> watched = new ArrayList<>();
+        watched.add(manifestPath);
+        if (!segments.isEmpty()) watched.add(segmentPath(segments.peekLast().sequence()));
+        return watched;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Segment segment : segments) segment.tailer().close();
+    }
+
+    private void open(long sequence, long start) throws IOException {
+        segments.add(new Segment(sequence, start, new FileTailer(segmentPath(sequence), checkpointPath, bufferBytes)));
+    }
+
+    private void advance(long next) throws IOException {
+        Segment done = segments.peekLast();
+        Path donePath = segmentPath(done.sequence());
+        long end = done.start() + done.tailer().offset();
+        try {
+            long unread = Files.size(donePath) - done.tailer().offset();
+            if (unread > 0) log.warn("{} ends in {} bytes without a newline; skipped", donePath.getFileName(), unread);
+        } catch (NoSuchFileException e) {
+            log.warn("{} was deleted before it was read to the end", donePath.getFileName());
+        }
+        if (next > done.sequence() + 1) {
+            log.warn("Segments {} to {} of {} are gone; skipped", done.sequence() + 1, next - 1, baseName);
+        }
+        // Kept (closed) until a checkpoint is taken past it: it is the one that can write a position inside it.
+        done.tailer().close();
+        open(next, end);
+    }
+
+    /** Oldest segment the manifest lists, or -1 before the collector has written one. */
+    private long firstSequence() throws IOException {
+        SegmentManifest manifest = readManifest();
+        if (manifest == null) return -1;
+        long first = sequenceOf(manifest.active());
+        for (SegmentManifest.Segment sealed : manifest.sealed()) {
+            long sequence = sequenceOf(sealed.name());
+            if (sequence >= 0 && (first < 0 || sequence < first)) first = sequence;
+        }
+        return first;
+    }
+
+    /** Earliest segment after the current one that the manifest lists, or -1 while the current one is active. */
+    private long nextSequence() throws IOException {
+        SegmentManifest manifest = readManifest();
+        if (manifest == null) return -1;
+        long current = segments.peekLast().sequence();
+        long next = -1;
+        List<String> names = new ArrayList<>();
+        names.add(manifest.active());
+        for (SegmentManifest.Segment sealed : manifest.sealed()) names.add(sealed.name());
+        for (String name : names) {
+            long sequence = sequenceOf(name);
+            if (sequence > current && (next < 0 || sequence < next)) next = sequence;
+        }
+        return next;
+    }
+
+    private SegmentManifest readManifest() throws IOException {
+        try {
+            return objectMapper.readValue(Files.readAllBytes(manifestPath), SegmentManifest.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private long sequenceOf(String name) {
+        if (name == null) return -1;
+        Matcher m = segmentPattern.matcher(name);
+        return m.matches() ? Long.parseLong(m.group(1)) : -1;
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(String.format("%s-%06d%s", baseName, sequence, extension));
+    }
+}
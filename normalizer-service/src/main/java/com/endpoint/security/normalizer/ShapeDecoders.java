@@ -0,0 +1,322 @@
+package com.endpoint.security.normalizer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Byte-level decoders for the recurring key layouts ("shapes") of raw lines, learned at runtime.
+ * <p>
+ * A shape is an exact key sequence, e.g. {@code endpointId,eventType,userId,processName,timestamp}. The
+ * generic path ({@link RawEventFields#read(com.fasterxml.jackson.core.JsonParser)}) reports the key sequence
+ * of every line it parses to {@link #learn}. After {@code promoteAfter} lines with the same sequence, it is
+ * added to a trie of known shapes, up to {@code maxShapes}.
+ * <p>
+ * {@link #decode} walks a line through that trie. At each position it compares the raw key bytes with the few
+ * keys known shapes have there, and stores each value straight into its resolved {@link RawEventFields} slot.
+ * This skips the parser, name lookups and alias dispatch. Only compact, plain values are decoded this way:
+ * <ul>
+ *   <li>ASCII strings, including the short escapes such as {@code \\} and {@code \"}</li>
+ *   <li>integers of up to 18 digits</li>
+ *   <li>{@code true}, {@code false} and {@code null}</li>
+ * </ul>
+ * Anything else falls back to the generic path, which gives the same result:
+ * <ul>
+ *   <li>whitespace, unicode escapes, non-ASCII text, fractions and exponents</li>
+ *   <li>nested values</li>
+ *   <li>an unknown key or a premature end</li>
+ * </ul>
+ * <p>
+ * Safe for concurrent use: the trie is immutable and replaced on promotion, and counters are adders.
+ */
+public final class ShapeDecoders {
+
+    /** Longest key sequence considered a shape; longer lines always take the generic path. */
+    private static final int MAX_KEYS = 32;
+    /** Bound on distinct key sequences counted towards promotion; reset when exceeded. */
+    private static final int MAX_CANDIDATES = 4096;
+
+    private final int maxShapes;
+    private final int promoteAfter;
+    private final Map<Long, AtomicInteger> candidates = new ConcurrentHashMap<>();
+    private final List<Shape> shapes = new ArrayList<>();
+    private final LongAdder genericLines = new LongAdder();
+    private volatile Node root = new Node(new ArrayList<>());
+    private volatile int shapeCount;
+    private long reportedGeneric;
+
+    public ShapeDecoders(int maxShapes, int promoteAfter) {
+        this.maxShapes = maxShapes;
+        this.promoteAfter = Math.max(1, promoteAfter);
+    }
+
+    /**
+     * Decodes {@code json[offset, offset + length)} into {@code fields} if it is one compact object of a known
+     * shape. Returns false, leaving {@code fields} in an unspecified state, if the line needs the generic path.
+     */
+    public boolean decode(byte[] json, int offset, int length, RawEventFields fields) {
+        int end = offset + length;
+        int p = offset;
+        if (length < 2 || json[p++] != '{' || json[p] == '}') return false;
+        fields.reset();
+        Node node = root;
+        while (true) {
+            int k = node.match(json, p, end);
+            if (k < 0) return false;
+            p += node.keys[k].length;
+            p = value(json, p, end, node.slots[k], fields);
+            if (p < 0 || p >= end) return false;
+            node = node.children[k];
+            byte c = json[p++];
+            if (c == ',') continue;
+            if (c != '}' || p != end || node.shape == null) return false;
+            node.shape.lines.increment();
+            return true;
+        }
+    }
+
+    /** Counts a line the generic path parsed into {@code fields}, promoting its key sequence when recurring. */
+    public void learn(RawEventFields fields) {
+        genericLines.increment();
+        int n = fields.keyCount();
+        if (n == 0 || n > MAX_KEYS || shapeCount >= maxShapes) return;
+        long fingerprint = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < n; i++) fingerprint = (fingerprint ^ fields.key(i).hashCode()) * 0x100000001B3L + i;
+        if (candidates.size() >= MAX_CANDIDATES) candidates.clear();
+        int seen = candidates.computeIfAbsent(fingerprint, f -> new AtomicInteger()).incrementAndGet();
+        if (seen == promoteAfter) {
+            List<String> keys = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) keys.add(fields.key(i));
+            promote(keys);
+        }
+    }
+
+    /** Lines decoded by a shape so far. */
+    public long fastLines() {
+        long total = 0;
+        for (Shape shape : snapshot()) total += shape.lines.sum();
+        return total;
+    }
+
+    /** Lines that went through the generic path so far (including ones that were not objects of a shape). */
+    public long genericLines() {
+        return genericLines.sum();
+    }
+
+    public int shapeCount() {
+        return shapeCount;
+    }
+
+    /**
+     * Fast-path hit rate and, for up to {@code limit} busiest shapes, lines/s since the previous report; resets
+     * the per-report counts.
+     */
+    public String report(long intervalMs, int limit) {
+        List<Shape> all = snapshot();
+        long fast = 0;
+        for (Shape shape : all) fast += shape.lines.sum();
+        long generic = genericLines.sum();
+        long fastDelta = 0;
+        List<long[]> deltas = new ArrayList<>();
+        for (int i = 0; i < all.size(); i++) {
+            Shape shape = all.get(i);
+            long total = shape.lines.sum();
+            long delta = total - shape.reported;
+            shape.reported = total;
+            fastDelta += delta;
+            deltas.add(new long[]{i, delta});
+        }
+        long genericDelta = generic - reportedGeneric;
+        reportedGeneric = generic;
+        double seconds = Math.max(intervalMs, 1) / 1000.0;
+        long linesDelta = fastDelta + genericDelta;
+        String perShape = deltas.stream()
+            .filter(d -> d[1] > 0)
+            .sorted(Comparator.comparingLong((long[] d) -> d[1]).reversed())
+            .limit(limit)
+            .map(d -> String.format("[%s] %.0f lines/s (%.1f%%)", all.get((int) d[0]).label, d[1] / seconds,
+                100.0 * d[1] / Math.max(linesDelta, 1)))
+            .collect(Collectors.joining(", "));
+        return String.format("fast path %.1f%% of %d lines (%.1f%% overall), %d shapes%s",
+            100.0 * fastDelta / Math.max(linesDelta, 1), linesDelta, 100.0 * fast / Math.max(fast + generic, 1),
+            all.size(), perShape.isEmpty() ? "" : ": " + perShape);
+    }
+
+    private synchronized List<Shape> snapshot() {
+        return new ArrayList<>(shapes);
+    }
+
+    private synchronized void promote(List<String> keys) {
+        if (shapes.size() >= maxShapes) return;
+        for (String key : keys) {
+            // Keys are matched as raw bytes, so only names that need no escaping can be part of a shape.
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                if (c < 0x20 || c >= 0x7f || c == '"' || c == '\\') return;
+            }
+        }
+        for (Shape shape : shapes) if (shape.keys.equals(keys)) return;
+        shapes.add(new Shape(keys));
+        root = new Node(shapes.stream().map(s -> new Path(s, 0)).toList());
+        shapeCount = shapes.size();
+    }
+
+    /** Position just after the value at {@code p}, stored in {@code slot} (unless -1), or -1 to fall back. */
+    private static int value(byte[] b, int p, int end, int slot, RawEventFields fields) {
+        if (p >= end) return -1;
+        byte c = b[p];
+        if (c == '"') {
+            int start = p + 1;
+            int i = start;
+            boolean escaped = false;
+            while (i < end) {
+                byte x = b[i];
+                if (x == '"') break;
+                if (x < 0x20) return -1; // control character, or non-ASCII (negative)
+                if (x == '\\') {
+                    escaped = true;
+                    i++;
+                }
+                i++;
+            }
+            if (i >= end) return -1;
+            if (slot >= 0) {
+                String text = escaped ? unescape(b, start, i) : new String(b, start, i - start, StandardCharsets.ISO_8859_1);
+                if (text == null) return -1;
+                fields.setText(slot, text);
+            } else if (escaped && unescape(b, start, i) == null) {
+                return -1;
+            }
+            return i + 1;
+        }
+        if (c == '-' || (c >= '0' && c <= '9')) {
+            int i = c == '-' ? p + 1 : p;
+            int digitsStart = i;
+            long v = 0;
+            while (i < end && b[i] >= '0' && b[i] <= '9') v = v * 10 + (b[i++] - '0');
+            int digits = i - digitsStart;
+            if (digits == 0 || digits > 18 || (digits > 1 && b[digitsStart] == '0')) return -1;
+            if (i < end && (b[i] == '.' || b[i] == 'e' || b[i] == 'E')) return -1;
+            if (slot >= 0) fields.setLong(slot, c == '-' ? -v : v);
+            return i;
+        }
+        if (literal(b, p, end, "true")) {
+            if (slot >= 0) fields.setBoolean(slot, true);
+            return p + 4;
+        }
+        if (literal(b, p, end, "false")) {
+            if (slot >= 0) fields.setBoolean(slot, false);
+            return p + 5;
+        }
+        if (literal(b, p, end, "null")) {
+            if (slot >= 0) fields.clear(slot);
+            return p + 4;
+        }
+        return -1;
+    }
+
+    /** ASCII string content with its short escapes decoded; null for unicode or invalid escapes. */
+    private static String unescape(byte[] b, int from, int to) {
+        char[] out = new char[to - from];
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            byte x = b[i];
+            if (x != '\\') {
+                out[n++] = (char) x;
+                continue;
+            }
+            out[n++] = switch (b[++i]) {
+                case '"' -> '"';
+                case '\\' -> '\\';
+                case '/' -> '/';
+                case 'b' -> '\b';
+                case 'f' -> '\f';
+                case 'n' -> '\n';
+                case 'r' -> '\r';
+                case 't' -> '\t';
+                default -> (char) 0xFFFF; // unicode and invalid escapes
+            };
+            if (out[n - 1] == 0xFFFF) return null;
+        }
+        return new String(out, 0, n);
+    }
+
+    private static boolean literal(byte[] b, int p, int end, String word) {
+        if (end - p < word.length()) return false;
+        for (int i = 0; i < word.length(); i++) if (b[p + i] != word.charAt(i)) return false;
+        return true;
+    }
+
+    /** A learned key sequence and how many lines it decoded. */
+    private static final class Shape {
+        final List<String> keys;
+        final String label;
+        final LongAdder lines = new LongAdder();
+        long reported;
+
+        Shape(List<String> keys) {
+            this.keys = List.copyOf(keys);
+            this.label = String.join(",", keys);
+        }
+    }
+
+    private record Path(Shape shape, int depth) {
+    }
+
+    /** Trie node: the keys known shapes have at this position, as {@code "name":} bytes. */
+    private static final class Node {
+        final byte[][] keys;
+        final int[] slots;
+        final Node[] children;
+        final Shape shape;
+
+        Node(List<Path> paths) {
+            Shape ending = null;
+            List<String> names = new ArrayList<>();
+            List<List<Path>> next = new ArrayList<>();
+            for (Path path : paths) {
+                if (path.depth == path.shape.keys.size()) {
+                    ending = path.shape;
+                    continue;
+                }
+                String name = path.shape.keys.get(path.depth);
+                int i = names.indexOf(name);
+                if (i < 0) {
+                    names.add(name);
+                    next.add(new ArrayList<>());
+                    i = names.size() - 1;
+                }
+                next.get(i).add(new Path(path.shape, path.depth + 1));
+            }
+            shape = ending;
+            keys = new byte[names.size()][];
+            slots = new int[names.size()];
+            children = new Node[names.size()];
+            for (int i = 0; i < names.size(); i++) {
+                keys[i] = ("\"" + names.get(i) + "\":").getBytes(StandardCharsets.US_ASCII);
+                slots[i] = RawEventFields.slotOf(names.get(i));
+                children[i] = new Node(next.get(i));
+            }
+        }
+
+        /** Index of the key whose bytes start at {@code p}, or -1. */
+        int match(byte[] b, int p, int end) {
+            outer:
+            for (int k = 0; k < keys.length; k++) {
+                byte[] key = keys[k];
+                if (end - p < key.length) continue;
+                for (int i = 0; i < key.length; i++) {
+                    if (b[p + i] != key[i]) continue outer;
+                }
+                return k;
+            }
+            return -1;
+        }
+    }
+}
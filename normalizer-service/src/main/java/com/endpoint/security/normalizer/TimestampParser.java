@@ -0,0 +1,161 @@
+package com.endpoint.security.normalizer;
+
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Parses raw-event timestamp strings with the same results as the original
+ * {@code Instant.parse(s)}, falling back to {@code Instant.from(ISO_DATE_TIME.parse(s.replace(" ", "T")))},
+ * without throwing and catching on every malformed value.
+ * <p>
+ * A hand-written scanner covers the forms seen in practice:
+ * <ul>
+ *   <li>{@code yyyy-MM-dd'T'HH:mm[:ss[.fffffffff]]} with {@code Z} or {@code ±HH:MM}</li>
+ *   <li>the same with a space instead of {@code T}</li>
+ *   <li>local date-times without an offset; they resolve to null, as before</li>
+ * </ul>
+ * Anything that cannot match either original format is rejected right away. Only rare ISO corners go
+ * through the exception-based original code:
+ * <ul>
+ *   <li>signed or extended years</li>
+ *   <li>lowercase {@code t}/{@code z}</li>
+ *   <li>{@code 24:00} and leap seconds</li>
+ *   <li>offsets other than {@code ±HH:MM}</li>
+ *   <li>bracketed zone IDs</li>
+ * </ul>
+ * Epoch numbers are JSON numbers and never reach this class.
+ */
+public final class TimestampParser {
+
+    /** Result of {@link #parseFast} when the scanner cannot decide; no 4-digit year produces it. */
+    static final Instant UNDECIDED = Instant.MIN;
+
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private TimestampParser() {
+    }
+
+    /** The instant {@code text} denotes, or null if it has no offset or is not a supported date-time. */
+    public static Instant parse(String text) {
+        Instant fast = parseFast(text);
+        return fast == UNDECIDED ? parseSlow(text) : fast;
+    }
+
+    static Instant parseFast(String s) {
+        int n = s.length();
+        if (n > 0 && (s.charAt(0) == '+' || s.charAt(0) == '-')) return UNDECIDED;
+        // Shortest accepted form: yyyy-MM-ddTHH:mmZ
+        if (n < 17) return null;
+        int year = digits(s, 0, 4);
+        if (year < 0) return null;
+        if (isDigit(s.charAt(4))) return UNDECIDED; // more than four year digits
+        if (s.charAt(4) != '-' || s.charAt(7) != '-') return null;
+        int month = digits(s, 5, 2);
+        int day = digits(s, 8, 2);
+        if (month < 0 || day < 0) return null;
+        char sep = s.charAt(10);
+        if (sep == 't') return UNDECIDED;
+        if (sep != 'T' && sep != ' ') return null;
+        int hour = digits(s, 11, 2);
+        if (hour < 0 || s.charAt(13) != ':') return null;
+        int minute = digits(s, 14, 2);
+        if (minute < 0) return null;
+
+        int p = 16;
+        int second = 0;
+        int nano = 0;
+        if (p < n && s.charAt(p) == ':') {
+            second = p + 3 <= n ? digits(s, p + 1, 2) : -1;
+            if (second < 0) return null;
+            p += 3;
+            if (p < n && s.charAt(p) == '.') {
+                int start = ++p;
+                while (p < n && isDigit(s.charAt(p))) p++;
+                int count = p - start;
+                if (count == 0 || count > 9) return UNDECIDED;
+                nano = digits(s, start, count);
+                for (int i = count; i < 9; i++) nano *= 10;
+            }
+        }
+
+        if (p == n) return null; // local date-time: parses, but has no offset to make an instant from
+        int offsetSeconds;
+        char c = s.charAt(p);
+        if (c == 'Z') {
+            offsetSeconds = 0;
+            p++;
+        } else if (c == '+' || c == '-') {
+            if (p + 6 != n || s.charAt(p + 3) != ':') return UNDECIDED;
+            int oh = digits(s, p + 1, 2);
+            int om = digits(s, p + 4, 2);
+            if (oh < 0 || om < 0 || oh > 17 || om > 59) return UNDECIDED;
+            offsetSeconds = (c == '-' ? -1 : 1) * (oh * 3600 + om * 60);
+            p += 6;
+        } else if (c == 'z' || c == '[') {
+            return UNDECIDED;
+        } else {
+            return null;
+        }
+        if (p != n) return UNDECIDED; // e.g. a [zone] suffix
+
+        if (hour == 24 || second == 60) return UNDECIDED;
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) return null;
+        if (hour > 23 || minute > 59 || second > 59) return null;
+        long epochSecond = epochDay(year, month, day) * 86_400L + hour * 3600L + minute * 60L + second - offsetSeconds;
+        return Instant.ofEpochSecond(epochSecond, nano);
+    }
+
+    /** The original implementation, for the inputs {@link #parseFast} leaves undecided. */
+    static Instant parseSlow(String str) {
+        try {
+            try {
+                return Instant.parse(str);
+            } catch (Exception e) {
+                return Instant.from(DateTimeFormatter.ISO_DATE_TIME.parse(str.replace(" ", "T")));
+            }
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /** Value of {@code count} ASCII digits at {@code from}, or -1. */
+    private static int digits(String s, int from, int count) {
+        int v = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLeap(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        return month == 2 && isLeap(year) ? 29 : DAYS_IN_MONTH[month - 1];
+    }
+
+    /** Days since 1970-01-01 (same algorithm as {@code LocalDate.toEpochDay}). */
+    private static long epochDay(int year, int month, int day) {
+        long y = year;
+        long total = 365 * y;
+        if (y >= 0) {
+            total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        } else {
+            total -= y / -4 - y / -100 + y / -400;
+        }
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeap(year)) total--;
+        }
+        return total - 719_528; // days from year 0 to 1970
+    }
+}
@@ -0,0 +1,85 @@
+package com.endpoint.security.normalizer;
+
+import java.util.UUID;
+
+/**
+ * Character-level equivalent of {@code UUID.fromString(s.trim())} succeeding, without throwing.
+ * <p>
+ * {@code UUID.fromString} accepts more than the canonical 8-4-4-4-12 form. It takes five dash-separated
+ * groups of at most 36 characters in total, and each group may be any {@code Long.parseLong(group, 16)}
+ * value: shorter groups, a leading {@code +}, and non-ASCII digits all pass. ASCII input is decided here. Input
+ * with non-ASCII characters is rare enough to be checked with {@code UUID.fromString} itself.
+ */
+public final class UuidValidator {
+
+    private UuidValidator() {
+    }
+
+    public static boolean isValid(String s) {
+        int from = 0;
+        int to = s.length();
+        while (from < to && s.charAt(from) <= ' ') from++;
+        while (to > from && s.charAt(to - 1) <= ' ') to--;
+        int length = to - from;
+        if (length > 36) return false;
+        if (length == 36 && isCanonical(s, from)) return true;
+
+        int groups = 0;
+        int groupStart = from;
+        for (int i = from; i <= to; i++) {
+            if (i < to) {
+                char c = s.charAt(i);
+                if (c >= 0x80) return viaUuid(s);
+                if (c != '-') continue;
+            }
+            if (++groups > 5 || !isLong16(s, groupStart, i)) return false;
+            groupStart = i + 1;
+        }
+        return groups == 5;
+    }
+
+    private static boolean isCanonical(String s, int from) {
+        for (int i = 0; i < 36; i++) {
+            char c = s.charAt(from + i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') return false;
+            } else if (hex(c) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether {@code Long.parseLong(s, from, to, 16)} succeeds, for ASCII text without '-' (every '-' is a group
+     * separator, so the only possible sign is '+').
+     */
+    private static boolean isLong16(String s, int from, int to) {
+        if (from >= to) return false;
+        if (s.charAt(from) == '+' && ++from == to) return false;
+        while (from < to - 1 && s.charAt(from) == '0') from++;
+        int significant = to - from;
+        for (int i = from; i < to; i++) {
+            if (hex(s.charAt(i)) < 0) return false;
+        }
+        if (significant < 16) return true;
+        if (significant > 16) return false;
+        return hex(s.charAt(from)) < 8; // at most 7fffffffffffffff
+    }
+
+    private static int hex(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    private static boolean viaUuid(String s) {
+        try {
+            UUID.fromString(s.trim());
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
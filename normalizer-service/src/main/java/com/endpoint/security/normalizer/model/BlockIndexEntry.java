@@ -0,0 +1,23 @@
+package com.endpoint.security.normalizer.model;
+
+/**
+ * One line of a block-compressed file's sidecar index ({@code <file>.idx}). Each block is an independent
+ * zlib stream of whole NDJSON lines, so a reader can seek to {@code offset} and inflate just that block.
+ */
+public record BlockIndexEntry(
+    long block,
+    long offset,
+    int compressedBytes,
+    int uncompressedBytes,
+    long firstLine,
+    int lineCount,
+    long encodeNanos
+) {
+    public double compressionRatio() {
+        return compressedBytes == 0 ? 0 : (double) uncompressedBytes / compressedBytes;
+    }
+
+    public double encodeMbPerSecond() {
+        return encodeNanos == 0 ? 0 : uncompressedBytes / (encodeNanos / 1e9) / (1024 * 1024);
+    }
+}
@@ -15,8 +15,21 @@ public record SecurityEvent(
     String processName,
     Boolean isAlert,
     Integer alertScore,
-    String alertReason
+    String alertReason,
+    // Optional EDR payload, carried through when the raw event has it
+    String commandLine,
+    Integer parentPid,
+    String filePath,
+    String sha256,
+    String destIp,
+    Integer destPort
 ) {
+    public SecurityEvent(Instant timestamp, String endpointId, String eventType, String userId, String processName,
+                         Boolean isAlert, Integer alertScore, String alertReason) {
+        this(timestamp, endpointId, eventType, userId, processName, isAlert, alertScore, alertReason,
+            null, null, null, null, null, null);
+    }
+
     public SecurityEvent(Instant timestamp, String endpointId, String eventType, String userId, String processName) {
         this(timestamp, endpointId, eventType, userId, processName, false, null, null);
     }
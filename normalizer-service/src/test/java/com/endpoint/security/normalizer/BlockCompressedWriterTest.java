@@ -0,0 +1,90 @@
+package com.endpoint.security.normalizer;
+
+import com.endpoint.security.normalizer.model.BlockIndexEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BlockCompressedWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writer_indexesBlocksAndReaderSeeksToAnyLine() throws Exception {
+        Path output = tempDir.resolve("normalized-events.ndjson");
+        List<String> expected = new ArrayList<>();
+        try (BlockCompressedWriter writer = new BlockCompressedWriter(output, 8, 6)) {
+            for (int i = 0; i < 20; i++) {
+                String line = "{\"eventType\":\"FILE_ACCESS\",\"processName\":\"explorer.exe\",\"n\":" + i + "}";
+                writer.writeLine(line);
+                expected.add(line);
+            }
+            assertThat(writer.blockCount()).isEqualTo(2);
+            writer.cutBlock();
+            assertThat(writer.blockCount()).isEqualTo(3);
+            assertThat(writer.compressionRatio()).isGreaterThan(1.0);
+        }
+
+        try (BlockCompressedReader reader = new BlockCompressedReader(Path.of(output + ".deflate"))) {
+            assertThat(reader.entries()).extracting(BlockIndexEntry::lineCount).containsExactly(8, 8, 4);
+            assertThat(reader.lineCount()).isEqualTo(20);
+            int block = reader.blockForLine(17);
+            assertThat(block).isEqualTo(2);
+            String[] lines = new String(reader.readBlock(block), StandardCharsets.UTF_8).split("\n");
+            assertThat(lines).containsExactlyElementsOf(expected.subList(16, 20));
+            assertThat(new String(reader.readBlock(0), StandardCharsets.UTF_8).split("\n"))
+                .containsExactlyElementsOf(expected.subList(0, 8));
+        }
+    }
+
+    @Test
+    void cutBlockIfDue_keepsAPartialBlockOpenUntilItIsOldEnough() throws Exception {
+        Path output = tempDir.resolve("normalized-events.ndjson");
+        try (BlockCompressedWriter writer = new BlockCompressedWriter(output, 4, 1, false, 50)) {
+            for (int i = 0; i < 6; i++) writer.writeLine("{\"n\":" + i + "}");
+            assertThat(writer.cutBlockIfDue()).isFalse();
+            assertThat(writer.linesAccepted()).isEqualTo(6);
+            assertThat(writer.linesCut()).isEqualTo(4);
+            assertThat(writer.pendingLines()).isEqualTo(2);
+
+            Thread.sleep(60);
+            assertThat(writer.cutBlockIfDue()).isTrue();
+            assertThat(writer.linesCut()).isEqualTo(6);
+            assertThat(writer.cutBlockIfDue()).isFalse();
+        }
+
+        try (BlockCompressedReader reader = new BlockCompressedReader(Path.of(output + ".deflate"))) {
+            assertThat(reader.entries()).extracting(BlockIndexEntry::lineCount).containsExactly(4, 2);
+        }
+    }
+
+    @Test
+    void writer_appendContinuesAfterLastIndexedBlock() throws Exception {
+        Path output = tempDir.resolve("normalized-events.ndjson");
+        try (BlockCompressedWriter writer = new BlockCompressedWriter(output, 4, 1)) {
+            for (int i = 0; i < 6; i++) writer.writeLine("{\"n\":" + i + "}");
+        }
+        // A crash mid-block leaves compressed bytes with no index entry behind them.
+        Files.write(Path.of(output + ".deflate"), new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (BlockCompressedWriter writer = new BlockCompressedWriter(output, 4, 1, true)) {
+            assertThat(writer.blockCount()).isEqualTo(2);
+            writer.writeLine("{\"n\":6}");
+        }
+
+        try (BlockCompressedReader reader = new BlockCompressedReader(Path.of(output + ".deflate"))) {
+            assertThat(reader.entries()).extracting(BlockIndexEntry::block).containsExactly(0L, 1L, 2L);
+            assertThat(reader.lineCount()).isEqualTo(7);
+            assertThat(new String(reader.readBlock(2), StandardCharsets.UTF_8)).isEqualTo("{\"n\":6}\n");
+        }
+    }
+}
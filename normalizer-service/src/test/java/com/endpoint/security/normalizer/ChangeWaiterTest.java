@@ -0,0 +1,113 @@
+package com.endpoint.security.normalizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChangeWaiterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void watch_wakesOnAppendLongBeforeTheCap() throws Exception {
+        Path raw = tempDir.resolve("raw-events.ndjson");
+        Files.writeString(raw, "");
+        try (ChangeWaiter waiter = new ChangeWaiter(raw, "watch", 10_000, 10_000)) {
+            long[] waitedMs = new long[1];
+            Thread reader = new Thread(() -> {
+                long start = System.nanoTime();
+                try {
+                    waiter.await(true);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                waitedMs[0] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            });
+            reader.start();
+            Thread.sleep(200);
+            Files.writeString(tempDir.resolve("unrelated.log"), "x");
+            Thread.sleep(100);
+            assertThat(reader.isAlive()).isTrue();
+            Files.writeString(raw, "{}\n", StandardOpenOption.APPEND);
+            reader.join(5_000);
+
+            assertThat(reader.isAlive()).isFalse();
+            assertThat(waiter.isWatching()).isTrue();
+            assertThat(waitedMs[0]).isLessThan(2_000);
+            assertThat(waiter.notifiedFraction()).isEqualTo(1.0);
+        }
+    }
+
+    @Test
+    void watch_wakesOnAppendToAnyWatchedFile() throws Exception {
+        Path raw = tempDir.resolve("raw-events.ndjson");
+        Path alerts = Files.createDirectories(tempDir.resolve("lanes")).resolve("alerts.ndjson");
+        try (ChangeWaiter waiter = new ChangeWaiter(List.of(raw, alerts), "watch", 10_000, 10_000)) {
+            Thread reader = new Thread(() -> {
+                try {
+                    waiter.await(true);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            long start = System.nanoTime();
+            reader.start();
+            Thread.sleep(200);
+            Files.writeString(alerts, "{}\n");
+            reader.join(5_000);
+
+            assertThat(reader.isAlive()).isFalse();
+            assertThat(waiter.isWatching()).isTrue();
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2_000);
+        }
+    }
+
+    @Test
+    void watch_followsFilesAddedAfterConstruction() throws Exception {
+        Path raw = tempDir.resolve("raw-events.ndjson");
+        Path shard = Files.createDirectories(tempDir.resolve("shards")).resolve("raw-events-shard-1.ndjson");
+        try (ChangeWaiter waiter = new ChangeWaiter(raw, "watch", 10_000, 10_000)) {
+            waiter.watch(List.of(raw, shard));
+            Thread reader = new Thread(() -> {
+                try {
+                    waiter.await(true);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            long start = System.nanoTime();
+            reader.start();
+            Thread.sleep(200);
+            Files.writeString(shard, "{}\n");
+            reader.join(5_000);
+
+            assertThat(reader.isAlive()).isFalse();
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2_000);
+        }
+    }
+
+    @Test
+    void poll_backsOffWhenIdleAndResetsOnData() throws Exception {
+        try (ChangeWaiter waiter = new ChangeWaiter(tempDir.resolve("raw-events.ndjson"), "poll", 1, 8)) {
+            waiter.await(false);
+            assertThat(waiter.currentWaitMs()).isEqualTo(2);
+            waiter.await(false);
+            waiter.await(false);
+            waiter.await(false);
+            assertThat(waiter.currentWaitMs()).isEqualTo(8);
+            waiter.await(true);
+            assertThat(waiter.currentWaitMs()).isEqualTo(1);
+            assertThat(waiter.isWatching()).isFalse();
+        }
+        assertThatThrownBy(() -> new ChangeWaiter(tempDir, "inotify", 1, 8)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
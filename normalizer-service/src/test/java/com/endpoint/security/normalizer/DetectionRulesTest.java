@@ -0,0 +1,113 @@
+package com.endpoint.security.normalizer;
+
+import com.endpoint.security.normalizer.model.SecurityEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DetectionRulesTest {
+
+    private static final Instant BASE = Instant.parse("2024-01-15T10:00:00Z");
+    private static final String ENDPOINT_A = "550e8400-e29b-41d4-a716-446655440000";
+    private static final String ENDPOINT_B = "6ba7b810-9dad-11d1-80b4-00c04fd430c8";
+
+    @Test
+    void burst_firesOncePerThresholdPlusOneEventsWithinTheWindowPerEndpoint() {
+        DetectionRules rules = new DetectionRules(DetectionRules.parseBursts("process_start:3:10000:PowerShell*.exe", 70, 1000));
+        List<SecurityEvent> alerts = new ArrayList<>();
+
+        // Four on A within 10 s; on B, four but spread over 30 s; other processes and types do not count.
+        for (int i = 0; i < 4; i++) {
+            rules.evaluate(event(ENDPOINT_A, "process_start", "u1", "powershell.exe", i * 1000), alerts);
+            rules.evaluate(event(ENDPOINT_B, "process_start", "u1", "powershell_ise.exe", i * 10_000), alerts);
+            rules.evaluate(event(ENDPOINT_A, "process_start", "u1", "cmd.exe", i * 1000), alerts);
+            rules.evaluate(event(ENDPOINT_A, "file_access", "u1", "powershell.exe", i * 1000), alerts);
+        }
+        assertThat(alerts).hasSize(1);
+        SecurityEvent alert = alerts.get(0);
+        assertThat(alert.endpointId()).isEqualTo(ENDPOINT_A);
+        assertThat(alert.timestamp()).isEqualTo(BASE.plusMillis(3000));
+        assertThat(alert.isAlert()).isTrue();
+        assertThat(alert.alertScore()).isEqualTo(70);
+        assertThat(alert.alertReason()).startsWith("rule burst: more than 3 process_start");
+        assertThat(alert.commandLine()).isEqualTo("cmd /c x");
+
+        // The ring starts over after a match: three more are not enough, a fourth is.
+        for (int i = 4; i < 7; i++) rules.evaluate(event(ENDPOINT_A, "process_start", "u1", "powershell.exe", i * 1000), alerts);
+        assertThat(alerts).hasSize(1);
+        rules.evaluate(event(ENDPOINT_A, "process_start", "u1", "powershell.exe", 7000), alerts);
+        assertThat(alerts).hasSize(2);
+        assertThat(rules.matches()).isEqualTo(2);
+        assertThat(rules.summary()).contains("2 alerts");
+    }
+
+    @Test
+    void burst_forgetsIdleEndpointsAndStaysWithinMaxEndpoints() {
+        BurstRule rule = new BurstRule("*", "powershell.exe", 2, 1000, 70, 100);
+        for (int i = 0; i < 10_000; i++) {
+            evaluate(rule, event(new UUID(0, i).toString(), "process_start", "u", "powershell.exe", i / 100));
+            assertThat(rule.tracked()).isLessThanOrEqualTo(100);
+        }
+        // Event time moves on by two windows: everything held so far is out of the window and dropped.
+        evaluate(rule, event(ENDPOINT_A, "process_start", "u", "powershell.exe", 10_000));
+        assertThat(rule.tracked()).isEqualTo(1);
+        assertThat(rule.matches()).isZero();
+    }
+
+    @Test
+    void firstSeen_learnsFirstThenAlertsOncePerNewUserProcessPair() {
+        DetectionRules rules = new DetectionRules(List.of(new FirstSeenProcessRule(60_000, 40, 1000)));
+        List<SecurityEvent> alerts = new ArrayList<>();
+        rules.evaluate(event(ENDPOINT_A, "process_start", "alice", "outlook.exe", 0), alerts);
+        rules.evaluate(event(ENDPOINT_A, "process_start", "alice", "chrome.exe", 30_000), alerts);
+        assertThat(alerts).isEmpty();
+
+        rules.evaluate(event(ENDPOINT_A, "process_start", "alice", "CHROME.EXE", 90_000), alerts);
+        rules.evaluate(event(ENDPOINT_B, "process_start", "alice", "powershell.exe", 90_000), alerts);
+        rules.evaluate(event(ENDPOINT_A, "process_start", "alice", "powershell.exe", 95_000), alerts);
+        rules.evaluate(event(ENDPOINT_A, "process_start", "bob", "powershell.exe", 95_000), alerts);
+        assertThat(alerts).extracting(SecurityEvent::userId).containsExactly("alice", "bob");
+        assertThat(alerts.get(0).alertReason()).isEqualTo("rule first-seen: first powershell.exe for user alice");
+        assertThat(alerts.get(0).alertScore()).isEqualTo(40);
+    }
+
+    @Test
+    void firstSeen_keepsRecentPairsWithinMaxPairs() {
+        FirstSeenProcessRule rule = new FirstSeenProcessRule(0, 40, 100);
+        for (int i = 0; i < 1000; i++) {
+            // "hot" is seen all the time and must never alert again; each cold pair alerts once.
+            evaluate(rule, event(ENDPOINT_A, "process_start", "u", "hot.exe", i));
+            evaluate(rule, event(ENDPOINT_A, "process_start", "u", "cold" + i + ".exe", i));
+            assertThat(rule.tracked()).isLessThanOrEqualTo(100);
+        }
+        assertThat(rule.matches()).isEqualTo(1 + 1000);
+    }
+
+    @Test
+    void parseBursts_rejectsMalformedEntries() {
+        assertThat(DetectionRules.parseBursts(" ; process_start:20:10000:C:\\tools\\*.exe ;", 70, 10))
+            .extracting(BurstRule::name).containsExactly("burst process_start C:\\tools\\*.exe >20/10000ms");
+        assertThatThrownBy(() -> DetectionRules.parseBursts("process_start:20:powershell.exe", 70, 10))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DetectionRules.parseBursts("process_start:many:10000:powershell.exe", 70, 10))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DetectionRules.parseBursts("process_start:0:10000:powershell.exe", 70, 10))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static SecurityEvent evaluate(DetectionRules.Rule rule, SecurityEvent event) {
+        long key = rule.key(event);
+        return key == 0 ? null : rule.evaluate(event, key);
+    }
+
+    private static SecurityEvent event(String endpointId, String eventType, String userId, String processName, long offsetMs) {
+        return new SecurityEvent(BASE.plusMillis(offsetMs), endpointId, eventType, userId, processName, false, null, null,
+            "cmd /c x", null, null, null, null, null);
+    }
+}
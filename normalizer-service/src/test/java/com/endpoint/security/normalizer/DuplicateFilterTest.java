@@ -0,0 +1,69 @@
+package com.endpoint.security.normalizer;
+
+import com.endpoint.security.normalizer.model.SecurityEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DuplicateFilterTest {
+
+    @Test
+    void duplicate_suppressedUntilItsBucketRotatesOut() {
+        DuplicateFilter filter = new DuplicateFilter(1000, 4, 100, 0.001);
+        assertThat(filter.firstSeen(42, 0)).isTrue();
+        assertThat(filter.firstSeen(42, 100)).isFalse();
+        assertThat(filter.firstSeen(42, 999)).isFalse(); // three rotations; the first bucket is still live
+        assertThat(filter.firstSeen(7, 999)).isTrue();
+        assertThat(filter.firstSeen(42, 1000)).isTrue(); // fourth rotation cleared it
+        assertThat(filter.firstSeen(42, 1000 + 60_000)).isTrue(); // an idle gap longer than the window clears all
+        assertThat(filter.suppressed()).isEqualTo(2);
+        assertThat(filter.checked()).isEqualTo(6);
+    }
+
+    @Test
+    void distinctEventsAtExpectedRate_stayWithinFalsePositiveBudget() {
+        double budget = 0.01;
+        DuplicateFilter filter = new DuplicateFilter(10_000, 5, 1000, budget);
+        Random random = new Random(1);
+        // 1000 distinct events/s for twice the window: every suppression is a false positive.
+        for (long ms = 0; ms < 20_000; ms++) {
+            filter.firstSeen(random.nextLong(), ms);
+        }
+        double observed = (double) filter.suppressed() / filter.checked();
+        assertThat(observed).isLessThan(budget);
+        assertThat(filter.estimatedFalsePositiveRate()).isBetween(budget / 3, budget * 1.5);
+
+        // Four times the expected rate overfills the filters, and the estimate reports it.
+        for (long ms = 20_000; ms < 30_000; ms++) {
+            for (int i = 0; i < 4; i++) filter.firstSeen(random.nextLong(), ms);
+        }
+        assertThat(filter.estimatedFalsePositiveRate()).isGreaterThan(budget);
+    }
+
+    @Test
+    void hash_coversEveryField() {
+        SecurityEvent base = new SecurityEvent(Instant.parse("2024-01-15T10:00:00.5Z"), "550e8400-e29b-41d4-a716-446655440000",
+            "process_start", "alice", "cmd.exe", true, 80, "reason", "cmd /c x", 4, "C:\\x", "ab", "10.0.0.1", 443);
+        assertThat(DuplicateFilter.hash(base)).isEqualTo(DuplicateFilter.hash(new SecurityEvent(base.timestamp(),
+            base.endpointId(), base.eventType(), base.userId(), base.processName(), base.isAlert(), base.alertScore(),
+            base.alertReason(), base.commandLine(), base.parentPid(), base.filePath(), base.sha256(), base.destIp(), base.destPort())));
+        SecurityEvent[] variants = {
+            new SecurityEvent(base.timestamp().plusNanos(1), base.endpointId(), base.eventType(), base.userId(), base.processName(),
+                base.isAlert(), base.alertScore(), base.alertReason(), base.commandLine(), base.parentPid(), base.filePath(),
+                base.sha256(), base.destIp(), base.destPort()),
+            new SecurityEvent(base.timestamp(), base.endpointId(), base.eventType(), "bob", base.processName(),
+                base.isAlert(), base.alertScore(), base.alertReason(), base.commandLine(), base.parentPid(), base.filePath(),
+                base.sha256(), base.destIp(), base.destPort()),
+            new SecurityEvent(base.timestamp(), base.endpointId(), base.eventType(), base.userId(), base.processName(),
+                base.isAlert(), base.alertScore(), base.alertReason(), null, base.parentPid(), base.filePath(),
+                base.sha256(), base.destIp(), base.destPort()),
+            new SecurityEvent(base.timestamp(), base.endpointId(), base.eventType(), base.userId(), base.processName(),
+                base.isAlert(), base.alertScore(), base.alertReason(), base.commandLine(), base.parentPid(), base.filePath(),
+                base.sha256(), base.destIp(), 444),
+        };
+        for (SecurityEvent v : variants) assertThat(DuplicateFilter.hash(v)).isNotEqualTo(DuplicateFilter.hash(base));
+    }
+}
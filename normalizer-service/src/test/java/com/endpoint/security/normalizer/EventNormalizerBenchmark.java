@@ -0,0 +1,112 @@
+package com.endpoint.security.normalizer;
+
+import com.endpoint.security.normalizer.model.SecurityEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Tree-based normalization ({@code readTree} + {@link EventNormalizer#normalize(com.fasterxml.jackson.databind.JsonNode)},
+ * the original runner path) against the single-pass streaming {@link EventNormalizer#normalize(byte[], int, int)}
+ * and the same with {@link ShapeDecoders} on the same batch of encoded raw events (camelCase and snake_case,
+ * minimal and payload-carrying, ~3% alerts).
+ * Scores are events/s; add {@code -prof gc} for bytes allocated per event.
+ * <p>
+ * Run with: {@code mvn -pl normalizer-service test-compile exec:exec -Dexec.executable=java
+ * -Dexec.classpathScope=test -Dexec.args="-cp %classpath org.openjdk.jmh.Main EventNormalizerBenchmark"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventNormalizerBenchmark {
+
+    private static final int BATCH = 1024;
+    private static final String[] TYPES = {"process_start", "file_access", "network_connection"};
+    private static final String[] PROCESSES = {"chrome.exe", "powershell.exe", "explorer.exe", "python3", "sshd"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final EventNormalizer normalizer = new EventNormalizer(Set.of("system_idle_process", "svchost.exe"));
+    private final EventNormalizer shaped = new EventNormalizer(
+        new ProcessDenylist(List.of("system_idle_process", "svchost.exe"), null, 0), new ShapeDecoders(64, 16));
+    private byte[][] lines;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(42);
+        lines = new byte[BATCH][];
+        for (int i = 0; i < BATCH; i++) {
+            boolean snake = random.nextInt(4) == 0;
+            StringBuilder sb = new StringBuilder("{");
+            sb.append("\"timestamp\":\"2024-01-15T10:").append(10 + random.nextInt(50)).append(":00.123Z\"");
+            sb.append(snake ? ",\"endpoint_id\":\"" : ",\"endpointId\":\"").append(UUID.randomUUID()).append('"');
+            sb.append(snake ? ",\"event_type\":\"" : ",\"eventType\":\"").append(TYPES[random.nextInt(TYPES.length)]).append('"');
+            sb.append(snake ? ",\"user\":\"" : ",\"userId\":\"").append("user").append(random.nextInt(500)).append('"');
+            sb.append(snake ? ",\"process\":\"" : ",\"processName\":\"").append(PROCESSES[random.nextInt(PROCESSES.length)]).append('"');
+            if (random.nextInt(100) < 3) {
+                sb.append(",\"alertScore\":").append(50 + random.nextInt(50)).append(",\"alertReason\":\"Suspicious activity\"");
+            }
+            if (random.nextBoolean()) {
+                sb.append(",\"commandLine\":\"C:\\\\Windows\\\\System32\\\\cmd.exe /c ").append("x".repeat(200 + random.nextInt(600))).append('"');
+                sb.append(",\"parentPid\":").append(random.nextInt(65536));
+                sb.append(",\"filePath\":\"C:\\\\Users\\\\user\\\\AppData\\\\Local\\\\Temp\\\\f").append(random.nextInt(10000)).append(".tmp\"");
+                sb.append(",\"sha256\":\"").append("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855").append('"');
+                sb.append(",\"destIp\":\"10.0.").append(random.nextInt(256)).append('.').append(random.nextInt(256)).append('"');
+                sb.append(",\"destPort\":").append(443);
+            }
+            lines[i] = sb.append('}').toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /** Original path: full JsonNode tree per line, then keyed lookups. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void tree(Blackhole bh) throws IOException {
+        for (byte[] line : lines) {
+            SecurityEvent ev = normalizer.normalize(objectMapper.readTree(line, 0, line.length));
+            bh.consume(ev);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void streaming(Blackhole bh) throws IOException {
+        for (byte[] line : lines) {
+            bh.consume(normalizer.normalize(line, 0, line.length));
+        }
+    }
+
+    /** Streaming with learned shape decoders; the batch has eight key layouts, learned during warm-up. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void shapes(Blackhole bh) throws IOException {
+        for (byte[] line : lines) {
+            bh.consume(shaped.normalize(line, 0, line.length));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EventNormalizerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
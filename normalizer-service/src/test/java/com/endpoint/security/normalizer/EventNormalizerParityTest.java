@@ -0,0 +1,190 @@
+package com.endpoint.security.normalizer;
+
+import com.endpoint.security.normalizer.model.SecurityEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Random raw events, valid and messy, normalized by {@link LegacyEventNormalizer} and by both
+ * {@link EventNormalizer} paths (tree and streaming bytes); all three must agree.
+ */
+class EventNormalizerParityTest {
+
+    private static final String[] KEYS = {
+        "endpointId", "endpoint_id", "eventType", "event_type", "userId", "user", "processName", "process",
+        "timestamp", "alertScore", "alertReason", "commandLine", "command_line", "parentPid", "parent_pid",
+        "filePath", "file_path", "sha256", "destIp", "dest_ip", "destPort", "dest_port", "hostname", "tags"
+    };
+    private static final String[] VALUES = {
+        "\"550e8400-e29b-41d4-a716-446655440000\"", "\"550E8400-E29B-41D4-A716-446655440000\"", "\" 550e8400-e29b-41d4-a716-446655440000 \"",
+        "\"550e8400e29b41d4a716446655440000\"", "\"1-2-3-4-5\"", "\"not-a-uuid\"",
+        "\"process_start\"", "\"FILE_ACCESS\"", "\" network_connection \"", "\"login\"",
+        "\"cmd.exe\"", "\"svchost.exe\"", "\" SVCHOST.EXE \"", "\"caf\\u00e9.exe\"", "\"a\\\"b\"",
+        "\"2024-01-15T10:00:00Z\"", "\"2024-01-15T10:00:00.123456789Z\"", "\"2024-01-15T10:00:00+02:00\"",
+        "\"2024-01-15 10:00:00Z\"", "\"2024-01-15T10:00:00\"", "\"2024-01-15\"", "\"yesterday\"",
+        "1705312800", "1705312800123", "1705312800.5", "-5", "0", "99999999999999999999", "1e3",
+        "50", "100", "101", "\"50\"", "\" 42 \"", "\"50.7\"", "50.9", "4294967346", "true", "false",
+        "443", "\"8080\"", "65536", "443.9", "\"x\"", "\"\"", "\"   \"",
+        "\"E3B0C44298FC1C149AFBF4C8996FB92427AE41E4649B934CA495991B7852B855\"", "\"e3b0c442\"",
+        "null", "{}", "{\"a\":[1,{\"b\":null}]}", "[1,2]", "[]"
+    };
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Set<String> denylist = Set.of("system_idle_process", "svchost.exe");
+    private final LegacyEventNormalizer legacy = new LegacyEventNormalizer(denylist);
+    private final EventNormalizer normalizer = new EventNormalizer(denylist);
+
+    /** Values the shape fast path decodes itself; the first six make a valid event in snake_case layout order. */
+    private static final String[] PLAIN_VALUES = {
+        "\"550e8400-e29b-41d4-a716-446655440000\"", "\"process_start\"", "\"alice\"", "\"cmd.exe\"",
+        "\"2024-01-15T10:00:00Z\"", "1705312800", "\"file_access\"", "\"svchost.exe\"", "-5", "0", "50", "443",
+        "true", "false", "null", "\"\"", "123456789012345678", "\"C:\\\\Windows\\\\cmd.exe\"", "\"a\\tb\\n\\\"c\\/\""
+    };
+
+    @Test
+    void randomEvents_allPathsAgreeWithLegacy() throws Exception {
+        Random random = new Random(20240115);
+        int accepted = 0;
+        for (int i = 0; i < 20_000; i++) {
+            String line = randomEvent(random);
+            if (compare(line)) accepted++;
+        }
+        assertThat(accepted).isGreaterThan(100); // the corpus must exercise the accepting path too
+    }
+
+    @Test
+    void recurringShapes_fastPathAgreesWithLegacy() throws Exception {
+        ShapeDecoders shapes = new ShapeDecoders(64, 4);
+        EventNormalizer shaped = new EventNormalizer(new ProcessDenylist(List.copyOf(denylist), null, 0), shapes);
+        Random random = new Random(19);
+        String[][] layouts = new String[6][];
+        for (int l = 0; l < layouts.length; l++) {
+            layouts[l] = new String[4 + random.nextInt(9)];
+            for (int k = 0; k < layouts[l].length; k++) layouts[l][k] = KEYS[random.nextInt(KEYS.length)];
+        }
+        layouts[0] = new String[]{"endpoint_id", "event_type", "user", "process", "timestamp", "parent_pid"};
+        int lines = 20_000;
+        int accepted = 0;
+        for (int i = 0; i < lines; i++) {
+            String[] layout = layouts[random.nextInt(layouts.length)];
+            StringBuilder sb = new StringBuilder("{");
+            for (int k = 0; k < layout.length; k++) {
+                if (k > 0) sb.append(',');
+                // Mostly values the fast path takes, some it must hand to the generic path.
+                String value = random.nextInt(3) > 0
+                    ? (layout == layouts[0] ? PLAIN_VALUES[k] : PLAIN_VALUES[random.nextInt(PLAIN_VALUES.length)])
+                    : VALUES[random.nextInt(VALUES.length)];
+                sb.append('"').append(layout[k]).append("\":").append(value);
+            }
+            if (compare(sb.append('}').toString(), shaped)) accepted++;
+        }
+        assertThat(accepted).isGreaterThan(500);
+        assertThat(shapes.shapeCount()).isEqualTo(layouts.length);
+        assertThat(shapes.fastLines()).isGreaterThan(lines / 10);
+        assertThat(shapes.fastLines() + shapes.genericLines()).isEqualTo(lines);
+    }
+
+    @Test
+    void edgeCases_allPathsAgreeWithLegacy() throws Exception {
+        String valid = "\"endpointId\":\"550e8400-e29b-41d4-a716-446655440000\",\"eventType\":\"process_start\","
+            + "\"userId\":\"u\",\"processName\":\"cmd.exe\"";
+        for (String line : new String[]{
+            "{" + valid + "}",
+            "{" + valid + ",\"endpointId\":null,\"endpoint_id\":\"550e8400-e29b-41d4-a716-446655440000\"}",
+            "{\"endpoint_id\":\"550e8400-e29b-41d4-a716-446655440000\"," + valid + "}",
+            "{" + valid + ",\"userId\":7,\"alertScore\":\"75\",\"alertReason\":{\"x\":1}}",
+            "{" + valid + "} trailing",
+            "[" + "{" + valid + "}]",
+            "\"string\"",
+            "null",
+            "{" + valid + ",\"timestamp\":",
+            "{" + valid + ",\"timestamp\":\"2024-01-15T10:00:00Z\",\"timestamp\":null}",
+        }) {
+            compare(line);
+        }
+    }
+
+    /** Returns whether the line was accepted. */
+    private boolean compare(String line) throws Exception {
+        return compare(line, normalizer);
+    }
+
+    private boolean compare(String line, EventNormalizer normalizer) throws Exception {
+        Instant before = Instant.now();
+        Outcome expected;
+        try {
+            expected = Outcome.of(legacy.normalize(mapper.readTree(line)));
+        } catch (Exception e) {
+            expected = Outcome.FAILED;
+        }
+        Outcome tree;
+        try {
+            JsonNode node = mapper.readTree(line);
+            tree = Outcome.of(normalizer.normalize(node));
+        } catch (Exception e) {
+            tree = Outcome.FAILED;
+        }
+        Outcome streamed;
+        try {
+            byte[] bytes = ("  " + line + "  ").getBytes(StandardCharsets.UTF_8);
+            streamed = Outcome.of(normalizer.normalize(bytes, 2, bytes.length - 4));
+        } catch (Exception e) {
+            streamed = Outcome.FAILED;
+        }
+        Instant after = Instant.now();
+
+        assertThat(tree.matches(expected, before, after)).as("tree path for %s: %s vs %s", line, tree, expected).isTrue();
+        assertThat(streamed.matches(expected, before, after)).as("streaming path for %s: %s vs %s", line, streamed, expected).isTrue();
+        return expected.event != null;
+    }
+
+    private static String randomEvent(Random random) {
+        StringBuilder sb = new StringBuilder("{");
+        int fields = 3 + random.nextInt(10);
+        for (int f = 0; f < fields; f++) {
+            if (f > 0) sb.append(',');
+            // Bias towards a complete valid event so the accepting path is exercised.
+            String key = f < 4 && random.nextInt(4) > 0
+                ? new String[]{"endpointId", "eventType", "userId", "processName"}[f]
+                : KEYS[random.nextInt(KEYS.length)];
+            String value = switch (key) {
+                case "endpointId" -> random.nextInt(4) > 0 ? VALUES[0] : VALUES[random.nextInt(VALUES.length)];
+                case "eventType" -> random.nextInt(4) > 0 ? VALUES[6 + random.nextInt(3)] : VALUES[random.nextInt(VALUES.length)];
+                default -> VALUES[random.nextInt(VALUES.length)];
+            };
+            sb.append('"').append(key).append("\":").append(value);
+        }
+        return sb.append('}').toString();
+    }
+
+    /** A normalization result; a fallback timestamp (now) only has to fall inside the call window. */
+    private record Outcome(SecurityEvent event, boolean failed) {
+        static final Outcome FAILED = new Outcome(null, true);
+
+        static Outcome of(SecurityEvent event) {
+            return new Outcome(event, false);
+        }
+
+        boolean matches(Outcome expected, Instant before, Instant after) {
+            if (failed != expected.failed) return false;
+            if (event == null || expected.event == null) return event == expected.event;
+            SecurityEvent a = event;
+            SecurityEvent b = expected.event;
+            boolean bothNow = !a.timestamp().isBefore(before) && !a.timestamp().isAfter(after)
+                && !b.timestamp().isBefore(before) && !b.timestamp().isAfter(after);
+            return (bothNow || a.timestamp().equals(b.timestamp()))
+                && new SecurityEvent(b.timestamp(), a.endpointId(), a.eventType(), a.userId(), a.processName(),
+                    a.isAlert(), a.alertScore(), a.alertReason(), a.commandLine(), a.parentPid(), a.filePath(),
+                    a.sha256(), a.destIp(), a.destPort()).equals(b);
+        }
+    }
+}
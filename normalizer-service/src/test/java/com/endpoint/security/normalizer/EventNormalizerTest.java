@@ -5,10 +5,14 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.List;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class EventNormalizerTest {
 
@@ -109,4 +113,58 @@ class EventNormalizerTest {
         assertThat(ev).isNotNull();
         assertThat(ev.processName()).isEqualTo("system_idle_process");
     }
+
+    @Test
+    void normalize_carriesOptionalPayloadFields() throws Exception {
+        String json = "{\"timestamp\":\"2024-01-15T10:00:00Z\",\"endpoint_id\":\"550e8400-e29b-41d4-a716-446655440000\",\"event_type\":\"NETWORK_CONNECTION\",\"user\":\"u1\",\"process\":\"chrome.exe\","
+            + "\"commandLine\":\"\\\"C:\\\\chrome.exe\\\" --type=renderer\",\"parent_pid\":\"4120\",\"filePath\":\"C:\\\\Users\\\\u1\\\\a.tmp\","
+            + "\"sha256\":\"" + "AB".repeat(32) + "\",\"destIp\":\"10.1.2.3\",\"destPort\":443}";
+        SecurityEvent ev = normalizer.normalize(mapper.readTree(json));
+        assertThat(ev).isNotNull();
+        assertThat(ev.commandLine()).isEqualTo("\"C:\\chrome.exe\" --type=renderer");
+        assertThat(ev.parentPid()).isEqualTo(4120);
+        assertThat(ev.filePath()).isEqualTo("C:\\Users\\u1\\a.tmp");
+        assertThat(ev.sha256()).isEqualTo("ab".repeat(32));
+        assertThat(ev.destIp()).isEqualTo("10.1.2.3");
+        assertThat(ev.destPort()).isEqualTo(443);
+    }
+
+    @Test
+    void normalize_dropsMalformedPayloadButKeepsEvent() throws Exception {
+        String json = "{\"timestamp\":\"2024-01-15T10:00:00Z\",\"endpointId\":\"550e8400-e29b-41d4-a716-446655440000\",\"eventType\":\"file_access\",\"userId\":\"u1\",\"processName\":\"cmd.exe\","
+            + "\"sha256\":\"not-a-hash\",\"destPort\":70000,\"parentPid\":\"abc\"}";
+        SecurityEvent ev = normalizer.normalize(mapper.readTree(json));
+        assertThat(ev).isNotNull();
+        assertThat(ev.sha256()).isNull();
+        assertThat(ev.destPort()).isNull();
+        assertThat(ev.parentPid()).isNull();
+        assertThat(new ObjectMapper().registerModule(new com.fasterxml.jackson.datatype.jsr310.JavaTimeModule())
+            .writeValueAsString(ev)).doesNotContain("sha256", "destPort", "parentPid", "commandLine");
+    }
+
+    @Test
+    void normalize_countsEachDroppedLineByReason() throws Exception {
+        Rejections rejections = new Rejections();
+        EventNormalizer counted = new EventNormalizer(new ProcessDenylist(List.of("svchost.exe"), null, 0), null, rejections);
+        String valid = "\"endpointId\":\"550e8400-e29b-41d4-a716-446655440000\",\"eventType\":\"process_start\",\"userId\":\"u\"";
+        String[] lines = {
+            "{" + valid + ",\"processName\":\"cmd.exe\"}",
+            "{" + valid + ",\"processName\":\"svchost.exe\"}",
+            "{" + valid + ",\"processName\":\"cmd.exe\",\"alertScore\":0}",
+            "{" + valid + "}",
+            "{" + valid.replace("550e8400", "xyz") + ",\"processName\":\"cmd.exe\"}",
+            "{" + valid.replace("process_start", "logon") + ",\"processName\":\"cmd.exe\"}",
+            "[1,2]",
+        };
+        for (String line : lines) {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            counted.normalize(bytes, 0, bytes.length);
+        }
+        byte[] truncated = "{\"endpointId\":".getBytes(StandardCharsets.UTF_8);
+        assertThatThrownBy(() -> counted.normalize(truncated, 0, truncated.length)).isInstanceOf(IOException.class);
+
+        assertThat(rejections.summary()).isEqualTo(
+            "malformed_json=2, missing_field=1, bad_uuid=1, unknown_event_type=1, denylisted=1, score_out_of_range=1");
+        assertThat(rejections.total()).isEqualTo(lines.length);
+    }
 }
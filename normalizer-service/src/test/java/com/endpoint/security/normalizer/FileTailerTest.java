@@ -0,0 +1,210 @@
+package com.endpoint.security.normalizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileTailerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void poll_holdsBackPartialLineAndCountsBytesNotChars() throws Exception {
+        Path raw = tempDir.resolve("raw-events.ndjson");
+        String first = "{\"processName\":\"Café-Überwachung.exe\"}";
+        append(raw, first + "\r\n\n{\"processName\":\"par");
+        List<String> lines = new ArrayList<>();
+        try (FileTailer tailer = new FileTailer(raw, null, 16)) {
+            assertThat(tailer.poll(collect(lines))).isEqualTo(1);
+            assertThat(lines).containsExactly(first);
+            assertThat(tailer.offset()).isEqualTo(first.getBytes(StandardCharsets.UTF_8).length + 3);
+
+            assertThat(tailer.poll(collect(lines))).isZero();
+            append(raw, "tial\"}\n");
+            assertThat(tailer.poll(collect(lines))).isEqualTo(1);
+            assertThat(lines).containsExactly(first, "{\"processName\":\"partial\"}");
+            assertThat(tailer.offset()).isEqualTo(Files.size(raw));
+        }
+    }
+
+    @Test
+    void checkpoint_resumesAfterRestartWithoutRepeatingLines() throws Exception {
+        Path raw = tempDir.resolve("raw-events.ndjson");
+        Path checkpoint = tempDir.resolve("normalized-events.ndjson.checkpoint");
+        append(raw, "{\"n\":1}\n{\"n\":2}\n");
+        List<String> lines = new ArrayList<>();
+        try (FileTailer tailer = new FileTailer(raw, checkpoint, 1024)) {
+            tailer.poll(collect(lines));
+            tailer.checkpoint();
+            append(raw, "{\"n\":3}\n");
+            tailer.poll(collect(lines));
+            // Crash before this line's output was flushed: no checkpoint for n=3.
+        }
+        assertThat(lines).containsExactly("{\"n\":1}", "{\"n\":2}", "{\"n\":3}");
+        assertThat(Files.exists(Path.of(checkpoint + ".tmp"))).isFalse();
+
+        lines.clear();
+        append(raw, "{\"n\":4}\n");
+        try (FileTailer tailer = new FileTailer(raw, checkpoint, 1024)) {
+            assertThat(tailer.committedOffset()).isEqualTo(16);
+            tailer.poll(collect(lines));
+            tailer.checkpoint();
+        }
+        assertThat(lines).containsExactly("{\"n\":3}", "{\"n\":4}");
+
+        lines.clear();
+        try (FileTailer tailer = new FileTailer(raw, checkpoint, 1024)) {
+            assertThat(tailer.poll(collect(lines))).isZero();
+        }
+        assertThat(lines).isEmpty();
+    }
+
+    @Test
+    void checkpoint_takenOnAnotherFileIsIgnored() throws Exception {
+        Path first = tempDir.resolve("raw-events-000000.ndjson");
+        Path second = tempDir.resolve("raw-events-000001.ndjson");
+        Path checkpoint = tempDir.resolve("normalized-events.ndjson.checkpoint");
+        append(first, "{\"n\":1}\n{\"n\":2}\n");
+        append(second, "{\"n\":3}\n");
+        try (FileTailer tailer = new FileTailer(first, checkpoint, 1024)) {
+            tailer.poll((bytes, offset, length) -> true);
+            tailer.checkpoint();
+        }
+
+        List<String> lines = new ArrayList<>();
+        try (FileTailer tailer = new FileTailer(second, checkpoint, 1024)) {
+            assertThat(tailer.committedOffset()).isEqualTo(-1);
+            tailer.poll(collect(lines));
+        }
+        assertThat(lines).containsExactly("{\"n\":3}");
+    }
+
+    @Test
+    void poll_restartsFromZeroWhenFileIsTruncatedOrReplaced() throws Exception {
+        Path raw = tempDir.resolve("raw-events.ndjson");
+        append(raw, "{\"n\":1}\n{\"n\":2}\n");
+        List<String> lines = new ArrayList<>();
+        try (FileTailer tailer = new FileTailer(raw, null, 1024)) {
+            tailer.poll(collect(lines));
+
+            Files.writeString(raw, "{\"n\":9}\n", StandardOpenOption.TRUNCATE_EXISTING);
+            lines.clear();
+            tailer.poll(collect(lines));
+            assertThat(lines).containsExactly("{\"n\":9}");
+
+            Files.delete(raw);
+            append(raw, "{\"n\":10}\n{\"n\":11}\n");
+            lines.clear();
+            tailer.poll(collect(lines)); // different inode, so the new file is read from the start
+            tailer.poll(collect(lines));
+            assertThat(lines).containsExactly("{\"n\":10}", "{\"n\":11}");
+        }
+    }
+
+    @Test
+    void poll_readsLinesLongerThanTheBufferWhole() throws Exception {
+        Path raw = tempDir.resolve("raw-events.ndjson");
+        String longLine = "{\"commandLine\":\"" + "x".repeat(5000) + "\"}";
+        append(raw, "{\"n\":1}\n" + longLine + "\n{\"n\":2}\n");
+        List<String> lines = new ArrayList<>();
+        try (FileTailer tailer = new FileTailer(raw, null, 64)) {
+            while (tailer.offset() < Files.size(raw)) {
+                tailer.poll(collect(lines));
+            }
+        }
+        assertThat(lines).containsExactly("{\"n\":1}", longLine, "{\"n\":2}");
+    }
+
+    @Test
+    void poll_linesSplitAcrossBufferAndWrites_comeOutWholeWithExactOffsets() throws Exception {
+        Path raw = tempDir.resolve("raw-events.ndjson");
+        Random random = new Random(11);
+        List<String> written = new ArrayList<>();
+        List<Long> writtenEnds = new ArrayList<>();
+        StringBuilder pending = new StringBuilder();
+        List<String> lines = new ArrayList<>();
+        int[] stopEvery = {0};
+        FileTailer.LineHandler handler = (bytes, offset, length) -> {
+            lines.add(new String(bytes, offset, length, StandardCharsets.UTF_8));
+            return ++stopEvery[0] % 7 != 0; // stop now and then, as ingestion does at its per-poll limit
+        };
+        try (FileTailer tailer = new FileTailer(raw, null, 48)) {
+            for (int round = 0; round < 300; round++) {
+                if (pending.isEmpty() || random.nextBoolean()) {
+                    String line = "{\"n\":" + round + ",\"pad\":\"" + "é".repeat(random.nextInt(40)) + "\"}";
+                    String terminator = random.nextInt(4) == 0 ? "\r\n" : "\n";
+                    long start = writtenEnds.isEmpty() ? 0 : writtenEnds.get(writtenEnds.size() - 1);
+                    written.add(line);
+                    writtenEnds.add(start + (line + terminator).getBytes(StandardCharsets.UTF_8).length);
+                    pending.append(line).append(terminator);
+                }
+                // Append a random prefix of what is pending, often cutting a line (or a UTF-8 sequence) in two.
+                int cut = random.nextInt(pending.length() + 1);
+                append(raw, pending.substring(0, cut));
+                pending.delete(0, cut);
+                tailer.poll(handler);
+                assertThat(tailer.offset()).isEqualTo(lines.isEmpty() ? 0 : writtenEnds.get(lines.size() - 1));
+            }
+            append(raw, pending.toString());
+            for (int i = 0; i < 100 && tailer.offset() < Files.size(raw); i++) tailer.poll(handler);
+        }
+        assertThat(lines).isEqualTo(written);
+
+        // Lines left over by a stop are handed out by the next poll even if nothing new arrives.
+        Path small = tempDir.resolve("small.ndjson");
+        append(small, "{\"n\":1}\n{\"n\":2}\n{\"n\":3}");
+        lines.clear();
+        try (FileTailer tailer = new FileTailer(small, null, 1024)) {
+            FileTailer.LineHandler oneAtATime = (bytes, offset, length) -> {
+                lines.add(new String(bytes, offset, length, StandardCharsets.UTF_8));
+                return false;
+            };
+            for (int i = 0; i < 3; i++) tailer.poll(oneAtATime);
+            assertThat(lines).containsExactly("{\"n\":1}", "{\"n\":2}");
+            append(small, "}\n");
+            tailer.poll(collect(lines));
+        }
+        assertThat(lines).containsExactly("{\"n\":1}", "{\"n\":2}", "{\"n\":3}}");
+    }
+
+    @Test
+    void indexOfNewline_matchesBytewiseSearch() {
+        Random random = new Random(3);
+        for (int round = 0; round < 2000; round++) {
+            byte[] b = new byte[random.nextInt(40)];
+            for (int i = 0; i < b.length; i++) {
+                int r = random.nextInt(10);
+                b[i] = (byte) (r == 0 ? '\n' : r == 1 ? 0x0B : r == 2 ? 0x8A : r == 3 ? 0x09 : random.nextInt(256));
+            }
+            int from = b.length == 0 ? 0 : random.nextInt(b.length + 1);
+            int to = from + random.nextInt(b.length - from + 1);
+            int expected = -1;
+            for (int i = from; i < to; i++) {
+                if (b[i] == '\n') {
+                    expected = i;
+                    break;
+                }
+            }
+            assertThat(FileTailer.indexOfNewline(b, from, to)).isEqualTo(expected);
+        }
+    }
+
+    private static FileTailer.LineHandler collect(List<String> lines) {
+        return (bytes, offset, length) -> lines.add(new String(bytes, offset, length, StandardCharsets.UTF_8));
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.writeString(file, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
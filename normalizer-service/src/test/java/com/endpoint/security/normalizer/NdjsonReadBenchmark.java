@@ -0,0 +1,193 @@
+package com.endpoint.security.normalizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a whole NDJSON file line by line, handing each line on as bytes:
+ * <ul>
+ *   <li>{@code bufferedReader}: {@code BufferedReader.readLine()} plus {@code getBytes(UTF_8)}, the runners' original
+ *       read path (a {@code String} and a {@code byte[]} per line)</li>
+ *   <li>{@code bytewiseScan}: {@code FileChannel} reads into one buffer, tested for {@code '\n'} a byte at a time
+ *       (the first byte-range {@link FileTailer})</li>
+ *   <li>{@code fileTailer}: {@link FileTailer} as the runners use it, searching eight bytes at a time</li>
+ *   <li>{@code mmap}: the same search over a mapped file without copying; for reference, since the parser needs the
+ *       line in a heap array anyway</li>
+ * </ul>
+ * Scores are ms per file of {@code fileMb} MB (~300-byte events, some non-ASCII), read from the page cache;
+ * throughput is {@code fileMb * 1000 / score} MB/s. The file is generated once per trial in the temp directory.
+ * <p>
+ * Run with: {@code mvn -pl normalizer-service test-compile exec:exec -Dexec.executable=java
+ * -Dexec.classpathScope=test -Dexec.args="-cp %classpath org.openjdk.jmh.Main NdjsonReadBenchmark"}
+ * (add {@code -p fileMb=8192} for a larger file).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class NdjsonReadBenchmark {
+
+    private static final int BUFFER_BYTES = 1024 * 1024;
+    private static final String[] TYPES = {"process_start", "file_access", "network_connection"};
+
+    @Param({"2048"})
+    public int fileMb;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("ndjson-read-benchmark", ".ndjson");
+        Random random = new Random(42);
+        long target = (long) fileMb * 1024 * 1024;
+        long written = 0;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 20)) {
+            while (written < target) {
+                StringBuilder sb = new StringBuilder("{");
+                sb.append("\"timestamp\":\"2024-01-15T10:").append(10 + random.nextInt(50)).append(":00.123Z\"");
+                sb.append(",\"endpointId\":\"").append(UUID.randomUUID()).append('"');
+                sb.append(",\"eventType\":\"").append(TYPES[random.nextInt(TYPES.length)]).append('"');
+                sb.append(",\"userId\":\"").append(random.nextInt(10) == 0 ? "jürgen" : "user").append(random.nextInt(500)).append('"');
+                sb.append(",\"processName\":\"proc").append(random.nextInt(50)).append(".exe\",\"isAlert\":false");
+                if (random.nextBoolean()) {
+                    sb.append(",\"commandLine\":\"C:\\\\Windows\\\\System32\\\\cmd.exe /c ").append("x".repeat(random.nextInt(200))).append('"');
+                }
+                byte[] line = sb.append("}\n").toString().getBytes(StandardCharsets.UTF_8);
+                out.write(line);
+                written += line.length;
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long bufferedReader(Blackhole bh) throws IOException {
+        long bytes = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                byte[] b = line.getBytes(StandardCharsets.UTF_8);
+                bh.consume(b);
+                bytes += b.length + 1;
+            }
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public long bytewiseScan(Blackhole bh) throws IOException {
+        byte[] buffer = new byte[BUFFER_BYTES];
+        long position = 0;
+        long lines = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int length = 0;
+            int n;
+            while ((n = channel.read(ByteBuffer.wrap(buffer, length, buffer.length - length), position + length)) > 0) {
+                length += n;
+                int lineStart = 0;
+                for (int i = 0; i < length; i++) {
+                    if (buffer[i] != '\n') continue;
+                    bh.consume(buffer[lineStart]);
+                    lines++;
+                    lineStart = i + 1;
+                }
+                position += lineStart;
+                System.arraycopy(buffer, lineStart, buffer, 0, length - lineStart);
+                length -= lineStart;
+            }
+        }
+        return lines;
+    }
+
+    @Benchmark
+    public long fileTailer(Blackhole bh) throws IOException {
+        long lines = 0;
+        try (FileTailer tailer = new FileTailer(file, null, BUFFER_BYTES)) {
+            FileTailer.LineHandler handler = (bytes, offset, length) -> {
+                bh.consume(bytes[offset]);
+                return true;
+            };
+            int n;
+            while ((n = tailer.poll(handler)) > 0) lines += n;
+        }
+        return lines;
+    }
+
+    @Benchmark
+    public long mmap(Blackhole bh) throws IOException {
+        long lines = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, 1L << 30));
+                map.order(ByteOrder.LITTLE_ENDIAN);
+                int lineStart = 0;
+                int newline;
+                while ((newline = indexOfNewline(map, lineStart, map.limit())) >= 0) {
+                    bh.consume(map.get(lineStart));
+                    lines++;
+                    lineStart = newline + 1;
+                }
+                if (lineStart == 0) break;
+                position += lineStart; // a line cut by the region end is mapped again from its start
+            }
+        }
+        return lines;
+    }
+
+    /** {@link FileTailer#indexOfNewline} over a (mapped) buffer. */
+    private static int indexOfNewline(ByteBuffer b, int from, int to) {
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = b.getLong(i) ^ 0x0A0A0A0A0A0A0A0AL;
+            long found = (word - 0x0101010101010101L) & ~word & 0x8080808080808080L;
+            if (found != 0) return i + (Long.numberOfTrailingZeros(found) >>> 3);
+        }
+        for (; i < to; i++) {
+            if (b.get(i) == '\n') return i;
+        }
+        return -1;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NdjsonReadBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,99 @@
+package com.endpoint.security.normalizer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Throughput curve of {@link NormalizationPipeline} by worker count: each invocation pushes a batch of raw
+ * lines through reader, workers and sequencer and waits for the (discarding) sink to receive all of it.
+ * {@code workers=0} is the single-threaded path. Scores are lines/s; on an N-core host the curve should
+ * flatten near {@code workers=N-1} (the reader and sequencer take the rest). {@code rules=true} adds a burst rule
+ * and the first-seen rule (learning period off), which the sequencer evaluates on every event.
+ * <p>
+ * Run with: {@code mvn -pl normalizer-service test-compile exec:exec -Dexec.executable=java
+ * -Dexec.classpathScope=test -Dexec.args="-cp %classpath org.openjdk.jmh.Main NormalizationPipelineBenchmark"}
+ * (add {@code -p workers=0,2,6,14} for other points, {@code -p rules=false,true} for the rule cost).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NormalizationPipelineBenchmark {
+
+    private static final int BATCH = 16_384;
+    private static final String[] TYPES = {"process_start", "file_access", "network_connection"};
+
+    @Param({"0", "1", "2", "4", "8", "16"})
+    public int workers;
+
+    @Param({"false"})
+    public boolean rules;
+
+    private byte[][] lines;
+    private NormalizationPipeline pipeline;
+    private volatile long sinkBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        lines = new byte[BATCH][];
+        for (int i = 0; i < BATCH; i++) {
+            StringBuilder sb = new StringBuilder("{");
+            sb.append("\"timestamp\":\"2024-01-15T10:").append(10 + random.nextInt(50)).append(":00.123Z\"");
+            sb.append(",\"endpointId\":\"").append(UUID.randomUUID()).append('"');
+            sb.append(",\"eventType\":\"").append(TYPES[random.nextInt(TYPES.length)]).append('"');
+            sb.append(",\"userId\":\"user").append(random.nextInt(500)).append('"');
+            sb.append(",\"processName\":\"proc").append(random.nextInt(50)).append(".exe\"");
+            if (random.nextBoolean()) {
+                sb.append(",\"commandLine\":\"C:\\\\Windows\\\\System32\\\\cmd.exe /c ").append("x".repeat(200 + random.nextInt(600))).append('"');
+                sb.append(",\"parentPid\":").append(random.nextInt(65536));
+            }
+            lines[i] = sb.append('}').toString().getBytes(StandardCharsets.UTF_8);
+        }
+        pipeline = new NormalizationPipeline(new EventNormalizer(Set.of("svchost.exe")),
+            new ObjectMapper().registerModule(new JavaTimeModule()),
+            (ndjson, ends, count) -> sinkBytes += ends[count - 1], workers, 512, 32, 64, null, null,
+            rules ? new DetectionRules(List.of(new BurstRule("process_start", "proc1*.exe", 20, 10_000, 70, 200_000),
+                new FirstSeenProcessRule(0, 40, 1_000_000))) : null, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pipeline.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long batch() throws Exception {
+        for (byte[] line : lines) pipeline.accept(line, 0, line.length);
+        pipeline.sync();
+        return sinkBytes;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NormalizationPipelineBenchmark.class.getSimpleName()).build()).run();
+    }
+}
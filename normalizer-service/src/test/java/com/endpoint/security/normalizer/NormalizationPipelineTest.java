@@ -0,0 +1,200 @@
+package com.endpoint.security.normalizer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.time.Instant;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NormalizationPipelineTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final EventNormalizer normalizer = new EventNormalizer(Set.of("svchost.exe"));
+
+    @Test
+    void workers_writeSameOutputInInputOrderAsInline() throws Exception {
+        List<byte[]> lines = new ArrayList<>();
+        int valid = 0;
+        for (int i = 0; i < 5000; i++) {
+            String process = i % 7 == 0 ? "svchost.exe" : "p" + i + ".exe"; // every 7th line is dropped
+            String line = i % 11 == 0 ? "{not json" : "{\"endpointId\":\"550e8400-e29b-41d4-a716-446655440000\","
+                + "\"eventType\":\"process_start\",\"userId\":\"u" + i + "\",\"processName\":\"" + process + "\","
+                + "\"timestamp\":\"2024-01-15T10:00:00Z\"" + (i % 3 == 0 ? ",\"commandLine\":\"" + "x".repeat(i % 500) + "\"" : "") + "}";
+            lines.add(line.getBytes(StandardCharsets.UTF_8));
+            if (i % 7 != 0 && i % 11 != 0) valid++;
+        }
+
+        String inline = run(lines, 0);
+        assertThat(inline.lines().count()).isEqualTo(valid);
+        assertThat(run(lines, 1)).isEqualTo(inline);
+        assertThat(run(lines, 4)).isEqualTo(inline);
+    }
+
+    @Test
+    void duplicateFilter_dropsRepeatsInInputOrderWhateverTheWorkerCount() throws Exception {
+        List<byte[]> lines = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            int event = i % 1000 < 600 ? i % 1000 : i; // the first 600 events are sent three times
+            lines.add(("{\"endpointId\":\"550e8400-e29b-41d4-a716-446655440000\",\"eventType\":\"process_start\","
+                + "\"userId\":\"u" + event + "\",\"processName\":\"cmd.exe\",\"timestamp\":\"2024-01-15T10:00:00Z\"}")
+                .getBytes(StandardCharsets.UTF_8));
+        }
+        DuplicateFilter inlineFilter = new DuplicateFilter(60_000, 4, 10_000, 0.001);
+        String inline = run(lines, 0, inlineFilter);
+        assertThat(inline.lines().count()).isEqualTo(600 + 3 * 400);
+        assertThat(inlineFilter.suppressed()).isEqualTo(2 * 600);
+        assertThat(run(lines, 3, new DuplicateFilter(60_000, 4, 10_000, 0.001))).isEqualTo(inline);
+    }
+
+    @Test
+    void duplicateFilter_passesEventsWithoutTimestampUnlessKeyedWithoutIt() throws Exception {
+        // The normalizer stamps such events with the current time, which differs on every resend.
+        byte[] untimed = ("{\"endpointId\":\"550e8400-e29b-41d4-a716-446655440000\",\"eventType\":\"process_start\","
+            + "\"userId\":\"alice\",\"processName\":\"cmd.exe\"}").getBytes(StandardCharsets.UTF_8);
+        byte[] other = ("{\"endpointId\":\"550e8400-e29b-41d4-a716-446655440000\",\"eventType\":\"process_start\","
+            + "\"userId\":\"bob\",\"processName\":\"cmd.exe\"}").getBytes(StandardCharsets.UTF_8);
+        List<byte[]> lines = List.of(untimed, other, untimed, other);
+
+        // A resend and a user starting cmd.exe twice look the same, so by default both copies are kept.
+        DuplicateFilter filter = new DuplicateFilter(60_000, 4, 10_000, 0.001);
+        assertThat(run(lines, 2, filter).lines()).hasSize(4);
+        assertThat(filter.checked()).isZero();
+
+        DuplicateFilter keyed = new DuplicateFilter(60_000, 4, 10_000, 0.001, true);
+        assertThat(run(lines, 2, keyed).lines()).hasSize(2);
+        assertThat(keyed.suppressed()).isEqualTo(2);
+    }
+
+    @Test
+    void reorderBuffer_writesTimeOrderedOutputWhateverTheWorkerCount() throws Exception {
+        Random random = new Random(5);
+        List<byte[]> lines = new ArrayList<>();
+        Instant base = Instant.parse("2024-01-15T10:00:00Z");
+        for (int i = 0; i < 3000; i++) {
+            // Roughly 10 ms apart, delivered up to 2 s out of order.
+            Instant ts = base.plusMillis(i * 10L + random.nextInt(4000) - 2000);
+            lines.add(("{\"endpointId\":\"550e8400-e29b-41d4-a716-446655440000\",\"eventType\":\"process_start\","
+                + "\"userId\":\"u" + i + "\",\"processName\":\"cmd.exe\",\"timestamp\":\"" + ts + "\"}").getBytes(StandardCharsets.UTF_8));
+        }
+        // An event an hour later moves the watermark past everything else.
+        lines.add(("{\"endpointId\":\"550e8400-e29b-41d4-a716-446655440000\",\"eventType\":\"process_start\","
+            + "\"userId\":\"last\",\"processName\":\"cmd.exe\",\"timestamp\":\"" + base.plusSeconds(3600) + "\"}").getBytes(StandardCharsets.UTF_8));
+
+        ReorderBuffer inlineBuffer = new ReorderBuffer(5000, 100_000);
+        String inline = run(lines, 0, null, inlineBuffer);
+        List<Instant> times = inline.lines().map(l -> Instant.parse(l.replaceAll(".*\"timestamp\":\"([^\"]+)\".*", "$1"))).toList();
+        assertThat(times).hasSize(3000).isSorted();
+        assertThat(inlineBuffer.late()).isZero();
+        assertThat(inlineBuffer.held()).isEqualTo(1);
+        assertThat(inlineBuffer.oldestHeldLine()).isEqualTo(3000);
+        assertThat(run(lines, 3, null, new ReorderBuffer(5000, 100_000))).isEqualTo(inline);
+    }
+
+    @Test
+    void alertSink_receivesAlertsOnlyAndMainSinkTheRest() throws Exception {
+        List<byte[]> lines = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            lines.add(("{\"endpointId\":\"550e8400-e29b-41d4-a716-446655440000\",\"eventType\":\"process_start\","
+                + "\"userId\":\"u" + i + "\",\"processName\":\"cmd.exe\",\"timestamp\":\"2024-01-15T10:00:00Z\""
+                + (i % 5 == 0 ? ",\"alertScore\":80,\"alertReason\":\"r" + i + "\"" : "") + "}").getBytes(StandardCharsets.UTF_8));
+        }
+        String all = run(lines, 0);
+
+        ByteArrayOutputStream inlineAlerts = new ByteArrayOutputStream();
+        String inline = run(lines, 0, null, null, null, inlineAlerts);
+        String alerts = inlineAlerts.toString(StandardCharsets.UTF_8);
+        assertThat(alerts.lines()).hasSize(400).allMatch(l -> l.contains("\"isAlert\":true"));
+        assertThat(inline.lines()).hasSize(1600).noneMatch(l -> l.contains("\"isAlert\":true"));
+        assertThat(all.lines().filter(l -> l.contains("\"isAlert\":true"))).containsExactlyElementsOf(alerts.lines().toList());
+        assertThat(all.lines().filter(l -> !l.contains("\"isAlert\":true"))).containsExactlyElementsOf(inline.lines().toList());
+
+        ByteArrayOutputStream pooledAlerts = new ByteArrayOutputStream();
+        assertThat(run(lines, 3, null, null, null, pooledAlerts)).isEqualTo(inline);
+        assertThat(pooledAlerts.toString(StandardCharsets.UTF_8)).isEqualTo(alerts);
+    }
+
+    @Test
+    void detectionRules_appendSameAlertsWhateverTheWorkerCount() throws Exception {
+        List<byte[]> lines = new ArrayList<>();
+        Random random = new Random(9);
+        for (int i = 0; i < 3000; i++) {
+            String endpoint = "550e8400-e29b-41d4-a716-44665544000" + random.nextInt(4);
+            String process = random.nextInt(3) == 0 ? "powershell.exe" : "cmd.exe";
+            lines.add(("{\"endpointId\":\"" + endpoint + "\",\"eventType\":\"process_start\",\"userId\":\"u" + random.nextInt(20)
+                + "\",\"processName\":\"" + process + "\",\"timestamp\":\"" + Instant.parse("2024-01-15T10:00:00Z").plusMillis(i * 50L)
+                + "\"}").getBytes(StandardCharsets.UTF_8));
+        }
+        DetectionRules inlineRules = rules();
+        String inline = run(lines, 0, null, null, inlineRules, null);
+        long alerts = inline.lines().filter(l -> l.contains("\"alertReason\":\"rule ")).count();
+        assertThat(alerts).isEqualTo(inlineRules.matches()).isPositive();
+        assertThat(inline.lines().count()).isEqualTo(3000 + alerts);
+        assertThat(run(lines, 3, null, null, rules(), null)).isEqualTo(inline);
+    }
+
+    private static DetectionRules rules() {
+        List<DetectionRules.Rule> rules = new ArrayList<>(DetectionRules.parseBursts("process_start:5:2000:powershell.exe", 70, 1000));
+        rules.add(new FirstSeenProcessRule(10_000, 40, 1000));
+        return new DetectionRules(rules);
+    }
+
+    @Test
+    void sinkFailure_surfacesToReaderWithoutHanging() throws Exception {
+        byte[] line = ("{\"endpointId\":\"550e8400-e29b-41d4-a716-446655440000\",\"eventType\":\"process_start\","
+            + "\"userId\":\"u\",\"processName\":\"cmd.exe\"}").getBytes(StandardCharsets.UTF_8);
+        NormalizationPipeline.Sink failing = (ndjson, ends, count) -> {
+            throw new IOException("disk full");
+        };
+        try (NormalizationPipeline pipeline = new NormalizationPipeline(normalizer, objectMapper, failing, 2, 4, 1, 2)) {
+            assertThatThrownBy(() -> {
+                for (int i = 0; i < 1000; i++) pipeline.accept(line, 0, line.length);
+                pipeline.sync();
+            }).isInstanceOf(IOException.class).hasRootCauseMessage("disk full");
+        }
+    }
+
+    /** Pushes all lines through a pipeline with small chunks and queues, syncing twice, and returns its output. */
+    private String run(List<byte[]> lines, int workers) throws Exception {
+        return run(lines, workers, null, null);
+    }
+
+    private String run(List<byte[]> lines, int workers, DuplicateFilter duplicates) throws Exception {
+        return run(lines, workers, duplicates, null);
+    }
+
+    private String run(List<byte[]> lines, int workers, DuplicateFilter duplicates, ReorderBuffer reorder) throws Exception {
+        return run(lines, workers, duplicates, reorder, null, null);
+    }
+
+    /** As above; with {@code alerts}, the alert sink writes there and the main output is returned. */
+    private String run(List<byte[]> lines, int workers, DuplicateFilter duplicates, ReorderBuffer reorder,
+                       DetectionRules rules, ByteArrayOutputStream alerts) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NormalizationPipeline.Sink sink = (ndjson, ends, count) -> out.write(ndjson, 0, ends[count - 1]);
+        NormalizationPipeline.Sink alertSink = alerts == null ? null : (ndjson, ends, count) -> alerts.write(ndjson, 0, ends[count - 1]);
+        try (NormalizationPipeline pipeline = new NormalizationPipeline(normalizer, objectMapper, sink, workers, 16, 3, 5,
+                duplicates, reorder, rules, alertSink)) {
+            for (int i = 0; i < lines.size(); i++) {
+                byte[] line = lines.get(i);
+                pipeline.accept(line, 0, line.length);
+                if (i == lines.size() / 2) pipeline.sync();
+            }
+            pipeline.sync();
+            assertThat(pipeline.linesRead()).isEqualTo(lines.size());
+            long alertLines = alerts == null ? 0 : alerts.toString(StandardCharsets.UTF_8).lines().count();
+            assertThat(pipeline.alertsWritten()).isEqualTo(alertLines);
+            assertThat(pipeline.eventsWritten()).isEqualTo(out.toString(StandardCharsets.UTF_8).lines().count() + alertLines);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
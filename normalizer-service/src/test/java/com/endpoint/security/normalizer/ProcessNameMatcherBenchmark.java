@@ -0,0 +1,94 @@
+package com.endpoint.security.normalizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Original exact-name {@code HashSet} lookup ({@code toLowerCase().trim()} per check) against
+ * {@link ProcessNameMatcher} with the same 1000 exact names, and with 3000 patterns (exact, prefix, suffix
+ * and globs) that the set cannot express. Names are a mix of bare executables and full paths, ~5% denied.
+ * Scores are names/s; add {@code -prof gc} for bytes allocated per check.
+ * <p>
+ * Run with: {@code mvn -pl normalizer-service test-compile exec:exec -Dexec.executable=java
+ * -Dexec.classpathScope=test -Dexec.args="-cp %classpath org.openjdk.jmh.Main ProcessNameMatcherBenchmark"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessNameMatcherBenchmark {
+
+    private static final int NAMES = 1024;
+
+    private Set<String> exactSet;
+    private ProcessNameMatcher exactMatcher;
+    private ProcessNameMatcher mixedMatcher;
+    private String[] names;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        List<String> exact = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) exact.add("tool" + i + ".exe");
+        List<String> mixed = new ArrayList<>(exact);
+        for (int i = 0; i < 1000; i++) {
+            mixed.add("agent" + i + "*");
+            mixed.add("*.x" + i);
+        }
+        for (int i = 0; i < 980; i++) mixed.add("*\\vendor" + i + "\\*.exe");
+        mixed.add("*\\temp\\*.exe");
+        mixed.add("*\\appdata\\*\\payload?.dll");
+        exactSet = new HashSet<>(exact);
+        exactMatcher = ProcessNameMatcher.compile(exact);
+        mixedMatcher = ProcessNameMatcher.compile(mixed);
+
+        names = new String[NAMES];
+        String[] common = {"chrome.exe", "powershell.exe", "explorer.exe", "python3", "sshd", "Teams.exe"};
+        for (int i = 0; i < NAMES; i++) {
+            String name = random.nextInt(20) == 0 ? "Tool" + random.nextInt(1000) + ".EXE" : common[random.nextInt(common.length)];
+            names[i] = random.nextBoolean() ? name : "C:\\Program Files\\Vendor Apps\\bin\\" + name;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NAMES)
+    public void hashSetExact(Blackhole bh) {
+        for (String name : names) bh.consume(exactSet.contains(name.toLowerCase().trim()));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NAMES)
+    public void compiledExact(Blackhole bh) {
+        for (String name : names) bh.consume(exactMatcher.isDenied(name));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NAMES)
+    public void compiledMixed3000(Blackhole bh) {
+        for (String name : names) bh.consume(mixedMatcher.isDenied(name));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ProcessNameMatcherBenchmark.class.getSimpleName()).build()).run();
+    }
+}
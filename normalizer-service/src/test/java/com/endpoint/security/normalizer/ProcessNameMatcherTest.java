@@ -0,0 +1,112 @@
+package com.endpoint.security.normalizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProcessNameMatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void patternKinds_matchCaseInsensitivelyOnTrimmedName() {
+        ProcessNameMatcher m = ProcessNameMatcher.compile(List.of(
+            "svchost.exe", "python*", "*.scr", "*\\temp\\*.exe", "cmd?.exe", "!*\\temp\\installer*.exe"));
+
+        assertThat(m.isDenied(" SvcHost.EXE ")).isTrue();
+        assertThat(m.isDenied("svchost.exe.bak")).isFalse();
+        assertThat(m.isDenied("Python3.11")).isTrue();
+        assertThat(m.isDenied("mypython")).isFalse();
+        assertThat(m.isDenied("screensaver.SCR")).isTrue();
+        assertThat(m.isDenied("C:\\Users\\a\\AppData\\Local\\Temp\\x.exe")).isTrue();
+        assertThat(m.isDenied("C:\\Temp\\x.dll")).isFalse();
+        assertThat(m.isDenied("cmd2.exe")).isTrue();
+        assertThat(m.isDenied("cmd.exe")).isFalse();
+        // The allow pattern overrides the temp-folder deny and takes the hit.
+        assertThat(m.isDenied("C:\\Temp\\Installer-v2.exe")).isFalse();
+
+        assertThat(m.hits(0)).isEqualTo(1);
+        assertThat(m.hits(3)).isEqualTo(1);
+        assertThat(m.hits(5)).isEqualTo(1);
+    }
+
+    @Test
+    void randomPatternsAndNames_agreeWithRegexTranslation() {
+        Random random = new Random(7);
+        String alphabet = "abAB.\\-é";
+        for (int round = 0; round < 200; round++) {
+            List<String> patterns = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(30); i++) {
+                String p = randomString(random, alphabet + "*?", 1 + random.nextInt(6));
+                patterns.add(random.nextInt(5) == 0 ? "!" + p : p);
+            }
+            ProcessNameMatcher m = ProcessNameMatcher.compile(patterns);
+            for (int n = 0; n < 200; n++) {
+                String name = randomString(random, alphabet, random.nextInt(10));
+                assertThat(m.isDenied(name)).as("%s against %s", name, patterns).isEqualTo(expected(patterns, name));
+            }
+        }
+    }
+
+    @Test
+    void denylistFile_reloadsOnChangeAndKeepsHitCounts() throws Exception {
+        Path file = tempDir.resolve("denylist.txt");
+        Files.writeString(file, "# comment\n*.scr\n\n");
+        ProcessDenylist denylist = new ProcessDenylist(List.of("svchost.exe", " "), file, 0);
+        assertThat(denylist.isDenied("a.scr")).isTrue();
+        assertThat(denylist.isDenied("svchost.exe")).isTrue();
+        assertThat(denylist.isDenied("nc.exe")).isFalse();
+
+        Files.writeString(file, "*.scr\nnc.exe\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        assertThat(denylist.reloadIfChanged(System.currentTimeMillis())).isTrue();
+        assertThat(denylist.isDenied("nc.exe")).isTrue();
+        assertThat(denylist.topHits(10)).isEqualTo("svchost.exe=1, *.scr=1, nc.exe=1");
+
+        // A broken file keeps the previous patterns; so does an unchanged one.
+        Files.writeString(file, "!\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        assertThat(denylist.reloadIfChanged(System.currentTimeMillis())).isFalse();
+        assertThat(denylist.reloadIfChanged(System.currentTimeMillis())).isFalse();
+        assertThat(denylist.isDenied("nc.exe")).isTrue();
+    }
+
+    private static boolean expected(List<String> patterns, String name) {
+        String n = name.trim();
+        boolean denied = false;
+        for (String p : patterns) {
+            boolean allow = p.startsWith("!");
+            if (regex(allow ? p.substring(1) : p).matcher(n).matches()) {
+                if (allow) return false;
+                denied = true;
+            }
+        }
+        return denied;
+    }
+
+    private static Pattern regex(String glob) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*') sb.append(".*");
+            else if (c == '?') sb.append('.');
+            else sb.append(Pattern.quote(String.valueOf(c)));
+        }
+        return Pattern.compile(sb.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,110 @@
+package com.endpoint.security.normalizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RawInputTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void poll_readsEveryShardInTheDescriptorEachWithItsOwnCheckpoint() throws Exception {
+        Path raw = tempDir.resolve("raw-events.ndjson");
+        Path checkpoint = tempDir.resolve("normalized-events.ndjson.checkpoint");
+        Files.writeString(tempDir.resolve("raw-events.shards.json"), "{\"shards\":3,\"format\":\"ndjson\",\"routing\":\"endpointId-hash\","
+            + "\"files\":[{\"shard\":0,\"path\":\"raw-events-shard-0.ndjson\"},{\"shard\":1,\"path\":\"raw-events-shard-1.ndjson\"},"
+            + "{\"shard\":2,\"path\":\"raw-events-shard-2.ndjson\"}]}");
+        append(tempDir.resolve("raw-events-shard-0.ndjson"), "{\"s\":0,\"n\":1}\n");
+        append(tempDir.resolve("raw-events-shard-2.ndjson"), "{\"s\":2,\"n\":1}\n{\"s\":2,\"n\":2}\n");
+        List<String> lines = new ArrayList<>();
+        try (RawInput input = new RawInput(raw, checkpoint, 1024)) {
+            assertThat(input.poll(collect(lines))).isTrue();
+            assertThat(input.poll(collect(lines))).isFalse();
+            input.checkpoint();
+            append(tempDir.resolve("raw-events-shard-1.ndjson"), "{\"s\":1,\"n\":1}\n");
+            input.poll(collect(lines));
+            assertThat(input.watchedFiles()).extracting(Path::getFileName).extracting(Path::toString)
+                .contains("raw-events-shard-0.ndjson", "raw-events-shard-1.ndjson", "raw-events-shard-2.ndjson");
+        }
+        assertThat(lines).containsExactlyInAnyOrder("{\"s\":0,\"n\":1}", "{\"s\":2,\"n\":1}", "{\"s\":2,\"n\":2}", "{\"s\":1,\"n\":1}");
+        assertThat(Files.exists(Path.of(checkpoint + ".shard-0"))).isTrue();
+        assertThat(Files.exists(Path.of(checkpoint + ".shard-2"))).isTrue();
+        assertThat(Files.exists(checkpoint)).isFalse();
+
+        // Shard 1 was never checkpointed, so its line comes again; the others resume where they were.
+        lines.clear();
+        append(tempDir.resolve("raw-events-shard-0.ndjson"), "{\"s\":0,\"n\":2}\n");
+        try (RawInput input = new RawInput(raw, checkpoint, 1024)) {
+            assertThat(input.resumed()).isTrue();
+            input.poll(collect(lines));
+        }
+        assertThat(lines).containsExactlyInAnyOrder("{\"s\":0,\"n\":2}", "{\"s\":1,\"n\":1}");
+    }
+
+    @Test
+    void poll_readsThePlainInputWithoutADescriptorOnceItAppears() throws Exception {
+        Path raw = tempDir.resolve("raw-events.ndjson");
+        Path checkpoint = tempDir.resolve("normalized-events.ndjson.checkpoint");
+        List<String> lines = new ArrayList<>();
+        try (RawInput input = new RawInput(raw, checkpoint, 1024)) {
+            assertThat(input.poll(collect(lines))).isFalse();
+            assertThat(input.watchedFiles()).containsExactly(raw, tempDir.resolve("raw-events.shards.json"));
+
+            append(raw, "{\"n\":1}\n");
+            assertThat(input.poll(collect(lines))).isTrue();
+            input.checkpoint();
+        }
+        assertThat(lines).containsExactly("{\"n\":1}");
+        assertThat(Files.exists(checkpoint)).isTrue();
+    }
+
+    @Test
+    void poll_followsTheSegmentsOfASegmentedShard() throws Exception {
+        Path raw = tempDir.resolve("raw-events.ndjson");
+        Files.writeString(tempDir.resolve("raw-events.shards.json"), "{\"shards\":1,\"format\":\"ndjson\",\"segmented\":true,"
+            + "\"routing\":\"endpointId-hash\",\"files\":[{\"shard\":0,\"path\":\"raw-events.ndjson\"}]}");
+        append(tempDir.resolve("raw-events-000000.ndjson"), "{\"n\":1}\n");
+        append(tempDir.resolve("raw-events-000001.ndjson"), "{\"n\":2}\n");
+        Files.writeString(tempDir.resolve("raw-events.manifest.json"), "{\"active\":\"raw-events-000001.ndjson\","
+            + "\"nextSequence\":2,\"sealed\":[{\"name\":\"raw-events-000000.ndjson\",\"bytes\":8}]}");
+        List<String> lines = new ArrayList<>();
+        try (RawInput input = new RawInput(raw, tempDir.resolve("cp"), 1024)) {
+            while (input.poll(collect(lines))) {
+                input.checkpoint();
+            }
+            assertThat(input.watchedFiles()).contains(tempDir.resolve("raw-events.manifest.json"));
+        }
+        assertThat(lines).containsExactly("{\"n\":1}", "{\"n\":2}");
+    }
+
+    @Test
+    void open_rejectsADescriptorForOutputItCannotRead() throws Exception {
+        Path raw = tempDir.resolve("raw-events.ndjson");
+        Files.writeString(tempDir.resolve("raw-events.shards.json"), "{\"shards\":1,\"format\":\"mmap\",\"routing\":\"endpointId-hash\","
+            + "\"files\":[{\"shard\":0,\"path\":\"raw-events.ndjson\"}]}");
+
+        assertThatThrownBy(() -> new RawInput(raw, tempDir.resolve("cp"), 1024))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("mmap");
+    }
+
+    private static FileTailer.LineHandler collect(List<String> lines) {
+        return (bytes, offset, length) -> lines.add(new String(bytes, offset, length, StandardCharsets.UTF_8));
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.writeString(file, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
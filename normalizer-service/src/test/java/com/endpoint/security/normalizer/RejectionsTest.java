@@ -0,0 +1,46 @@
+package com.endpoint.security.normalizer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RejectionsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void deadLetterFile_keepsRawLineAndReason_andStopsAtSizeLimit() throws Exception {
+        Path file = tempDir.resolve("dead-letter.ndjson");
+        Rejections rejections = new Rejections(file, 1, 300);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        rejections.bindTo(registry);
+
+        byte[] buffer = "xx{\"endpointId\":\"not-a-uuid\",\"note\":\"café\"}yy".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < 5; i++) rejections.reject(RejectReason.BAD_UUID, buffer, 2, buffer.length - 4);
+        rejections.reject(RejectReason.MISSING_FIELD, null, 0, 0);
+        rejections.close();
+
+        List<String> records = Files.readAllLines(file);
+        assertThat(records).isNotEmpty().hasSizeLessThan(5);
+        assertThat(Files.size(file)).isLessThanOrEqualTo(300);
+        JsonNode first = new ObjectMapper().readTree(records.get(0));
+        assertThat(first.get("reason").asText()).isEqualTo("bad_uuid");
+        assertThat(first.get("line").asText()).isEqualTo("{\"endpointId\":\"not-a-uuid\",\"note\":\"café\"}");
+        assertThat(first.get("rejectedAt").asText()).isNotEmpty();
+
+        assertThat(rejections.deadLettersWritten()).isEqualTo(records.size());
+        assertThat(rejections.deadLettersDropped()).isEqualTo(5 - records.size());
+        assertThat(registry.get("normalizer.rejected").tag("reason", "bad_uuid").functionCounter().count()).isEqualTo(5);
+        assertThat(registry.get("normalizer.rejected").tag("reason", "missing_field").functionCounter().count()).isEqualTo(1);
+    }
+}
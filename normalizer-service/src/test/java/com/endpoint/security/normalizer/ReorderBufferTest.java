@@ -0,0 +1,69 @@
+package com.endpoint.security.normalizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReorderBufferTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final List<String> out = new ArrayList<>();
+    private final NormalizationPipeline.Sink sink = (ndjson, ends, count) -> {
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            out.add(new String(ndjson, start, ends[i] - start - 1, StandardCharsets.UTF_8));
+            start = ends[i];
+        }
+    };
+
+    @Test
+    void release_emitsInTimeOrderBehindWatermark_andCountsLateEvents() throws Exception {
+        ReorderBuffer buffer = new ReorderBuffer(1000, 100);
+        long t = NOW - 60_000;
+        add(buffer, "b", t + 500, 0);
+        add(buffer, "a", t, 1);
+        add(buffer, "d", t + 1500, 2);
+        add(buffer, "c", t + 1000, 3);
+        // Watermark t + 500: a and b are due; c waits for an event newer than t + 2000.
+        assertThat(buffer.release(NOW, sink)).isEqualTo(2);
+        assertThat(out).containsExactly("a", "b");
+        assertThat(buffer.oldestHeldLine()).isEqualTo(2);
+
+        add(buffer, "late", t + 100, 4);
+        add(buffer, "e", t + 2600, 5);
+        buffer.release(NOW, sink);
+        assertThat(out).containsExactly("a", "b", "late", "c", "d");
+        assertThat(buffer.late()).isEqualTo(1);
+        assertThat(buffer.held()).isEqualTo(1);
+        assertThat(buffer.oldestHeldLine()).isEqualTo(5);
+
+        // Idle for the lag: the rest goes out.
+        buffer.release(NOW + 1000, sink);
+        assertThat(out).containsExactly("a", "b", "late", "c", "d", "e");
+        assertThat(buffer.oldestHeldLine()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void release_boundsHeldEventsAndOrdersFutureTimestampsAsArrival() throws Exception {
+        ReorderBuffer buffer = new ReorderBuffer(10_000, 3);
+        add(buffer, "future", NOW + 3_600_000, 0);
+        add(buffer, "x", NOW - 5, 1);
+        add(buffer, "y", NOW - 4, 2);
+        add(buffer, "z", NOW - 3, 3);
+        assertThat(buffer.release(NOW, sink)).isEqualTo(1);
+        assertThat(out).containsExactly("x");
+        assertThat(buffer.overflowed()).isEqualTo(1);
+        // Without the clamp, the future event would have released everything.
+        assertThat(buffer.held()).isEqualTo(3);
+    }
+
+    private void add(ReorderBuffer buffer, String text, long timestampMs, long inputLine) {
+        byte[] line = ("xx" + text + "\n").getBytes(StandardCharsets.UTF_8);
+        buffer.add(line, 2, line.length, timestampMs, inputLine, NOW);
+    }
+}
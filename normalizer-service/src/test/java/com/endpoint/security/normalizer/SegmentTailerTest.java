@@ -0,0 +1,123 @@
+package com.endpoint.security.normalizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentTailerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void poll_readsSegmentsInOrderAndLeavesOneOnlyAfterTheManifestMovesOn() throws Exception {
+        Path base = tempDir.resolve("raw-events.ndjson");
+        Path checkpoint = tempDir.resolve("normalized-events.ndjson.checkpoint");
+        List<String> lines = new ArrayList<>();
+        try (SegmentTailer tailer = new SegmentTailer(base, checkpoint, 1024)) {
+            tailer.poll(collect(lines));
+            assertThat(lines).isEmpty();
+            assertThat(tailer.watchedFiles()).containsExactly(tempDir.resolve("raw-events.manifest.json"));
+
+            append("raw-events-000000.ndjson", "{\"n\":1}\n");
+            manifest("raw-events-000000.ndjson");
+            tailer.poll(collect(lines));
+            assertThat(lines).containsExactly("{\"n\":1}");
+
+            // A later segment exists, but the manifest still names this one active.
+            append("raw-events-000001.ndjson", "{\"n\":3}\n");
+            tailer.poll(collect(lines));
+            assertThat(lines).containsExactly("{\"n\":1}");
+
+            // Sealed with one more batch the tailer has not seen yet: it is read before moving on.
+            append("raw-events-000000.ndjson", "{\"n\":2}\n");
+            manifest("raw-events-000001.ndjson", "raw-events-000000.ndjson");
+            pollUntilIdle(tailer, lines);
+            assertThat(lines).containsExactly("{\"n\":1}", "{\"n\":2}", "{\"n\":3}");
+            assertThat(tailer.position()).isEqualTo(3 * "{\"n\":1}\n".length());
+            assertThat(tailer.watchedFiles()).contains(tempDir.resolve("raw-events-000001.ndjson"));
+        }
+    }
+
+    @Test
+    void checkpoint_resumesInTheSegmentItWasTakenIn() throws Exception {
+        Path base = tempDir.resolve("raw-events.ndjson");
+        Path checkpoint = tempDir.resolve("normalized-events.ndjson.checkpoint");
+        append("raw-events-000000.ndjson", "{\"n\":1}\n{\"n\":2}\n");
+        append("raw-events-000001.ndjson", "{\"n\":3}\n{\"n\":4}\n");
+        manifest("raw-events-000001.ndjson", "raw-events-000000.ndjson");
+        List<String> lines = new ArrayList<>();
+        long afterFirstLine = "{\"n\":1}\n".length();
+        try (SegmentTailer tailer = new SegmentTailer(base, checkpoint, 1024)) {
+            assertThat(tailer.resumed()).isFalse();
+            pollUntilIdle(tailer, lines);
+            // Output held back (e.g. reordering) up to the first line: the position lies in the first segment.
+            tailer.checkpoint(afterFirstLine);
+        }
+        assertThat(lines).hasSize(4);
+
+        lines.clear();
+        try (SegmentTailer tailer = new SegmentTailer(base, checkpoint, 1024)) {
+            assertThat(tailer.resumed()).isTrue();
+            pollUntilIdle(tailer, lines);
+            tailer.checkpoint(tailer.position());
+        }
+        assertThat(lines).containsExactly("{\"n\":2}", "{\"n\":3}", "{\"n\":4}");
+
+        lines.clear();
+        append("raw-events-000001.ndjson", "{\"n\":5}\n");
+        try (SegmentTailer tailer = new SegmentTailer(base, checkpoint, 1024)) {
+            pollUntilIdle(tailer, lines);
+        }
+        assertThat(lines).containsExactly("{\"n\":5}");
+    }
+
+    @Test
+    void poll_skipsSegmentsDeletedBeforeTheyWereRead() throws Exception {
+        Path base = tempDir.resolve("raw-events.ndjson");
+        append("raw-events-000000.ndjson", "{\"n\":1}\n");
+        append("raw-events-000003.ndjson", "{\"n\":4}\n");
+        manifest("raw-events-000003.ndjson", "raw-events-000000.ndjson");
+        List<String> lines = new ArrayList<>();
+        try (SegmentTailer tailer = new SegmentTailer(base, tempDir.resolve("cp"), 1024)) {
+            pollUntilIdle(tailer, lines);
+        }
+        assertThat(lines).containsExactly("{\"n\":1}", "{\"n\":4}");
+    }
+
+    private void manifest(String active, String... sealed) throws IOException {
+        StringBuilder json = new StringBuilder("{\"active\":\"" + active + "\",\"nextSequence\":0,\"sealed\":[");
+        for (int i = 0; i < sealed.length; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"name\":\"").append(sealed[i]).append("\",\"bytes\":")
+                .append(Files.size(tempDir.resolve(sealed[i]))).append('}');
+        }
+        Files.writeString(tempDir.resolve("raw-events.manifest.json"), json.append("]}"));
+    }
+
+    private void append(String segment, String text) throws IOException {
+        Files.writeString(tempDir.resolve(segment), text, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static void pollUntilIdle(SegmentTailer tailer, List<String> lines) throws IOException {
+        long before;
+        do {
+            before = tailer.position();
+            tailer.poll(collect(lines));
+        } while (tailer.position() != before);
+    }
+
+    private static FileTailer.LineHandler collect(List<String> lines) {
+        return (bytes, offset, length) -> lines.add(new String(bytes, offset, length, StandardCharsets.UTF_8));
+    }
+}
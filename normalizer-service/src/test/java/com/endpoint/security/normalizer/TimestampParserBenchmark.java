@@ -0,0 +1,77 @@
+package com.endpoint.security.normalizer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Original exception-driven timestamp and UUID checks ({@link LegacyEventNormalizer}) against
+ * {@link TimestampParser} and {@link UuidValidator}, on a mix of well-formed and messy values (half of them
+ * make the original code throw). Scores are values/s.
+ * <p>
+ * Run with: {@code mvn -pl normalizer-service test-compile exec:exec -Dexec.executable=java
+ * -Dexec.classpathScope=test -Dexec.args="-cp %classpath org.openjdk.jmh.Main TimestampParserBenchmark"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimestampParserBenchmark {
+
+    private static final String[] TIMESTAMPS = {
+        "2024-01-15T10:00:00.123Z", "2024-01-15 10:00:00Z", "2024-01-15T10:00:00+02:00", "2024-01-15T10:00:00Z",
+        "2024-01-15T10:00:00", "15/01/2024 10:00", "yesterday", "2024-01-15T10:00:00 UTC"
+    };
+    private static final String[] UUIDS = {
+        "550e8400-e29b-41d4-a716-446655440000", "6ba7b810-9dad-11d1-80b4-00c04fd430c8",
+        "3f2504e0-4f89-11d3-9a0c-0305e82c3301", "123e4567-e89b-12d3-a456-426614174000",
+        "host-17", "not-a-uuid", "550e8400e29b41d4a716446655440000", "null"
+    };
+
+    private final JsonNode[] timestampNodes = new JsonNode[TIMESTAMPS.length];
+
+    public TimestampParserBenchmark() {
+        for (int i = 0; i < TIMESTAMPS.length; i++) timestampNodes[i] = TextNode.valueOf(TIMESTAMPS[i]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void legacyTimestamps(Blackhole bh) {
+        for (JsonNode node : timestampNodes) bh.consume(LegacyEventNormalizer.parseTimestamp(node));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void fastTimestamps(Blackhole bh) {
+        for (String s : TIMESTAMPS) bh.consume(TimestampParser.parse(s));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void legacyUuids(Blackhole bh) {
+        for (String s : UUIDS) bh.consume(LegacyEventNormalizer.isValidUuid(s));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void fastUuids(Blackhole bh) {
+        for (String s : UUIDS) bh.consume(UuidValidator.isValid(s));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TimestampParserBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,85 @@
+package com.endpoint.security.normalizer;
+
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimestampParserTest {
+
+    private static final String[] SEEDS = {
+        "2024-01-15T10:00:00Z", "2024-01-15T10:00:00.123Z", "2024-01-15T10:00:00.123456789Z", "2024-01-15 10:00:00Z",
+        "2024-01-15T10:00Z", "2024-01-15T10:00:00+02:00", "2024-01-15T10:00:00-05:30", "2024-01-15T10:00:00",
+        "2024-01-15 10:00:00.5", "2024-02-29T00:00:00Z", "2023-02-29T00:00:00Z", "1900-02-29T00:00:00Z",
+        "2000-02-29T23:59:59.999Z", "2024-12-31T23:59:60Z", "2024-01-15T24:00:00Z", "2024-01-15t10:00:00z",
+        "+12024-01-15T10:00:00Z", "-0001-01-01T00:00:00Z", "2024-01-15T10:00:00+18:00", "2024-01-15T10:00:00+01",
+        "2024-01-15T10:00:00+0100", "2024-01-15T10:00:00+01:00:30", "2024-01-15T10:00:00+01:00[Europe/Paris]",
+        "2024-01-15T10:00:00Z[UTC]", "2024-01-15T10:00:00.Z", "2024-01-15T10:00:00.1234567891Z", "1705312800",
+        "yesterday", "2024-1-15T10:00:00Z", "0000-01-01T00:00:00Z", "9999-12-31T23:59:59Z", "1970-01-01T00:00:00Z"
+    };
+    private static final String ALPHABET = "0123456789-:.TtZz+ []/EUPrisC,";
+
+    @Test
+    void parse_knownForms() {
+        assertThat(TimestampParser.parse("2024-01-15T10:00:00.123Z")).isEqualTo(Instant.parse("2024-01-15T10:00:00.123Z"));
+        assertThat(TimestampParser.parse("2024-01-15 10:00:00Z")).isEqualTo(Instant.parse("2024-01-15T10:00:00Z"));
+        assertThat(TimestampParser.parse("2024-01-15T10:00-05:30")).isEqualTo(Instant.parse("2024-01-15T15:30:00Z"));
+        assertThat(TimestampParser.parse("2024-01-15T10:00:00")).isNull(); // no offset, as before
+        assertThat(TimestampParser.parse("2023-02-29T00:00:00Z")).isNull();
+        assertThat(TimestampParser.parseFast("2024-01-15T10:00:00Z")).isNotEqualTo(TimestampParser.UNDECIDED);
+        assertThat(TimestampParser.parseFast("not a timestamp at all")).isNull();
+    }
+
+    @Test
+    void parse_matchesLegacyOnMutatedInput() {
+        Random random = new Random(7);
+        int undecided = 0;
+        for (String seed : SEEDS) {
+            assertSameAsLegacy(seed);
+        }
+        for (int i = 0; i < 200_000; i++) {
+            String s = mutate(SEEDS[random.nextInt(SEEDS.length)], random);
+            assertSameAsLegacy(s);
+            if (TimestampParser.parseFast(s) == TimestampParser.UNDECIDED) undecided++;
+        }
+        // The exception-based fallback stays a rare corner, even for this deliberately hostile input.
+        assertThat(undecided).isLessThan(200_000 / 5);
+    }
+
+    @Test
+    void parse_matchesLegacyOnRandomDates() {
+        Random random = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            String s = String.format("%04d-%02d-%02d%c%02d:%02d:%02d%s", random.nextInt(10000), random.nextInt(14),
+                random.nextInt(33), random.nextBoolean() ? 'T' : ' ', random.nextInt(26), random.nextInt(62),
+                random.nextInt(62), random.nextBoolean() ? "Z" : String.format("%c%02d:%02d",
+                    random.nextBoolean() ? '+' : '-', random.nextInt(20), random.nextInt(61)));
+            assertSameAsLegacy(s);
+        }
+    }
+
+    private static void assertSameAsLegacy(String s) {
+        Instant expected = LegacyEventNormalizer.parseTimestamp(TextNode.valueOf(s));
+        if (s.isBlank()) return; // the normalizer handles blanks before parsing
+        assertThat(TimestampParser.parse(s)).as("'%s'", s).isEqualTo(expected);
+    }
+
+    private static String mutate(String seed, Random random) {
+        StringBuilder sb = new StringBuilder(seed);
+        int edits = 1 + random.nextInt(3);
+        for (int e = 0; e < edits; e++) {
+            int pos = sb.length() == 0 ? 0 : random.nextInt(sb.length());
+            char c = random.nextInt(10) == 0 ? (char) random.nextInt(0x3000) : ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+            switch (random.nextInt(4)) {
+                case 0 -> { if (sb.length() > 0) sb.setCharAt(pos, c); }
+                case 1 -> sb.insert(pos, c);
+                case 2 -> { if (sb.length() > 0) sb.deleteCharAt(pos); }
+                default -> sb.setLength(pos);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package com.endpoint.security.normalizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UuidValidatorTest {
+
+    private static final String[] SEEDS = {
+        "550e8400-e29b-41d4-a716-446655440000", "550E8400-E29B-41D4-A716-446655440000",
+        " 550e8400-e29b-41d4-a716-446655440000\t", "1-2-3-4-5", "+1-2-3-4-5", "0-0-0-0-0",
+        "7fffffffffffffff-0-0-0-0", "8000000000000000-0-0-0-0", "00000000000000001-0-0-0-1",
+        "550e8400e29b41d4a716446655440000", "550e8400-e29b-41d4-a716-44665544000g", "not-a-uuid",
+        "550e8400-e29b-41d4-a716-4466554400001", "-1-2-3-4", "1--2-3-4", "1-2-3-4-5-6", "1-2-3-4-", "١-2-3-4-5"
+    };
+    private static final String ALPHABET = "0123456789abcdefABCDEFg-+ \t";
+
+    @Test
+    void isValid_knownForms() {
+        assertThat(UuidValidator.isValid("550e8400-e29b-41d4-a716-446655440000")).isTrue();
+        assertThat(UuidValidator.isValid("1-2-3-4-5")).isTrue(); // accepted by UUID.fromString
+        assertThat(UuidValidator.isValid("not-a-uuid")).isFalse();
+        assertThat(UuidValidator.isValid("550e8400e29b41d4a716446655440000")).isFalse();
+    }
+
+    @Test
+    void isValid_matchesLegacyOnMutatedInput() {
+        Random random = new Random(3);
+        for (String seed : SEEDS) {
+            assertSameAsLegacy(seed);
+        }
+        for (int i = 0; i < 300_000; i++) {
+            StringBuilder sb = new StringBuilder(SEEDS[random.nextInt(SEEDS.length)]);
+            int edits = 1 + random.nextInt(3);
+            for (int e = 0; e < edits; e++) {
+                int pos = sb.length() == 0 ? 0 : random.nextInt(sb.length());
+                char c = random.nextInt(20) == 0 ? (char) random.nextInt(0x700) : ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+                switch (random.nextInt(3)) {
+                    case 0 -> { if (sb.length() > 0) sb.setCharAt(pos, c); }
+                    case 1 -> sb.insert(pos, c);
+                    default -> { if (sb.length() > 0) sb.deleteCharAt(pos); }
+                }
+            }
+            assertSameAsLegacy(sb.toString());
+        }
+    }
+
+    private static void assertSameAsLegacy(String s) {
+        assertThat(UuidValidator.isValid(s)).as("'%s'", s).isEqualTo(LegacyEventNormalizer.isValidUuid(s));
+    }
+}